@@ -0,0 +1,70 @@
+package org.xdove.thridpart.fastgpt.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+import org.xdove.thridpart.fastgpt.entity.DataItem;
+import org.xdove.thridpart.fastgpt.entity.Page;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * listData、searchTestDataset 响应解码：
+ * 旧版 str2Map（先读成字符串再转 Map）、直接从流读成 Map、直接从流读成实体
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodingBenchmark {
+
+    @Param({"listData", "searchTest"})
+    public String api;
+
+    @Param({"20", "500"})
+    public int size;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ObjectReader mapReader = mapper.readerFor(Map.class);
+    private ObjectReader typedReader;
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        if ("listData".equals(api)) {
+            payload = Payloads.listData(size);
+            typedReader = mapper.readerFor(new TypeReference<Response<Page<DataItem>>>() {});
+        } else {
+            payload = Payloads.searchTest(size);
+            typedReader = mapper.readerFor(new TypeReference<Response<SearchResult>>() {});
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> str2Map() throws IOException {
+        String s = new String(payload, StandardCharsets.UTF_8);
+        return mapper.readValue(s, Map.class);
+    }
+
+    @Benchmark
+    public Map<String, Object> streamMap() throws IOException {
+        return mapReader.readValue(new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    public Object streamTyped() throws IOException {
+        return typedReader.readValue(new ByteArrayInputStream(payload));
+    }
+}
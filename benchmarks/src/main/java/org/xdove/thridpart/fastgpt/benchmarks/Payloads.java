@@ -0,0 +1,130 @@
+package org.xdove.thridpart.fastgpt.benchmarks;
+
+import org.xdove.thridpart.fastgpt.entity.PushData;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试使用的固定数据，结构与 FastGPT 接口的真实响应一致，随机种子固定以保证每次运行相同
+ */
+final class Payloads {
+
+    private static final String TEXT = "FastGPT 是一个基于 LLM 大语言模型的知识库问答系统，提供开箱即用的数据处理、模型调用等能力。"
+            + "同时可以通过 Flow 可视化进行工作流编排，从而实现复杂的问答场景。";
+
+    private Payloads() {
+    }
+
+    static String text(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            int start = random.nextInt(TEXT.length());
+            sb.append(TEXT, start, Math.min(TEXT.length(), start + length - sb.length()));
+        }
+        return sb.toString();
+    }
+
+    static String id(Random random) {
+        return String.format("%024x", new BigInteger(96, random));
+    }
+
+    static List<PushData> pushData(int size) {
+        Random random = new Random(size);
+        List<PushData> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<PushData.DataIndex> indexes = Collections.singletonList(
+                    new PushData.DataIndex(false, "custom", text(random, 40)));
+            list.add(new PushData(text(random, 200), text(random, 400), indexes));
+        }
+        return list;
+    }
+
+    /** /api/core/dataset/data/list 的响应 */
+    static byte[] listData(int size) {
+        Random random = new Random(size);
+        String collectionId = id(random);
+        String datasetId = id(random);
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"code\":200,\"statusText\":\"\",\"message\":\"\",\"data\":{\"pageNum\":1,\"pageSize\":")
+                .append(size).append(",\"total\":").append(size * 10).append(",\"data\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"_id\":\"").append(id(random))
+                    .append("\",\"teamId\":\"").append(id(random))
+                    .append("\",\"datasetId\":\"").append(datasetId)
+                    .append("\",\"collectionId\":\"").append(collectionId)
+                    .append("\",\"q\":\"").append(text(random, 200))
+                    .append("\",\"a\":\"").append(text(random, 400))
+                    .append("\",\"chunkIndex\":").append(i)
+                    .append(",\"indexes\":[{\"defaultIndex\":true,\"type\":\"chunk\",\"dataId\":\"").append(id(random))
+                    .append("\",\"text\":\"").append(text(random, 200))
+                    .append("\"}],\"sourceName\":\"manual.md\",\"sourceId\":\"").append(id(random))
+                    .append("\",\"canWrite\":true}");
+        }
+        sb.append("]}}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** /api/core/dataset/searchTest 的响应 */
+    static byte[] searchTest(int size) {
+        Random random = new Random(size);
+        String datasetId = id(random);
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"code\":200,\"statusText\":\"\",\"message\":\"\",\"data\":{\"list\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"").append(id(random))
+                    .append("\",\"datasetId\":\"").append(datasetId)
+                    .append("\",\"collectionId\":\"").append(id(random))
+                    .append("\",\"q\":\"").append(text(random, 200))
+                    .append("\",\"a\":\"").append(text(random, 400))
+                    .append("\",\"chunkIndex\":").append(i)
+                    .append(",\"sourceName\":\"manual.md\",\"sourceId\":\"").append(id(random))
+                    .append("\",\"score\":[{\"type\":\"embedding\",\"value\":").append(random.nextDouble())
+                    .append(",\"index\":").append(i)
+                    .append("},{\"type\":\"rrf\",\"value\":").append(random.nextDouble() / 10)
+                    .append(",\"index\":").append(i).append("}]}");
+        }
+        sb.append("],\"searchMode\":\"mixedRecall\",\"limit\":5000,\"similarity\":0.5,\"usingReRank\":false,")
+                .append("\"usingSimilarityFilter\":true,\"duration\":\"0.532s\"}}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** detail=true 的流式对话，每个 answer 事件一个片段，前后带 flowNodeStatus 和 flowResponses */
+    static byte[] chatStream(int tokens) {
+        Random random = new Random(tokens);
+        StringBuilder sb = new StringBuilder();
+        sb.append("event: flowNodeStatus\ndata: {\"status\":\"running\",\"name\":\"知识库搜索\"}\n\n");
+        sb.append("event: flowNodeStatus\ndata: {\"status\":\"running\",\"name\":\"AI 对话\"}\n\n");
+        for (int i = 0; i < tokens; i++) {
+            sb.append("event: answer\ndata: {\"id\":\"\",\"object\":\"\",\"created\":0,\"model\":\"\",")
+                    .append("\"choices\":[{\"delta\":{\"role\":\"assistant\",\"content\":\"")
+                    .append(text(random, 1 + random.nextInt(4)))
+                    .append("\"},\"index\":0,\"finish_reason\":null}]}\n\n");
+        }
+        sb.append("event: answer\ndata: {\"id\":\"\",\"object\":\"\",\"created\":0,\"model\":\"\",")
+                .append("\"choices\":[{\"delta\":{},\"index\":0,\"finish_reason\":\"stop\"}]}\n\n");
+        sb.append("event: flowResponses\ndata: [{\"moduleName\":\"AI 对话\",\"moduleType\":\"chatNode\",")
+                .append("\"totalPoints\":0.5,\"model\":\"gpt-3.5-turbo\",\"tokens\":").append(tokens)
+                .append(",\"runningTime\":1.2}]\n\n");
+        sb.append("event: answer\ndata: [DONE]\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** 非流式对话的响应 */
+    static byte[] chatCompletion() {
+        Random random = new Random(0);
+        return ("{\"id\":\"\",\"model\":\"\",\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1,\"total_tokens\":1},"
+                + "\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"" + text(random, 300)
+                + "\"},\"finish_reason\":\"stop\",\"index\":0}]}").getBytes(StandardCharsets.UTF_8);
+    }
+}
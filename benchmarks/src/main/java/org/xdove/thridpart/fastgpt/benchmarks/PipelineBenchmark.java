@@ -0,0 +1,102 @@
+package org.xdove.thridpart.fastgpt.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.entity.DataItem;
+import org.xdove.thridpart.fastgpt.entity.Page;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整请求链路（序列化、连接池、HTTP、解码）对本机桩服务的吞吐，
+ * 线程数可通过 -t 调整
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final List<ChatMessage> MESSAGES = Collections.singletonList(new ChatMessage("FastGPT 是什么？"));
+
+    private StubServer server;
+    private ServiceRequests requests;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new StubServer(20, 200);
+        requests = new ServiceRequests(new Config(server.url(), "key", "chatKey", "UTF-8", "v1"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        requests.destroy();
+        server.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> getDataset() {
+        return requests.getDataset("65abcd6f4f2b5f1d8a5e7c01");
+    }
+
+    @Benchmark
+    public Map<String, Object> getDatasetAsync() {
+        return requests.getDatasetAsync("65abcd6f4f2b5f1d8a5e7c01").join();
+    }
+
+    @Benchmark
+    public Response<Page<DataItem>> listDataTyped() {
+        return requests.listDataTyped("65abcd6f4f2b5f1d8a5e7c03", 1, 20, null);
+    }
+
+    @Benchmark
+    public Response<SearchResult> searchTestDatasetTyped() {
+        return requests.searchTestDatasetTyped("65abcd6f4f2b5f1d8a5e7c01", "FastGPT", 5000, 0, "mixedRecall", false);
+    }
+
+    @Benchmark
+    public Map<String, Object> chatCompletions() {
+        return requests.chatCompletions(null, false, null, MESSAGES);
+    }
+
+    @Benchmark
+    public void chatCompletionsStream(Blackhole bh) {
+        requests.chatCompletionsStream(null, true, null, MESSAGES, new ChatStreamListener() {
+            @Override
+            public void onEvent(ChatStreamEvent event) {
+                bh.consume(event);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        });
+    }
+
+    @Benchmark
+    public void chatCompletionsRawStream(Blackhole bh) throws IOException {
+        byte[] buf = new byte[8192];
+        try (InputStream in = requests.chatCompletionsStream(null, true, null, MESSAGES)) {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                bh.consume(n);
+            }
+        }
+    }
+}
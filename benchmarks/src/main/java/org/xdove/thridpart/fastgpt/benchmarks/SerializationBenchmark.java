@@ -0,0 +1,75 @@
+package org.xdove.thridpart.fastgpt.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xdove.thridpart.fastgpt.http.JsonEntity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pushData 请求体序列化：combBody 使用的 {@link JsonEntity} 直接写入输出流，
+ * 对比先序列化为字符串再构造 {@link StringEntity} 的方式
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private final ObjectWriter writer = new ObjectMapper().writer();
+    private Map<String, Object> body;
+
+    @Setup
+    public void setup() {
+        body = new HashMap<>();
+        body.put("collectionId", "65abcd6f4f2b5f1d8a5e7c01");
+        body.put("trainingType", "chunk");
+        body.put("data", Payloads.pushData(size));
+    }
+
+    @Benchmark
+    public void jsonEntity(Blackhole bh) throws IOException {
+        JsonEntity entity = new JsonEntity(body, writer, StandardCharsets.UTF_8);
+        entity.writeTo(new BlackholeOutputStream(bh));
+    }
+
+    @Benchmark
+    public void stringEntity(Blackhole bh) throws IOException {
+        StringEntity entity = new StringEntity(writer.writeValueAsString(body), ContentType.APPLICATION_JSON);
+        entity.writeTo(new BlackholeOutputStream(bh));
+    }
+
+    static final class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole bh;
+
+        BlackholeOutputStream(Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public void write(int b) {
+            bh.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bh.consume(b);
+            bh.consume(len);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.xdove.thridpart.fastgpt.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamEvents;
+import org.xdove.thridpart.fastgpt.sse.SSEDecoder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 录制的 detail 流式对话的解码：按网络分块喂给 {@link SSEDecoder}，
+ * 分别测量只切分事件、切分并解析为 ChatStreamEvent，以及按行读取的基线
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseBenchmark {
+
+    @Param({"200", "2000"})
+    public int tokens;
+
+    /** 模拟每次从网络读到的字节数 */
+    @Param({"256", "8192"})
+    public int chunkSize;
+
+    private final ChatStreamEvents events = new ChatStreamEvents(new ObjectMapper().reader());
+    private byte[] stream;
+
+    @Setup
+    public void setup() {
+        stream = Payloads.chatStream(tokens);
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) throws IOException {
+        SSEDecoder decoder = new SSEDecoder((event, data) -> {
+            bh.consume(event);
+            bh.consume(data);
+        });
+        decoder.decode(new ByteArrayInputStream(stream), chunkSize);
+    }
+
+    @Benchmark
+    public void decodeAndParse(Blackhole bh) throws IOException {
+        SSEDecoder decoder = new SSEDecoder((event, data) -> bh.consume(events.parse(event, data)));
+        decoder.decode(new ByteArrayInputStream(stream), chunkSize);
+    }
+
+    @Benchmark
+    public void readLines(Blackhole bh) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(stream), StandardCharsets.UTF_8), chunkSize)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                bh.consume(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.xdove.thridpart.fastgpt.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 本机回环地址上的桩服务，按路径返回固定响应，用于测量客户端自身的开销
+ */
+final class StubServer implements AutoCloseable {
+
+    private static final byte[] DATASET = ("{\"code\":200,\"statusText\":\"\",\"message\":\"\",\"data\":"
+            + "{\"_id\":\"65abcd6f4f2b5f1d8a5e7c01\",\"parentId\":null,\"teamId\":\"65abcd6f4f2b5f1d8a5e7c02\","
+            + "\"name\":\"测试知识库\",\"type\":\"dataset\",\"status\":\"active\",\"intro\":\"\","
+            + "\"vectorModel\":{\"model\":\"text-embedding-ada-002\"},\"agentModel\":{\"model\":\"gpt-3.5-turbo-16k\"}}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] listData;
+    private final byte[] searchTest;
+    private final byte[] chatStream;
+    private final byte[] chatCompletion;
+
+    static {
+        // 默认开启 Nagle，响应头和响应体分两次写出时会等待延迟确认，使每次请求多出约 40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    StubServer(int pageSize, int tokens) throws IOException {
+        this.listData = Payloads.listData(pageSize);
+        this.searchTest = Payloads.searchTest(pageSize);
+        this.chatStream = Payloads.chatStream(tokens);
+        this.chatCompletion = Payloads.chatCompletion();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "stub-server");
+            t.setDaemon(true);
+            return t;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body = read(exchange.getRequestBody());
+        String path = exchange.getRequestURI().getPath();
+        byte[] resp;
+        String contentType = "application/json; charset=utf-8";
+        if (ServiceRequests.PATH_CHAT_COMPLETIONS.equals(path)) {
+            if (body.contains("\"stream\":true")) {
+                resp = chatStream;
+                contentType = "text/event-stream; charset=utf-8";
+            } else {
+                resp = chatCompletion;
+            }
+        } else if (ServiceRequests.PATH_DATA_LIST.equals(path)) {
+            resp = listData;
+        } else if (ServiceRequests.PATH_DATASET_SEARCH_TEST.equals(path)) {
+            resp = searchTest;
+        } else {
+            resp = DATASET;
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, resp.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(resp);
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,28 @@
+package org.xdove.thridpart.fastgpt;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 对话答案缓存配置，只缓存不带 chatId 的对话（带 chatId 时服务端持有历史记录，相同的 messages 答案可能不同）。
+ * 键为 messages、variables、detail 规范化后的 SHA-256，messages 内容去除首尾空白并合并连续空白。
+ */
+@Data
+@Builder
+public class AnswerCacheConfig {
+
+    /** 内存中最大缓存条数 */
+    @Builder.Default
+    private int maxEntries = 1000;
+    /** 内存中缓存的最大总字节数 */
+    @Builder.Default
+    private long maxBytes = 16L * 1024 * 1024;
+    /** 答案存活时间 */
+    @Builder.Default
+    private Duration ttl = Duration.ofHours(1);
+    /** 持久化目录，每个答案一个文件，重启后仍可命中；键包含 apiUrl 与 chatKey，可由多个应用共享；为 null 时只缓存在内存中 */
+    private Path directory;
+}
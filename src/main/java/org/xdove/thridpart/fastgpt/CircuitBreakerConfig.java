@@ -0,0 +1,38 @@
+package org.xdove.thridpart.fastgpt;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 熔断配置：统计最近 {@link #windowSize} 次调用，失败率或慢调用率超过阈值时熔断，
+ * 熔断期间请求立即失败，{@link #openDuration} 后放行 {@link #halfOpenCalls} 个探测请求，全部成功则恢复。
+ * 连接失败、超时等 I/O 错误和 5xx 响应计为失败，慢调用按收到响应头的耗时计算。
+ */
+@Data
+@Builder
+public class CircuitBreakerConfig {
+
+    /** 滑动窗口的调用次数 */
+    @Builder.Default
+    private int windowSize = 50;
+    /** 窗口内至少有这么多次调用才计算失败率 */
+    @Builder.Default
+    private int minimumCalls = 10;
+    /** 失败率阈值，0 ~ 1 */
+    @Builder.Default
+    private double failureRateThreshold = 0.5;
+    /** 慢调用率阈值，0 ~ 1，大于 1 时不按慢调用熔断 */
+    @Builder.Default
+    private double slowCallRateThreshold = 1.1;
+    /** 超过该耗时视为慢调用 */
+    @Builder.Default
+    private Duration slowCallDuration = Duration.ofSeconds(10);
+    /** 熔断持续时间 */
+    @Builder.Default
+    private Duration openDuration = Duration.ofSeconds(30);
+    /** 半开时放行的探测请求数 */
+    @Builder.Default
+    private int halfOpenCalls = 3;
+}
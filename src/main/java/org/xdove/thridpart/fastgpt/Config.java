@@ -1,13 +1,14 @@
 package org.xdove.thridpart.fastgpt;
 
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import org.xdove.thridpart.fastgpt.metrics.ClientMetrics;
+import org.xdove.thridpart.fastgpt.trace.ClientTracer;
+import org.xdove.thridpart.fastgpt.transport.TransportType;
 
 import java.nio.charset.Charset;
 
 @Data
-@AllArgsConstructor
 public class Config {
 
     private final String apiUrl;
@@ -16,6 +17,44 @@ public class Config {
     private final String charset;
     private final String version;
 
+    /** 连接池配置，仅在由 {@link ServiceRequests#ServiceRequests(Config)} 创建客户端时生效 */
+    private HttpPoolConfig pool = HttpPoolConfig.builder().build();
+    /** 只读接口响应缓存，为 null 时不缓存 */
+    private ResponseCacheConfig responseCache;
+    /** 对话答案缓存，为 null 时不缓存 */
+    private AnswerCacheConfig answerCache;
+    /** 知识库搜索测试结果缓存，为 null 时不缓存 */
+    private SearchCacheConfig searchCache;
+    /**
+     * 合并并发的相同读请求：GET 请求的路径和参数相同且前一个还未完成时，
+     * 后来的调用共享同一次请求和同一个解码结果，不要修改返回的对象
+     */
+    private boolean coalesceReads;
+    /** 瞬时故障重试，为 null 时只使用 HttpClient 自带的重试 */
+    private RetryConfig retry;
+    /** 只读接口的对冲请求，为 null 时不对冲 */
+    private HedgeConfig hedge;
+    /** 对话接口（chatKey）的限流，为 null 时不限流 */
+    private RateLimitConfig chatRateLimit;
+    /** 知识库接口（key）的限流，为 null 时不限流 */
+    private RateLimitConfig datasetRateLimit;
+    /** 对话接口的熔断，为 null 时不熔断 */
+    private CircuitBreakerConfig chatCircuitBreaker;
+    /** 知识库接口的熔断，为 null 时不熔断 */
+    private CircuitBreakerConfig datasetCircuitBreaker;
+    /** 指标，为 null 时不统计 */
+    private ClientMetrics metrics;
+    /** 调用链追踪，为 null 时不追踪 */
+    private ClientTracer tracer;
+    /** 阻塞接口的发送方式，仅在由 {@link ServiceRequests#ServiceRequests(Config)} 创建客户端时生效；异步接口始终使用 HttpClient5 异步客户端 */
+    private TransportType transport = TransportType.CLASSIC;
+    /**
+     * 虚拟线程模式：阻塞接口改用 JDK HttpClient 发送，等待时不固定载体线程，
+     * 同时进行的请求数不超过 pool.maxTotal，与调用线程数无关。需要 Java 11+。
+     * 为 true 时等同于 transport 为 {@link TransportType#JDK}
+     */
+    private boolean virtualThreads;
+
 
     public Config(String key, String chatKey) {
         this.apiUrl = "https://api.fastgpt.in";
@@ -33,4 +72,12 @@ public class Config {
         this.chatKey = chatKey;
     }
 
-}
\ No newline at end of file
+    public Config(String apiUrl, String key, String chatKey, String charset, String version) {
+        this.apiUrl = apiUrl;
+        this.key = key;
+        this.chatKey = chatKey;
+        this.charset = charset;
+        this.version = version;
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.xdove.thridpart.fastgpt;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 对冲请求配置：只读请求超过该接口近期延迟的 {@link #percentile} 分位仍未完成时，再发出一个相同的请求，
+ * 采用先成功的响应并取消另一个。对冲请求走异步客户端，启用后这些接口的阻塞方法也改由异步客户端发送。
+ * 所有对冲共享一个预算，对冲次数不超过请求数的 {@link #budgetRatio}。
+ */
+@Data
+@Builder
+public class HedgeConfig {
+
+    /** 启用对冲的接口路径，只应包含只读接口 */
+    @Builder.Default
+    private Set<String> paths = new HashSet<>(Arrays.asList(
+            ServiceRequests.PATH_COLLECTION_GET, ServiceRequests.PATH_DATA_GET, ServiceRequests.PATH_DATASET_SEARCH_TEST));
+    /** 以该分位的近期延迟作为发出对冲请求前的等待时间，0~1 */
+    @Builder.Default
+    private double percentile = 0.95;
+    /** 样本不足 {@link #minSamples} 时的等待时间 */
+    @Builder.Default
+    private Duration initialDelay = Duration.ofMillis(200);
+    /** 等待时间下限，避免延迟普遍很低时频繁对冲 */
+    @Builder.Default
+    private Duration minDelay = Duration.ofMillis(10);
+    /** 按分位计算等待时间所需的最少样本数 */
+    @Builder.Default
+    private int minSamples = 20;
+    /** 每个接口保留的最近延迟样本数 */
+    @Builder.Default
+    private int windowSize = 1000;
+    /** 每个请求为对冲预算补充的额度，0.05 表示长期来看对冲不超过请求数的 5% */
+    @Builder.Default
+    private double budgetRatio = 0.05;
+    /** 对冲预算的上限，也是初始额度 */
+    @Builder.Default
+    private int budgetBurst = 10;
+}
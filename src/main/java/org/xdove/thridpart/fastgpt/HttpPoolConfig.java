@@ -0,0 +1,213 @@
+package org.xdove.thridpart.fastgpt;
+
+import lombok.Builder;
+import lombok.Data;
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.xdove.thridpart.fastgpt.metrics.ClientMetrics;
+import org.xdove.thridpart.fastgpt.metrics.ConnectionTiming;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池及超时配置，同时用于同步和异步客户端。
+ * 默认值针对单一 FastGPT 主机：全部连接都可以分配给同一个路由。
+ */
+@Data
+@Builder
+public class HttpPoolConfig {
+
+    /** 连接池最大连接数 */
+    @Builder.Default
+    private int maxTotal = 200;
+    /** 每个路由（主机）最大连接数 */
+    @Builder.Default
+    private int maxPerRoute = 200;
+    /** 连接最长存活时间，超过后不再复用 */
+    @Builder.Default
+    private Duration timeToLive = Duration.ofMinutes(10);
+    /** 空闲超过该时间的连接由后台线程回收 */
+    @Builder.Default
+    private Duration evictIdleAfter = Duration.ofMinutes(1);
+    /** 空闲超过该时间的连接在复用前先校验 */
+    @Builder.Default
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    /** 服务端未返回 Keep-Alive 时的保持时间，也是保持时间的上限 */
+    @Builder.Default
+    private Duration keepAlive = Duration.ofSeconds(30);
+    /** 建立连接超时 */
+    @Builder.Default
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    /** 读取超时，流式对话两个 token 之间的最长间隔 */
+    @Builder.Default
+    private Duration socketTimeout = Duration.ofSeconds(60);
+    /** 等待响应头的超时 */
+    @Builder.Default
+    private Duration responseTimeout = Duration.ofSeconds(120);
+    /** 从连接池获取连接的超时 */
+    @Builder.Default
+    private Duration connectionRequestTimeout = Duration.ofSeconds(30);
+
+    public PoolingHttpClientConnectionManager createConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setSoTimeout(timeout(socketTimeout))
+                        .build())
+                .setDefaultConnectionConfig(connectionConfig())
+                .build();
+    }
+
+    public PoolingAsyncClientConnectionManager createAsyncConnectionManager() {
+        return PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(connectionConfig())
+                .build();
+    }
+
+    public CloseableHttpClient createClient(PoolingHttpClientConnectionManager connectionManager) {
+        return createClient(connectionManager, true);
+    }
+
+    /**
+     * @param automaticRetries 为 false 时关闭 HttpClient 自带的重试，由 {@link RetryConfig} 接管
+     */
+    public CloseableHttpClient createClient(PoolingHttpClientConnectionManager connectionManager, boolean automaticRetries) {
+        return createClient(connectionManager, automaticRetries, null);
+    }
+
+    /**
+     * @param automaticRetries 为 false 时关闭 HttpClient 自带的重试，由 {@link RetryConfig} 接管
+     * @param metrics 不为 null 时记录获取连接的耗时
+     */
+    public CloseableHttpClient createClient(PoolingHttpClientConnectionManager connectionManager, boolean automaticRetries,
+                                            ClientMetrics metrics) {
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(createRequestConfig())
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(timeValue(evictIdleAfter));
+        if (!automaticRetries) {
+            builder.disableAutomaticRetries();
+        }
+        if (Objects.nonNull(metrics)) {
+            builder.addExecInterceptorBefore(ChainElement.CONNECT.name(), ConnectionTiming.START, ConnectionTiming.classicStart())
+                    .addExecInterceptorAfter(ChainElement.CONNECT.name(), ConnectionTiming.END, ConnectionTiming.classicEnd(metrics));
+        }
+        return builder.build();
+    }
+
+    public CloseableHttpAsyncClient createAsyncClient(PoolingAsyncClientConnectionManager connectionManager) {
+        return createAsyncClient(connectionManager, true);
+    }
+
+    /**
+     * @param automaticRetries 为 false 时关闭 HttpClient 自带的重试，由 {@link RetryConfig} 接管
+     */
+    public CloseableHttpAsyncClient createAsyncClient(PoolingAsyncClientConnectionManager connectionManager, boolean automaticRetries) {
+        return createAsyncClient(connectionManager, automaticRetries, null);
+    }
+
+    /**
+     * @param automaticRetries 为 false 时关闭 HttpClient 自带的重试，由 {@link RetryConfig} 接管
+     * @param metrics 不为 null 时记录获取连接的耗时
+     */
+    public CloseableHttpAsyncClient createAsyncClient(PoolingAsyncClientConnectionManager connectionManager, boolean automaticRetries,
+                                                      ClientMetrics metrics) {
+        HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(createRequestConfig())
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setSoTimeout(timeout(socketTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(timeValue(evictIdleAfter));
+        if (!automaticRetries) {
+            builder.disableAutomaticRetries();
+        }
+        if (Objects.nonNull(metrics)) {
+            builder.addExecInterceptorBefore(ChainElement.CONNECT.name(), ConnectionTiming.START, ConnectionTiming.asyncStart())
+                    .addExecInterceptorAfter(ChainElement.CONNECT.name(), ConnectionTiming.END, ConnectionTiming.asyncEnd(metrics));
+        }
+        return builder.build();
+    }
+
+    /**
+     * HTTP/2 客户端：同一主机只建立一个连接，并发请求作为流在该连接上多路复用，
+     * 因此 maxTotal、maxPerRoute、connectionRequestTimeout 不生效。
+     * https 通过 ALPN 协商 HTTP/2，http 使用 h2c 直连，服务端不支持 HTTP/2 时请求失败
+     * @param automaticRetries 为 false 时关闭 HttpClient 自带的重试，由 {@link RetryConfig} 接管
+     */
+    public CloseableHttpAsyncClient createHttp2Client(boolean automaticRetries) {
+        H2AsyncClientBuilder builder = H2AsyncClientBuilder.create()
+                .setDefaultRequestConfig(createRequestConfig())
+                .setDefaultConnectionConfig(connectionConfig())
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setSoTimeout(timeout(socketTimeout))
+                        .build())
+                .evictIdleConnections(timeValue(evictIdleAfter));
+        if (!automaticRetries) {
+            builder.disableAutomaticRetries();
+        }
+        return builder.build();
+    }
+
+    public RequestConfig createRequestConfig() {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(timeout(connectionRequestTimeout))
+                .setResponseTimeout(timeout(responseTimeout))
+                .setDefaultKeepAlive(keepAlive.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private ConnectionConfig connectionConfig() {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(timeout(connectTimeout))
+                .setSocketTimeout(timeout(socketTimeout))
+                .setTimeToLive(timeValue(timeToLive))
+                .setValidateAfterInactivity(timeValue(validateAfterInactivity))
+                .build();
+    }
+
+    /**
+     * 遵循服务端的 Keep-Alive 头，但不超过 {@link #keepAlive}
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        TimeValue max = timeValue(keepAlive);
+        return (response, context) -> {
+            TimeValue duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return TimeValue.isPositive(duration) && duration.compareTo(max) < 0 ? duration : max;
+        };
+    }
+
+    private static Timeout timeout(Duration d) {
+        return Timeout.ofMilliseconds(d.toMillis());
+    }
+
+    private static TimeValue timeValue(Duration d) {
+        return TimeValue.ofMilliseconds(d.toMillis());
+    }
+}
@@ -0,0 +1,58 @@
+package org.xdove.thridpart.fastgpt;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 客户端限流配置：令牌桶限制每秒请求数，信号量限制同时在途的请求数。
+ * 流式对话在流关闭前一直占用在途名额。
+ */
+@Data
+@Builder
+public class RateLimitConfig {
+
+    /** 拿不到名额时的行为 */
+    public enum Mode {
+        /** 一直等待 */
+        BLOCK,
+        /** 立即失败 */
+        FAIL_FAST,
+        /** 最多等待 {@link #timeout}，超时失败 */
+        TIMEOUT
+    }
+
+    /** 每秒请求数 */
+    @Builder.Default
+    private double permitsPerSecond = 10;
+    /** 令牌桶容量，允许的突发请求数 */
+    @Builder.Default
+    private int burst = 10;
+    /** 同时在途的最大请求数 */
+    @Builder.Default
+    private int maxInFlight = 16;
+    @Builder.Default
+    private Mode mode = Mode.BLOCK;
+    /** {@link Mode#TIMEOUT} 时的最长等待时间 */
+    @Builder.Default
+    private Duration timeout = Duration.ofSeconds(1);
+
+    /** 根据 429 和响应时间自动调整每秒请求数（加性增、乘性减） */
+    @Builder.Default
+    private boolean adaptive = false;
+    /** 自适应时每秒请求数下限 */
+    @Builder.Default
+    private double minPermitsPerSecond = 1;
+    /** 自适应时每秒请求数上限 */
+    @Builder.Default
+    private double maxPermitsPerSecond = 100;
+    /** 持续成功时每秒请求数每秒大约增加的量 */
+    @Builder.Default
+    private double additiveIncrease = 1;
+    /** 收到 429 或响应过慢时每秒请求数乘以该系数 */
+    @Builder.Default
+    private double multiplicativeDecrease = 0.5;
+    /** 响应头耗时超过该值视为过载，为 null 时只根据 429 调整 */
+    private Duration latencyThreshold;
+}
@@ -0,0 +1,35 @@
+package org.xdove.thridpart.fastgpt;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 只读接口响应缓存配置，缓存 getDataset、listDataset、getCollection、getData。
+ * 同一个 {@link ServiceRequests} 修改或删除知识库、集合、数据时自动失效相关缓存，
+ * 其它客户端的修改只能等待过期。
+ */
+@Data
+@Builder
+public class ResponseCacheConfig {
+
+    /** 最大缓存条数 */
+    @Builder.Default
+    private int maxEntries = 1000;
+    /** 缓存响应体最大总字节数 */
+    @Builder.Default
+    private long maxBytes = 16L * 1024 * 1024;
+    /** 默认存活时间 */
+    @Builder.Default
+    private Duration defaultTtl = Duration.ofSeconds(30);
+    /** 按接口路径（如 {@link ServiceRequests#PATH_DATA_GET}）覆盖存活时间，{@link Duration#ZERO} 表示不缓存该接口 */
+    @Builder.Default
+    private Map<String, Duration> ttl = new HashMap<>();
+
+    public Duration ttl(String path) {
+        return ttl.getOrDefault(path, defaultTtl);
+    }
+}
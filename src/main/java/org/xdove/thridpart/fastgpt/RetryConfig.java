@@ -0,0 +1,51 @@
+package org.xdove.thridpart.fastgpt;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 瞬时故障重试配置。
+ * 是否重试取决于接口的幂等性：查询、修改、删除、pushData 以及只读的 POST（数据列表、搜索测试）
+ * 在读取超时等 I/O 错误后也会重试；对话只在收到响应体之前重试；创建类接口只在连接失败或服务端明确拒绝（429/503）时重试。
+ * 所有重试共享一个预算，重试次数不超过请求数的 {@link #budgetRatio}，避免在上游故障时放大流量。
+ */
+@Data
+@Builder
+public class RetryConfig {
+
+    /** 包括第一次在内的最多尝试次数 */
+    @Builder.Default
+    private int maxAttempts = 3;
+    /** 第一次重试前的退避时间 */
+    @Builder.Default
+    private Duration initialBackoff = Duration.ofMillis(200);
+    /** 退避时间上限 */
+    @Builder.Default
+    private Duration maxBackoff = Duration.ofSeconds(10);
+    /** 每次重试退避时间的倍数 */
+    @Builder.Default
+    private double multiplier = 2;
+    /** 随机抖动比例，退避时间在 [backoff * (1 - jitter), backoff] 之间 */
+    @Builder.Default
+    private double jitter = 0.5;
+    /** 视为瞬时故障的响应码 */
+    @Builder.Default
+    private Set<Integer> retryStatuses = new HashSet<>(Arrays.asList(429, 502, 503, 504));
+    /** 遵循响应中的 Retry-After */
+    @Builder.Default
+    private boolean honourRetryAfter = true;
+    /** Retry-After 超过该时间时放弃重试 */
+    @Builder.Default
+    private Duration maxRetryAfter = Duration.ofSeconds(30);
+    /** 每个请求为重试预算补充的额度，0.1 表示长期来看重试不超过请求数的 10% */
+    @Builder.Default
+    private double budgetRatio = 0.1;
+    /** 重试预算的上限，也是初始额度，允许少量请求时的突发重试 */
+    @Builder.Default
+    private int budgetBurst = 20;
+}
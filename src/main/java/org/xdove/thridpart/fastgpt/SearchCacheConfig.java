@@ -0,0 +1,27 @@
+package org.xdove.thridpart.fastgpt;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 知识库搜索测试结果缓存配置，键为知识库ID、搜索参数及规范化后的查询文本
+ * （NFKC、去除首尾空白、合并连续空白、转小写）。
+ * 同一个 {@link ServiceRequests} 向知识库导入、修改、删除数据或删除集合时使该知识库的缓存失效，
+ * 无法确定所属知识库时清空全部搜索缓存；其它客户端的修改只能等待过期。
+ */
+@Data
+@Builder
+public class SearchCacheConfig {
+
+    /** 最大缓存条数 */
+    @Builder.Default
+    private int maxEntries = 1000;
+    /** 缓存响应体最大总字节数 */
+    @Builder.Default
+    private long maxBytes = 16L * 1024 * 1024;
+    /** 存活时间 */
+    @Builder.Default
+    private Duration ttl = Duration.ofMinutes(5);
+}
@@ -1,51 +1,189 @@
 package org.xdove.thridpart.fastgpt;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.sun.net.httpserver.Headers;
 import lombok.NonNull;
 import org.apache.commons.io.IOUtils;
 import org.apache.hc.client5.http.async.methods.*;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.classic.methods.*;
+import org.apache.hc.client5.http.HttpRoute;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
-import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
 import org.apache.hc.client5.http.impl.classic.AbstractHttpClientResponseHandler;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.concurrent.FutureCallback;
 import org.apache.hc.core5.http.*;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
 import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
 import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
 import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
 import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.xdove.thridpart.fastgpt.bulk.BulkPushOptions;
+import org.xdove.thridpart.fastgpt.breaker.CircuitBreaker;
+import org.xdove.thridpart.fastgpt.breaker.CircuitBreakerResponseConsumer;
+import org.xdove.thridpart.fastgpt.breaker.CircuitOpenException;
+import org.xdove.thridpart.fastgpt.call.CallOptions;
+import org.xdove.thridpart.fastgpt.cache.AnswerCache;
+import org.xdove.thridpart.fastgpt.cache.CacheStats;
+import org.xdove.thridpart.fastgpt.cache.ResponseCache;
+import org.xdove.thridpart.fastgpt.cache.SearchCache;
+import org.xdove.thridpart.fastgpt.cache.SingleFlight;
+import org.xdove.thridpart.fastgpt.bulk.BulkPushResult;
+import org.xdove.thridpart.fastgpt.bulk.BulkPusher;
+import org.xdove.thridpart.fastgpt.bulk.TextChunker;
 import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+import org.xdove.thridpart.fastgpt.entity.ChatCompletion;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.entity.DataItem;
+import org.xdove.thridpart.fastgpt.entity.Dataset;
+import org.xdove.thridpart.fastgpt.entity.DatasetCollection;
+import org.xdove.thridpart.fastgpt.entity.Page;
 import org.xdove.thridpart.fastgpt.entity.PushData;
+import org.xdove.thridpart.fastgpt.entity.PushDataResult;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+import org.xdove.thridpart.fastgpt.hedge.Hedger;
+import org.xdove.thridpart.fastgpt.http.JsonEntity;
+import org.xdove.thridpart.fastgpt.http.JsonEntityProducer;
+import org.xdove.thridpart.fastgpt.limit.LimitedResponseConsumer;
+import org.xdove.thridpart.fastgpt.limit.RateLimitedException;
+import org.xdove.thridpart.fastgpt.limit.RequestLimiter;
+import org.xdove.thridpart.fastgpt.metrics.ChatStreamMeter;
+import org.xdove.thridpart.fastgpt.metrics.ClientMetrics;
+import org.xdove.thridpart.fastgpt.metrics.CountingEntity;
+import org.xdove.thridpart.fastgpt.metrics.CountingEntityProducer;
+import org.xdove.thridpart.fastgpt.metrics.MeteredResponseConsumer;
+import org.xdove.thridpart.fastgpt.page.PageIterator;
+import org.xdove.thridpart.fastgpt.trace.ChatStreamTrace;
+import org.xdove.thridpart.fastgpt.trace.ClientTracer;
+import org.xdove.thridpart.fastgpt.trace.TraceSpan;
+import org.xdove.thridpart.fastgpt.trace.TracingResponseConsumer;
+import org.xdove.thridpart.fastgpt.transport.ClassicTransport;
+import org.xdove.thridpart.fastgpt.transport.Http2Transport;
+import org.xdove.thridpart.fastgpt.transport.JdkTransports;
+import org.xdove.thridpart.fastgpt.transport.Transport;
+import org.xdove.thridpart.fastgpt.transport.TransportType;
+import org.xdove.thridpart.fastgpt.retry.Retrier;
+import org.xdove.thridpart.fastgpt.search.FanOutSearch;
+import org.xdove.thridpart.fastgpt.search.MultiSearchResult;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamEvents;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamListener;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamObserver;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamPublisher;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamReplay;
+import org.xdove.thridpart.fastgpt.sse.SSEDecoder;
 
 import java.io.*;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class ServiceRequests {
 
     private static final Logger log = LoggerFactory.getLogger(ServiceRequests.class);
-    private final CloseableHttpClient client;
+    /** 阻塞接口的发送方式 */
+    private final Transport transport;
 
     private final CloseableHttpAsyncClient asyncClient;
     private final Config config;
     private final RequestConfig requestConfig;
-    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ConnPoolControl<HttpRoute> connPool;
+    private final ConnPoolControl<HttpRoute> asyncConnPool;
+    /** 只读接口响应缓存，未配置时为 null */
+    private final ResponseCache responseCache;
+    /** 对话答案缓存，未配置时为 null */
+    private final AnswerCache answerCache;
+    /** 为 null 时不缓存搜索结果 */
+    private final SearchCache searchCache;
+    /** 为 null 时不对冲 */
+    private final Hedger hedger;
+    /** 合并进行中的相同 GET 请求，键为路径、参数和解码器，未开启时为 null */
+    private final SingleFlight<List<Object>> readFlights;
+    /** 瞬时故障重试，未配置时为 null */
+    private final Retrier retrier;
+    /** 对话 key 和知识库 key 各自的限流，未配置时为 null */
+    private final RequestLimiter chatLimiter;
+    private final RequestLimiter datasetLimiter;
+    /** 对话接口和知识库接口各自的熔断器，未配置时为 null */
+    private final CircuitBreaker chatBreaker;
+    private final CircuitBreaker datasetBreaker;
+    /** 指标，未配置时为 null */
+    private final ClientMetrics metrics;
+    /** 调用链追踪，未配置时为 null */
+    private final ClientTracer tracer;
+    /** 延迟任务（重试等），守护线程 */
+    private final ScheduledExecutorService scheduler;
+    /** 单次调用选项，由 {@link #withOptions} 设置，为 null 时使用构造时的请求配置 */
+    private final CallOptions options;
+    private static final ObjectMapper jsonMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ObjectReader mapReader = jsonMapper.readerFor(Map.class);
+    private static final ObjectReader nodeReader = jsonMapper.readerFor(JsonNode.class);
+    private static final ObjectReader chatCompletionReader = jsonMapper.readerFor(new TypeReference<ChatCompletion>() {});
+    private static final ObjectReader datasetListReader = jsonMapper.readerFor(new TypeReference<Response<List<Dataset>>>() {});
+    private static final ObjectReader datasetReader = jsonMapper.readerFor(new TypeReference<Response<Dataset>>() {});
+    private static final ObjectReader collectionReader = jsonMapper.readerFor(new TypeReference<Response<DatasetCollection>>() {});
+    private static final ObjectReader collectionPageReader = jsonMapper.readerFor(new TypeReference<Response<Page<DatasetCollection>>>() {});
+    private static final ObjectReader pushDataReader = jsonMapper.readerFor(new TypeReference<Response<PushDataResult>>() {});
+    private static final ObjectReader dataPageReader = jsonMapper.readerFor(new TypeReference<Response<Page<DataItem>>>() {});
+    private static final ObjectReader dataReader = jsonMapper.readerFor(new TypeReference<Response<DataItem>>() {});
+    private static final ObjectReader searchReader = jsonMapper.readerFor(new TypeReference<Response<SearchResult>>() {});
+    private static final ObjectWriter jsonWriter = jsonMapper.writer();
+    private static final ChatStreamEvents chatStreamEvents = new ChatStreamEvents(jsonMapper.reader());
     
     /** 对话接口 */
     public static final String PATH_CHAT_COMPLETIONS = "/api/v1/chat/completions";
@@ -84,23 +222,213 @@ public class ServiceRequests {
     /** 搜索测试    */
     public static final String PATH_DATASET_SEARCH_TEST = "/api/core/dataset/searchTest";
 
+    /** 可缓存的只读接口 */
+    private static final List<String> CACHEABLE_PATHS = Collections.unmodifiableList(Arrays.asList(
+            PATH_DATESET_GET, PATH_DATESET_LIST, PATH_COLLECTION_GET, PATH_DATA_GET));
+
 
 
     public ServiceRequests(Config config) {
-        this(HttpClientBuilder.create().build(),
-                HttpAsyncClients.createDefault(),
-             RequestConfig.DEFAULT, config);
+        this(transportType(config) == TransportType.CLASSIC ? config.getPool().createConnectionManager() : null,
+                config.getPool().createAsyncConnectionManager(), config);
+    }
+
+    private ServiceRequests(PoolingHttpClientConnectionManager connPool, PoolingAsyncClientConnectionManager asyncConnPool,
+                            Config config) {
+        this(createTransport(config, connPool),
+                config.getPool().createAsyncClient(asyncConnPool, Objects.isNull(config.getRetry()), config.getMetrics()),
+                config.getPool().createRequestConfig(), config, connPool, asyncConnPool);
     }
 
+    /**
+     * 使用外部传入的客户端，忽略 {@link Config#getTransport()}，阻塞接口由 client 发送
+     */
     public ServiceRequests(CloseableHttpClient client, CloseableHttpAsyncClient asyncClient, RequestConfig requestConfig, Config config) {
-        this.client = client;
+        this(new ClassicTransport(client), asyncClient, requestConfig, config, null, null);
+    }
+
+    /**
+     * 使用自定义的阻塞请求发送方式，transport 在 {@link #destroy()} 时关闭
+     */
+    public ServiceRequests(Transport transport, CloseableHttpAsyncClient asyncClient, RequestConfig requestConfig, Config config) {
+        this(transport, asyncClient, requestConfig, config, null, null);
+    }
+
+    private ServiceRequests(Transport transport, CloseableHttpAsyncClient asyncClient, RequestConfig requestConfig,
+                            Config config, ConnPoolControl<HttpRoute> connPool, ConnPoolControl<HttpRoute> asyncConnPool) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fastgpt-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        this.options = null;
+        this.transport = transport;
         this.asyncClient = asyncClient;
         this.config = config;
         this.requestConfig = requestConfig;
+        this.connPool = connPool;
+        this.asyncConnPool = asyncConnPool;
+        this.metrics = config.getMetrics();
+        this.tracer = config.getTracer();
+        if (Objects.nonNull(this.metrics) && Objects.nonNull(connPool)) {
+            this.metrics.bindPool("sync", connPool::getTotalStats);
+        }
+        if (Objects.nonNull(this.metrics) && Objects.nonNull(asyncConnPool)) {
+            this.metrics.bindPool("async", asyncConnPool::getTotalStats);
+        }
+        this.responseCache = Objects.isNull(config.getResponseCache()) ? null
+                : new ResponseCache(config.getResponseCache().getMaxEntries(), config.getResponseCache().getMaxBytes());
+        this.readFlights = config.isCoalesceReads() ? new SingleFlight<>() : null;
+        this.retrier = Objects.isNull(config.getRetry()) ? null : new Retrier(config.getRetry());
+        this.chatLimiter = Objects.isNull(config.getChatRateLimit()) ? null
+                : new RequestLimiter("chat", config.getChatRateLimit(), this.scheduler);
+        this.datasetLimiter = Objects.isNull(config.getDatasetRateLimit()) ? null
+                : new RequestLimiter("dataset", config.getDatasetRateLimit(), this.scheduler);
+        this.chatBreaker = Objects.isNull(config.getChatCircuitBreaker()) ? null
+                : new CircuitBreaker("chat", config.getChatCircuitBreaker());
+        this.datasetBreaker = Objects.isNull(config.getDatasetCircuitBreaker()) ? null
+                : new CircuitBreaker("dataset", config.getDatasetCircuitBreaker());
+        this.answerCache = Objects.isNull(config.getAnswerCache()) ? null
+                : new AnswerCache(config.getAnswerCache().getMaxEntries(), config.getAnswerCache().getMaxBytes(),
+                config.getAnswerCache().getTtl().toMillis(), config.getAnswerCache().getDirectory(),
+                config.getApiUrl() + " " + config.getChatKey(), jsonWriter);
+        this.searchCache = Objects.isNull(config.getSearchCache()) ? null
+                : new SearchCache(config.getSearchCache().getMaxEntries(), config.getSearchCache().getMaxBytes(),
+                config.getSearchCache().getTtl().toMillis(), nodeReader);
+        this.hedger = Objects.isNull(config.getHedge()) ? null : new Hedger(config.getHedge(), this.scheduler);
+        if (asyncClient.getStatus() == IOReactorStatus.INACTIVE) {
+            asyncClient.start();
+        }
+    }
+
+    /**
+     * 共享全部资源、只替换调用选项的视图
+     */
+    private ServiceRequests(ServiceRequests base, CallOptions options) {
+        this.transport = base.transport;
+        this.asyncClient = base.asyncClient;
+        this.config = base.config;
+        this.requestConfig = base.requestConfig;
+        this.connPool = base.connPool;
+        this.asyncConnPool = base.asyncConnPool;
+        this.responseCache = base.responseCache;
+        this.answerCache = base.answerCache;
+        this.searchCache = base.searchCache;
+        this.hedger = base.hedger;
+        // 调用选项不同的调用方不能共享同一次请求的结果和失败
+        this.readFlights = null;
+        this.retrier = base.retrier;
+        this.chatLimiter = base.chatLimiter;
+        this.datasetLimiter = base.datasetLimiter;
+        this.chatBreaker = base.chatBreaker;
+        this.datasetBreaker = base.datasetBreaker;
+        this.metrics = base.metrics;
+        this.tracer = base.tracer;
+        this.scheduler = base.scheduler;
+        this.options = options;
+    }
+
+    /**
+     * 返回按 options 发送请求的视图：截止时间、连接/响应超时只作用于经由视图发出的请求，
+     * 取消句柄被取消时中止这些请求（包括读取中的流式响应）并立即关闭所用的连接。
+     * 视图与当前实例共享连接池、缓存、限流等全部资源，创建开销很小，可以每次调用创建一个；不要对视图调用 {@link #destroy()}。
+     * @param options 为 null 时等同于当前实例的默认配置
+     */
+    public ServiceRequests withOptions(CallOptions options) {
+        return new ServiceRequests(this, options);
     }
 
     public void destroy() {
-        client.close(CloseMode.GRACEFUL);
+        try {
+            transport.close();
+        } catch (IOException e) {
+            log.error("error={}", e.getLocalizedMessage(), e);
+        }
+        asyncClient.close(CloseMode.GRACEFUL);
+        scheduler.shutdownNow();
+    }
+
+    private static TransportType transportType(Config config) {
+        return config.isVirtualThreads() ? TransportType.JDK : config.getTransport();
+    }
+
+    private static Transport createTransport(Config config, PoolingHttpClientConnectionManager connPool) {
+        boolean automaticRetries = Objects.isNull(config.getRetry());
+        switch (transportType(config)) {
+            case HTTP2:
+                return new Http2Transport(config.getPool().createHttp2Client(automaticRetries));
+            case JDK:
+                return JdkTransports.create(config.getPool());
+            default:
+                return new ClassicTransport(config.getPool().createClient(connPool, automaticRetries, config.getMetrics()));
+        }
+    }
+
+    /**
+     * 同步客户端连接池统计（leased/pending/available/max）
+     * @return 使用外部传入的客户端，或 transport 不是 {@link TransportType#CLASSIC} 时为 null
+     */
+    public PoolStats getPoolStats() {
+        return Objects.isNull(this.connPool) ? null : this.connPool.getTotalStats();
+    }
+
+    /**
+     * 异步客户端连接池统计（leased/pending/available/max）
+     * @return 使用外部传入的客户端时为 null
+     */
+    public PoolStats getAsyncPoolStats() {
+        return Objects.isNull(this.asyncConnPool) ? null : this.asyncConnPool.getTotalStats();
+    }
+
+    /**
+     * 响应缓存统计（命中/未命中/淘汰/失效）
+     * @return 未配置 {@link Config#getResponseCache()} 时为 null
+     */
+    public CacheStats getCacheStats() {
+        return Objects.isNull(this.responseCache) ? null : this.responseCache.stats();
+    }
+
+    /**
+     * 清空响应缓存，用于得知其它客户端修改了数据时
+     */
+    public void clearCache() {
+        if (Objects.nonNull(this.responseCache)) {
+            this.responseCache.invalidateAll();
+        }
+    }
+
+    /**
+     * 对话答案缓存的内存统计，命中持久化文件时在内存中计为未命中
+     * @return 未配置 {@link Config#getAnswerCache()} 时为 null
+     */
+    public CacheStats getAnswerCacheStats() {
+        return Objects.isNull(this.answerCache) ? null : this.answerCache.stats();
+    }
+
+    /**
+     * 清空对话答案缓存，包括持久化文件
+     */
+    public void clearAnswerCache() {
+        if (Objects.nonNull(this.answerCache)) {
+            this.answerCache.clear();
+        }
+    }
+
+    /**
+     * 搜索结果缓存统计
+     * @return 未配置 {@link Config#getSearchCache()} 时为 null
+     */
+    public CacheStats getSearchCacheStats() {
+        return Objects.isNull(this.searchCache) ? null : this.searchCache.stats();
+    }
+
+    /**
+     * 清空搜索结果缓存，用于得知其它客户端修改了知识库时
+     */
+    public void clearSearchCache() {
+        if (Objects.nonNull(this.searchCache)) {
+            this.searchCache.clear();
+        }
     }
 
     /**
@@ -118,22 +446,53 @@ public class ServiceRequests {
             log.debug("request chatCompletions chatId={}, stream={}, detail={}, variables={}, messages={}",
                     chatId, false, detail, variables, messages);
         }
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("chatId", chatId);
-        param.put("stream", false);
-        param.put("detail", detail);
-        param.put("variables", variables);
-        param.put("messages", messages);
 
         try {
-            String e = this.postRequest(PATH_CHAT_COMPLETIONS, param);
-            return str2Map(e);
+            return this.chatRequest(chatId, detail, variables, messages, mapReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #chatCompletions} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> chatCompletionsAsync(String chatId, boolean detail, Map<String, String> variables,
+                                               List<ChatMessage> messages) {
+        if(log.isDebugEnabled()) {
+            log.debug("request chatCompletionsAsync chatId={}, detail={}, variables={}, messages={}", chatId, detail, variables, messages);
+        }
+        return this.chatRequestAsync(chatId, detail, variables, messages, mapReader);
+    }
+
+    /**
+     * 对话，结果解码为 {@link ChatCompletion}
+     * @see #chatCompletions
+     */
+    public ChatCompletion chatCompletionsTyped(String chatId, boolean detail, Map<String, String> variables, List<ChatMessage> messages) {
+        if(log.isDebugEnabled()) {
+            log.debug("request chatCompletionsTyped chatId={}, detail={}, variables={}, messages={}", chatId, detail, variables, messages);
+        }
+
+        try {
+            return this.chatRequest(chatId, detail, variables, messages, chatCompletionReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #chatCompletionsTyped} 的异步版本
+     */
+    public CompletableFuture<ChatCompletion> chatCompletionsTypedAsync(String chatId, boolean detail, Map<String, String> variables, List<ChatMessage> messages) {
+        if(log.isDebugEnabled()) {
+            log.debug("request chatCompletionsTypedAsync chatId={}, detail={}, variables={}, messages={}", chatId, detail, variables, messages);
+        }
+        return this.chatRequestAsync(chatId, detail, variables, messages, chatCompletionReader);
+    }
+
     /**
      * 流式对话
      * @param chatId 为 undefined 时（不传入），不使用 FastGpt 提供的上下文功能，完全通过传入的 messages 构建上下文。 不会将你的记录存储到数据库中，你也无法在记录汇总中查阅到。
@@ -148,21 +507,306 @@ public class ServiceRequests {
             log.debug("request chatCompletionsStream chatId={}, stream={}, detail={}, variables={}, messages={}",
                     chatId, true, detail, variables, messages);
         }
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("chatId", chatId);
-        param.put("stream", true);
-        param.put("detail", detail);
-        param.put("variables", variables);
-        param.put("messages", messages);
+        HashMap<String, Object> param = chatParam(chatId, true, detail, variables, messages);
 
         try {
-            return this.postSSERequest(PATH_CHAT_COMPLETIONS, param);
+            byte[] cached = this.cachedAnswer(this.answerKey(chatId, detail, variables, messages));
+            if (Objects.nonNull(cached)) {
+                return new ByteArrayInputStream(this.replay(cached, detail));
+            }
+            TraceSpan span = this.startSpan(PATH_CHAT_COMPLETIONS, "POST", param);
+            ChatStreamObserver observer = this.chatObserver(span, false);
+            if (Objects.isNull(observer)) {
+                return this.postSSERequest(PATH_CHAT_COMPLETIONS, param, null);
+            }
+            try {
+                return observedStream(this.postSSERequest(PATH_CHAT_COMPLETIONS, param, span), observer);
+            } catch (RuntimeException e) {
+                observer.end(e);
+                throw e;
+            }
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * 流式对话，增量解码 SSE 并回调事件，阻塞直到流结束。
+     * @param chatId 同 {@link #chatCompletionsStream(String, boolean, Map, List)}
+     * @param detail 为 true 时会收到 flowNodeStatus、flowResponses 等事件
+     * @param variables 模块变量
+     * @param messages 结构与 GPT接口 chat模式一致。
+     * @param listener 事件监听器，错误通过 {@link ChatStreamListener#onError(Throwable)} 通知
+     */
+    public void chatCompletionsStream(String chatId, boolean detail, Map<String, String> variables,
+                                      List<ChatMessage> messages, @NonNull ChatStreamListener listener) {
+        if(log.isDebugEnabled()) {
+            log.debug("request chatCompletionsStream chatId={}, stream={}, detail={}, variables={}, messages={}",
+                    chatId, true, detail, variables, messages);
+        }
+        String key = this.answerKey(chatId, detail, variables, messages);
+        // 未命中且 detail 为 false 时，流结束后把拼接的答案写入缓存
+        StringBuilder answer = new StringBuilder();
+        boolean[] done = new boolean[1];
+        boolean record = Objects.nonNull(key) && !detail;
+        ChatStreamObserver observer = null;
+        try {
+            byte[] cached = this.cachedAnswer(key);
+            record = record && Objects.isNull(cached);
+            ChatStreamListener target = !record ? listener : event -> {
+                if (event.getType() == ChatStreamEvent.Type.ANSWER && Objects.nonNull(event.getContent())) {
+                    answer.append(event.getContent());
+                } else if (event.getType() == ChatStreamEvent.Type.DONE) {
+                    done[0] = true;
+                }
+                listener.onEvent(event);
+            };
+            HashMap<String, Object> param = chatParam(chatId, true, detail, variables, messages);
+            TraceSpan span = Objects.isNull(cached) ? this.startSpan(PATH_CHAT_COMPLETIONS, "POST", param) : null;
+            if (Objects.isNull(cached)) {
+                observer = this.chatObserver(span, true);
+            }
+            if (Objects.nonNull(observer)) {
+                ChatStreamObserver o = observer;
+                ChatStreamListener next = target;
+                target = event -> {
+                    o.onEvent(event);
+                    next.onEvent(event);
+                };
+            }
+            try (InputStream is = Objects.nonNull(cached) ? new ByteArrayInputStream(this.replay(cached, detail))
+                    : this.postSSERequest(PATH_CHAT_COMPLETIONS, param, span)) {
+                new SSEDecoder(chatStreamEvents.handler(target)).decode(is);
+            }
+        } catch (Exception e) {
+            if (Objects.nonNull(observer)) {
+                observer.end(e);
+            }
+            log.info(e.getLocalizedMessage());
+            listener.onError(e);
+            return;
+        }
+        if (Objects.nonNull(observer)) {
+            observer.end(null);
+        }
+        if (record && done[0]) {
+            this.putAnswer(key, this.completionNode(answer.toString()));
+        }
+        listener.onComplete();
+    }
+
+    /**
+     * 流式对话的 Reactive Streams 版本，订阅时才发送请求。
+     * 事件按订阅者的 request(n) 投递，积压过多时暂停读取 socket，适合大量并发流的转发。
+     * @param chatId 同 {@link #chatCompletionsStream(String, boolean, Map, List)}
+     * @param detail 为 true 时会收到 flowNodeStatus、flowResponses 等事件
+     * @param variables 模块变量
+     * @param messages 结构与 GPT接口 chat模式一致。
+     * @return 只允许订阅一次的 Publisher
+     */
+    public Publisher<ChatStreamEvent> chatCompletionsPublisher(String chatId, boolean detail, Map<String, String> variables,
+                                                               List<ChatMessage> messages) {
+        if(log.isDebugEnabled()) {
+            log.debug("request chatCompletionsPublisher chatId={}, detail={}, variables={}, messages={}",
+                    chatId, detail, variables, messages);
+        }
+        byte[] cached = this.cachedAnswer(this.answerKey(chatId, detail, variables, messages));
+        if (Objects.nonNull(cached)) {
+            try {
+                return new ChatStreamPublisher(ChatStreamReplay.exchange(this.replay(cached, detail)), chatStreamEvents);
+            } catch (IOException e) {
+                log.info(e.getLocalizedMessage());
+                throw new RuntimeException(e);
+            }
+        }
+        HashMap<String, Object> param = chatParam(chatId, true, detail, variables, messages);
+        // 订阅时才创建 span，每次尝试都写入传播头
+        AtomicReference<TraceSpan> span = Objects.isNull(this.tracer) ? null : new AtomicReference<>();
+        Publisher<ChatStreamEvent> publisher = new ChatStreamPublisher(consumer -> {
+            AsyncRequestBuilder builder = AsyncRequestBuilder.post(this.combPath(PATH_CHAT_COMPLETIONS))
+                    .setEntity(this.combAsyncBody(param));
+            TraceSpan s = Objects.isNull(span) ? null : span.get();
+            if (Objects.nonNull(s)) {
+                s.inject(builder::setHeader);
+            }
+            CircuitBreaker.Call call = Objects.isNull(this.chatBreaker) ? null : this.chatBreaker.acquire();
+            if (Objects.isNull(this.chatLimiter)) {
+                return this.sendChat(builder, consumer, call, null, s);
+            }
+            // 重试在 scheduler 线程上发起，而名额也由 scheduler 分配，不能阻塞等待
+            CompletableFuture<RequestLimiter.Permit> acquired = this.chatLimiter.acquireAsync();
+            CompletableFuture<Void> exchange = new CompletableFuture<>();
+            AtomicReference<Future<Void>> sent = new AtomicReference<>();
+            acquired.whenComplete((permit, t) -> {
+                if (Objects.isNull(t) && !exchange.isDone()) {
+                    try {
+                        sent.set(this.sendChat(builder, consumer, call, permit, s));
+                    } catch (RuntimeException e) {
+                        consumer.failed(e);
+                        return;
+                    }
+                    if (exchange.isDone()) {
+                        sent.get().cancel(true);
+                    }
+                    return;
+                }
+                release(permit);
+                if (Objects.nonNull(call)) {
+                    call.ignore();
+                }
+                if (!exchange.isDone()) {
+                    consumer.failed(t instanceof Exception ? (Exception) t : new RuntimeException(t));
+                }
+            });
+            exchange.whenComplete((r, t) -> {
+                acquired.cancel(false);
+                Future<Void> f = sent.get();
+                if (Objects.nonNull(f)) {
+                    f.cancel(true);
+                }
+            });
+            return exchange;
+        }, chatStreamEvents, ChatStreamPublisher.DEFAULT_CHUNK_SIZE, ChatStreamPublisher.DEFAULT_MAX_QUEUED,
+                this.retrier, this.scheduler);
+        if (Objects.isNull(this.metrics) && Objects.isNull(span)) {
+            return publisher;
+        }
+        return observedPublisher(publisher, () -> {
+            TraceSpan s = this.startSpan(PATH_CHAT_COMPLETIONS, "POST", param);
+            if (Objects.nonNull(span)) {
+                span.set(s);
+            }
+            return this.chatObserver(s, true);
+        });
+    }
+
+    /**
+     * 发起一次流式对话交换，流结束前一直占用在途名额，发送失败时归还名额
+     */
+    private Future<Void> sendChat(AsyncRequestBuilder builder, AsyncResponseConsumer<Void> consumer, CircuitBreaker.Call call,
+                                  RequestLimiter.Permit permit, TraceSpan span) {
+        try {
+            this.countRequestBody(PATH_CHAT_COMPLETIONS, builder);
+            return this.asyncClient.execute(prepareAsync(PATH_CHAT_COMPLETIONS, builder),
+                    guard(PATH_CHAT_COMPLETIONS, consumer, call, permit, span), null, asyncContext(), null);
+        } catch (RuntimeException e) {
+            release(permit);
+            if (Objects.nonNull(call)) {
+                call.ignore();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param span 为 null 时不追踪
+     * @param parsed 调用方是否解析事件，为 false 时只记录首字节时间
+     * @return 未配置指标和追踪时为 null
+     */
+    private ChatStreamObserver chatObserver(TraceSpan span, boolean parsed) {
+        return ChatStreamObserver.both(Objects.isNull(this.metrics) ? null : new ChatStreamMeter(this.metrics, parsed),
+                Objects.isNull(span) ? null : new ChatStreamTrace(span, parsed));
+    }
+
+    /**
+     * @return 未配置追踪或追踪器不追踪该调用时为 null
+     */
+    private TraceSpan startSpan(String path, String method, Map<String, Object> p) {
+        if (Objects.isNull(this.tracer)) {
+            return null;
+        }
+        TraceSpan span = this.tracer.start(path, method);
+        if (Objects.nonNull(span) && Objects.nonNull(p)) {
+            spanAttribute(span, TraceSpan.ATTR_CHAT_ID, p.get("chatId"));
+            spanAttribute(span, TraceSpan.ATTR_DATASET_ID, p.get("datasetId"));
+            spanAttribute(span, TraceSpan.ATTR_COLLECTION_ID, p.get("collectionId"));
+            spanAttribute(span, TraceSpan.ATTR_ID, p.get("id"));
+        }
+        return span;
+    }
+
+    private static void spanAttribute(TraceSpan span, String key, Object value) {
+        if (Objects.nonNull(value)) {
+            span.setAttribute(key, value.toString());
+        }
+    }
+
+    /**
+     * 订阅时创建观察者，按订阅者收到的事件统计
+     */
+    private Publisher<ChatStreamEvent> observedPublisher(Publisher<ChatStreamEvent> publisher,
+                                                         Supplier<ChatStreamObserver> observers) {
+        return subscriber -> {
+            ChatStreamObserver meter = observers.get();
+            publisher.subscribe(new Subscriber<ChatStreamEvent>() {
+                @Override
+                public void onSubscribe(Subscription s) {
+                    subscriber.onSubscribe(new Subscription() {
+                        @Override
+                        public void request(long n) {
+                            s.request(n);
+                        }
+
+                        @Override
+                        public void cancel() {
+                            meter.end(new CancellationException());
+                            s.cancel();
+                        }
+                    });
+                }
+
+                @Override
+                public void onNext(ChatStreamEvent event) {
+                    meter.onEvent(event);
+                    subscriber.onNext(event);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    meter.end(t);
+                    subscriber.onError(t);
+                }
+
+                @Override
+                public void onComplete() {
+                    meter.end(null);
+                    subscriber.onComplete();
+                }
+            });
+        };
+    }
+
+    /**
+     * 第一次读到数据时记录首字节时间，关闭时结束
+     */
+    private static InputStream observedStream(InputStream in, ChatStreamObserver meter) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                meter.onFirstByte();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                meter.onFirstByte();
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    meter.end(null);
+                }
+            }
+        };
+    }
+
     /**
      * 创建一个知识库
      * @param parentId 父级ID，用于构建目录结构。通常可以为 null 或者直接不传。
@@ -181,24 +825,27 @@ public class ServiceRequests {
                     parentId, type, name, intro, avatar, vectorModel, agentModel);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("parentId", parentId);
-        param.put("type", type);
-        param.put("name", name);
-        param.put("intro", intro);
-        param.put("avatar", avatar);
-        param.put("vectorModel", vectorModel);
-        param.put("agentModel", agentModel);
+        HashMap<String, Object> param = createDatasetParam(parentId, type, name, intro, avatar, vectorModel, agentModel);
 
         try {
-            String e = this.postRequest(PATH_DATESET_CREATE, param);
-            return str2Map(e);
+            return this.postRequest(PATH_DATESET_CREATE, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #createDataset} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> createDatasetAsync(Long parentId, String type, @NonNull String name, String intro,
+                                             String avatar, String vectorModel, String agentModel) {
+        if(log.isDebugEnabled()) {
+            log.debug("request createDatasetAsync parentId={}, type={}, name={}, intro={}, avatar={}, vectorModel={}, agentModel={}", parentId, type, name, intro, avatar, vectorModel, agentModel);
+        }
+        return this.postRequestAsync(PATH_DATESET_CREATE, createDatasetParam(parentId, type, name, intro, avatar, vectorModel, agentModel), mapReader);
+    }
+
     /**
      * 获取知识库列表
      * @param parentId 父级ID，不传或为空，代表获取根目录下的知识库
@@ -209,18 +856,53 @@ public class ServiceRequests {
             log.debug("request listDataset parentId={}", parentId);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("parentId", parentId);
+        HashMap<String, Object> param = listDatasetParam(parentId);
+
+        try {
+            return this.getRequest(PATH_DATESET_LIST, param, mapReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #listDataset} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> listDatasetAsync(String parentId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listDatasetAsync parentId={}", parentId);
+        }
+        return this.getRequestAsync(PATH_DATESET_LIST, listDatasetParam(parentId), mapReader);
+    }
+
+    /**
+     * 获取知识库列表，结果解码为 {@link Dataset}
+     * @see #listDataset
+     */
+    public Response<List<Dataset>> listDatasetTyped(String parentId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listDatasetTyped parentId={}", parentId);
+        }
 
         try {
-            String e = this.getRequest(PATH_DATESET_LIST, param);
-            return str2Map(e);
+            return this.getRequest(PATH_DATESET_LIST, listDatasetParam(parentId), datasetListReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #listDatasetTyped} 的异步版本
+     */
+    public CompletableFuture<Response<List<Dataset>>> listDatasetTypedAsync(String parentId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listDatasetTypedAsync parentId={}", parentId);
+        }
+        return this.getRequestAsync(PATH_DATESET_LIST, listDatasetParam(parentId), datasetListReader);
+    }
+
     /**
      * 获取知识库详情
      * @param datasetId 知识库id
@@ -231,18 +913,53 @@ public class ServiceRequests {
             log.debug("request getDataset datasetId={}", datasetId);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("id", datasetId);
+        HashMap<String, Object> param = getDatasetParam(datasetId);
 
         try {
-            String e = this.getRequest(PATH_DATESET_GET, param);
-            return str2Map(e);
+            return this.getRequest(PATH_DATESET_GET, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #getDataset} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> getDatasetAsync(@NonNull String datasetId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getDatasetAsync datasetId={}", datasetId);
+        }
+        return this.getRequestAsync(PATH_DATESET_GET, getDatasetParam(datasetId), mapReader);
+    }
+
+    /**
+     * 获取知识库详情，结果解码为 {@link Dataset}
+     * @see #getDataset
+     */
+    public Response<Dataset> getDatasetTyped(@NonNull String datasetId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getDatasetTyped datasetId={}", datasetId);
+        }
+
+        try {
+            return this.getRequest(PATH_DATESET_GET, getDatasetParam(datasetId), datasetReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #getDatasetTyped} 的异步版本
+     */
+    public CompletableFuture<Response<Dataset>> getDatasetTypedAsync(@NonNull String datasetId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getDatasetTypedAsync datasetId={}", datasetId);
+        }
+        return this.getRequestAsync(PATH_DATESET_GET, getDatasetParam(datasetId), datasetReader);
+    }
+
     /**
      * 删除知识库
      * @param datasetId 知识库id
@@ -253,18 +970,26 @@ public class ServiceRequests {
             log.debug("request deleteDataset datasetId={}", datasetId);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("id", datasetId);
+        HashMap<String, Object> param = deleteDatasetParam(datasetId);
 
         try {
-            String e = this.deleteRequest(PATH_DATESET_DELETE, param);
-            return str2Map(e);
+            return this.deleteRequest(PATH_DATESET_DELETE, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #deleteDataset} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> deleteDatasetAsync(@NonNull String datasetId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request deleteDatasetAsync datasetId={}", datasetId);
+        }
+        return this.deleteRequestAsync(PATH_DATESET_DELETE, deleteDatasetParam(datasetId), mapReader);
+    }
+
     /**
      * 创建一个空的集合
      * @param datasetId 知识库的ID(必填)
@@ -280,22 +1005,27 @@ public class ServiceRequests {
             log.debug("request createCollection datasetId={}, parentId={}, name={}, type={}, metadata={}", datasetId, parentId, name, type, metadata);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("datasetId", datasetId);
-        param.put("parentId", parentId);
-        param.put("name", name);
-        param.put("type", type);
-        param.put("metadata", metadata);
+        HashMap<String, Object> param = createCollectionParam(datasetId, parentId, name, type, metadata);
 
         try {
-            String e = this.postRequest(PATH_COLLECTION_CREATE, param);
-            return str2Map(e);
+            return this.postRequest(PATH_COLLECTION_CREATE, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #createCollection} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> createCollectionAsync(@NonNull String datasetId, String parentId, @NonNull String name, @NonNull String type,
+                                                String metadata) {
+        if(log.isDebugEnabled()) {
+            log.debug("request createCollectionAsync datasetId={}, parentId={}, name={}, type={}, metadata={}", datasetId, parentId, name, type, metadata);
+        }
+        return this.postRequestAsync(PATH_COLLECTION_CREATE, createCollectionParam(datasetId, parentId, name, type, metadata), mapReader);
+    }
+
     /**
      * 创建一个纯文本集合
      * @param text 原文本
@@ -318,26 +1048,28 @@ public class ServiceRequests {
                     chunkSize, chunkSplitter, qaPrompt);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("text", text);
-        param.put("datasetId", datasetId);
-        param.put("parentId", parentId);
-        param.put("name", name);
-        param.put("metadata", metadata);
-        param.put("trainingType", trainingType);
-        param.put("chunkSize", chunkSize);
-        param.put("chunkSplitter", chunkSplitter);
-        param.put("qaPrompt", qaPrompt);
+        HashMap<String, Object> param = createTextCollectionParam(text, datasetId, parentId, name, metadata, trainingType, chunkSize, chunkSplitter, qaPrompt);
 
         try {
-            String e = this.postRequest(PATH_TEXT_COLLECTION_CREATE, param);
-            return str2Map(e);
+            return this.postRequest(PATH_TEXT_COLLECTION_CREATE, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #createTextCollection} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> createTextCollectionAsync(@NonNull String text, @NonNull String datasetId, String parentId, @NonNull String name,
+                                                    String metadata, @NonNull String trainingType, int chunkSize, String chunkSplitter,
+                                                    String qaPrompt) {
+        if(log.isDebugEnabled()) {
+            log.debug("request createTextCollectionAsync text={}, datasetId={}, parentId={}, name={}, metadata={}, trainingType={}, chunkSize={}, chunkSplitter={}, qaPrompt={}", text, datasetId, parentId, name, metadata, trainingType, chunkSize, chunkSplitter, qaPrompt);
+        }
+        return this.postRequestAsync(PATH_TEXT_COLLECTION_CREATE, createTextCollectionParam(text, datasetId, parentId, name, metadata, trainingType, chunkSize, chunkSplitter, qaPrompt), mapReader);
+    }
+
     /**
      * 创建一个链接集合
      * @param link 网络链接
@@ -359,25 +1091,28 @@ public class ServiceRequests {
                     chunkSize, chunkSplitter, qaPrompt);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("link", link);
-        param.put("datasetId", datasetId);
-        param.put("parentId", parentId);
-        param.put("metadata", metadata);
-        param.put("trainingType", trainingType);
-        param.put("chunkSize", chunkSize);
-        param.put("chunkSplitter", chunkSplitter);
-        param.put("qaPrompt", qaPrompt);
+        HashMap<String, Object> param = createLinkCollectionParam(link, datasetId, parentId, metadata, trainingType, chunkSize, chunkSplitter, qaPrompt);
 
         try {
-            String e = this.postRequest(PATH_LINK_COLLECTION_CREATE, param);
-            return str2Map(e);
+            return this.postRequest(PATH_LINK_COLLECTION_CREATE, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #createLinkCollection} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> createLinkCollectionAsync(@NonNull String link, @NonNull String datasetId, String parentId,
+                                                    String metadata, @NonNull String trainingType, int chunkSize, String chunkSplitter,
+                                                    String qaPrompt) {
+        if(log.isDebugEnabled()) {
+            log.debug("request createLinkCollectionAsync link={}, datasetId={}, parentId={}, metadata={}, trainingType={}, chunkSize={}, chunkSplitter={}, qaPrompt={}", link, datasetId, parentId, metadata, trainingType, chunkSize, chunkSplitter, qaPrompt);
+        }
+        return this.postRequestAsync(PATH_LINK_COLLECTION_CREATE, createLinkCollectionParam(link, datasetId, parentId, metadata, trainingType, chunkSize, chunkSplitter, qaPrompt), mapReader);
+    }
+
     /**
      * 获取集合详情
      * @param collectionId 集合id
@@ -388,18 +1123,53 @@ public class ServiceRequests {
             log.debug("request getCollection collectionId={}", collectionId);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("id", collectionId);
+        HashMap<String, Object> param = getCollectionParam(collectionId);
+
+        try {
+            return this.getRequest(PATH_COLLECTION_GET, param, mapReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #getCollection} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> getCollectionAsync(@NonNull String collectionId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getCollectionAsync collectionId={}", collectionId);
+        }
+        return this.getRequestAsync(PATH_COLLECTION_GET, getCollectionParam(collectionId), mapReader);
+    }
+
+    /**
+     * 获取集合详情，结果解码为 {@link DatasetCollection}
+     * @see #getCollection
+     */
+    public Response<DatasetCollection> getCollectionTyped(@NonNull String collectionId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getCollectionTyped collectionId={}", collectionId);
+        }
 
         try {
-            String e = this.getRequest(PATH_COLLECTION_GET, param);
-            return str2Map(e);
+            return this.getRequest(PATH_COLLECTION_GET, getCollectionParam(collectionId), collectionReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #getCollectionTyped} 的异步版本
+     */
+    public CompletableFuture<Response<DatasetCollection>> getCollectionTypedAsync(@NonNull String collectionId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getCollectionTypedAsync collectionId={}", collectionId);
+        }
+        return this.getRequestAsync(PATH_COLLECTION_GET, getCollectionParam(collectionId), collectionReader);
+    }
+
     /**
      * 获取集合列表
      * @param datasetId 知识库的ID(必填)
@@ -415,22 +1185,101 @@ public class ServiceRequests {
                     datasetId, pageNum, pageSize, parentId, searchText);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("datasetId", datasetId);
-        param.put("pageNum", pageNum);
-        param.put("pageSize", pageSize);
-        param.put("parentId", parentId);
-        param.put("searchText", searchText);
+        HashMap<String, Object> param = listCollectionParam(datasetId, pageNum, pageSize, parentId, searchText);
+
+        try {
+            return this.getRequest(PATH_COLLECTION_LIST, param, mapReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #listCollection} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> listCollectionAsync(@NonNull String datasetId, int pageNum, int pageSize, String parentId, String searchText) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listCollectionAsync datasetId={}, pageNum={}, pageSize={}, parentId={}, searchText={}", datasetId, pageNum, pageSize, parentId, searchText);
+        }
+        return this.getRequestAsync(PATH_COLLECTION_LIST, listCollectionParam(datasetId, pageNum, pageSize, parentId, searchText), mapReader);
+    }
+
+    /**
+     * 获取集合列表，结果解码为 {@link DatasetCollection} 分页
+     * @see #listCollection
+     */
+    public Response<Page<DatasetCollection>> listCollectionTyped(@NonNull String datasetId, int pageNum, int pageSize, String parentId, String searchText) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listCollectionTyped datasetId={}, pageNum={}, pageSize={}, parentId={}, searchText={}", datasetId, pageNum, pageSize, parentId, searchText);
+        }
 
         try {
-            String e = this.getRequest(PATH_COLLECTION_LIST, param);
-            return str2Map(e);
+            return this.getRequest(PATH_COLLECTION_LIST, listCollectionParam(datasetId, pageNum, pageSize, parentId, searchText), collectionPageReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #listCollectionTyped} 的异步版本
+     */
+    public CompletableFuture<Response<Page<DatasetCollection>>> listCollectionTypedAsync(@NonNull String datasetId, int pageNum, int pageSize, String parentId, String searchText) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listCollectionTypedAsync datasetId={}, pageNum={}, pageSize={}, parentId={}, searchText={}", datasetId, pageNum, pageSize, parentId, searchText);
+        }
+        return this.getRequestAsync(PATH_COLLECTION_LIST, listCollectionParam(datasetId, pageNum, pageSize, parentId, searchText), collectionPageReader);
+    }
+
+    /**
+     * 遍历知识库下的全部集合，按需翻页，消费当前页时预取后续页
+     * @param datasetId 知识库的ID(必填)
+     * @param parentId 父级Id（选填）
+     * @param searchText 模糊搜索文本（选填）
+     * @param pageSize 每页数量，超过30时按30请求
+     * @param prefetch 同时在途的页数
+     * @return 每次迭代都从第一页重新请求
+     */
+    public Iterable<DatasetCollection> listCollectionIterable(@NonNull String datasetId, String parentId, String searchText,
+                                                              int pageSize, int prefetch) {
+        return () -> this.collectionPages(datasetId, parentId, searchText, pageSize, prefetch);
+    }
+
+    /**
+     * 按每页 {@link PageIterator#MAX_PAGE_SIZE} 条、预取 {@link PageIterator#DEFAULT_PREFETCH} 页遍历，
+     * 参数同 {@link #listCollectionIterable(String, String, String, int, int)}
+     */
+    public Iterable<DatasetCollection> listCollectionIterable(@NonNull String datasetId, String parentId, String searchText) {
+        return this.listCollectionIterable(datasetId, parentId, searchText, PageIterator.MAX_PAGE_SIZE, PageIterator.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * {@link #listCollectionIterable} 的流式版本，提前结束时应关闭流以取消预取请求
+     */
+    public Stream<DatasetCollection> listCollectionStream(@NonNull String datasetId, String parentId, String searchText,
+                                                          int pageSize, int prefetch) {
+        return this.collectionPages(datasetId, parentId, searchText, pageSize, prefetch).stream();
+    }
+
+    /**
+     * {@link #listCollectionIterable(String, String, String)} 的流式版本
+     */
+    public Stream<DatasetCollection> listCollectionStream(@NonNull String datasetId, String parentId, String searchText) {
+        return this.listCollectionStream(datasetId, parentId, searchText, PageIterator.MAX_PAGE_SIZE, PageIterator.DEFAULT_PREFETCH);
+    }
+
+    private PageIterator<DatasetCollection> collectionPages(String datasetId, String parentId, String searchText, int pageSize, int prefetch) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listCollection pages datasetId={}, parentId={}, searchText={}, pageSize={}, prefetch={}",
+                    datasetId, parentId, searchText, pageSize, prefetch);
+        }
+        int size = Math.min(pageSize, PageIterator.MAX_PAGE_SIZE);
+        return new PageIterator<>(pageNum -> this.getRequestAsync(PATH_COLLECTION_LIST,
+                listCollectionParam(datasetId, pageNum, size, parentId, searchText), collectionPageReader),
+                size, prefetch);
+    }
+
     /**
      * 修改集合信息
      * @param collectionId 集合的ID
@@ -443,20 +1292,26 @@ public class ServiceRequests {
             log.debug("request updateCollection collectionId={}, parentId={}, name={}", collectionId, parentId, name);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("id", collectionId);
-        param.put("parentId", parentId);
-        param.put("name", name);
+        HashMap<String, Object> param = updateCollectionParam(collectionId, parentId, name);
 
         try {
-            String e = this.putRequest(PATH_COLLECTION_PUT, param);
-            return str2Map(e);
+            return this.putRequest(PATH_COLLECTION_PUT, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #updateCollection} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> updateCollectionAsync(@NonNull String collectionId, String parentId, String name) {
+        if(log.isDebugEnabled()) {
+            log.debug("request updateCollectionAsync collectionId={}, parentId={}, name={}", collectionId, parentId, name);
+        }
+        return this.putRequestAsync(PATH_COLLECTION_PUT, updateCollectionParam(collectionId, parentId, name), mapReader);
+    }
+
     /**
      * 删除一个集合
      * @param collectionId 集合的ID
@@ -467,18 +1322,26 @@ public class ServiceRequests {
             log.debug("request deleteCollection collectionId={}", collectionId);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("id", collectionId);
+        HashMap<String, Object> param = deleteCollectionParam(collectionId);
 
         try {
-            String e = this.deleteRequest(PATH_COLLECTION_DELETE, param);
-            return str2Map(e);
+            return this.deleteRequest(PATH_COLLECTION_DELETE, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * {@link #deleteCollection} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> deleteCollectionAsync(@NonNull String collectionId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request deleteCollectionAsync collectionId={}", collectionId);
+        }
+        return this.deleteRequestAsync(PATH_COLLECTION_DELETE, deleteCollectionParam(collectionId), mapReader);
+    }
+
     /**
      * 为集合批量添加添加数据
      * @param collectionId 集合ID（必填）
@@ -494,15 +1357,10 @@ public class ServiceRequests {
                     collectionId, trainingType, prompt, data);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("collectionId", collectionId);
-        param.put("trainingType", trainingType);
-        param.put("prompt", prompt);
-        param.put("data", data);
+        HashMap<String, Object> param = pushDataParam(collectionId, trainingType, prompt, data);
 
         try {
-            String e = this.postRequest(PATH_PUSH_DATA, param);
-            return str2Map(e);
+            return this.postRequest(PATH_PUSH_DATA, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
@@ -510,28 +1368,27 @@ public class ServiceRequests {
     }
 
     /**
-     * 获取集合的数据列表
-     * @param collectionId 集合的ID（必填）
-     * @param pageNum 页码（选填）
-     * @param pageSize 每页数量，最大30（选填）
-     * @param searchText 模糊搜索文本（选填）
-     * @return
+     * {@link #pushData} 的异步版本，不占用调用线程
      */
-    public Map<String, Object> listData(@NonNull String collectionId, int pageNum, int pageSize, String searchText) {
+    public CompletableFuture<Map<String, Object>> pushDataAsync(@NonNull String collectionId, @NonNull String trainingType, String prompt,
+                                        @NonNull List<PushData> data) {
         if(log.isDebugEnabled()) {
-            log.debug("request listData collectionId={}, pageNum={}, pageSize={}, searchText={}",
-                    collectionId, pageNum, pageSize, searchText);
+            log.debug("request pushDataAsync collectionId={}, trainingType={}, prompt={}, data={}", collectionId, trainingType, prompt, data);
         }
+        return this.postRequestAsync(PATH_PUSH_DATA, pushDataParam(collectionId, trainingType, prompt, data), mapReader);
+    }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("collectionId", collectionId);
-        param.put("pageNum", pageNum);
-        param.put("pageSize", pageSize);
-        param.put("searchText", searchText);
+    /**
+     * 为集合批量添加添加数据，结果解码为 {@link PushDataResult}
+     * @see #pushData
+     */
+    public Response<PushDataResult> pushDataTyped(@NonNull String collectionId, @NonNull String trainingType, String prompt, @NonNull List<PushData> data) {
+        if(log.isDebugEnabled()) {
+            log.debug("request pushDataTyped collectionId={}, trainingType={}, prompt={}, data={}", collectionId, trainingType, prompt, data);
+        }
 
         try {
-            String e = this.postRequest(PATH_DATA_LIST, param);
-            return str2Map(e);
+            return this.postRequest(PATH_PUSH_DATA, pushDataParam(collectionId, trainingType, prompt, data), pushDataReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
@@ -539,49 +1396,133 @@ public class ServiceRequests {
     }
 
     /**
-     * 获取单条数据详情
-     * @param dataId 数据的id
-     * @return
+     * {@link #pushDataTyped} 的异步版本
      */
-    public Map<String, Object> getData(@NonNull String dataId) {
+    public CompletableFuture<Response<PushDataResult>> pushDataTypedAsync(@NonNull String collectionId, @NonNull String trainingType, String prompt, @NonNull List<PushData> data) {
         if(log.isDebugEnabled()) {
-            log.debug("request getData dataId={}", dataId);
+            log.debug("request pushDataTypedAsync collectionId={}, trainingType={}, prompt={}, data={}", collectionId, trainingType, prompt, data);
+        }
+        return this.postRequestAsync(PATH_PUSH_DATA, pushDataParam(collectionId, trainingType, prompt, data), pushDataReader);
+    }
+
+    /**
+     * 批量导入任意数量的数据，按 {@link BulkPushOptions} 切分批次并发上传，失败的批次按退避重试。
+     * 数据按需从迭代器读取，阻塞直到全部批次完成。日志中只记录批次序号和条数，不记录数据内容。
+     * @param collectionId 集合ID（必填）
+     * @param trainingType 训练模式（必填）
+     * @param prompt QA拆分提示词（选填）
+     * @param data 待导入的数据（必填）
+     * @param options 批次及并发参数（必填）
+     * @return 汇总结果，重试用尽的批次记录在 failures 中
+     */
+    public BulkPushResult pushDataBulk(@NonNull String collectionId, @NonNull String trainingType, String prompt,
+                                       @NonNull Iterator<PushData> data, @NonNull BulkPushOptions options) {
+        if(log.isDebugEnabled()) {
+            log.debug("request pushDataBulk collectionId={}, trainingType={}, prompt={}, options={}", collectionId, trainingType, prompt, options);
+        }
+        BulkPushResult result = new BulkPusher(batch -> this.postRequestAsync(PATH_PUSH_DATA,
+                pushDataParam(collectionId, trainingType, prompt, batch), pushDataReader), this.scheduler, options).push(data);
+        if(log.isDebugEnabled()) {
+            log.debug("response pushDataBulk result={}", result);
         }
+        return result;
+    }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("id", dataId);
+    /**
+     * @see #pushDataBulk(String, String, String, Iterator, BulkPushOptions)
+     */
+    public BulkPushResult pushDataBulk(@NonNull String collectionId, @NonNull String trainingType, String prompt,
+                                       @NonNull Stream<PushData> data, @NonNull BulkPushOptions options) {
+        return this.pushDataBulk(collectionId, trainingType, prompt, data.iterator(), options);
+    }
+
+    /**
+     * 流式导入大文本：在客户端按 chunkSize/chunkSplitter 切分（规则见 {@link TextChunker}），
+     * 每个片段作为一条数据经 {@link #pushDataBulk(String, String, String, Iterator, BulkPushOptions)} 分批并发上传。
+     * 边读边传，内存中只有一个切分缓冲区和不超过 concurrency 个批次，与文本总长度无关，文本不写入日志。
+     * 集合需事先创建，如 {@code createCollection(datasetId, null, name, "virtual", null)}
+     * @param collectionId 集合ID（必填）
+     * @param trainingType 训练模式（必填） chunk: 片段直接入库 qa: 片段再经 QA 拆分
+     * @param prompt QA拆分提示词（选填）
+     * @param text 原文本，由调用方关闭（必填）
+     * @param chunkSize 每个片段的最大字符数
+     * @param chunkSplitter 自定义最高优先分割符号（可选）
+     * @param options 批次及并发参数（必填）
+     * @return 汇总结果，total 为片段数
+     */
+    public BulkPushResult pushTextBulk(@NonNull String collectionId, @NonNull String trainingType, String prompt,
+                                       @NonNull Reader text, int chunkSize, String chunkSplitter,
+                                       @NonNull BulkPushOptions options) {
+        if(log.isDebugEnabled()) {
+            log.debug("request pushTextBulk collectionId={}, trainingType={}, prompt={}, chunkSize={}, chunkSplitter={}, options={}",
+                    collectionId, trainingType, prompt, chunkSize, chunkSplitter, options);
+        }
+        TextChunker chunks = new TextChunker(text, chunkSize, chunkSplitter);
+        Iterator<PushData> data = new Iterator<PushData>() {
+            @Override
+            public boolean hasNext() {
+                return chunks.hasNext();
+            }
 
+            @Override
+            public PushData next() {
+                return new PushData(chunks.next(), "", null);
+            }
+        };
         try {
-            String e = this.getRequest(PATH_DATA_GET, param);
-            return str2Map(e);
-        } catch (Exception e) {
-            log.info(e.getLocalizedMessage());
+            return this.pushDataBulk(collectionId, trainingType, prompt, data, options);
+        } catch (UncheckedIOException e) {
+            log.info("collectionId=[{}] read text error.", collectionId, e);
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @param text 原文本，由调用方关闭（必填）
+     * @param charset 文本编码（必填）
+     * @see #pushTextBulk(String, String, String, Reader, int, String, BulkPushOptions)
+     */
+    public BulkPushResult pushTextBulk(@NonNull String collectionId, @NonNull String trainingType, String prompt,
+                                       @NonNull InputStream text, @NonNull Charset charset, int chunkSize, String chunkSplitter,
+                                       @NonNull BulkPushOptions options) {
+        return this.pushTextBulk(collectionId, trainingType, prompt, new InputStreamReader(text, charset), chunkSize,
+                chunkSplitter, options);
+    }
+
+    /**
+     * @param file 文本文件（必填）
+     * @param charset 文件编码（必填）
+     * @see #pushTextBulk(String, String, String, Reader, int, String, BulkPushOptions)
+     */
+    public BulkPushResult pushTextBulk(@NonNull String collectionId, @NonNull String trainingType, String prompt,
+                                       @NonNull Path file, @NonNull Charset charset, int chunkSize, String chunkSplitter,
+                                       @NonNull BulkPushOptions options) {
+        try (Reader reader = Files.newBufferedReader(file, charset)) {
+            return this.pushTextBulk(collectionId, trainingType, prompt, reader, chunkSize, chunkSplitter, options);
+        } catch (IOException e) {
+            log.info("file=[{}] error.", file, e);
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * 修改单条数据
-     * @param dataId 数据的id
-     * @param q 主要数据（选填）
-     * @param a 辅助数据（选填）
-     * @param indexes 自定义索引（选填），类型参考为集合批量添加添加数据，建议直接不传。更新q,a后，如果有默认索引，则会直接更新默认索引。
+     * 获取集合的数据列表
+     * @param collectionId 集合的ID（必填）
+     * @param pageNum 页码（选填）
+     * @param pageSize 每页数量，最大30（选填）
+     * @param searchText 模糊搜索文本（选填）
      * @return
      */
-    public Map<String, Object> updateData(@NonNull String dataId, String q, String a, String indexes) {
+    public Map<String, Object> listData(@NonNull String collectionId, int pageNum, int pageSize, String searchText) {
         if(log.isDebugEnabled()) {
-            log.debug("request updateData dataId={}, q={}, a={}, indexes={}", dataId, q, a, indexes);
+            log.debug("request listData collectionId={}, pageNum={}, pageSize={}, searchText={}",
+                    collectionId, pageNum, pageSize, searchText);
         }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("id", dataId);
-        param.put("q", q);
-        param.put("a", a);
-        param.put("indexes", indexes);
+        HashMap<String, Object> param = listDataParam(collectionId, pageNum, pageSize, searchText);
 
         try {
-            String e = this.putRequest(PATH_DATA_UPDATE, param);
-            return str2Map(e);
+            return this.postRequest(PATH_DATA_LIST, param, mapReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
@@ -589,21 +1530,26 @@ public class ServiceRequests {
     }
 
     /**
-     * 删除单条数据
-     * @param dataId 数据的id
-     * @return
+     * {@link #listData} 的异步版本，不占用调用线程
      */
-    public Map<String, Object> deleteData(@NonNull String dataId) {
+    public CompletableFuture<Map<String, Object>> listDataAsync(@NonNull String collectionId, int pageNum, int pageSize, String searchText) {
         if(log.isDebugEnabled()) {
-            log.debug("request deleteData dataId={}", dataId);
+            log.debug("request listDataAsync collectionId={}, pageNum={}, pageSize={}, searchText={}", collectionId, pageNum, pageSize, searchText);
         }
+        return this.postRequestAsync(PATH_DATA_LIST, listDataParam(collectionId, pageNum, pageSize, searchText), mapReader);
+    }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("id", dataId);
+    /**
+     * 获取集合的数据列表，结果解码为 {@link DataItem} 分页
+     * @see #listData
+     */
+    public Response<Page<DataItem>> listDataTyped(@NonNull String collectionId, int pageNum, int pageSize, String searchText) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listDataTyped collectionId={}, pageNum={}, pageSize={}, searchText={}", collectionId, pageNum, pageSize, searchText);
+        }
 
         try {
-            String e = this.deleteRequest(PATH_DATA_DELETE, param);
-            return str2Map(e);
+            return this.postRequest(PATH_DATA_LIST, listDataParam(collectionId, pageNum, pageSize, searchText), dataPageReader);
         } catch (Exception e) {
             log.info(e.getLocalizedMessage());
             throw new RuntimeException(e);
@@ -611,132 +1557,1150 @@ public class ServiceRequests {
     }
 
     /**
-     * 搜索测试
-     * @param datasetId 知识库ID
-     * @param text 需要测试的文本
-     * @param limit 最大 tokens 数量
-     * @param similarity 最低相关度（0~1，可选）
-     * @param searchMode 搜索模式：embedding | fullTextRecall | mixedRecall
-     * @param usingReRank 使用重排
-     * @return
+     * {@link #listDataTyped} 的异步版本
      */
-    public Map<String, Object> searchTestDataset(String datasetId, String text, int limit, int similarity, String searchMode, boolean usingReRank) {
+    public CompletableFuture<Response<Page<DataItem>>> listDataTypedAsync(@NonNull String collectionId, int pageNum, int pageSize, String searchText) {
         if(log.isDebugEnabled()) {
-            log.debug("request searchTestDataset datasetId={}, text={}, limit={}, similarity={}, searchMode={}, usingReRank={}",
-                    datasetId, text, limit, similarity, searchMode, usingReRank);
+            log.debug("request listDataTypedAsync collectionId={}, pageNum={}, pageSize={}, searchText={}", collectionId, pageNum, pageSize, searchText);
         }
+        return this.postRequestAsync(PATH_DATA_LIST, listDataParam(collectionId, pageNum, pageSize, searchText), dataPageReader);
+    }
 
-        HashMap<String, Object> param = new HashMap<>();
-        param.put("datasetId", datasetId);
+    /**
+     * 遍历集合下的全部数据，按需翻页，消费当前页时预取后续页
+     * @param collectionId 集合的ID（必填）
+     * @param searchText 模糊搜索文本（选填）
+     * @param pageSize 每页数量，超过30时按30请求
+     * @param prefetch 同时在途的页数
+     * @return 每次迭代都从第一页重新请求
+     */
+    public Iterable<DataItem> listDataIterable(@NonNull String collectionId, String searchText, int pageSize, int prefetch) {
+        return () -> this.dataPages(collectionId, searchText, pageSize, prefetch);
+    }
+
+    /**
+     * 按每页 {@link PageIterator#MAX_PAGE_SIZE} 条、预取 {@link PageIterator#DEFAULT_PREFETCH} 页遍历，
+     * 参数同 {@link #listDataIterable(String, String, int, int)}
+     */
+    public Iterable<DataItem> listDataIterable(@NonNull String collectionId, String searchText) {
+        return this.listDataIterable(collectionId, searchText, PageIterator.MAX_PAGE_SIZE, PageIterator.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * {@link #listDataIterable} 的流式版本，提前结束时应关闭流以取消预取请求
+     */
+    public Stream<DataItem> listDataStream(@NonNull String collectionId, String searchText, int pageSize, int prefetch) {
+        return this.dataPages(collectionId, searchText, pageSize, prefetch).stream();
+    }
+
+    /**
+     * {@link #listDataIterable(String, String)} 的流式版本
+     */
+    public Stream<DataItem> listDataStream(@NonNull String collectionId, String searchText) {
+        return this.listDataStream(collectionId, searchText, PageIterator.MAX_PAGE_SIZE, PageIterator.DEFAULT_PREFETCH);
+    }
+
+    private PageIterator<DataItem> dataPages(String collectionId, String searchText, int pageSize, int prefetch) {
+        if(log.isDebugEnabled()) {
+            log.debug("request listData pages collectionId={}, searchText={}, pageSize={}, prefetch={}",
+                    collectionId, searchText, pageSize, prefetch);
+        }
+        int size = Math.min(pageSize, PageIterator.MAX_PAGE_SIZE);
+        return new PageIterator<>(pageNum -> this.postRequestAsync(PATH_DATA_LIST,
+                listDataParam(collectionId, pageNum, size, searchText), dataPageReader),
+                size, prefetch);
+    }
+
+    /**
+     * 获取单条数据详情
+     * @param dataId 数据的id
+     * @return
+     */
+    public Map<String, Object> getData(@NonNull String dataId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getData dataId={}", dataId);
+        }
+
+        HashMap<String, Object> param = getDataParam(dataId);
+
+        try {
+            return this.getRequest(PATH_DATA_GET, param, mapReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #getData} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> getDataAsync(@NonNull String dataId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getDataAsync dataId={}", dataId);
+        }
+        return this.getRequestAsync(PATH_DATA_GET, getDataParam(dataId), mapReader);
+    }
+
+    /**
+     * 获取单条数据详情，结果解码为 {@link DataItem}
+     * @see #getData
+     */
+    public Response<DataItem> getDataTyped(@NonNull String dataId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getDataTyped dataId={}", dataId);
+        }
+
+        try {
+            return this.getRequest(PATH_DATA_GET, getDataParam(dataId), dataReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #getDataTyped} 的异步版本
+     */
+    public CompletableFuture<Response<DataItem>> getDataTypedAsync(@NonNull String dataId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request getDataTypedAsync dataId={}", dataId);
+        }
+        return this.getRequestAsync(PATH_DATA_GET, getDataParam(dataId), dataReader);
+    }
+
+    /**
+     * 修改单条数据
+     * @param dataId 数据的id
+     * @param q 主要数据（选填）
+     * @param a 辅助数据（选填）
+     * @param indexes 自定义索引（选填），类型参考为集合批量添加添加数据，建议直接不传。更新q,a后，如果有默认索引，则会直接更新默认索引。
+     * @return
+     */
+    public Map<String, Object> updateData(@NonNull String dataId, String q, String a, String indexes) {
+        if(log.isDebugEnabled()) {
+            log.debug("request updateData dataId={}, q={}, a={}, indexes={}", dataId, q, a, indexes);
+        }
+
+        HashMap<String, Object> param = updateDataParam(dataId, q, a, indexes);
+
+        try {
+            return this.putRequest(PATH_DATA_UPDATE, param, mapReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #updateData} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> updateDataAsync(@NonNull String dataId, String q, String a, String indexes) {
+        if(log.isDebugEnabled()) {
+            log.debug("request updateDataAsync dataId={}, q={}, a={}, indexes={}", dataId, q, a, indexes);
+        }
+        return this.putRequestAsync(PATH_DATA_UPDATE, updateDataParam(dataId, q, a, indexes), mapReader);
+    }
+
+    /**
+     * 删除单条数据
+     * @param dataId 数据的id
+     * @return
+     */
+    public Map<String, Object> deleteData(@NonNull String dataId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request deleteData dataId={}", dataId);
+        }
+
+        HashMap<String, Object> param = deleteDataParam(dataId);
+
+        try {
+            return this.deleteRequest(PATH_DATA_DELETE, param, mapReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #deleteData} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> deleteDataAsync(@NonNull String dataId) {
+        if(log.isDebugEnabled()) {
+            log.debug("request deleteDataAsync dataId={}", dataId);
+        }
+        return this.deleteRequestAsync(PATH_DATA_DELETE, deleteDataParam(dataId), mapReader);
+    }
+
+    /**
+     * 搜索测试
+     * @param datasetId 知识库ID
+     * @param text 需要测试的文本
+     * @param limit 最大 tokens 数量
+     * @param similarity 最低相关度（0~1，可选）
+     * @param searchMode 搜索模式：embedding | fullTextRecall | mixedRecall
+     * @param usingReRank 使用重排
+     * @return
+     */
+    public Map<String, Object> searchTestDataset(String datasetId, String text, int limit, int similarity, String searchMode, boolean usingReRank) {
+        if(log.isDebugEnabled()) {
+            log.debug("request searchTestDataset datasetId={}, text={}, limit={}, similarity={}, searchMode={}, usingReRank={}",
+                    datasetId, text, limit, similarity, searchMode, usingReRank);
+        }
+
+        HashMap<String, Object> param = searchTestDatasetParam(datasetId, text, limit, similarity, searchMode, usingReRank);
+
+        try {
+            return this.searchRequest(this.searchCacheKey(datasetId, text, limit, similarity, searchMode, usingReRank), param, mapReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #searchTestDataset} 的异步版本，不占用调用线程
+     */
+    public CompletableFuture<Map<String, Object>> searchTestDatasetAsync(String datasetId, String text, int limit, int similarity, String searchMode, boolean usingReRank) {
+        if(log.isDebugEnabled()) {
+            log.debug("request searchTestDatasetAsync datasetId={}, text={}, limit={}, similarity={}, searchMode={}, usingReRank={}", datasetId, text, limit, similarity, searchMode, usingReRank);
+        }
+        return this.searchRequestAsync(this.searchCacheKey(datasetId, text, limit, similarity, searchMode, usingReRank),
+                searchTestDatasetParam(datasetId, text, limit, similarity, searchMode, usingReRank), mapReader);
+    }
+
+    /**
+     * 搜索测试，结果解码为 {@link SearchResult}
+     * @see #searchTestDataset
+     */
+    public Response<SearchResult> searchTestDatasetTyped(String datasetId, String text, int limit, int similarity, String searchMode, boolean usingReRank) {
+        if(log.isDebugEnabled()) {
+            log.debug("request searchTestDatasetTyped datasetId={}, text={}, limit={}, similarity={}, searchMode={}, usingReRank={}", datasetId, text, limit, similarity, searchMode, usingReRank);
+        }
+
+        try {
+            return this.searchRequest(this.searchCacheKey(datasetId, text, limit, similarity, searchMode, usingReRank),
+                    searchTestDatasetParam(datasetId, text, limit, similarity, searchMode, usingReRank), searchReader);
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #searchTestDatasetTyped} 的异步版本
+     */
+    public CompletableFuture<Response<SearchResult>> searchTestDatasetTypedAsync(String datasetId, String text, int limit, int similarity, String searchMode, boolean usingReRank) {
+        if(log.isDebugEnabled()) {
+            log.debug("request searchTestDatasetTypedAsync datasetId={}, text={}, limit={}, similarity={}, searchMode={}, usingReRank={}", datasetId, text, limit, similarity, searchMode, usingReRank);
+        }
+        return this.searchRequestAsync(this.searchCacheKey(datasetId, text, limit, similarity, searchMode, usingReRank),
+                searchTestDatasetParam(datasetId, text, limit, similarity, searchMode, usingReRank), searchReader);
+    }
+
+    /**
+     * 同时搜索多个知识库，合并结果后按得分从高到低排列并按数据ID去重。
+     * 截止时间到达时以已返回的结果结束，未返回的请求被取消，超时或失败的知识库记录在 failures 中。
+     * @param datasetIds 知识库ID（必填）
+     * @param limit 每个知识库的最大 tokens 数量
+     * @param maxResults 合并后最多保留的条数，小于等于 0 时不限制
+     * @param deadline 等待的最长时间（必填）
+     * @see #searchTestDataset
+     */
+    public MultiSearchResult searchTestDatasets(@NonNull Collection<String> datasetIds, String text, int limit, int similarity,
+                                                String searchMode, boolean usingReRank, int maxResults, @NonNull Duration deadline) {
+        if(log.isDebugEnabled()) {
+            log.debug("request searchTestDatasets datasetIds={}, text={}, limit={}, similarity={}, searchMode={}, usingReRank={}, maxResults={}, deadline={}",
+                    datasetIds, text, limit, similarity, searchMode, usingReRank, maxResults, deadline);
+        }
+        try {
+            MultiSearchResult result = this.searchTestDatasetsAsync(datasetIds, text, limit, similarity, searchMode, usingReRank, maxResults, deadline).get();
+            if(log.isDebugEnabled()) {
+                log.debug("response searchTestDatasets searched={}, size={}, failures={}", result.getSearched(), result.getList().size(), result.getFailures());
+            }
+            return result;
+        } catch (Exception e) {
+            log.info(e.getLocalizedMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #searchTestDatasets} 的异步版本，取消返回的 future 会取消所有未完成的搜索
+     */
+    public CompletableFuture<MultiSearchResult> searchTestDatasetsAsync(@NonNull Collection<String> datasetIds, String text, int limit, int similarity,
+                                                                        String searchMode, boolean usingReRank, int maxResults, @NonNull Duration deadline) {
+        return new FanOutSearch(datasetId -> this.searchTestDatasetTypedAsync(datasetId, text, limit, similarity, searchMode, usingReRank),
+                this.scheduler).search(datasetIds, maxResults, deadline);
+    }
+
+    /**
+     * 非流式对话，不带 chatId 且启用答案缓存时先查缓存，成功的答案写入缓存
+     */
+    private <T> T chatRequest(String chatId, boolean detail, Map<String, String> variables, List<ChatMessage> messages,
+                              ObjectReader reader) throws IOException {
+        String key = this.answerKey(chatId, detail, variables, messages);
+        if (Objects.isNull(key)) {
+            return this.postRequest(PATH_CHAT_COMPLETIONS, chatParam(chatId, false, detail, variables, messages), reader);
+        }
+        byte[] cached = this.cachedAnswer(key);
+        if (Objects.nonNull(cached)) {
+            return reader.readValue(cached);
+        }
+        JsonNode node = this.postRequest(PATH_CHAT_COMPLETIONS, chatParam(chatId, false, detail, variables, messages), nodeReader);
+        this.putAnswer(key, node);
+        return reader.readValue(node);
+    }
+
+    private <T> CompletableFuture<T> chatRequestAsync(String chatId, boolean detail, Map<String, String> variables,
+                                                      List<ChatMessage> messages, ObjectReader reader) {
+        String key = this.answerKey(chatId, detail, variables, messages);
+        if (Objects.isNull(key)) {
+            return this.postRequestAsync(PATH_CHAT_COMPLETIONS, chatParam(chatId, false, detail, variables, messages), reader);
+        }
+        byte[] cached = this.cachedAnswer(key);
+        if (Objects.nonNull(cached)) {
+            try {
+                return CompletableFuture.completedFuture(reader.readValue(cached));
+            } catch (IOException e) {
+                return failedFuture(e);
+            }
+        }
+        CompletableFuture<JsonNode> upstream = this.postRequestAsync(PATH_CHAT_COMPLETIONS,
+                chatParam(chatId, false, detail, variables, messages), nodeReader);
+        CompletableFuture<T> future = upstream.thenApply(node -> {
+            this.putAnswer(key, node);
+            try {
+                return reader.readValue(node);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        future.whenComplete((r, t) -> {
+            if (future.isCancelled()) {
+                upstream.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return 带 chatId 或未启用答案缓存时为 null
+     */
+    private String answerKey(String chatId, boolean detail, Map<String, String> variables, List<ChatMessage> messages) {
+        if (Objects.isNull(this.answerCache) || Objects.nonNull(chatId)) {
+            return null;
+        }
+        return this.answerCache.key(detail, variables, messages);
+    }
+
+    private byte[] cachedAnswer(String key) {
+        if (Objects.isNull(key)) {
+            return null;
+        }
+        byte[] cached = this.answerCache.get(key);
+        if(log.isDebugEnabled() && Objects.nonNull(cached)) {
+            log.debug(" cached answer key=[{}]", key);
+        }
+        return cached;
+    }
+
+    /**
+     * 只缓存带有答案内容的响应，错误响应不缓存
+     */
+    private void putAnswer(String key, JsonNode completion) {
+        if (Objects.isNull(completion) || !completion.path("choices").path(0).path("message").path("content").isTextual()) {
+            return;
+        }
+        try {
+            this.answerCache.put(key, jsonWriter.writeValueAsBytes(completion));
+        } catch (JsonProcessingException e) {
+            log.info("cache answer error={}", e.getLocalizedMessage());
+        }
+    }
+
+    private JsonNode completionNode(String content) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("role", "assistant");
+        message.put("content", content);
+        Map<String, Object> choice = new HashMap<>();
+        choice.put("index", 0);
+        choice.put("message", message);
+        choice.put("finish_reason", "stop");
+        Map<String, Object> completion = new HashMap<>();
+        completion.put("choices", Collections.singletonList(choice));
+        return jsonMapper.valueToTree(completion);
+    }
+
+    private byte[] replay(byte[] cached, boolean detail) throws IOException {
+        return ChatStreamReplay.sse(nodeReader.readTree(cached), detail, jsonWriter);
+    }
+
+    private HashMap<String, Object> chatParam(String chatId, boolean stream, boolean detail, Map<String, String> variables, List<ChatMessage> messages) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("chatId", chatId);
+        param.put("stream", stream);
+        param.put("detail", detail);
+        param.put("variables", variables);
+        param.put("messages", messages);
+        return param;
+    }
+
+    private HashMap<String, Object> createDatasetParam(Long parentId, String type, String name, String intro, String avatar, String vectorModel, String agentModel) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("parentId", parentId);
+        param.put("type", type);
+        param.put("name", name);
+        param.put("intro", intro);
+        param.put("avatar", avatar);
+        param.put("vectorModel", vectorModel);
+        param.put("agentModel", agentModel);
+        return param;
+    }
+
+    private HashMap<String, Object> listDatasetParam(String parentId) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("parentId", parentId);
+        return param;
+    }
+
+    private HashMap<String, Object> getDatasetParam(String datasetId) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("id", datasetId);
+        return param;
+    }
+
+    private HashMap<String, Object> deleteDatasetParam(String datasetId) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("id", datasetId);
+        return param;
+    }
+
+    private HashMap<String, Object> createCollectionParam(String datasetId, String parentId, String name, String type, String metadata) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("datasetId", datasetId);
+        param.put("parentId", parentId);
+        param.put("name", name);
+        param.put("type", type);
+        param.put("metadata", metadata);
+        return param;
+    }
+
+    private HashMap<String, Object> createTextCollectionParam(String text, String datasetId, String parentId, String name, String metadata, String trainingType, int chunkSize, String chunkSplitter, String qaPrompt) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("text", text);
+        param.put("datasetId", datasetId);
+        param.put("parentId", parentId);
+        param.put("name", name);
+        param.put("metadata", metadata);
+        param.put("trainingType", trainingType);
+        param.put("chunkSize", chunkSize);
+        param.put("chunkSplitter", chunkSplitter);
+        param.put("qaPrompt", qaPrompt);
+        return param;
+    }
+
+    private HashMap<String, Object> createLinkCollectionParam(String link, String datasetId, String parentId, String metadata, String trainingType, int chunkSize, String chunkSplitter, String qaPrompt) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("link", link);
+        param.put("datasetId", datasetId);
+        param.put("parentId", parentId);
+        param.put("metadata", metadata);
+        param.put("trainingType", trainingType);
+        param.put("chunkSize", chunkSize);
+        param.put("chunkSplitter", chunkSplitter);
+        param.put("qaPrompt", qaPrompt);
+        return param;
+    }
+
+    private HashMap<String, Object> getCollectionParam(String collectionId) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("id", collectionId);
+        return param;
+    }
+
+    private HashMap<String, Object> listCollectionParam(String datasetId, int pageNum, int pageSize, String parentId, String searchText) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("datasetId", datasetId);
+        param.put("pageNum", pageNum);
+        param.put("pageSize", pageSize);
+        param.put("parentId", parentId);
+        param.put("searchText", searchText);
+        return param;
+    }
+
+    private HashMap<String, Object> updateCollectionParam(String collectionId, String parentId, String name) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("id", collectionId);
+        param.put("parentId", parentId);
+        param.put("name", name);
+        return param;
+    }
+
+    private HashMap<String, Object> deleteCollectionParam(String collectionId) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("id", collectionId);
+        return param;
+    }
+
+    private HashMap<String, Object> pushDataParam(String collectionId, String trainingType, String prompt, List<PushData> data) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("collectionId", collectionId);
+        param.put("trainingType", trainingType);
+        param.put("prompt", prompt);
+        param.put("data", data);
+        return param;
+    }
+
+    private HashMap<String, Object> listDataParam(String collectionId, int pageNum, int pageSize, String searchText) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("collectionId", collectionId);
+        param.put("pageNum", pageNum);
+        param.put("pageSize", pageSize);
+        param.put("searchText", searchText);
+        return param;
+    }
+
+    private HashMap<String, Object> getDataParam(String dataId) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("id", dataId);
+        return param;
+    }
+
+    private HashMap<String, Object> updateDataParam(String dataId, String q, String a, String indexes) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("id", dataId);
+        param.put("q", q);
+        param.put("a", a);
+        param.put("indexes", indexes);
+        return param;
+    }
+
+    private HashMap<String, Object> deleteDataParam(String dataId) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("id", dataId);
+        return param;
+    }
+
+    private HashMap<String, Object> searchTestDatasetParam(String datasetId, String text, int limit, int similarity, String searchMode, boolean usingReRank) {
+        HashMap<String, Object> param = new HashMap<>();
+        param.put("datasetId", datasetId);
         param.put("text", text);
         param.put("limit", limit);
         param.put("similarity", similarity);
         param.put("searchMode", searchMode);
         param.put("usingReRank", usingReRank);
+        return param;
+    }
+
+    private String combPath(String path) {
+        return this.config.getApiUrl() + path;
+    }
+
+    private HttpEntity combBody(Map<String, Object> p) {
+        p.entrySet().removeIf((e) -> Objects.isNull(e.getValue()));
+        return new JsonEntity(p, jsonWriter, Charset.forName(config.getCharset()));
+    }
+
+    private <T> T postRequest(String path, Map<String, Object> p, ObjectReader reader) {
+        T ret;
+        try {
+            String url = this.combPath(path);
+            HttpEntity body = this.combBody(p);
+            HttpPost post = new HttpPost(url);
+            post.setEntity(body);
+            ret = handleResp(doRequest(path, post, p), reader);
+        } catch (Exception e) {
+            log.info("path=[{}], params=[{}] error.", path, p, e);
+            throw new RuntimeException(e);
+        } finally {
+            this.evictCache(path, p);
+        }
+
+        return ret;
+    }
+
+    /**
+     * 搜索测试请求，启用搜索缓存时先查缓存，成功的响应写入缓存
+     * @param cacheKey 为 null 时不使用缓存
+     */
+    private <T> T searchRequest(String cacheKey, Map<String, Object> p, ObjectReader reader) {
+        if (this.hedging(PATH_DATASET_SEARCH_TEST)) {
+            return this.await(PATH_DATASET_SEARCH_TEST, p, this.searchRequestAsync(cacheKey, p, reader));
+        }
+        if (Objects.isNull(cacheKey)) {
+            return this.postRequest(PATH_DATASET_SEARCH_TEST, p, reader);
+        }
+        try {
+            ResponseCache.Entry cached = this.searchCache.get(cacheKey);
+            if (Objects.nonNull(cached)) {
+                return this.decodeCached(PATH_DATASET_SEARCH_TEST, cached, reader);
+            }
+            String datasetId = (String) p.get("datasetId");
+            long generation = this.searchCache.generation();
+            HttpPost post = new HttpPost(this.combPath(PATH_DATASET_SEARCH_TEST));
+            post.setEntity(this.combBody(p));
+            return handleCacheableResp(doRequest(PATH_DATASET_SEARCH_TEST, post, p), reader,
+                    (body, charset) -> this.searchCache.put(cacheKey, datasetId, body, charset, generation));
+        } catch (Exception e) {
+            log.info("path=[{}], params=[{}] error.", PATH_DATASET_SEARCH_TEST, p, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * {@link #searchRequest} 的异步版本
+     */
+    private <T> CompletableFuture<T> searchRequestAsync(String cacheKey, Map<String, Object> p, ObjectReader reader) {
+        try {
+            Consumer<Message<HttpResponse, byte[]>> store = null;
+            if (Objects.nonNull(cacheKey)) {
+                ResponseCache.Entry cached = this.searchCache.get(cacheKey);
+                if (Objects.nonNull(cached)) {
+                    return CompletableFuture.completedFuture(this.decodeCached(PATH_DATASET_SEARCH_TEST, cached, reader));
+                }
+                String datasetId = (String) p.get("datasetId");
+                long generation = this.searchCache.generation();
+                store = message -> {
+                    if (message.getHead().getCode() == HttpStatus.SC_OK) {
+                        this.searchCache.put(cacheKey, datasetId, message.getBody(), responseCharset(message.getHead()), generation);
+                    }
+                };
+            }
+            Consumer<Message<HttpResponse, byte[]>> onResponse = store;
+            String url = this.combPath(PATH_DATASET_SEARCH_TEST);
+            return this.hedged(PATH_DATASET_SEARCH_TEST, () -> doRequestAsync(PATH_DATASET_SEARCH_TEST,
+                    AsyncRequestBuilder.post(url).setEntity(this.combAsyncBody(p)), reader, p, onResponse));
+        } catch (Exception e) {
+            log.info("path=[{}], params=[{}] error.", PATH_DATASET_SEARCH_TEST, p, e);
+            return failedFuture(e);
+        }
+    }
+
+    private boolean hedging(String path) {
+        return Objects.nonNull(this.hedger) && this.hedger.applies(path);
+    }
+
+    /**
+     * 该接口启用对冲时按 {@link Hedger} 执行，否则直接执行一次
+     * @param attempt 每次调用发出一个独立的请求，不能复用请求体
+     */
+    private <T> CompletableFuture<T> hedged(String path, Supplier<CompletableFuture<T>> attempt) {
+        return this.hedging(path) ? this.hedger.execute(path, attempt) : attempt.get();
+    }
+
+    /**
+     * 阻塞等待异步请求，失败时与阻塞请求一样抛出 RuntimeException
+     */
+    private <T> T await(String path, Map<String, Object> p, CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            log.info("path=[{}], params=[{}] error.", path, p, e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @return 未启用搜索缓存时为 null
+     */
+    private String searchCacheKey(String datasetId, String text, int limit, int similarity, String searchMode, boolean usingReRank) {
+        return Objects.isNull(this.searchCache) ? null
+                : this.searchCache.key(datasetId, text, limit, similarity, searchMode, usingReRank);
+    }
+
+    /**
+     * @param span 为 null 时不追踪，由调用方在流结束时结束
+     */
+    private InputStream postSSERequest(String path, Map<String, Object> p, TraceSpan span) {
+
+        try {
+            String url = this.combPath(path);
+            HttpEntity body = this.combBody(p);
+            HttpPost post = new HttpPost(url);
+            post.setEntity(body);
+            return handleStream(doRequest(path, post, span, true));
+        } catch (Exception e) {
+            log.info("path=[{}], params=[{}] error.", path, p, e);
+            throw new RuntimeException(e);
+        }
+
+    }
+
+
+    private ClassicHttpResponse doRequest(String path, HttpUriRequestBase method, Map<String, Object> p) throws IOException, ParseException {
+        return doRequest(path, method, this.startSpan(path, method.getMethod(), p), false);
+    }
+
+    /**
+     * @param span 为 null 时不追踪；非流式请求在响应体读完后结束 span，流式请求由调用方结束
+     * @param stream 为 true 时限流名额在响应流关闭时才释放
+     */
+    private ClassicHttpResponse doRequest(String path, HttpUriRequestBase method, TraceSpan span, boolean stream)
+            throws IOException, ParseException {
+        ClassicHttpResponse response = null;
+
+        String ret;
+        Runnable unbind = null;
+        try {
+            unbind = this.bindCall(method);
+            method.addHeader("Content-Type","application/json");
+            if(Objects.nonNull(this.config.getKey())) {
+                method.setHeader("Authorization", authorization(path));
+            }
+
+            if (Objects.nonNull(span)) {
+                span.inject(method::setHeader);
+            }
+
+            if(log.isDebugEnabled()) {
+                log.debug("{} request path=[{}], headers=[{}]]", method.getMethod(), method.getRequestUri(), method.getHeaders());
+            }
+
+            CircuitBreaker breaker = this.breaker(path);
+            if (Objects.nonNull(breaker) && !breaker.isCallPermitted()) {
+                throw new CircuitOpenException(path + " circuit breaker is open");
+            }
+            if (Objects.nonNull(this.metrics) && Objects.nonNull(method.getEntity())) {
+                method.setEntity(new CountingEntity(method.getEntity(), null));
+            }
+            RequestLimiter limiter = this.limiter(path);
+            RequestLimiter.Permit permit = Objects.isNull(limiter) ? null : this.acquire(limiter);
+            try {
+                response = this.executeWithRetry(path, method, permit);
+            } catch (Exception e) {
+                release(permit);
+                throw e;
+            }
+            if (Objects.nonNull(this.metrics) && Objects.nonNull(response.getEntity())) {
+                response.setEntity(new CountingEntity(response.getEntity(), n -> this.metrics.responseSize(path, n)));
+            }
+            if (!stream || Objects.isNull(response.getEntity())) {
+                release(permit);
+            } else if (Objects.nonNull(permit)) {
+                response.setEntity(onClose(response.getEntity(), permit::release));
+            }
+            if (Objects.nonNull(span)) {
+                span.setStatus(response.getCode());
+                if (!stream && Objects.isNull(response.getEntity())) {
+                    span.end(null);
+                } else if (!stream) {
+                    response.setEntity(onClose(response.getEntity(), () -> span.end(null)));
+                }
+            }
+            if (Objects.isNull(response.getEntity())) {
+                unbind.run();
+            } else {
+                response.setEntity(onClose(response.getEntity(), unbind));
+            }
+        } catch (RateLimitedException | CircuitOpenException e) {
+            if (Objects.nonNull(unbind)) {
+                unbind.run();
+            }
+            if (!stream && Objects.nonNull(span)) {
+                span.end(e);
+            }
+            throw e;
+        } catch (Exception e) {
+            if (Objects.nonNull(unbind)) {
+                unbind.run();
+            }
+            Throwable cause = this.callFailure(method, e);
+            if (!stream && Objects.nonNull(span)) {
+                span.end(cause);
+            }
+            log.info("path=[{}], params=[{}] error.", path, readContent(method.getEntity(), config.getCharset()), cause);
+            throw new RuntimeException(cause);
+        }
+
+        return response;
+    }
+
+    /**
+     * 按 {@link Retrier} 重试瞬时故障，请求体必须可重复发送
+     */
+    private ClassicHttpResponse executeWithRetry(String path, HttpUriRequestBase method, RequestLimiter.Permit permit)
+            throws IOException, InterruptedException {
+        if (Objects.isNull(this.retrier) || (Objects.nonNull(method.getEntity()) && !method.getEntity().isRepeatable())) {
+            return this.execute(path, method, permit);
+        }
+        Retrier.Idempotency idempotency = idempotency(path, method.getMethod());
+        this.retrier.onRequest();
+        for (int attempt = 1; ; attempt++) {
+            ClassicHttpResponse response;
+            try {
+                response = this.execute(path, method, permit);
+            } catch (IOException e) {
+                long delay = this.retrier.delay(attempt, idempotency, null, e);
+                if (delay < 0 || method.isCancelled() || delay >= this.remainingMillis()) {
+                    throw e;
+                }
+                log.info("path=[{}] attempt={} error={}, retry in {}ms", path, attempt, e.getLocalizedMessage(), delay);
+                TimeUnit.MILLISECONDS.sleep(delay);
+                continue;
+            }
+            long delay = this.retrier.delay(attempt, idempotency, response, null);
+            if (delay < 0 || delay >= this.remainingMillis()) {
+                return response;
+            }
+            log.info("path=[{}] attempt={} status={}, retry in {}ms", path, attempt, response.getCode(), delay);
+            EntityUtils.consume(response.getEntity());
+            response.close();
+            TimeUnit.MILLISECONDS.sleep(delay);
+        }
+    }
 
+    /**
+     * 发送一次请求，每次尝试都经过熔断器
+     */
+    private ClassicHttpResponse execute(String path, HttpUriRequestBase method, RequestLimiter.Permit permit) throws IOException {
+        method.setConfig(this.callConfig());
+        CircuitBreaker breaker = this.breaker(path);
+        CircuitBreaker.Call call = Objects.isNull(breaker) ? null : breaker.acquire();
+        long start = System.nanoTime();
+        ClassicHttpResponse response;
         try {
-            String e = this.postRequest(PATH_DATASET_SEARCH_TEST, param);
-            return str2Map(e);
-        } catch (Exception e) {
-            log.info(e.getLocalizedMessage());
-            throw new RuntimeException(e);
+            response = this.transport.execute(method);
+        } catch (IOException | RuntimeException e) {
+            if (Objects.nonNull(call)) {
+                call.onError(System.nanoTime() - start);
+            }
+            if (Objects.nonNull(this.metrics)) {
+                this.metrics.request(path, 0, e, System.nanoTime() - start);
+            }
+            throw e;
+        }
+        long latency = System.nanoTime() - start;
+        if (Objects.nonNull(this.metrics)) {
+            this.metrics.request(path, response.getCode(), null, latency);
+            if (method.getEntity() instanceof CountingEntity) {
+                this.metrics.requestSize(path, ((CountingEntity) method.getEntity()).getCount());
+            }
+        }
+        if (Objects.nonNull(permit)) {
+            permit.onResponse(response.getCode(), latency);
+        }
+        if (Objects.nonNull(call)) {
+            call.onResponse(response.getCode(), latency);
         }
+        return response;
     }
 
-    private String combPath(String path) {
-        return this.config.getApiUrl() + path;
+    private CircuitBreaker breaker(String path) {
+        return Objects.equals(path, PATH_CHAT_COMPLETIONS) ? this.chatBreaker : this.datasetBreaker;
     }
 
-    private HttpEntity combBody(Map<String, Object> p) throws UnsupportedEncodingException, JsonProcessingException {
-        p.entrySet().removeIf((e) -> Objects.isNull(e.getValue()));
-        return new StringEntity(jsonMapper.writeValueAsString(p), Charset.forName(config.getCharset()));
+    private <T> AsyncResponseConsumer<T> guard(String path, AsyncResponseConsumer<T> consumer, CircuitBreaker.Call call,
+                                               RequestLimiter.Permit permit, TraceSpan span) {
+        if (Objects.nonNull(span)) {
+            consumer = new TracingResponseConsumer<>(consumer, span);
+        }
+        if (Objects.nonNull(this.metrics)) {
+            consumer = new MeteredResponseConsumer<>(consumer, this.metrics, path);
+        }
+        if (Objects.nonNull(call)) {
+            consumer = new CircuitBreakerResponseConsumer<>(consumer, call);
+        }
+        if (Objects.nonNull(permit)) {
+            consumer = new LimitedResponseConsumer<>(consumer, permit);
+        }
+        return consumer;
     }
 
-    private String postRequest(String path, Map<String, Object> p) {
-        String ret;
-        try {
-            String url = this.combPath(path);
-            HttpEntity body = this.combBody(p);
-            HttpPost post = new HttpPost(url);
-            post.setEntity(body);
-            ret = handleResp(doRequest(path, post));
-        } catch (Exception e) {
-            log.info("path=[{}], params=[{}] error.", path, p, e);
-            throw new RuntimeException(e);
+    private RequestLimiter limiter(String path) {
+        return Objects.equals(path, PATH_CHAT_COMPLETIONS) ? this.chatLimiter : this.datasetLimiter;
+    }
+
+    private static void release(RequestLimiter.Permit permit) {
+        if (Objects.nonNull(permit)) {
+            permit.release();
         }
+    }
 
-        return ret;
+    /**
+     * 按调用选项为阻塞请求注册取消回调和截止时间，到达截止时间或被取消时中止请求并关闭连接
+     * @return 请求结束（响应体关闭或发送失败）时调用
+     */
+    private Runnable bindCall(HttpUriRequestBase method) throws TimeoutException {
+        if (Objects.isNull(this.options)) {
+            return () -> { };
+        }
+        this.checkCall();
+        Runnable unregister = Objects.isNull(this.options.getCancellation()) ? () -> { }
+                : this.options.getCancellation().onCancel(method::cancel);
+        ScheduledFuture<?> timer = null;
+        if (Objects.nonNull(this.options.getDeadline())) {
+            try {
+                timer = this.scheduler.schedule(method::cancel, this.remainingMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.info("deadline not scheduled: {}", e.getLocalizedMessage());
+            }
+        }
+        ScheduledFuture<?> t = timer;
+        return () -> {
+            unregister.run();
+            if (Objects.nonNull(t)) {
+                t.cancel(false);
+            }
+        };
     }
 
-    private InputStream postSSERequest(String path, Map<String, Object> p) {
+    /**
+     * 按调用选项为异步请求注册取消回调和截止时间：取消时 future 被取消，到达截止时间时以 {@link TimeoutException} 失败，
+     * 两者都会中止进行中的交换
+     */
+    private void bindCallAsync(CompletableFuture<?> future, AtomicReference<Future<?>> current) throws TimeoutException {
+        if (Objects.isNull(this.options)) {
+            return;
+        }
+        this.checkCall();
+        if (Objects.nonNull(this.options.getCancellation())) {
+            Runnable unregister = this.options.getCancellation().onCancel(() -> future.cancel(true));
+            future.whenComplete((r, t) -> unregister.run());
+        }
+        if (Objects.nonNull(this.options.getDeadline())) {
+            Instant deadline = this.options.getDeadline();
+            try {
+                ScheduledFuture<?> timer = this.scheduler.schedule(() -> {
+                    if (future.completeExceptionally(new TimeoutException("deadline " + deadline + " exceeded"))) {
+                        Future<?> f = current.get();
+                        if (Objects.nonNull(f)) {
+                            f.cancel(true);
+                        }
+                    }
+                }, this.remainingMillis(), TimeUnit.MILLISECONDS);
+                future.whenComplete((r, t) -> timer.cancel(false));
+            } catch (RejectedExecutionException e) {
+                log.info("deadline not scheduled: {}", e.getLocalizedMessage());
+            }
+        }
+    }
 
+    /**
+     * 阻塞获取限流名额，等待不超过距截止时间的剩余时间，调用被取消时放弃等待。
+     * 取消回调和截止时间只能中止已发出的请求，不能唤醒等待名额的线程，所以在这里单独处理
+     */
+    private RequestLimiter.Permit acquire(RequestLimiter limiter) throws TimeoutException {
+        if (Objects.isNull(this.options)) {
+            return limiter.acquire();
+        }
+        CompletableFuture<RequestLimiter.Permit> acquired = limiter.acquireAsync();
+        Runnable unregister = Objects.isNull(this.options.getCancellation()) ? () -> { }
+                : this.options.getCancellation().onCancel(() -> acquired.cancel(false));
         try {
-            String url = this.combPath(path);
-            HttpEntity body = this.combBody(p);
-            HttpPost post = new HttpPost(url);
-            post.setEntity(body);
-            return handleStream(doRequest(path, post));
-        } catch (Exception e) {
-            log.info("path=[{}], params=[{}] error.", path, p, e);
-            throw new RuntimeException(e);
+            long remaining = this.remainingMillis();
+            return remaining == Long.MAX_VALUE ? acquired.get() : acquired.get(Math.max(1, remaining), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(acquired);
+            throw new TimeoutException("deadline " + this.options.getDeadline() + " exceeded while waiting for rate limit");
+        } catch (CancellationException e) {
+            throw new CancellationException("call cancelled");
+        } catch (InterruptedException e) {
+            abandon(acquired);
+            Thread.currentThread().interrupt();
+            throw new RateLimitedException("rate limit wait interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        } finally {
+            unregister.run();
         }
-
     }
 
+    /**
+     * 放弃等待名额，取消时名额恰好已经发放则立即归还
+     */
+    private static void abandon(CompletableFuture<RequestLimiter.Permit> acquired) {
+        if (!acquired.cancel(false)) {
+            acquired.thenAccept(RequestLimiter.Permit::release);
+        }
+    }
 
-    private CloseableHttpResponse doRequest(String path, HttpUriRequestBase method) throws IOException, ParseException {
-        CloseableHttpResponse response = null;
+    /**
+     * 已取消时抛出 {@link CancellationException}，已过截止时间时抛出 {@link TimeoutException}
+     */
+    private void checkCall() throws TimeoutException {
+        if (Objects.isNull(this.options)) {
+            return;
+        }
+        if (Objects.nonNull(this.options.getCancellation()) && this.options.getCancellation().isCancelled()) {
+            throw new CancellationException("call cancelled");
+        }
+        if (this.options.remainingMillis() <= 0) {
+            throw new TimeoutException("deadline " + this.options.getDeadline() + " exceeded");
+        }
+    }
 
-        String ret;
+    /**
+     * 请求因取消或截止时间被中止时，以 {@link CancellationException} 或 {@link TimeoutException} 代替底层的 I/O 异常
+     */
+    private Throwable callFailure(HttpUriRequestBase method, Exception e) {
+        if (Objects.isNull(this.options) || e instanceof CancellationException || e instanceof TimeoutException
+                || !method.isCancelled()) {
+            return e;
+        }
         try {
-            method.setConfig(this.requestConfig);
-            method.addHeader("Content-Type","application/json");
-            if(Objects.nonNull(this.config.getKey())) {
-                if (Objects.equals(path,PATH_CHAT_COMPLETIONS)) {
-                    method.setHeader("Authorization", "Bearer " + this.config.getChatKey());
-                } else {
-                    method.setHeader("Authorization", "Bearer " + this.config.getKey());
-                }
+            this.checkCall();
+        } catch (CancellationException | TimeoutException c) {
+            c.initCause(e);
+            return c;
+        }
+        return e;
+    }
+
+    private long remainingMillis() {
+        return Objects.isNull(this.options) ? Long.MAX_VALUE : this.options.remainingMillis();
+    }
+
+    /**
+     * 构造时的请求配置叠加调用选项，每次尝试时计算，响应超时不超过距截止时间的剩余时间
+     */
+    // RequestConfig.setConnectTimeout 已废弃，但 ConnectionConfig 作用于整个连接池，按调用设置连接超时只能用它
+    @SuppressWarnings("deprecation")
+    private RequestConfig callConfig() {
+        if (Objects.isNull(this.options)) {
+            return this.requestConfig;
+        }
+        RequestConfig.Builder builder = Objects.isNull(this.requestConfig) ? RequestConfig.custom() : RequestConfig.copy(this.requestConfig);
+        if (Objects.nonNull(this.options.getConnectTimeout())) {
+            builder.setConnectTimeout(Timeout.of(this.options.getConnectTimeout()));
+        }
+        Timeout responseTimeout = Objects.nonNull(this.options.getResponseTimeout()) ? Timeout.of(this.options.getResponseTimeout())
+                : Objects.isNull(this.requestConfig) ? null : this.requestConfig.getResponseTimeout();
+        long remaining = this.options.remainingMillis();
+        if (remaining != Long.MAX_VALUE && (Objects.isNull(responseTimeout) || responseTimeout.isDisabled()
+                || responseTimeout.toMilliseconds() > remaining)) {
+            responseTimeout = Timeout.ofMilliseconds(Math.max(1, remaining));
+        }
+        builder.setResponseTimeout(responseTimeout);
+        return builder.build();
+    }
+
+    /**
+     * 响应流关闭时执行一次 action，如释放限流名额、结束 span
+     */
+    private static HttpEntity onClose(HttpEntity entity, Runnable action) {
+        AtomicBoolean closed = new AtomicBoolean();
+        Runnable once = () -> {
+            if (closed.compareAndSet(false, true)) {
+                action.run();
+            }
+        };
+        return new HttpEntityWrapper(entity) {
+            @Override
+            public InputStream getContent() throws IOException {
+                return new FilterInputStream(super.getContent()) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            once.run();
+                        }
+                    }
+                };
             }
 
-            if(log.isDebugEnabled()) {
-                log.debug("{} request path=[{}], headers=[{}]]", method.getMethod(), method.getRequestUri(), method.getHeaders());
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    once.run();
+                }
             }
+        };
+    }
 
-            response = this.client.execute(method);
-        } catch (Exception e) {
-            log.info("path=[{}], params=[{}] error.", path, readContent(method.getEntity(), config.getCharset()), e);
-            throw new RuntimeException(e);
+    /**
+     * 查询、修改、删除以及 pushData、数据列表、搜索测试可以任意重试；对话在收到响应体前可以重试；其它 POST 只在请求未被处理时重试
+     */
+    private static Retrier.Idempotency idempotency(String path, String method) {
+        if (!"POST".equals(method)) {
+            return Retrier.Idempotency.IDEMPOTENT;
+        }
+        switch (path) {
+            case PATH_PUSH_DATA:
+            case PATH_DATA_LIST:
+            case PATH_DATASET_SEARCH_TEST:
+                return Retrier.Idempotency.IDEMPOTENT;
+            case PATH_CHAT_COMPLETIONS:
+                return Retrier.Idempotency.BEFORE_RESPONSE_BODY;
+            default:
+                return Retrier.Idempotency.NON_IDEMPOTENT;
         }
-
-        return response;
     }
 
-    private String handleResp(CloseableHttpResponse response)  {
-        String respContent = null;
-        try {
-            respContent = this.readContent(response.getEntity(),
-                    Objects.isNull(response.getEntity().getContentEncoding())?this.config.getCharset():response.getEntity().getContentEncoding());
-        } catch (IOException | ParseException e) {
+    /**
+     * 直接从响应流解码，不先读取为 String
+     */
+    private <T> T handleResp(ClassicHttpResponse response, ObjectReader reader)  {
+        T ret;
+        HttpEntity entity = response.getEntity();
+        try (InputStream is = entity.getContent()) {
+            Charset charset = responseCharset(entity.getContentType());
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                ret = reader.readValue(is);
+            } else {
+                ret = reader.readValue(new InputStreamReader(is, charset));
+            }
+        } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
             try {
-                if(Objects.nonNull(response)) {
-                    EntityUtils.consume(response.getEntity());
-                }
+                EntityUtils.consume(entity);
             } catch (IOException e) {
                 log.error("error={}", e.getLocalizedMessage(), e);
             }
 
         }
         if(log.isDebugEnabled()) {
-            log.debug(" response status=[{}] content=[{}]", response.getCode(), respContent);
+            log.debug(" response status=[{}] content=[{}]", response.getCode(), ret);
         }
 
-        return respContent;
+        return ret;
+    }
+
+    /**
+     * 读取完整响应体，成功时写入缓存后解码
+     */
+    private <T> T handleCacheableResp(ClassicHttpResponse response, ObjectReader reader,
+                                      BiConsumer<byte[], Charset> store) throws IOException {
+        HttpEntity entity = response.getEntity();
+        byte[] body;
+        try {
+            body = EntityUtils.toByteArray(entity);
+        } finally {
+            EntityUtils.consume(entity);
+        }
+        Charset charset = responseCharset(entity.getContentType());
+        if (response.getCode() == HttpStatus.SC_OK) {
+            store.accept(body, charset);
+        }
+        T ret = decodeBody(body, charset, reader);
+        if(log.isDebugEnabled()) {
+            log.debug(" response status=[{}] content=[{}]", response.getCode(), ret);
+        }
+        return ret;
+    }
+
+    /**
+     * 响应未声明 charset 时使用配置的 charset
+     */
+    private Charset responseCharset(String contentType) {
+        if (Objects.nonNull(contentType)) {
+            ContentType ct = ContentType.parseLenient(contentType);
+            if (Objects.nonNull(ct) && Objects.nonNull(ct.getCharset())) {
+                return ct.getCharset();
+            }
+        }
+        return Charset.forName(this.config.getCharset());
     }
 
-    private InputStream handleStream(CloseableHttpResponse response) throws IOException {
+    private InputStream handleStream(ClassicHttpResponse response) throws IOException {
         return response.getEntity().getContent();
     }
 
@@ -748,14 +2712,31 @@ public class ServiceRequests {
         return sb.substring(0, sb.length() - 1);
     }
 
-    private String getRequest(String path, Map<String, Object> p) {
-        String ret;
+    private <T> T getRequest(String path, Map<String, Object> p, ObjectReader reader) {
+        if (this.hedging(path)) {
+            return this.await(path, p, this.getRequestAsync(path, p, reader));
+        }
+        T ret;
         try {
             String url = this.combPath(path);
             String params = this.combParams(p);
-            String rurl = url + params;
-            HttpGet get = new HttpGet(rurl);
-            ret = handleResp(doRequest(path, get));
+            String cacheKey = this.cacheKey(path, params);
+            if (Objects.nonNull(cacheKey)) {
+                ResponseCache.Entry cached = this.responseCache.get(cacheKey);
+                if (Objects.nonNull(cached)) {
+                    return this.decodeCached(path, cached, reader);
+                }
+            }
+            long generation = Objects.isNull(cacheKey) ? -1 : this.responseCache.generation();
+            Callable<T> fetch = () -> {
+                String rurl = url + params;
+                HttpGet get = new HttpGet(rurl);
+                ClassicHttpResponse response = doRequest(path, get, p);
+                return Objects.isNull(cacheKey) ? handleResp(response, reader)
+                        : handleCacheableResp(response, reader, (body, charset) -> this.putCache(path, p, cacheKey, body, charset, generation));
+            };
+            ret = Objects.isNull(this.readFlights) ? fetch.call()
+                    : this.readFlights.call(Arrays.asList(path + params, reader), fetch);
         } catch (Exception e) {
             log.info("path=[{}], params=[{}] error.", path, p, e);
             throw new RuntimeException(e);
@@ -764,51 +2745,422 @@ public class ServiceRequests {
         return ret;
     }
 
-    private String deleteRequest(String path, Map<String, Object> p) {
-        String ret;
+    private <T> T deleteRequest(String path, Map<String, Object> p, ObjectReader reader) {
+        T ret;
         try {
             String url = this.combPath(path);
             String params = this.combParams(p);
             String rurl = url + params;
             HttpDelete delete = new HttpDelete(rurl);
-            ret = handleResp(doRequest(path, delete));
+            ret = handleResp(doRequest(path, delete, p), reader);
         } catch (Exception e) {
             log.info("path=[{}], params=[{}] error.", path, p, e);
             throw new RuntimeException(e);
+        } finally {
+            this.evictCache(path, p);
         }
 
         return ret;
     }
 
-    private String putRequest(String path, Map<String, Object> p) {
-        String ret;
+    private <T> T putRequest(String path, Map<String, Object> p, ObjectReader reader) {
+        T ret;
         try {
             String url = this.combPath(path);
             HttpEntity body = this.combBody(p);
             HttpPut put = new HttpPut(url);
             put.setEntity(body);
-            ret = handleResp(doRequest(path, put));
+            ret = handleResp(doRequest(path, put, p), reader);
         } catch (Exception e) {
             log.info("path=[{}], params=[{}] error.", path, p, e);
             throw new RuntimeException(e);
+        } finally {
+            this.evictCache(path, p);
         }
 
         return ret;
     }
 
-    private String readContent(HttpEntity e, String charset) throws IOException, ParseException {
-        return EntityUtils.toString(e, Objects.isNull(charset)?this.config.getCharset():charset);
+    private String authorization(String path) {
+        if (Objects.equals(path,PATH_CHAT_COMPLETIONS)) {
+            return "Bearer " + this.config.getChatKey();
+        }
+        return "Bearer " + this.config.getKey();
     }
 
-    private String parseString(Object o) {
-        return Objects.isNull(o)?null:o.toString();
+    /**
+     * 连接可写时才序列化，批量写入的数据逐条写出
+     */
+    private AsyncEntityProducer combAsyncBody(Map<String, Object> p) {
+        p.entrySet().removeIf((e) -> Objects.isNull(e.getValue()));
+        return new JsonEntityProducer(p, jsonWriter, Charset.forName(config.getCharset()));
     }
 
-    private Map<String, Object> str2Map(String s) {
+    private <T> CompletableFuture<T> postRequestAsync(String path, Map<String, Object> p, ObjectReader reader) {
+        CompletableFuture<T> future;
         try {
-            return this.jsonMapper.readValue(s, Map.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
+            future = doRequestAsync(path, AsyncRequestBuilder.post(this.combPath(path)).setEntity(this.combAsyncBody(p)), reader, p, null);
+        } catch (Exception e) {
+            log.info("path=[{}], params=[{}] error.", path, p, e);
+            return failedFuture(e);
+        }
+        future.whenComplete((r, t) -> this.evictCache(path, p));
+        return future;
+    }
+
+    private <T> CompletableFuture<T> putRequestAsync(String path, Map<String, Object> p, ObjectReader reader) {
+        CompletableFuture<T> future;
+        try {
+            future = doRequestAsync(path, AsyncRequestBuilder.put(this.combPath(path)).setEntity(this.combAsyncBody(p)), reader, p, null);
+        } catch (Exception e) {
+            log.info("path=[{}], params=[{}] error.", path, p, e);
+            return failedFuture(e);
+        }
+        future.whenComplete((r, t) -> this.evictCache(path, p));
+        return future;
+    }
+
+    private <T> CompletableFuture<T> getRequestAsync(String path, Map<String, Object> p, ObjectReader reader) {
+        String params = this.combParams(p);
+        String cacheKey = this.cacheKey(path, params);
+        Supplier<CompletableFuture<T>> fetch;
+        if (Objects.isNull(cacheKey)) {
+            fetch = () -> doRequestAsync(path, AsyncRequestBuilder.get(this.combPath(path) + params), reader, p, null);
+        } else {
+            ResponseCache.Entry cached = this.responseCache.get(cacheKey);
+            if (Objects.nonNull(cached)) {
+                try {
+                    return CompletableFuture.completedFuture(this.decodeCached(path, cached, reader));
+                } catch (Exception e) {
+                    return failedFuture(e);
+                }
+            }
+            long generation = this.responseCache.generation();
+            fetch = () -> doRequestAsync(path, AsyncRequestBuilder.get(this.combPath(path) + params), reader, p, message -> {
+                if (message.getHead().getCode() == HttpStatus.SC_OK) {
+                    this.putCache(path, p, cacheKey, message.getBody(), responseCharset(message.getHead()), generation);
+                }
+            });
+        }
+        return Objects.isNull(this.readFlights) ? this.hedged(path, fetch)
+                : this.readFlights.callAsync(Arrays.asList(path + params, reader), () -> this.hedged(path, fetch));
+    }
+
+    private <T> CompletableFuture<T> deleteRequestAsync(String path, Map<String, Object> p, ObjectReader reader) {
+        CompletableFuture<T> future = doRequestAsync(path, AsyncRequestBuilder.delete(this.combPath(path) + this.combParams(p)), reader, p, null);
+        future.whenComplete((r, t) -> this.evictCache(path, p));
+        return future;
+    }
+
+    /**
+     * 通过异步客户端发送请求，响应体在 I/O reactor 线程上增量读取，完成后回调 future。
+     * @param onResponse 解码前获得原始响应，可为 null
+     */
+    private <T> CompletableFuture<T> doRequestAsync(String path, AsyncRequestBuilder builder, ObjectReader reader,
+                                                    Map<String, Object> p, Consumer<Message<HttpResponse, byte[]>> onResponse) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        TraceSpan span = this.startSpan(path, builder.getMethod(), p);
+        if (Objects.nonNull(span)) {
+            span.inject(builder::setHeader);
+            future.whenComplete((r, t) -> span.end(t));
+        }
+        Consumer<Message<HttpResponse, byte[]>> handler = Objects.isNull(span) ? onResponse : message -> {
+            span.setStatus(message.getHead().getCode());
+            if (Objects.nonNull(onResponse)) {
+                onResponse.accept(message);
+            }
+        };
+        AtomicReference<Future<?>> current = new AtomicReference<>();
+        try {
+            this.bindCallAsync(future, current);
+        } catch (CancellationException | TimeoutException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        Retrier.Idempotency idempotency = idempotency(path, builder.getMethod());
+        CircuitBreaker breaker = this.breaker(path);
+        if (Objects.nonNull(breaker) && !breaker.isCallPermitted()) {
+            future.completeExceptionally(new CircuitOpenException(path + " circuit breaker is open"));
+            return future;
+        }
+        if (Objects.nonNull(this.retrier)) {
+            this.retrier.onRequest();
+        }
+        RequestLimiter limiter = this.limiter(path);
+        if (Objects.isNull(limiter)) {
+            executeAsync(path, builder, reader, handler, future, current, idempotency, null, 1);
+        } else {
+            CompletableFuture<RequestLimiter.Permit> acquired = limiter.acquireAsync();
+            acquired.whenComplete((permit, t) -> {
+                if (Objects.nonNull(t)) {
+                    future.completeExceptionally(t);
+                    return;
+                }
+                future.whenComplete((r, x) -> permit.release());
+                executeAsync(path, builder, reader, handler, future, current, idempotency, permit, 1);
+            });
+            future.whenComplete((r, t) -> acquired.cancel(false));
+        }
+        future.whenComplete((r, t) -> {
+            Future<?> f = current.get();
+            if (future.isCancelled() && Objects.nonNull(f)) {
+                f.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 发送一次请求，瞬时故障时通过 scheduler 延迟后再次调用自身
+     */
+    private <T> void executeAsync(String path, AsyncRequestBuilder builder, ObjectReader reader,
+                                  Consumer<Message<HttpResponse, byte[]>> onResponse, CompletableFuture<T> future,
+                                  AtomicReference<Future<?>> current, Retrier.Idempotency idempotency,
+                                  RequestLimiter.Permit permit, int attempt) {
+        if (future.isDone()) {
+            return;
+        }
+        CircuitBreaker breaker = this.breaker(path);
+        CircuitBreaker.Call call;
+        try {
+            call = Objects.isNull(breaker) ? null : breaker.acquire();
+        } catch (CircuitOpenException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        this.countRequestBody(path, builder);
+        AsyncResponseConsumer<Message<HttpResponse, byte[]>> consumer = new BasicResponseConsumer<>(new BasicAsyncEntityConsumer());
+        if (Objects.nonNull(this.metrics)) {
+            // 与阻塞调用一致，耗时记录到收到响应头
+            consumer = new MeteredResponseConsumer<>(consumer, this.metrics, path);
+        }
+        long start = System.nanoTime();
+        Future<Message<HttpResponse, byte[]>> f = this.asyncClient.execute(prepareAsync(path, builder),
+                consumer, null, asyncContext(),
+                new FutureCallback<Message<HttpResponse, byte[]>>() {
+                    @Override
+                    public void completed(Message<HttpResponse, byte[]> result) {
+                        long latency = System.nanoTime() - start;
+                        if (Objects.nonNull(permit)) {
+                            permit.onResponse(result.getHead().getCode(), latency);
+                        }
+                        if (Objects.nonNull(call)) {
+                            call.onResponse(result.getHead().getCode(), latency);
+                        }
+                        if (retryAsync(result.getHead(), null)) {
+                            return;
+                        }
+                        T ret;
+                        try {
+                            if (Objects.nonNull(onResponse)) {
+                                onResponse.accept(result);
+                            }
+                            ret = decodeBody(result.getBody(), responseCharset(result.getHead()), reader);
+                        } catch (Exception e) {
+                            log.info("path=[{}] error.", path, e);
+                            future.completeExceptionally(e);
+                            return;
+                        }
+                        if(log.isDebugEnabled()) {
+                            log.debug(" response path=[{}] status=[{}] content=[{}]", path,
+                                    result.getHead().getCode(), ret);
+                        }
+                        future.complete(ret);
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        if (Objects.nonNull(call)) {
+                            call.onError(System.nanoTime() - start);
+                        }
+                        if (retryAsync(null, ex)) {
+                            return;
+                        }
+                        log.info("path=[{}] error.", path, ex);
+                        future.completeExceptionally(ex);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        if (Objects.nonNull(call)) {
+                            call.ignore();
+                        }
+                        future.cancel(false);
+                    }
+
+                    private boolean retryAsync(HttpResponse response, Exception ex) {
+                        if (Objects.isNull(retrier) || future.isDone()) {
+                            return false;
+                        }
+                        long delay = retrier.delay(attempt, idempotency, response, ex);
+                        if (delay < 0 || delay >= remainingMillis()) {
+                            return false;
+                        }
+                        log.info("path=[{}] attempt={} status={} error={}, retry in {}ms", path, attempt,
+                                Objects.isNull(response) ? null : response.getCode(),
+                                Objects.isNull(ex) ? null : ex.getLocalizedMessage(), delay);
+                        try {
+                            scheduler.schedule(() -> executeAsync(path, builder, reader, onResponse, future, current,
+                                    idempotency, permit, attempt + 1), delay, TimeUnit.MILLISECONDS);
+                        } catch (RejectedExecutionException e) {
+                            return false;
+                        }
+                        return true;
+                    }
+                });
+        current.set(f);
+        if (future.isCancelled()) {
+            f.cancel(true);
+        }
+    }
+
+    private <T> T decodeBody(byte[] body, Charset charset, ObjectReader reader) throws IOException {
+        if (Objects.isNull(body)) {
+            return null;
+        }
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return reader.readValue(body);
+        }
+        return reader.readValue(new InputStreamReader(new ByteArrayInputStream(body), charset));
+    }
+
+    private Charset responseCharset(HttpResponse response) {
+        Header contentType = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+        return responseCharset(Objects.isNull(contentType) ? null : contentType.getValue());
+    }
+
+    /**
+     * @return 未启用缓存或该接口不缓存时为 null
+     */
+    private String cacheKey(String path, String params) {
+        if (Objects.isNull(this.responseCache) || !CACHEABLE_PATHS.contains(path)
+                || this.config.getResponseCache().ttl(path).isZero()) {
+            return null;
+        }
+        return path + params;
+    }
+
+    private <T> T decodeCached(String path, ResponseCache.Entry cached, ObjectReader reader) throws IOException {
+        T ret = decodeBody(cached.getBody(), cached.getCharset(), reader);
+        if(log.isDebugEnabled()) {
+            log.debug(" cached response path=[{}] content=[{}]", path, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * @param generation 发出请求前的失效代数，请求期间有写操作使缓存失效时不写入
+     */
+    private void putCache(String path, Map<String, Object> p, String cacheKey, byte[] body, Charset charset, long generation) {
+        Object id = p.get("id");
+        List<String> tags = Objects.isNull(id) ? Collections.emptyList() : Collections.singletonList(path + ":" + id);
+        this.responseCache.put(cacheKey, path, body, charset,
+                this.config.getResponseCache().ttl(path).toMillis(), tags, generation);
+    }
+
+    /**
+     * 写操作完成后使受影响的缓存失效，无论成功与否
+     */
+    private void evictCache(String path, Map<String, Object> p) {
+        if (Objects.nonNull(this.searchCache)) {
+            this.evictSearchCache(path, p);
+        }
+        if (Objects.isNull(this.responseCache)) {
+            return;
+        }
+        switch (path) {
+            case PATH_DATESET_CREATE:
+                this.responseCache.invalidatePath(PATH_DATESET_LIST);
+                break;
+            case PATH_DATESET_DELETE:
+                this.responseCache.invalidateTag(PATH_DATESET_GET + ":" + p.get("id"));
+                this.responseCache.invalidatePath(PATH_DATESET_LIST);
+                // 无法得知被删除知识库下有哪些集合和数据
+                this.responseCache.invalidatePath(PATH_COLLECTION_GET);
+                this.responseCache.invalidatePath(PATH_DATA_GET);
+                break;
+            case PATH_COLLECTION_PUT:
+                this.responseCache.invalidateTag(PATH_COLLECTION_GET + ":" + p.get("id"));
+                break;
+            case PATH_COLLECTION_DELETE:
+                this.responseCache.invalidateTag(PATH_COLLECTION_GET + ":" + p.get("id"));
+                this.responseCache.invalidatePath(PATH_DATA_GET);
+                break;
+            case PATH_PUSH_DATA:
+                this.responseCache.invalidateTag(PATH_COLLECTION_GET + ":" + p.get("collectionId"));
+                break;
+            case PATH_DATA_UPDATE:
+            case PATH_DATA_DELETE:
+                this.responseCache.invalidateTag(PATH_DATA_GET + ":" + p.get("id"));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 知识库内容变化时使该知识库的搜索缓存失效，只知道集合ID或数据ID时按搜索结果中记录的所属知识库失效
+     */
+    private void evictSearchCache(String path, Map<String, Object> p) {
+        switch (path) {
+            case PATH_DATESET_DELETE:
+                this.searchCache.invalidateDataset(String.valueOf(p.get("id")));
+                break;
+            case PATH_TEXT_COLLECTION_CREATE:
+            case PATH_LINK_COLLECTION_CREATE:
+                this.searchCache.invalidateDataset(String.valueOf(p.get("datasetId")));
+                break;
+            case PATH_COLLECTION_DELETE:
+            case PATH_DATA_UPDATE:
+            case PATH_DATA_DELETE:
+                this.searchCache.invalidateOwner(String.valueOf(p.get("id")));
+                break;
+            case PATH_PUSH_DATA:
+                this.searchCache.invalidateOwner(String.valueOf(p.get("collectionId")));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private AsyncRequestProducer prepareAsync(String path, AsyncRequestBuilder builder) {
+        builder.setHeader("Content-Type", "application/json");
+        if(Objects.nonNull(this.config.getKey())) {
+            builder.setHeader("Authorization", authorization(path));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 异步请求体长度未知，发送完时按实际写出的字节数记录；重试时复用已包装的请求体
+     */
+    private void countRequestBody(String path, AsyncRequestBuilder builder) {
+        if (Objects.nonNull(this.metrics) && Objects.nonNull(builder.getEntity())
+                && !(builder.getEntity() instanceof CountingEntityProducer)) {
+            builder.setEntity(new CountingEntityProducer(builder.getEntity(), n -> this.metrics.requestSize(path, n)));
+        }
+    }
+
+    private HttpClientContext asyncContext() {
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(this.callConfig());
+        return context;
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    private String readContent(HttpEntity e, String charset) throws IOException, ParseException {
+        if (Objects.isNull(e)) {
+            return null;
         }
+        return EntityUtils.toString(e, Objects.isNull(charset)?this.config.getCharset():charset);
+    }
+
+    private String parseString(Object o) {
+        return Objects.isNull(o)?null:o.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package org.xdove.thridpart.fastgpt.breaker;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdove.thridpart.fastgpt.CircuitBreakerConfig;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于调用次数滑动窗口的熔断器。
+ * 每次发出请求前 {@link #acquire()}，收到响应头或失败后通过 {@link Call} 报告结果；
+ * 状态切换后，切换前发出的请求的结果会被忽略。
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final CircuitBreakerConfig config;
+    private final byte[] window;
+
+    private State state = State.CLOSED;
+    private int generation;
+    private int position;
+    private int count;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private int probes;
+    private int probeSuccesses;
+
+    /**
+     * @param name 用于日志和异常信息，如 chat、dataset
+     */
+    public CircuitBreaker(String name, CircuitBreakerConfig config) {
+        this.name = name;
+        this.config = config;
+        this.window = new byte[Math.max(1, config.getWindowSize())];
+    }
+
+    /**
+     * 不占用探测名额的快速检查，用于在排队等待限流之前拒绝请求
+     * @return 熔断且未到半开时间时为 false
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != State.OPEN || System.nanoTime() - openedAt >= config.getOpenDuration().toNanos();
+    }
+
+    /**
+     * @throws CircuitOpenException 熔断中，或半开时探测名额已用完
+     */
+    public synchronized Call acquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < config.getOpenDuration().toNanos()) {
+                throw new CircuitOpenException(name + " circuit breaker is open");
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probes >= config.getHalfOpenCalls()) {
+                throw new CircuitOpenException(name + " circuit breaker is half-open, probes in flight");
+            }
+            probes++;
+        }
+        return new Call(generation);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** 当前窗口内的失败率，调用次数不足 minimumCalls 时为 0 */
+    public synchronized double getFailureRate() {
+        return count < config.getMinimumCalls() ? 0 : (double) failures / count;
+    }
+
+    private synchronized void record(Call call, boolean failure, long latencyNanos) {
+        if (call.generation != generation) {
+            return;
+        }
+        boolean slow = latencyNanos > config.getSlowCallDuration().toNanos();
+        if (state == State.HALF_OPEN) {
+            if (failure || (slow && config.getSlowCallRateThreshold() <= 1)) {
+                transition(State.OPEN);
+            } else if (++probeSuccesses >= config.getHalfOpenCalls()) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (count == window.length) {
+            byte old = window[position];
+            failures -= old & FAILURE;
+            slowCalls -= (old & SLOW) >> 1;
+        } else {
+            count++;
+        }
+        window[position] = (byte) ((failure ? FAILURE : 0) | (slow ? SLOW : 0));
+        failures += failure ? 1 : 0;
+        slowCalls += slow ? 1 : 0;
+        position = (position + 1) % window.length;
+        if (count >= config.getMinimumCalls() && (failures >= config.getFailureRateThreshold() * count
+                || slowCalls >= config.getSlowCallRateThreshold() * count)) {
+            transition(State.OPEN);
+        }
+    }
+
+    private synchronized void ignore(Call call) {
+        if (call.generation == generation && state == State.HALF_OPEN) {
+            probes--;
+        }
+    }
+
+    private void transition(State to) {
+        log.info("{} circuit breaker {} -> {}, calls={}, failures={}, slowCalls={}",
+                name, state, to, count, failures, slowCalls);
+        state = to;
+        generation++;
+        if (to == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (to == State.HALF_OPEN) {
+            probes = 0;
+            probeSuccesses = 0;
+        } else {
+            position = 0;
+            count = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+    }
+
+    /**
+     * 一次放行的调用，结果只报告一次，重复报告无效
+     */
+    public final class Call {
+
+        private final int generation;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Call(int generation) {
+            this.generation = generation;
+        }
+
+        /**
+         * 收到响应头，5xx 计为失败
+         * @param latencyNanos 从发送到收到响应头的耗时
+         */
+        public void onResponse(int status, long latencyNanos) {
+            if (done.compareAndSet(false, true)) {
+                record(this, status >= HttpStatus.SC_SERVER_ERROR, latencyNanos);
+            }
+        }
+
+        /** 连接失败、超时等错误 */
+        public void onError(long latencyNanos) {
+            if (done.compareAndSet(false, true)) {
+                record(this, true, latencyNanos);
+            }
+        }
+
+        /** 调用被取消，不计入统计，归还半开探测名额 */
+        public void ignore() {
+            if (done.compareAndSet(false, true)) {
+                CircuitBreaker.this.ignore(this);
+            }
+        }
+    }
+}
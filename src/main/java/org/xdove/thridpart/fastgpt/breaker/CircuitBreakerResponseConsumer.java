@@ -0,0 +1,72 @@
+package org.xdove.thridpart.fastgpt.breaker;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 收到响应头或失败时向熔断器报告结果，未报告就结束（取消）的调用不计入统计
+ * @param <T> 响应结果类型
+ */
+public class CircuitBreakerResponseConsumer<T> implements AsyncResponseConsumer<T> {
+
+    private final AsyncResponseConsumer<T> delegate;
+    private final CircuitBreaker.Call call;
+    private final long startedAt = System.nanoTime();
+
+    public CircuitBreakerResponseConsumer(AsyncResponseConsumer<T> delegate, CircuitBreaker.Call call) {
+        this.delegate = delegate;
+        this.call = call;
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                FutureCallback<T> resultCallback) throws HttpException, IOException {
+        call.onResponse(response.getCode(), System.nanoTime() - startedAt);
+        delegate.consumeResponse(response, entityDetails, context, resultCallback);
+    }
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) throws HttpException, IOException {
+        delegate.informationResponse(response, context);
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        call.onError(System.nanoTime() - startedAt);
+        delegate.failed(cause);
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        delegate.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        delegate.consume(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+        delegate.streamEnd(trailers);
+    }
+
+    @Override
+    public void releaseResources() {
+        try {
+            delegate.releaseResources();
+        } finally {
+            call.ignore();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.xdove.thridpart.fastgpt.breaker;
+
+/**
+ * 熔断器处于打开状态（或半开探测名额已满），请求没有发出
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
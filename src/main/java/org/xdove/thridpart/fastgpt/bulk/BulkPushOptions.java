@@ -0,0 +1,37 @@
+package org.xdove.thridpart.fastgpt.bulk;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 批量导入参数
+ */
+@Data
+@Builder
+public class BulkPushOptions {
+
+    /** 每批最多条数，FastGPT 单次最多接收 200 条 */
+    @Builder.Default
+    private int maxBatchSize = 200;
+    /** 每批 q/a/indexes 文本的最大 UTF-8 字节数（估算值） */
+    @Builder.Default
+    private long maxBatchBytes = 4L * 1024 * 1024;
+    /** 同时上传的批次数 */
+    @Builder.Default
+    private int concurrency = 4;
+    /**
+     * 单批失败后的最大重试次数。
+     * 每个批次经 pushDataTypedAsync 发送，配置了 {@code Config.retry} 时每次发送本身
+     * 还会按客户端的重试策略重试，单批最多请求 (maxRetries + 1) × retry.maxAttempts 次
+     */
+    @Builder.Default
+    private int maxRetries = 3;
+    /** 第一次重试前的等待时间，之后每次翻倍 */
+    @Builder.Default
+    private Duration retryBackoff = Duration.ofSeconds(1);
+    /** 重试等待时间的上限 */
+    @Builder.Default
+    private Duration maxRetryBackoff = Duration.ofSeconds(30);
+}
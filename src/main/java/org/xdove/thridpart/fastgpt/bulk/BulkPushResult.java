@@ -0,0 +1,45 @@
+package org.xdove.thridpart.fastgpt.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量导入结果
+ */
+@Data
+@AllArgsConstructor
+public class BulkPushResult {
+
+    /** 读取的数据条数 */
+    private long total;
+    /** 服务端成功插入的条数 */
+    private long insertLen;
+    /** 服务端报告超出 token 限制的条数 */
+    private long overToken;
+    /** 服务端报告重复的条数 */
+    private long repeat;
+    /** 服务端报告插入失败的条数 */
+    private long error;
+    /** 发送的批次数 */
+    private int batches;
+    /** 重试次数用尽后仍失败的批次 */
+    private List<BatchFailure> failures;
+
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class BatchFailure {
+        /** 批次序号，从 0 开始 */
+        private int batch;
+        /** 批次中的条数 */
+        private int size;
+        /** 已尝试次数 */
+        private int attempts;
+        private Throwable cause;
+    }
+}
@@ -0,0 +1,209 @@
+package org.xdove.thridpart.fastgpt.bulk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdove.thridpart.fastgpt.entity.PushData;
+import org.xdove.thridpart.fastgpt.entity.PushDataResult;
+import org.xdove.thridpart.fastgpt.entity.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 将任意长度的数据按条数和字节数切分为批次并发上传。
+ * 数据按需从迭代器读取，同时在途的批次不超过 {@code concurrency}，内存占用与总数据量无关。
+ */
+public class BulkPusher {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkPusher.class);
+
+    /** 每条数据的 JSON 结构开销估算 */
+    private static final int ITEM_OVERHEAD = 32;
+    /** 退避翻倍次数上限，避免移位溢出 */
+    private static final int MAX_BACKOFF_SHIFT = 30;
+
+    private final Function<List<PushData>, CompletableFuture<Response<PushDataResult>>> sender;
+    private final ScheduledExecutorService scheduler;
+    private final BulkPushOptions options;
+
+    /**
+     * @param sender 上传一个批次，不应在日志中输出批次内容
+     * @param scheduler 用于延迟重试
+     * @param options 批次及并发参数
+     */
+    public BulkPusher(Function<List<PushData>, CompletableFuture<Response<PushDataResult>>> sender,
+                      ScheduledExecutorService scheduler, BulkPushOptions options) {
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.options = options;
+    }
+
+    /**
+     * 阻塞直到所有批次完成或重试用尽。
+     * 迭代器抛出异常时，等已发出的批次结束后原样抛出，未凑满的批次不再上传
+     */
+    public BulkPushResult push(Iterator<PushData> data) {
+        Semaphore permits = new Semaphore(options.getConcurrency());
+        State state = new State();
+        List<PushData> batch = new ArrayList<>();
+        long bytes = 0;
+        try {
+            while (data.hasNext()) {
+                PushData item = data.next();
+                long size = estimateBytes(item);
+                if (!batch.isEmpty() && (batch.size() >= options.getMaxBatchSize()
+                        || bytes + size > options.getMaxBatchBytes())) {
+                    submit(batch, state, permits);
+                    batch = new ArrayList<>();
+                    bytes = 0;
+                }
+                batch.add(item);
+                bytes += size;
+                state.total++;
+            }
+        } catch (RuntimeException e) {
+            permits.acquireUninterruptibly(options.getConcurrency());
+            throw e;
+        }
+        if (!batch.isEmpty()) {
+            submit(batch, state, permits);
+        }
+        permits.acquireUninterruptibly(options.getConcurrency());
+        return state.result();
+    }
+
+    private void submit(List<PushData> batch, State state, Semaphore permits) {
+        permits.acquireUninterruptibly();
+        send(batch, state.batches++, 1, state, permits);
+    }
+
+    private void send(List<PushData> batch, int index, int attempt, State state, Semaphore permits) {
+        if(log.isDebugEnabled()) {
+            log.debug("pushData batch={} size={} attempt={}", index, batch.size(), attempt);
+        }
+        CompletableFuture<Response<PushDataResult>> future;
+        try {
+            future = sender.apply(batch);
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((r, t) -> {
+            Throwable cause = Objects.nonNull(t) ? t : check(r);
+            if (Objects.isNull(cause)) {
+                state.success(r.getData());
+                permits.release();
+                return;
+            }
+            if (attempt <= options.getMaxRetries()) {
+                long delay = backoff(attempt);
+                log.info("pushData batch={} size={} attempt={} failed, retry in {}ms, error={}",
+                        index, batch.size(), attempt, delay, cause.getLocalizedMessage());
+                try {
+                    scheduler.schedule(() -> send(batch, index, attempt + 1, state, permits), delay, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    cause.addSuppressed(e);
+                }
+            }
+            log.info("pushData batch={} size={} failed after {} attempts", index, batch.size(), attempt, cause);
+            state.failure(new BulkPushResult.BatchFailure(index, batch.size(), attempt, cause));
+            permits.release();
+        });
+    }
+
+    /**
+     * 第 attempt 次失败后的等待时间，按 retryBackoff 翻倍，不超过 maxRetryBackoff
+     */
+    private long backoff(int attempt) {
+        long max = options.getMaxRetryBackoff().toMillis();
+        long base = options.getRetryBackoff().toMillis();
+        int shift = Math.min(attempt - 1, MAX_BACKOFF_SHIFT);
+        return base > max >> shift ? max : Math.min(max, base << shift);
+    }
+
+    private static Throwable check(Response<PushDataResult> r) {
+        if (Objects.isNull(r)) {
+            return new IllegalStateException("pushData empty response");
+        }
+        if (r.getCode() != 200 || Objects.isNull(r.getData())) {
+            return new IllegalStateException("pushData code=" + r.getCode() + ", message=" + r.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 估算一条数据序列化后的 UTF-8 字节数，不实际编码
+     */
+    static long estimateBytes(PushData d) {
+        long n = ITEM_OVERHEAD + utf8Length(d.getQ()) + utf8Length(d.getA());
+        if (Objects.nonNull(d.getIndexes())) {
+            for (PushData.DataIndex index : d.getIndexes()) {
+                n += ITEM_OVERHEAD + utf8Length(index.getText()) + utf8Length(index.getType());
+            }
+        }
+        return n;
+    }
+
+    static long utf8Length(String s) {
+        if (Objects.isNull(s)) {
+            return 0;
+        }
+        long n = 0;
+        for (int i = 0, len = s.length(); i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                n++;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                n += 4;
+                i++;
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+
+    private static class State {
+        private long total;
+        private int batches;
+        private long insertLen;
+        private long overToken;
+        private long repeat;
+        private long error;
+        private final List<BulkPushResult.BatchFailure> failures = new ArrayList<>();
+
+        synchronized void success(PushDataResult r) {
+            insertLen += r.getInsertLen();
+            overToken += size(r.getOverToken());
+            repeat += size(r.getRepeat());
+            error += size(r.getError());
+        }
+
+        synchronized void failure(BulkPushResult.BatchFailure f) {
+            failures.add(f);
+        }
+
+        synchronized BulkPushResult result() {
+            List<BulkPushResult.BatchFailure> f = new ArrayList<>(failures);
+            f.sort((a, b) -> Integer.compare(a.getBatch(), b.getBatch()));
+            return new BulkPushResult(total, insertLen, overToken, repeat, error, batches,
+                    Collections.unmodifiableList(f));
+        }
+
+        private static int size(List<?> l) {
+            return Objects.isNull(l) ? 0 : l.size();
+        }
+    }
+}
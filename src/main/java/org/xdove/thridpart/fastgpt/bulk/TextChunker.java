@@ -0,0 +1,133 @@
+package org.xdove.thridpart.fastgpt.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * 按需从 {@link Reader} 读取文本并切分为不超过 chunkSize 个字符的片段，内存占用约为 chunkSize 加一个读缓冲区。
+ * 切分位置的优先级：自定义分隔符（分隔符本身丢弃）、空行、换行、句末标点，都找不到时按长度截断。
+ * 除自定义分隔符外，只在片段后半段寻找切分位置，避免产生过短的片段；片段首尾空白被去掉，空片段跳过。
+ * 读取失败时 {@link #hasNext()}/{@link #next()} 抛出 {@link UncheckedIOException}，关闭 Reader 由调用方负责。
+ */
+public class TextChunker implements Iterator<String> {
+
+    private static final String[] BOUNDARIES = {"\n\n", "\n"};
+    private static final String SENTENCE_ENDS = "。！？；.!?;";
+    private static final int READ_SIZE = 8192;
+
+    private final Reader in;
+    private final int chunkSize;
+    private final String splitter;
+    private final char[] buf = new char[READ_SIZE];
+    private final StringBuilder pending = new StringBuilder();
+    /** pending 中尚未切分部分的起点，读入新数据前才整体前移，避免每个片段都复制缓冲区 */
+    private int start;
+    private boolean eof;
+    private String next;
+
+    /**
+     * @param chunkSize 片段最大字符数，必须大于 0
+     * @param splitter 自定义最高优先分隔符，为 null 或空时不使用
+     */
+    public TextChunker(Reader in, int chunkSize, String splitter) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.in = in;
+        this.chunkSize = chunkSize;
+        this.splitter = Objects.isNull(splitter) || splitter.isEmpty() ? null : splitter;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (Objects.isNull(next)) {
+            fill();
+            if (available() == 0) {
+                return false;
+            }
+            String chunk = cut().trim();
+            if (!chunk.isEmpty()) {
+                next = chunk;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String ret = next;
+        next = null;
+        return ret;
+    }
+
+    /**
+     * 读到足以判断下一个切分位置为止：一个完整片段加上可能跨在边界上的分隔符
+     */
+    private void fill() {
+        int want = chunkSize + (Objects.isNull(splitter) ? 1 : splitter.length());
+        try {
+            while (!eof && available() < want) {
+                pending.delete(0, start);
+                start = 0;
+                int n = in.read(buf);
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    pending.append(buf, 0, n);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int available() {
+        return pending.length() - start;
+    }
+
+    /**
+     * 以下位置均相对于 start
+     */
+    private String cut() {
+        if (Objects.nonNull(splitter)) {
+            int at = pending.indexOf(splitter, start) - start;
+            if (at >= 0 && at <= chunkSize) {
+                return take(at, at + splitter.length());
+            }
+        }
+        if (available() <= chunkSize) {
+            return take(available(), available());
+        }
+        int min = chunkSize / 2;
+        for (String boundary : BOUNDARIES) {
+            int at = pending.lastIndexOf(boundary, start + chunkSize - boundary.length()) - start;
+            if (at >= min) {
+                return take(at, at + boundary.length());
+            }
+        }
+        for (int i = chunkSize - 1; i >= min; i--) {
+            if (SENTENCE_ENDS.indexOf(pending.charAt(start + i)) >= 0) {
+                return take(i + 1, i + 1);
+            }
+        }
+        int end = chunkSize > 1 && Character.isHighSurrogate(pending.charAt(start + chunkSize - 1)) ? chunkSize - 1 : chunkSize;
+        return take(end, end);
+    }
+
+    /**
+     * @param end 片段结束位置（不含）
+     * @param skip 下一片段开始位置，end 到 skip 之间是被丢弃的分隔符
+     */
+    private String take(int end, int skip) {
+        String chunk = pending.substring(start, start + end);
+        start += skip;
+        return chunk;
+    }
+}
@@ -0,0 +1,162 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * 对话答案缓存，内存部分复用 {@link ResponseCache}，可选地以目录持久化。
+ * 持久化文件按修改时间判断过期，读取时惰性删除。
+ */
+public class AnswerCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerCache.class);
+
+    private static final String PATH = "chat";
+    private static final String SUFFIX = ".json";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern FILE_NAME = Pattern.compile("[0-9a-f]{64}\\.json");
+
+    private final ResponseCache memory;
+    private final long ttlMillis;
+    private final Path directory;
+    private final ObjectWriter keyWriter;
+    private final String namespace;
+
+    /**
+     * @param namespace 应用标识，如 apiUrl 与 chatKey，参与计算键，共享持久化目录的不同应用不会命中彼此的答案
+     * @param writer 用于生成规范化的键，会开启 map 按键排序
+     */
+    public AnswerCache(int maxEntries, long maxBytes, long ttlMillis, Path directory, String namespace, ObjectWriter writer) {
+        this.memory = new ResponseCache(maxEntries, maxBytes);
+        this.ttlMillis = ttlMillis;
+        this.directory = directory;
+        this.namespace = namespace;
+        this.keyWriter = writer.with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        if (Objects.nonNull(directory)) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new IllegalStateException("cannot create answer cache directory " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * 规范化后连同 namespace 计算的 SHA-256 十六进制
+     */
+    public String key(boolean detail, Map<String, String> variables, List<ChatMessage> messages) {
+        List<Map<String, String>> normalized = new ArrayList<>();
+        if (Objects.nonNull(messages)) {
+            for (ChatMessage m : messages) {
+                Map<String, String> n = new LinkedHashMap<>();
+                n.put("role", m.getRole());
+                n.put("content", Objects.isNull(m.getContent()) ? null
+                        : WHITESPACE.matcher(m.getContent().trim()).replaceAll(" "));
+                normalized.add(n);
+            }
+        }
+        Map<String, Object> k = new TreeMap<>();
+        k.put("namespace", namespace);
+        k.put("detail", detail);
+        k.put("variables", Objects.isNull(variables) ? null : new TreeMap<>(variables));
+        k.put("messages", normalized);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(keyWriter.writeValueAsBytes(k));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return UTF-8 编码的非流式对话响应，未命中时为 null
+     */
+    public byte[] get(String key) {
+        ResponseCache.Entry e = memory.get(key);
+        if (Objects.nonNull(e)) {
+            return e.getBody();
+        }
+        if (Objects.isNull(directory)) {
+            return null;
+        }
+        Path file = directory.resolve(key + SUFFIX);
+        try {
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            long remaining = Files.getLastModifiedTime(file).toMillis() + ttlMillis - System.currentTimeMillis();
+            if (remaining <= 0) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            byte[] body = Files.readAllBytes(file);
+            memory.put(key, PATH, body, StandardCharsets.UTF_8, remaining, null);
+            return body;
+        } catch (IOException ex) {
+            log.info("read answer cache file={} error={}", file, ex.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    public void put(String key, byte[] body) {
+        memory.put(key, PATH, body, StandardCharsets.UTF_8, ttlMillis, null);
+        if (Objects.isNull(directory)) {
+            return;
+        }
+        Path file = directory.resolve(key + SUFFIX);
+        try {
+            Path tmp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(tmp, body);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.info("write answer cache file={} error={}", file, ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * 清空内存缓存，并删除持久化目录中由本缓存写入的文件
+     */
+    public void clear() {
+        memory.invalidateAll();
+        if (Objects.isNull(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path f : files) {
+                if (FILE_NAME.matcher(f.getFileName().toString()).matches()) {
+                    Files.deleteIfExists(f);
+                }
+            }
+        } catch (IOException ex) {
+            log.info("clear answer cache directory={} error={}", directory, ex.getLocalizedMessage());
+        }
+    }
+
+    public CacheStats stats() {
+        return memory.stats();
+    }
+}
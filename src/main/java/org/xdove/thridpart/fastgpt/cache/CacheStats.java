@@ -0,0 +1,29 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 缓存统计快照
+ */
+@Data
+@AllArgsConstructor
+public class CacheStats {
+    /** 命中次数 */
+    private long hits;
+    /** 未命中次数 */
+    private long misses;
+    /** 因过期或超出容量被淘汰的条数 */
+    private long evictions;
+    /** 因写操作被主动失效的条数 */
+    private long invalidations;
+    /** 当前条数 */
+    private int size;
+    /** 当前响应体总字节数 */
+    private long bytes;
+
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -0,0 +1,170 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import lombok.Getter;
+
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 进程内响应缓存，缓存原始响应体，命中时由调用方按需解码。
+ * 按条数和总字节数做 LRU 淘汰，每条记录有独立的过期时间，可按路径或标签失效。
+ * 每次失效递增 {@link #generation()}，请求前取得的代数已变化时不再写入，避免晚于写操作完成的读请求写回旧数据。
+ */
+public class ResponseCache {
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    /** 失效次数，由 this 保护 */
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ResponseCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return 未命中或已过期时为 null
+     */
+    public Entry get(String key) {
+        synchronized (this) {
+            Entry e = entries.get(key);
+            if (Objects.nonNull(e)) {
+                if (e.expiresAt - System.nanoTime() > 0) {
+                    hits.incrementAndGet();
+                    return e;
+                }
+                remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param key 缓存键
+     * @param path 接口路径，用于 {@link #invalidatePath}
+     * @param body 原始响应体
+     * @param charset 响应体编码
+     * @param ttlMillis 存活时间，不大于 0 时不缓存
+     * @param tags 失效标签，用于 {@link #invalidateTag}
+     */
+    public void put(String key, String path, byte[] body, Charset charset, long ttlMillis, Collection<String> tags) {
+        put(key, path, body, charset, ttlMillis, tags, -1);
+    }
+
+    /**
+     * 只在请求发出后没有发生过失效时写入
+     * @param generation 发出请求前的 {@link #generation()}，为 -1 时不检查
+     * @see #put(String, String, byte[], Charset, long, Collection)
+     */
+    public void put(String key, String path, byte[] body, Charset charset, long ttlMillis, Collection<String> tags,
+                    long generation) {
+        if (ttlMillis <= 0 || body.length > maxBytes) {
+            return;
+        }
+        Entry e = new Entry(path, body, charset, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis),
+                Objects.isNull(tags) || tags.isEmpty() ? Collections.emptySet() : new HashSet<>(tags));
+        synchronized (this) {
+            if (generation >= 0 && generation != this.generation) {
+                return;
+            }
+            remove(key);
+            entries.put(key, e);
+            bytes += body.length;
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                it.remove();
+                bytes -= eldest.getValue().body.length;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 使某个接口的全部缓存失效
+     */
+    public void invalidatePath(String path) {
+        invalidate(e -> e.path.equals(path));
+    }
+
+    /**
+     * 使带有该标签的缓存失效
+     */
+    public void invalidateTag(String tag) {
+        invalidate(e -> e.tags.contains(tag));
+    }
+
+    /**
+     * 当前的失效代数，读请求发出前取得，写入时传给 {@link #put(String, String, byte[], Charset, long, Collection, long)}
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), invalidations.get(), entries.size(), bytes);
+    }
+
+    private synchronized void invalidate(Predicate<Entry> predicate) {
+        generation++;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (predicate.test(e)) {
+                it.remove();
+                bytes -= e.body.length;
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (Objects.nonNull(old)) {
+            bytes -= old.body.length;
+        }
+    }
+
+    @Getter
+    public static class Entry {
+        private final String path;
+        private final byte[] body;
+        private final Charset charset;
+        private final long expiresAt;
+        private final Set<String> tags;
+
+        Entry(String path, byte[] body, Charset charset, long expiresAt, Set<String> tags) {
+            this.path = path;
+            this.body = body;
+            this.charset = charset;
+            this.expiresAt = expiresAt;
+            this.tags = tags;
+        }
+    }
+}
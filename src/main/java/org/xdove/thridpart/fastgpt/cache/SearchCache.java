@@ -0,0 +1,138 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * 知识库搜索结果缓存，复用 {@link ResponseCache} 保存原始响应体，每条记录以所属知识库为标签。
+ * 从缓存的结果中记录集合ID、数据ID所属的知识库，写操作只带集合ID或数据ID时据此定位要失效的知识库。
+ */
+public class SearchCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchCache.class);
+
+    private static final String PATH = "search";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    /** 记录的集合ID/数据ID上限，超出时淘汰最久未用的，之后对它们的写操作清空全部缓存 */
+    private static final int MAX_OWNERS = 10_000;
+
+    private final ResponseCache memory;
+    private final long ttlMillis;
+    private final ObjectReader treeReader;
+    private final Map<String, String> owners = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_OWNERS;
+        }
+    };
+
+    /**
+     * @param reader 用于从响应体中读取集合ID、数据ID
+     */
+    public SearchCache(int maxEntries, long maxBytes, long ttlMillis, ObjectReader reader) {
+        this.memory = new ResponseCache(maxEntries, maxBytes);
+        this.ttlMillis = ttlMillis;
+        this.treeReader = reader;
+    }
+
+    public String key(String datasetId, String text, int limit, int similarity, String searchMode, boolean usingReRank) {
+        return datasetId + '\n' + limit + '\n' + similarity + '\n' + searchMode + '\n' + usingReRank + '\n' + normalize(text);
+    }
+
+    static String normalize(String text) {
+        if (Objects.isNull(text)) {
+            return "";
+        }
+        String n = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(n.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return 未命中时为 null
+     */
+    public ResponseCache.Entry get(String key) {
+        return memory.get(key);
+    }
+
+    /**
+     * @see ResponseCache#generation()
+     */
+    public long generation() {
+        return memory.generation();
+    }
+
+    /**
+     * 缓存成功的搜索响应（业务 code 为 200），并记录结果中集合、数据所属的知识库
+     * @param generation 发出请求前的 {@link #generation()}，之后发生过失效时不缓存
+     */
+    public void put(String key, String datasetId, byte[] body, Charset charset, long generation) {
+        try {
+            JsonNode root = treeReader.readTree(new String(body, charset));
+            if (root.path("code").asInt(200) != 200) {
+                return;
+            }
+            JsonNode list = root.path("data").path("list");
+            synchronized (owners) {
+                for (JsonNode item : list) {
+                    String owner = item.path("datasetId").asText(datasetId);
+                    if (item.hasNonNull("collectionId")) {
+                        owners.put(item.get("collectionId").asText(), owner);
+                    }
+                    if (item.hasNonNull("id")) {
+                        owners.put(item.get("id").asText(), owner);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.info("parse search response error={}", e.getLocalizedMessage());
+            return;
+        }
+        memory.put(key, PATH, body, charset, ttlMillis, Collections.singletonList(datasetId), generation);
+    }
+
+    /**
+     * 使知识库的全部搜索缓存失效
+     */
+    public void invalidateDataset(String datasetId) {
+        memory.invalidateTag(datasetId);
+    }
+
+    /**
+     * 使集合或数据所属知识库的搜索缓存失效，所属知识库未知时清空全部缓存
+     * @param id 集合ID或数据ID
+     */
+    public void invalidateOwner(String id) {
+        String datasetId;
+        synchronized (owners) {
+            datasetId = owners.get(id);
+        }
+        if (Objects.isNull(datasetId)) {
+            memory.invalidateAll();
+        } else {
+            memory.invalidateTag(datasetId);
+        }
+    }
+
+    public CacheStats stats() {
+        return memory.stats();
+    }
+
+    public void clear() {
+        memory.invalidateAll();
+        synchronized (owners) {
+            owners.clear();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 合并进行中的相同调用：同一个 key 的调用完成前，后来的调用方等待并共享它的结果（包括异常），
+ * 调用完成后立即移除，不缓存结果。
+ * 同一个 key 必须总是得到同一类型的结果，调用方拿到的是同一个对象。
+ * @param <K> 调用的标识
+ */
+public class SingleFlight<K> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<?>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * 阻塞调用，没有进行中的相同调用时在当前线程执行 call
+     */
+    public <V> V call(K key, Callable<V> call) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.join(key, flight);
+        if (Objects.nonNull(existing)) {
+            shared.incrementAndGet();
+            try {
+                return existing.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+        try {
+            V ret = call.call();
+            flights.remove(key, flight);
+            flight.complete(ret);
+            return ret;
+        } catch (Throwable t) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * 异步调用，没有进行中的相同调用时执行 call。
+     * 每个调用方拿到各自的 future，取消它不影响其它调用方
+     */
+    public <V> CompletableFuture<V> callAsync(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.join(key, flight);
+        if (Objects.nonNull(existing)) {
+            shared.incrementAndGet();
+            return existing.thenApply(v -> v);
+        }
+        CompletableFuture<V> upstream;
+        try {
+            upstream = call.get();
+        } catch (Throwable t) {
+            upstream = new CompletableFuture<>();
+            upstream.completeExceptionally(t);
+        }
+        upstream.whenComplete((v, t) -> {
+            flights.remove(key, flight);
+            if (Objects.isNull(t)) {
+                flight.complete(v);
+            } else {
+                flight.completeExceptionally(t);
+            }
+        });
+        return flight.thenApply(v -> v);
+    }
+
+    /**
+     * 登记 flight，已有进行中的相同调用时返回它
+     */
+    // 同一个 key 总是得到同一类型的结果（见类注释），进行中的 future 的类型与 flight 相同
+    @SuppressWarnings("unchecked")
+    private <V> CompletableFuture<V> join(K key, CompletableFuture<V> flight) {
+        return (CompletableFuture<V>) flights.putIfAbsent(key, flight);
+    }
+
+    /**
+     * @return 进行中的调用数
+     */
+    public int inFlight() {
+        return flights.size();
+    }
+
+    /**
+     * @return 因合并而没有发出的调用数
+     */
+    public long shared() {
+        return shared.get();
+    }
+}
@@ -0,0 +1,43 @@
+package org.xdove.thridpart.fastgpt.call;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * 单次调用的选项，通过 {@link org.xdove.thridpart.fastgpt.ServiceRequests#withOptions} 使用。
+ * 未设置的项沿用构造 ServiceRequests 时的请求配置。
+ */
+@Data
+@Builder
+public class CallOptions {
+
+    /**
+     * 截止时间，到达时中止请求，包括重试等待和流式响应的读取；阻塞调用抛出以 {@link java.util.concurrent.TimeoutException} 为 cause 的异常，
+     * 异步调用的 future 以 TimeoutException 结束。每次尝试的响应超时不超过剩余时间。为 null 时不限制
+     */
+    private Instant deadline;
+    /** 建立连接的超时，JDK 传输方式不支持按调用设置 */
+    private Duration connectTimeout;
+    /** 等待响应数据的超时（两次读取之间的最长间隔） */
+    private Duration responseTimeout;
+    /** 取消句柄，可以被多个调用共享 */
+    private Cancellation cancellation;
+
+    /**
+     * @return 从现在起 timeout 后截止的选项
+     */
+    public static CallOptions timeout(Duration timeout) {
+        return CallOptions.builder().deadline(Instant.now().plus(timeout)).build();
+    }
+
+    /**
+     * @return 距截止时间的毫秒数，已过期时不大于 0，未设置截止时间时为 {@link Long#MAX_VALUE}
+     */
+    public long remainingMillis() {
+        return Objects.isNull(deadline) ? Long.MAX_VALUE : Duration.between(Instant.now(), deadline).toMillis();
+    }
+}
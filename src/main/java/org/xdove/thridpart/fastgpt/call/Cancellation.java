@@ -0,0 +1,62 @@
+package org.xdove.thridpart.fastgpt.call;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 调用的取消句柄，线程安全。{@link #cancel()} 中止所有使用它且尚未结束的请求，之后发起的请求直接失败。
+ */
+public class Cancellation {
+
+    private static final Logger log = LoggerFactory.getLogger(Cancellation.class);
+
+    private final Set<Runnable> callbacks = new LinkedHashSet<>();
+    private boolean cancelled;
+
+    public void cancel() {
+        List<Runnable> run;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            run = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : run) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                log.info("cancel callback error={}", e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 注册取消时执行的回调，已取消时在当前线程立即执行
+     * @return 用于注销回调，请求结束后应调用
+     */
+    public Runnable onCancel(Runnable callback) {
+        synchronized (this) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return () -> remove(callback);
+            }
+        }
+        callback.run();
+        return () -> { };
+    }
+
+    private synchronized void remove(Runnable callback) {
+        callbacks.remove(callback);
+    }
+}
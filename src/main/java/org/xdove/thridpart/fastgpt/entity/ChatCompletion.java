@@ -0,0 +1,49 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 非流式对话结果，detail=true 时 responseData 为各模块的运行详情
+ */
+@Data
+public class ChatCompletion {
+    private String id;
+    private String model;
+    private Usage usage;
+    private List<Choice> choices;
+    private List<JsonNode> responseData;
+    private Map<String, Object> newVariables;
+
+    /**
+     * @return 第一条回复的内容，没有回复时为 null
+     */
+    public String getContent() {
+        if (choices == null || choices.isEmpty() || choices.get(0).getMessage() == null) {
+            return null;
+        }
+        return choices.get(0).getMessage().getContent();
+    }
+
+    @Data
+    public static class Usage {
+        @JsonProperty("prompt_tokens")
+        private int promptTokens;
+        @JsonProperty("completion_tokens")
+        private int completionTokens;
+        @JsonProperty("total_tokens")
+        private int totalTokens;
+    }
+
+    @Data
+    public static class Choice {
+        private int index;
+        private ChatMessage message;
+        @JsonProperty("finish_reason")
+        private String finishReason;
+    }
+}
@@ -2,8 +2,10 @@ package org.xdove.thridpart.fastgpt.entity;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @AllArgsConstructor
+@NoArgsConstructor
 @Data
 public class ChatMessage {
     private String content;
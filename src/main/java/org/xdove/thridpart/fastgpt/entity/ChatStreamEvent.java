@@ -0,0 +1,60 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Objects;
+
+/**
+ * 流式对话的单个事件。detail=true 时通过 event 区分事件类型，否则均为 answer。
+ */
+@Data
+@AllArgsConstructor
+public class ChatStreamEvent {
+
+    /** 事件类型 */
+    private Type type;
+    /** 原始 event 名称，未指定时为 null */
+    private String event;
+    /** answer/fastAnswer 的增量文本，其它事件为 null */
+    private String content;
+    /** 解析后的 data，[DONE] 时为 null */
+    private JsonNode data;
+
+    public enum Type {
+        ANSWER("answer"),
+        FAST_ANSWER("fastAnswer"),
+        FLOW_NODE_STATUS("flowNodeStatus"),
+        FLOW_RESPONSES("flowResponses"),
+        TOOL_CALL("toolCall"),
+        TOOL_PARAMS("toolParams"),
+        TOOL_RESPONSE("toolResponse"),
+        UPDATE_VARIABLES("updateVariables"),
+        ERROR("error"),
+        DONE("[DONE]"),
+        UNKNOWN(null);
+
+        private final String event;
+
+        Type(String event) {
+            this.event = event;
+        }
+
+        public String getEvent() {
+            return event;
+        }
+
+        public static Type of(String event) {
+            if (Objects.isNull(event)) {
+                return ANSWER;
+            }
+            for (Type t : values()) {
+                if (event.equals(t.event)) {
+                    return t;
+                }
+            }
+            return UNKNOWN;
+        }
+    }
+}
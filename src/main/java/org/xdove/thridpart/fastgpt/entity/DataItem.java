@@ -0,0 +1,25 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 集合中的单条数据
+ */
+@Data
+public class DataItem {
+    @JsonAlias("_id")
+    private String id;
+    private String teamId;
+    private String datasetId;
+    private String collectionId;
+    private String q;
+    private String a;
+    private Integer chunkIndex;
+    private List<PushData.DataIndex> indexes;
+    private String sourceName;
+    private String sourceId;
+    private Boolean canWrite;
+}
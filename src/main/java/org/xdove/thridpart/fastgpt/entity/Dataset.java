@@ -0,0 +1,28 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+/**
+ * 知识库
+ */
+@Data
+public class Dataset {
+    @JsonProperty("_id")
+    private String id;
+    private String parentId;
+    private String teamId;
+    private String tmbId;
+    /** dataset 或 folder */
+    private String type;
+    private String status;
+    private String avatar;
+    private String name;
+    private String intro;
+    /** 向量模型，不同版本的结构不同 */
+    private JsonNode vectorModel;
+    /** 文本处理模型，不同版本的结构不同 */
+    private JsonNode agentModel;
+    private String updateTime;
+}
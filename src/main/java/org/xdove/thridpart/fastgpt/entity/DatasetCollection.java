@@ -0,0 +1,42 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+/**
+ * 知识库集合
+ */
+@Data
+public class DatasetCollection {
+    @JsonProperty("_id")
+    private String id;
+    private String parentId;
+    private String teamId;
+    private String tmbId;
+    private String datasetId;
+    /** folder, virtual, file, link */
+    private String type;
+    private String name;
+    private String trainingType;
+    private Integer chunkSize;
+    private String chunkSplitter;
+    private String qaPrompt;
+    private Long rawTextLength;
+    private String sourceName;
+    private String sourceId;
+    private Integer dataAmount;
+    private Integer trainingAmount;
+    private Boolean canWrite;
+    private String createTime;
+    private String updateTime;
+
+    /**
+     * 详情接口中 datasetId 是展开后的知识库对象
+     */
+    @JsonSetter("datasetId")
+    void readDatasetId(JsonNode node) {
+        this.datasetId = node.isObject() ? node.path("_id").asText(null) : node.asText(null);
+    }
+}
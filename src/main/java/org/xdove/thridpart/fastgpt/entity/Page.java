@@ -0,0 +1,17 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 分页列表
+ * @param <T> 列表元素类型
+ */
+@Data
+public class Page<T> {
+    private int pageNum;
+    private int pageSize;
+    private long total;
+    private List<T> data;
+}
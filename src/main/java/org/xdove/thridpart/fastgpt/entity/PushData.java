@@ -2,6 +2,7 @@ package org.xdove.thridpart.fastgpt.entity;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.util.List;
 
@@ -14,6 +15,7 @@ public class PushData {
 
     @Data
     @AllArgsConstructor
+    @NoArgsConstructor
     public static class DataIndex {
         private boolean defaultIndex;
         private String type;
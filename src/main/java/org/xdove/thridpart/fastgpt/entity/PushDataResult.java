@@ -0,0 +1,21 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量添加数据结果
+ */
+@Data
+public class PushDataResult {
+    /** 成功插入的数量 */
+    private int insertLen;
+    /** 超出 token 限制的数据 */
+    private List<JsonNode> overToken;
+    /** 重复的数据 */
+    private List<JsonNode> repeat;
+    /** 插入失败的数据 */
+    private List<JsonNode> error;
+}
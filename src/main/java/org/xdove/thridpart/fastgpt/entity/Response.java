@@ -0,0 +1,15 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import lombok.Data;
+
+/**
+ * 接口统一响应结构
+ * @param <T> data 的类型
+ */
+@Data
+public class Response<T> {
+    private int code;
+    private String statusText;
+    private String message;
+    private T data;
+}
@@ -0,0 +1,51 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 搜索测试结果
+ */
+@Data
+public class SearchResult {
+    private List<Item> list;
+    private String searchMode;
+    private Integer limit;
+    private Double similarity;
+    private Boolean usingReRank;
+    private Boolean usingSimilarityFilter;
+    private String duration;
+
+    @Data
+    public static class Item {
+        private String id;
+        private String datasetId;
+        private String collectionId;
+        private String q;
+        private String a;
+        private Integer chunkIndex;
+        private String sourceName;
+        private String sourceId;
+        /** 旧版本为单个数值，新版本为各检索方式的得分列表 */
+        @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+        private List<Score> score;
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Score {
+        /** embedding, fullText, reRank, rrf */
+        private String type;
+        private double value;
+        private Integer index;
+
+        @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+        public Score(double value) {
+            this.value = value;
+        }
+    }
+}
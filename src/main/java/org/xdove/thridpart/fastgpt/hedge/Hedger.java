@@ -0,0 +1,217 @@
+package org.xdove.thridpart.fastgpt.hedge;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdove.thridpart.fastgpt.HedgeConfig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 按 {@link HedgeConfig} 执行对冲请求，线程安全，多个请求共享同一个对冲预算。
+ * 每个接口记录最近成功请求的延迟，等待时间取其分位数。
+ */
+public class Hedger {
+
+    private static final Logger log = LoggerFactory.getLogger(Hedger.class);
+
+    /** 预算以千分之一次对冲为单位 */
+    private static final long UNIT = 1000;
+    /** 每收到这么多个新样本重新计算一次分位数 */
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final HedgeConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final long budgetMax;
+    private final long budgetDeposit;
+    private final AtomicLong budget;
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong wins = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * @param scheduler 用于等待后发出对冲请求
+     */
+    public Hedger(HedgeConfig config, ScheduledExecutorService scheduler) {
+        this.config = config;
+        this.scheduler = scheduler;
+        this.budgetMax = config.getBudgetBurst() * UNIT;
+        this.budgetDeposit = (long) (config.getBudgetRatio() * UNIT);
+        this.budget = new AtomicLong(this.budgetMax);
+    }
+
+    public boolean applies(String path) {
+        return config.getPaths().contains(path);
+    }
+
+    /**
+     * 执行请求，等待时间内未完成时再执行一次，采用先成功的结果并取消其余的。
+     * 所有已发出的请求都失败时以最后一个失败结束；取消返回的 future 会取消所有请求
+     * @param attempt 每次调用发出一个独立的请求
+     */
+    public <T> CompletableFuture<T> execute(String path, Supplier<CompletableFuture<T>> attempt) {
+        Window window = windows.computeIfAbsent(path, k -> new Window(config.getWindowSize()));
+        CompletableFuture<T> result = new CompletableFuture<>();
+        List<CompletableFuture<T>> attempts = new CopyOnWriteArrayList<>();
+        AtomicBoolean decided = new AtomicBoolean();
+        deposit();
+        launch(attempt, window, result, attempts, decided);
+        if (!result.isDone()) {
+            long delay = window.delay();
+            try {
+                ScheduledFuture<?> timer = scheduler.schedule(() -> {
+                    if (result.isDone()) {
+                        return;
+                    }
+                    if (!withdraw()) {
+                        budgetExhausted.incrementAndGet();
+                        return;
+                    }
+                    hedged.incrementAndGet();
+                    if(log.isDebugEnabled()) {
+                        log.debug("hedge path=[{}] after {}ms", path, delay);
+                    }
+                    launch(attempt, window, result, attempts, decided);
+                }, delay, TimeUnit.MILLISECONDS);
+                result.whenComplete((r, t) -> timer.cancel(false));
+            } catch (RejectedExecutionException e) {
+                log.info("hedge path=[{}] not scheduled: {}", path, e.getLocalizedMessage());
+            }
+        }
+        result.whenComplete((r, t) -> attempts.forEach(a -> a.cancel(true)));
+        return result;
+    }
+
+    /**
+     * @param decided 第一个成功或最后一个失败的请求将其置为 true 后结束 result，被取消的请求不再影响结果
+     */
+    private <T> void launch(Supplier<CompletableFuture<T>> attempt, Window window, CompletableFuture<T> result,
+                            List<CompletableFuture<T>> attempts, AtomicBoolean decided) {
+        long start = System.nanoTime();
+        CompletableFuture<T> f;
+        try {
+            f = attempt.get();
+        } catch (Exception e) {
+            f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+        }
+        boolean hedge = !attempts.isEmpty();
+        attempts.add(f);
+        CompletableFuture<T> self = f;
+        f.whenComplete((r, t) -> {
+            if (Objects.isNull(t)) {
+                window.record(System.nanoTime() - start);
+                if (!decided.compareAndSet(false, true)) {
+                    return;
+                }
+                // 先取消其余请求，调用方拿到结果时它们已不再占用连接
+                attempts.forEach(a -> {
+                    if (a != self) {
+                        a.cancel(true);
+                    }
+                });
+                if (hedge) {
+                    wins.incrementAndGet();
+                }
+                result.complete(r);
+            } else if (attempts.stream().allMatch(CompletableFuture::isDone) && decided.compareAndSet(false, true)) {
+                result.completeExceptionally(t);
+            }
+        });
+        if (result.isDone()) {
+            f.cancel(true);
+        }
+    }
+
+    /** 已发出的对冲请求数 */
+    public long getHedged() {
+        return hedged.get();
+    }
+
+    /** 对冲请求先于原请求成功的次数 */
+    public long getWins() {
+        return wins.get();
+    }
+
+    /** 因预算耗尽而放弃的对冲次数 */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     * @return 该接口当前的对冲等待时间（毫秒）
+     */
+    public long delay(String path) {
+        Window window = windows.get(path);
+        return Objects.isNull(window) ? config.getInitialDelay().toMillis() : window.delay();
+    }
+
+    private void deposit() {
+        long b;
+        do {
+            b = budget.get();
+            if (b >= budgetMax) {
+                return;
+            }
+        } while (!budget.compareAndSet(b, Math.min(budgetMax, b + budgetDeposit)));
+    }
+
+    private boolean withdraw() {
+        long b;
+        do {
+            b = budget.get();
+            if (b < UNIT) {
+                return false;
+            }
+        } while (!budget.compareAndSet(b, b - UNIT));
+        return true;
+    }
+
+    /**
+     * 最近 size 个成功请求的延迟，环形缓冲
+     */
+    private final class Window {
+
+        private final long[] samples;
+        private int next;
+        private int count;
+        private int sinceRecompute;
+        private boolean computed;
+        private long delayMillis = config.getInitialDelay().toMillis();
+
+        Window(int size) {
+            this.samples = new long[Math.max(1, size)];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            sinceRecompute++;
+            if (count >= config.getMinSamples() && (!computed || sinceRecompute >= RECOMPUTE_EVERY)) {
+                computed = true;
+                sinceRecompute = 0;
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                int index = (int) Math.min(count - 1, Math.max(0, Math.ceil(config.getPercentile() * count) - 1));
+                delayMillis = Math.max(config.getMinDelay().toMillis(), TimeUnit.NANOSECONDS.toMillis(sorted[index]));
+            }
+        }
+
+        synchronized long delay() {
+            return delayMillis;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.xdove.thridpart.fastgpt.http;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 将对象直接序列化到连接输出流的请求体，以 chunked 方式发送，不生成中间的 String 和 byte[]。
+ * 可重复写出，重试时会重新序列化。
+ */
+public class JsonEntity extends AbstractHttpEntity {
+
+    private final Object value;
+    private final ObjectWriter writer;
+    private final Charset charset;
+
+    public JsonEntity(Object value, ObjectWriter writer, Charset charset) {
+        super(ContentType.APPLICATION_JSON.withCharset(charset), null, true);
+        this.value = value;
+        this.writer = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.charset = charset;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            writer.writeValue(out, value);
+        } else {
+            Writer w = new OutputStreamWriter(out, charset);
+            writer.writeValue(w, value);
+            w.flush();
+        }
+    }
+
+    /**
+     * 仅在需要读取内容时（如错误日志）才会整体序列化。
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+}
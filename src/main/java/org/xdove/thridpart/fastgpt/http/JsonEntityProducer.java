@@ -0,0 +1,197 @@
+package org.xdove.thridpart.fastgpt.http;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@link JsonEntity} 的异步版本：连接可写时才继续序列化，以 chunked 方式发送。
+ * 值为 Map 时逐个字段写出，字段值为集合时逐个元素写出，缓冲区只保存当前一步的输出，
+ * 批量写入时内存占用约为一条数据，而不是整个请求体。
+ * 可重复发送，重试时从头重新序列化。
+ */
+public class JsonEntityProducer implements AsyncEntityProducer {
+
+    private final Object value;
+    private final ObjectWriter writer;
+    private final Charset charset;
+    private final String contentType;
+
+    private Buffer out;
+    private JsonGenerator gen;
+    private Iterator<? extends Map.Entry<?, ?>> entries;
+    private Iterator<?> elements;
+    /** 已写到 channel 的缓冲区位置 */
+    private int pos;
+    private boolean started;
+    private boolean finished;
+    private boolean ended;
+
+    public JsonEntityProducer(Object value, ObjectWriter writer, Charset charset) {
+        this.value = value;
+        this.writer = writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.charset = charset;
+        this.contentType = ContentType.APPLICATION_JSON.withCharset(charset).toString();
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public synchronized void produce(DataStreamChannel channel) throws IOException {
+        if (ended) {
+            return;
+        }
+        if (Objects.isNull(out)) {
+            out = new Buffer();
+            gen = StandardCharsets.UTF_8.equals(charset) ? writer.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                    : writer.getFactory().createGenerator(new OutputStreamWriter(out, charset));
+        }
+        while (true) {
+            if (pos < out.size()) {
+                pos += channel.write(ByteBuffer.wrap(out.array(), pos, out.size() - pos));
+                if (pos < out.size()) {
+                    // 连接暂时不可写，等待下一次 produce
+                    return;
+                }
+            }
+            out.reset();
+            pos = 0;
+            if (!step()) {
+                ended = true;
+                channel.endStream();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 序列化下一段到缓冲区
+     * @return 已没有可写的内容时为 false
+     */
+    private boolean step() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (!started) {
+            started = true;
+            if (value instanceof Map) {
+                gen.writeStartObject();
+                entries = ((Map<?, ?>) value).entrySet().iterator();
+            } else {
+                writer.writeValue(gen, value);
+                finished = true;
+            }
+        } else if (Objects.nonNull(elements)) {
+            if (elements.hasNext()) {
+                writer.writeValue(gen, elements.next());
+            } else {
+                gen.writeEndArray();
+                elements = null;
+            }
+        } else if (entries.hasNext()) {
+            Map.Entry<?, ?> e = entries.next();
+            gen.writeFieldName(String.valueOf(e.getKey()));
+            if (e.getValue() instanceof Collection) {
+                gen.writeStartArray();
+                elements = ((Collection<?>) e.getValue()).iterator();
+            } else {
+                writer.writeValue(gen, e.getValue());
+            }
+        } else {
+            gen.writeEndObject();
+            finished = true;
+        }
+        gen.flush();
+        return true;
+    }
+
+    @Override
+    public synchronized int available() {
+        if (ended) {
+            return 0;
+        }
+        return Objects.isNull(out) || pos >= out.size() ? Integer.MAX_VALUE : out.size() - pos;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        releaseResources();
+    }
+
+    /**
+     * 丢弃序列化状态，下一次 produce 从头开始
+     */
+    @Override
+    public synchronized void releaseResources() {
+        out = null;
+        gen = null;
+        entries = null;
+        elements = null;
+        pos = 0;
+        started = false;
+        finished = false;
+        ended = false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * 可直接取出底层数组，避免写入 channel 时复制
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer() {
+            super(8192);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
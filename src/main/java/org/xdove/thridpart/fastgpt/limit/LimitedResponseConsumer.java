@@ -0,0 +1,75 @@
+package org.xdove.thridpart.fastgpt.limit;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 在响应消费结束（成功、失败或取消）时释放限流名额，收到响应头时报告响应码和耗时
+ * @param <T> 响应结果类型
+ */
+public class LimitedResponseConsumer<T> implements AsyncResponseConsumer<T> {
+
+    private final AsyncResponseConsumer<T> delegate;
+    private final RequestLimiter.Permit permit;
+    private final long startedAt = System.nanoTime();
+
+    public LimitedResponseConsumer(AsyncResponseConsumer<T> delegate, RequestLimiter.Permit permit) {
+        this.delegate = delegate;
+        this.permit = permit;
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                FutureCallback<T> resultCallback) throws HttpException, IOException {
+        permit.onResponse(response.getCode(), System.nanoTime() - startedAt);
+        delegate.consumeResponse(response, entityDetails, context, resultCallback);
+    }
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) throws HttpException, IOException {
+        delegate.informationResponse(response, context);
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        try {
+            delegate.failed(cause);
+        } finally {
+            permit.release();
+        }
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        delegate.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        delegate.consume(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+        delegate.streamEnd(trailers);
+    }
+
+    @Override
+    public void releaseResources() {
+        try {
+            delegate.releaseResources();
+        } finally {
+            permit.release();
+        }
+    }
+}
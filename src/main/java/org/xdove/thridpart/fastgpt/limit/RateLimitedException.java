@@ -0,0 +1,11 @@
+package org.xdove.thridpart.fastgpt.limit;
+
+/**
+ * 客户端限流拒绝了请求（{@code FAIL_FAST} 或等待超时），请求没有发出
+ */
+public class RateLimitedException extends RuntimeException {
+
+    public RateLimitedException(String message) {
+        super(message);
+    }
+}
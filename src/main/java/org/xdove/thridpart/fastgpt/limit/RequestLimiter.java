@@ -0,0 +1,208 @@
+package org.xdove.thridpart.fastgpt.limit;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.xdove.thridpart.fastgpt.RateLimitConfig;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 令牌桶 + 在途信号量，等待者按 FIFO 获得名额。
+ * 同步调用在 {@link #acquire()} 上阻塞，异步调用通过 {@link #acquireAsync()} 得到一个在名额可用时完成的 future，不占用线程。
+ * 开启自适应时，收到 429 或响应过慢会把速率乘以衰减系数，之前发出的请求再返回 429 不会重复衰减；其余成功响应缓慢增加速率。
+ */
+public class RequestLimiter {
+
+    private final String name;
+    private final RateLimitConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+
+    private double rate;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long decreasedAt = refilledAt;
+    private int inFlight;
+    private boolean drainScheduled;
+
+    /**
+     * @param name 用于异常信息，如 chat、dataset
+     * @param scheduler 用于等待令牌和超时
+     */
+    public RequestLimiter(String name, RateLimitConfig config, ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.config = config;
+        this.scheduler = scheduler;
+        this.rate = config.getPermitsPerSecond();
+        this.tokens = config.getBurst();
+    }
+
+    /**
+     * 阻塞直到获得名额，拒绝时抛出 {@link RateLimitedException}
+     */
+    public Permit acquire() {
+        CompletableFuture<Permit> future = acquireAsync();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RateLimitedException(name + " rate limit wait interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * @return 获得名额时完成；拒绝时以 {@link RateLimitedException} 异常完成；取消 future 即放弃等待
+     */
+    public CompletableFuture<Permit> acquireAsync() {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        synchronized (this) {
+            refill();
+            if (waiters.isEmpty() && inFlight < config.getMaxInFlight() && tokens >= 1) {
+                tokens -= 1;
+                inFlight++;
+                future.complete(new Permit());
+                return future;
+            }
+            if (config.getMode() == RateLimitConfig.Mode.FAIL_FAST) {
+                future.completeExceptionally(new RateLimitedException(name + " rate limit exceeded, inFlight=" + inFlight));
+                return future;
+            }
+            waiters.add(future);
+            scheduleDrain();
+        }
+        if (config.getMode() == RateLimitConfig.Mode.TIMEOUT) {
+            scheduler.schedule(() -> {
+                synchronized (this) {
+                    if (!waiters.remove(future)) {
+                        return;
+                    }
+                }
+                future.completeExceptionally(new RateLimitedException(name + " rate limit wait timeout " + config.getTimeout()));
+            }, config.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        future.whenComplete((p, t) -> {
+            if (future.isCancelled()) {
+                synchronized (this) {
+                    waiters.remove(future);
+                }
+            }
+        });
+        return future;
+    }
+
+    /** 当前每秒请求数，自适应时会变化 */
+    public synchronized double getPermitsPerSecond() {
+        return rate;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    private void drain() {
+        List<CompletableFuture<Permit>> granted = new ArrayList<>();
+        synchronized (this) {
+            drainScheduled = false;
+            refill();
+            while (!waiters.isEmpty() && inFlight < config.getMaxInFlight() && tokens >= 1) {
+                tokens -= 1;
+                inFlight++;
+                granted.add(waiters.poll());
+            }
+            scheduleDrain();
+        }
+        for (CompletableFuture<Permit> f : granted) {
+            Permit permit = new Permit();
+            if (!f.complete(permit)) {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * 有等待者且只缺令牌时，在下一个令牌产生时再分配；缺在途名额时由 release 触发
+     */
+    private void scheduleDrain() {
+        if (drainScheduled || waiters.isEmpty() || inFlight >= config.getMaxInFlight()) {
+            return;
+        }
+        long wait = Math.max(1, (long) Math.ceil((1 - tokens) / rate * 1_000_000));
+        try {
+            scheduler.schedule(this::drain, wait, TimeUnit.MICROSECONDS);
+            drainScheduled = true;
+        } catch (RejectedExecutionException ignore) {
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(config.getBurst(), tokens + (now - refilledAt) / 1e9 * rate);
+        refilledAt = now;
+    }
+
+    private synchronized void adapt(Permit permit, int status, long latencyNanos) {
+        if (!config.isAdaptive()) {
+            return;
+        }
+        boolean overloaded = status == HttpStatus.SC_TOO_MANY_REQUESTS || (Objects.nonNull(config.getLatencyThreshold())
+                && latencyNanos > config.getLatencyThreshold().toNanos());
+        refill();
+        if (overloaded) {
+            // 衰减之前发出的请求反映的是旧速率
+            if (permit.grantedAt - decreasedAt > 0) {
+                rate = Math.max(config.getMinPermitsPerSecond(), rate * config.getMultiplicativeDecrease());
+                decreasedAt = System.nanoTime();
+            }
+        } else if (status < HttpStatus.SC_SERVER_ERROR) {
+            rate = Math.min(config.getMaxPermitsPerSecond(), rate + config.getAdditiveIncrease() / rate);
+        }
+    }
+
+    /**
+     * 一个在途名额，请求结束时必须 {@link #release()}，重复释放无效
+     */
+    public final class Permit {
+
+        private final long grantedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * 报告一次尝试的结果，用于自适应调整
+         * @param status 响应码
+         * @param latencyNanos 从发送到收到响应头的耗时
+         */
+        public void onResponse(int status, long latencyNanos) {
+            adapt(this, status, latencyNanos);
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                RequestLimiter.this.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.xdove.thridpart.fastgpt.metrics;
+
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamObserver;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 统计一次流式对话的首 token 时间和片段数，结束时只报告一次
+ */
+public class ChatStreamMeter implements ChatStreamObserver {
+
+    private final ClientMetrics metrics;
+    private final long startedAt = System.nanoTime();
+    private final AtomicBoolean ended = new AtomicBoolean();
+    private volatile long firstTokenNanos = -1;
+    private volatile long tokens;
+    private final boolean countTokens;
+
+    /**
+     * @param countTokens 为 false 时不解析事件，片段数报告为 -1
+     */
+    public ChatStreamMeter(ClientMetrics metrics, boolean countTokens) {
+        this.metrics = metrics;
+        this.countTokens = countTokens;
+    }
+
+    @Override
+    public void onFirstByte() {
+        if (firstTokenNanos < 0) {
+            firstTokenNanos = System.nanoTime() - startedAt;
+        }
+    }
+
+    @Override
+    public void onEvent(ChatStreamEvent event) {
+        if ((event.getType() == ChatStreamEvent.Type.ANSWER || event.getType() == ChatStreamEvent.Type.FAST_ANSWER)
+                && Objects.nonNull(event.getContent()) && !event.getContent().isEmpty()) {
+            onFirstByte();
+            tokens++;
+        }
+    }
+
+    @Override
+    public void end(Throwable error) {
+        if (ended.compareAndSet(false, true)) {
+            metrics.chatStream(firstTokenNanos, System.nanoTime() - startedAt, countTokens ? tokens : -1, error);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.xdove.thridpart.fastgpt.metrics;
+
+import org.apache.hc.core5.pool.PoolStats;
+
+import java.util.function.Supplier;
+
+/**
+ * 客户端指标 SPI，方法默认为空实现，按需覆盖。
+ * 未配置时 {@link org.xdove.thridpart.fastgpt.ServiceRequests} 不计时、不统计字节数。
+ * 回调可能在调用线程、HttpClient I/O 线程或调度线程上执行，实现必须线程安全且不能阻塞。
+ */
+public interface ClientMetrics {
+
+    /**
+     * 一次 HTTP 尝试结束（收到响应头或失败），重试的每次尝试分别报告
+     * @param path 接口路径常量，如 {@code ServiceRequests.PATH_CHAT_COMPLETIONS}
+     * @param status 响应码，未收到响应时为 0
+     * @param error 失败原因，收到响应时为 null
+     * @param latencyNanos 从发送到收到响应头（或失败）的耗时
+     */
+    default void request(String path, int status, Throwable error, long latencyNanos) {
+    }
+
+    /** 请求体字节数 */
+    default void requestSize(String path, long bytes) {
+    }
+
+    /** 响应体字节数，同步请求在响应流读完或关闭时报告 */
+    default void responseSize(String path, long bytes) {
+    }
+
+    /**
+     * 从连接池获取连接的耗时，包括等待空闲连接；新建连接时还包括建立连接的时间
+     */
+    default void connectionAcquired(long nanos) {
+    }
+
+    /**
+     * 一次流式对话结束（完成、失败或取消）
+     * @param firstTokenNanos 从发送请求到第一个答案片段的耗时，没有答案时为 -1；
+     *                        InputStream 版本不解析内容，按第一个字节计算
+     * @param durationNanos 从发送请求到流结束的耗时
+     * @param tokens 答案增量片段数（FastGPT 通常每个片段一个 token），InputStream 版本为 -1
+     * @param error 失败原因，正常结束时为 null
+     */
+    default void chatStream(long firstTokenNanos, long durationNanos, long tokens, Throwable error) {
+    }
+
+    /**
+     * 创建客户端时调用一次，用于注册连接池指标
+     * @param client sync 或 async
+     */
+    default void bindPool(String client, Supplier<PoolStats> stats) {
+    }
+}
@@ -0,0 +1,54 @@
+package org.xdove.thridpart.fastgpt.metrics;
+
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * 分别放在 HttpClient 执行链 CONNECT 环节的前后，两者的时间差即获取连接的耗时
+ */
+public final class ConnectionTiming {
+
+    public static final String START = "fastgpt-connection-start";
+    public static final String END = "fastgpt-connection-end";
+
+    private static final String ATTR = ConnectionTiming.class.getName();
+
+    private ConnectionTiming() {
+    }
+
+    public static ExecChainHandler classicStart() {
+        return (request, scope, chain) -> {
+            scope.clientContext.setAttribute(ATTR, System.nanoTime());
+            return chain.proceed(request, scope);
+        };
+    }
+
+    public static ExecChainHandler classicEnd(ClientMetrics metrics) {
+        return (request, scope, chain) -> {
+            report(scope.clientContext, metrics);
+            return chain.proceed(request, scope);
+        };
+    }
+
+    public static AsyncExecChainHandler asyncStart() {
+        return (request, entityProducer, scope, chain, callback) -> {
+            scope.clientContext.setAttribute(ATTR, System.nanoTime());
+            chain.proceed(request, entityProducer, scope, callback);
+        };
+    }
+
+    public static AsyncExecChainHandler asyncEnd(ClientMetrics metrics) {
+        return (request, entityProducer, scope, chain, callback) -> {
+            report(scope.clientContext, metrics);
+            chain.proceed(request, entityProducer, scope, callback);
+        };
+    }
+
+    private static void report(HttpContext context, ClientMetrics metrics) {
+        Object start = context.removeAttribute(ATTR);
+        if (start instanceof Long) {
+            metrics.connectionAcquired(System.nanoTime() - (Long) start);
+        }
+    }
+}
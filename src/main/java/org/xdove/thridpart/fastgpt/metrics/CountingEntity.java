@@ -0,0 +1,97 @@
+package org.xdove.thridpart.fastgpt.metrics;
+
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * 统计实际写出（请求体）或读取（响应体）的字节数，用于长度未知的流式实体
+ */
+public class CountingEntity extends HttpEntityWrapper {
+
+    private final LongConsumer onEnd;
+    private final AtomicBoolean ended = new AtomicBoolean();
+    private long written;
+    private long read;
+
+    /**
+     * @param onEnd 响应流读到末尾或关闭时回调一次读取的字节数，可以为 null
+     */
+    public CountingEntity(HttpEntity entity, LongConsumer onEnd) {
+        super(entity);
+        this.onEnd = onEnd;
+    }
+
+    /** 最近一次 {@link #writeTo(OutputStream)} 写出的字节数，重试时重新计数 */
+    public long getCount() {
+        return written;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        written = 0;
+        super.writeTo(new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                written++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                written += len;
+            }
+        });
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new FilterInputStream(super.getContent()) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b < 0) {
+                    end();
+                } else {
+                    read++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n < 0) {
+                    end();
+                } else {
+                    read += n;
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    end();
+                }
+            }
+        };
+    }
+
+    private void end() {
+        if (Objects.nonNull(onEnd) && ended.compareAndSet(false, true)) {
+            onEnd.accept(read);
+        }
+    }
+}
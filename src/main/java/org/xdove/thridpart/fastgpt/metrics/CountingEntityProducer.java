@@ -0,0 +1,110 @@
+package org.xdove.thridpart.fastgpt.metrics;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * {@link CountingEntity} 的异步版本：统计实际写到连接的请求体字节数，请求体发送完时回调一次，重试时重新计数
+ */
+public class CountingEntityProducer implements AsyncEntityProducer {
+
+    private final AsyncEntityProducer delegate;
+    private final LongConsumer onEnd;
+    private long written;
+
+    /**
+     * @param onEnd 请求体发送完时回调写出的字节数
+     */
+    public CountingEntityProducer(AsyncEntityProducer delegate, LongConsumer onEnd) {
+        this.delegate = delegate;
+        this.onEnd = onEnd;
+    }
+
+    @Override
+    public void produce(DataStreamChannel channel) throws IOException {
+        delegate.produce(new DataStreamChannel() {
+            @Override
+            public void requestOutput() {
+                channel.requestOutput();
+            }
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                int n = channel.write(src);
+                written += n;
+                return n;
+            }
+
+            @Override
+            public void endStream() throws IOException {
+                channel.endStream();
+                end();
+            }
+
+            @Override
+            public void endStream(List<? extends Header> trailers) throws IOException {
+                channel.endStream(trailers);
+                end();
+            }
+        });
+    }
+
+    private void end() {
+        long n = written;
+        written = 0;
+        onEnd.accept(n);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return delegate.isRepeatable();
+    }
+
+    @Override
+    public int available() {
+        return delegate.available();
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        delegate.failed(cause);
+    }
+
+    @Override
+    public void releaseResources() {
+        written = 0;
+        delegate.releaseResources();
+    }
+
+    @Override
+    public long getContentLength() {
+        return delegate.getContentLength();
+    }
+
+    @Override
+    public String getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return delegate.getContentEncoding();
+    }
+
+    @Override
+    public boolean isChunked() {
+        return delegate.isChunked();
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return delegate.getTrailerNames();
+    }
+}
@@ -0,0 +1,79 @@
+package org.xdove.thridpart.fastgpt.metrics;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 收到响应头时报告响应码和耗时，响应结束时报告响应体字节数
+ * @param <T> 响应结果类型
+ */
+public class MeteredResponseConsumer<T> implements AsyncResponseConsumer<T> {
+
+    private final AsyncResponseConsumer<T> delegate;
+    private final ClientMetrics metrics;
+    private final String path;
+    private final long startedAt = System.nanoTime();
+    private long bytes;
+    private boolean responded;
+
+    public MeteredResponseConsumer(AsyncResponseConsumer<T> delegate, ClientMetrics metrics, String path) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.path = path;
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                FutureCallback<T> resultCallback) throws HttpException, IOException {
+        responded = true;
+        metrics.request(path, response.getCode(), null, System.nanoTime() - startedAt);
+        delegate.consumeResponse(response, entityDetails, context, resultCallback);
+    }
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) throws HttpException, IOException {
+        delegate.informationResponse(response, context);
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        if (!responded) {
+            metrics.request(path, 0, cause, System.nanoTime() - startedAt);
+        }
+        delegate.failed(cause);
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        delegate.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        // 下游可能只消费一部分，剩余部分会再次传入
+        int remaining = src.remaining();
+        delegate.consume(src);
+        bytes += remaining - src.remaining();
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+        metrics.responseSize(path, bytes);
+        delegate.streamEnd(trailers);
+    }
+
+    @Override
+    public void releaseResources() {
+        delegate.releaseResources();
+    }
+}
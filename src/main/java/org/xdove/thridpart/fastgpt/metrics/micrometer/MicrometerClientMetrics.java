@@ -0,0 +1,120 @@
+package org.xdove.thridpart.fastgpt.metrics.micrometer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.core5.pool.PoolStats;
+import org.xdove.thridpart.fastgpt.metrics.ClientMetrics;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@link ClientMetrics} 的 Micrometer 实现，需要自行引入 micrometer-core。
+ * <ul>
+ *     <li>{prefix}.requests：每次 HTTP 尝试的耗时，标签 path、status、outcome</li>
+ *     <li>{prefix}.request.size / {prefix}.response.size：请求体、响应体字节数，标签 path</li>
+ *     <li>{prefix}.connection.acquire：获取连接耗时</li>
+ *     <li>{prefix}.pool.leased / pending / available / max：连接池状态，标签 client</li>
+ *     <li>{prefix}.chat.first.token、{prefix}.chat.duration：流式对话首 token 时间和总耗时，标签 outcome</li>
+ *     <li>{prefix}.chat.tokens.rate：流式对话每秒片段数</li>
+ * </ul>
+ */
+public class MicrometerClientMetrics implements ClientMetrics {
+
+    private final MeterRegistry registry;
+    private final String prefix;
+
+    public MicrometerClientMetrics(MeterRegistry registry) {
+        this(registry, "fastgpt");
+    }
+
+    public MicrometerClientMetrics(MeterRegistry registry, String prefix) {
+        this.registry = registry;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void request(String path, int status, Throwable error, long latencyNanos) {
+        Timer.builder(prefix + ".requests")
+                .tags(Tags.of("path", path, "status", Integer.toString(status), "outcome", outcome(status, error)))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void requestSize(String path, long bytes) {
+        if (bytes >= 0) {
+            size(prefix + ".request.size", path).record(bytes);
+        }
+    }
+
+    @Override
+    public void responseSize(String path, long bytes) {
+        if (bytes >= 0) {
+            size(prefix + ".response.size", path).record(bytes);
+        }
+    }
+
+    @Override
+    public void connectionAcquired(long nanos) {
+        Timer.builder(prefix + ".connection.acquire")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void chatStream(long firstTokenNanos, long durationNanos, long tokens, Throwable error) {
+        Tags tags = Tags.of("outcome", Objects.isNull(error) ? "SUCCESS" : error.getClass().getSimpleName());
+        if (firstTokenNanos >= 0) {
+            Timer.builder(prefix + ".chat.first.token").tags(tags).publishPercentileHistogram().register(registry)
+                    .record(firstTokenNanos, TimeUnit.NANOSECONDS);
+        }
+        Timer.builder(prefix + ".chat.duration").tags(tags).publishPercentileHistogram().register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        // 只统计首 token 之后的生成速度
+        long generating = durationNanos - Math.max(0, firstTokenNanos);
+        if (tokens > 0 && generating > 0) {
+            DistributionSummary.builder(prefix + ".chat.tokens.rate").baseUnit("tokens/s").tags(tags)
+                    .register(registry).record(tokens * 1e9 / generating);
+        }
+    }
+
+    @Override
+    public void bindPool(String client, Supplier<PoolStats> stats) {
+        pool("leased", client, stats, PoolStats::getLeased);
+        pool("pending", client, stats, PoolStats::getPending);
+        pool("available", client, stats, PoolStats::getAvailable);
+        pool("max", client, stats, PoolStats::getMax);
+    }
+
+    private void pool(String name, String client, Supplier<PoolStats> stats, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder(prefix + ".pool." + name, stats, s -> value.applyAsDouble(s.get()))
+                .tag("client", client)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    private DistributionSummary size(String name, String path) {
+        return DistributionSummary.builder(name).baseUnit("bytes").tag("path", path).register(registry);
+    }
+
+    private static String outcome(int status, Throwable error) {
+        if (Objects.nonNull(error)) {
+            return error.getClass().getSimpleName();
+        }
+        if (status >= 500) {
+            return "SERVER_ERROR";
+        }
+        if (status >= 400) {
+            return "CLIENT_ERROR";
+        }
+        return "SUCCESS";
+    }
+}
@@ -0,0 +1,142 @@
+package org.xdove.thridpart.fastgpt.page;
+
+import org.xdove.thridpart.fastgpt.entity.Page;
+import org.xdove.thridpart.fastgpt.entity.Response;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 逐条遍历分页列表，第一次调用 {@link #hasNext()} 时才请求第一页。
+ * 得知 total 后，在调用方消费当前页的同时预取后续 {@code prefetch} 页，到达 total 或遇到空页时停止。
+ * 服务端实际每页返回的条数少于 pageSize 时（如超过接口上限被截断），按第一页的条数计算页数。
+ * 未遍历完就放弃时应调用 {@link #close()} 取消已发出的预取请求。
+ * @param <T> 列表元素类型
+ */
+public class PageIterator<T> implements Iterator<T>, AutoCloseable {
+
+    /** FastGPT 分页接口每页最多 30 条 */
+    public static final int MAX_PAGE_SIZE = 30;
+    /** 未指定预取页数时使用 */
+    public static final int DEFAULT_PREFETCH = 4;
+
+    private final IntFunction<CompletableFuture<Response<Page<T>>>> fetcher;
+    private int pageSize;
+    private final int prefetch;
+    private final Deque<CompletableFuture<Response<Page<T>>>> pending = new ArrayDeque<>();
+
+    private Iterator<T> current = Collections.emptyIterator();
+    private long total = -1;
+    private long lastPage;
+    private int nextPage = 1;
+    private long emitted;
+    private boolean closed;
+
+    /**
+     * @param fetcher 按页码（从 1 开始）异步请求一页
+     * @param pageSize 每页数量
+     * @param prefetch 同时在途的页数，至少为 1
+     */
+    public PageIterator(IntFunction<CompletableFuture<Response<Page<T>>>> fetcher, int pageSize, int prefetch) {
+        if (pageSize <= 0 || prefetch <= 0) {
+            throw new IllegalArgumentException("pageSize and prefetch must be positive");
+        }
+        this.fetcher = fetcher;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed || (total >= 0 && emitted >= total)) {
+                return false;
+            }
+            if (pending.isEmpty()) {
+                // 预取的页数按推算得出，未到 total 时继续翻页，由空页结束
+                pending.add(fetcher.apply(nextPage++));
+            }
+            Page<T> page = await(pending.poll());
+            if (total < 0) {
+                total = page.getTotal();
+                int size = Objects.isNull(page.getData()) ? 0 : page.getData().size();
+                if (size > 0 && size < pageSize && size < total) {
+                    pageSize = size;
+                }
+                lastPage = (total + pageSize - 1) / pageSize;
+            }
+            fill();
+            if (Objects.isNull(page.getData()) || page.getData().isEmpty()) {
+                close();
+                return false;
+            }
+            current = page.getData().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        emitted++;
+        return current.next();
+    }
+
+    /**
+     * 取消尚未完成的预取请求
+     */
+    @Override
+    public void close() {
+        closed = true;
+        current = Collections.emptyIterator();
+        CompletableFuture<Response<Page<T>>> f;
+        while (Objects.nonNull(f = pending.poll())) {
+            f.cancel(true);
+        }
+    }
+
+    /**
+     * 顺序流，关闭流时取消预取请求
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    private void fill() {
+        while (!closed && pending.size() < prefetch && nextPage <= lastPage) {
+            pending.add(fetcher.apply(nextPage++));
+        }
+    }
+
+    private Page<T> await(CompletableFuture<Response<Page<T>>> future) {
+        Response<Page<T>> response;
+        try {
+            response = future.join();
+        } catch (CompletionException | CancellationException e) {
+            close();
+            Throwable cause = Objects.nonNull(e.getCause()) ? e.getCause() : e;
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+        if (Objects.isNull(response) || response.getCode() != 200 || Objects.isNull(response.getData())) {
+            close();
+            throw new IllegalStateException("page request failed, code=" + (Objects.isNull(response) ? null : response.getCode())
+                    + ", message=" + (Objects.isNull(response) ? null : response.getMessage()));
+        }
+        return response.getData();
+    }
+}
@@ -0,0 +1,152 @@
+package org.xdove.thridpart.fastgpt.retry;
+
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.utils.DateUtils;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.xdove.thridpart.fastgpt.RetryConfig;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 根据 {@link RetryConfig} 决定一次失败是否重试以及等待多久，线程安全，多个请求共享同一个重试预算。
+ */
+public class Retrier {
+
+    /** 请求的幂等性，决定哪些失败可以重试 */
+    public enum Idempotency {
+        /** 重复执行无副作用，任何瞬时故障都可重试 */
+        IDEMPOTENT,
+        /** 在收到响应体之前可以重试，如对话 */
+        BEFORE_RESPONSE_BODY,
+        /** 只在请求确定未被处理时重试：连接失败或 429/503 */
+        NON_IDEMPOTENT
+    }
+
+    /** 预算以千分之一次重试为单位 */
+    private static final long UNIT = 1000;
+
+    private final RetryConfig config;
+    private final long budgetMax;
+    private final long budgetDeposit;
+    private final AtomicLong budget;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    public Retrier(RetryConfig config) {
+        this.config = config;
+        this.budgetMax = config.getBudgetBurst() * UNIT;
+        this.budgetDeposit = (long) (config.getBudgetRatio() * UNIT);
+        this.budget = new AtomicLong(this.budgetMax);
+    }
+
+    /**
+     * 每个新请求（不含重试）调用一次，为重试预算补充额度
+     */
+    public void onRequest() {
+        long b;
+        do {
+            b = budget.get();
+            if (b >= budgetMax) {
+                return;
+            }
+        } while (!budget.compareAndSet(b, Math.min(budgetMax, b + budgetDeposit)));
+    }
+
+    /**
+     * @param attempt 刚刚失败的是第几次尝试，从 1 开始
+     * @param response 收到的响应，未收到时为 null
+     * @param error 请求异常，收到响应时为 null
+     * @return 下次重试前等待的毫秒数，不重试时为 -1
+     */
+    public long delay(int attempt, Idempotency idempotency, HttpResponse response, Throwable error) {
+        if (attempt >= config.getMaxAttempts()) {
+            return -1;
+        }
+        long retryAfter = -1;
+        if (Objects.nonNull(response)) {
+            if (!retryable(response.getCode(), idempotency)) {
+                return -1;
+            }
+            if (config.isHonourRetryAfter()) {
+                retryAfter = retryAfter(response.getFirstHeader(HttpHeaders.RETRY_AFTER));
+                if (retryAfter > config.getMaxRetryAfter().toMillis()) {
+                    return -1;
+                }
+            }
+        } else if (!retryable(error, idempotency)) {
+            return -1;
+        }
+        if (!withdraw()) {
+            budgetExhausted.incrementAndGet();
+            return -1;
+        }
+        retries.incrementAndGet();
+        return Math.max(backoff(attempt), retryAfter);
+    }
+
+    /** 已发起的重试次数 */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /** 因预算耗尽而放弃的重试次数 */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    private boolean retryable(int status, Idempotency idempotency) {
+        if (!config.getRetryStatuses().contains(status)) {
+            return false;
+        }
+        return idempotency != Idempotency.NON_IDEMPOTENT
+                || status == HttpStatus.SC_TOO_MANY_REQUESTS || status == HttpStatus.SC_SERVICE_UNAVAILABLE;
+    }
+
+    private static boolean retryable(Throwable error, Idempotency idempotency) {
+        if (error instanceof ConnectException || error instanceof ConnectTimeoutException) {
+            return true;
+        }
+        return idempotency == Idempotency.IDEMPOTENT && error instanceof IOException;
+    }
+
+    private boolean withdraw() {
+        long b;
+        do {
+            b = budget.get();
+            if (b < UNIT) {
+                return false;
+            }
+        } while (!budget.compareAndSet(b, b - UNIT));
+        return true;
+    }
+
+    private long backoff(int attempt) {
+        double backoff = config.getInitialBackoff().toMillis() * Math.pow(config.getMultiplier(), attempt - 1);
+        backoff = Math.min(backoff, config.getMaxBackoff().toMillis());
+        return (long) (backoff * (1 - config.getJitter() * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /**
+     * 支持秒数和 HTTP 日期两种格式
+     */
+    private static long retryAfter(Header header) {
+        if (Objects.isNull(header) || Objects.isNull(header.getValue())) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        try {
+            return Long.parseLong(value) * 1000;
+        } catch (NumberFormatException ignore) {
+        }
+        Instant date = DateUtils.parseStandardDate(value);
+        return Objects.isNull(date) ? -1 : Math.max(0, date.toEpochMilli() - System.currentTimeMillis());
+    }
+}
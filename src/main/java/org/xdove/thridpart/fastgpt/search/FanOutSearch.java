@@ -0,0 +1,178 @@
+package org.xdove.thridpart.fastgpt.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 同时搜索多个知识库并合并结果。
+ * 所有知识库返回或截止时间到达时结束，未返回的请求被取消，已返回的结果按得分合并，按数据ID去重后截取前 maxResults 条。
+ */
+public class FanOutSearch {
+
+    private static final Logger log = LoggerFactory.getLogger(FanOutSearch.class);
+
+    /** 跨知识库比较时选用的得分类型，靠前的优先 */
+    private static final String[] SCORE_TYPES = {"reRank", "rrf", "embedding", "fullText"};
+
+    private final Function<String, CompletableFuture<Response<SearchResult>>> search;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param search 搜索一个知识库
+     * @param scheduler 用于截止时间计时
+     */
+    public FanOutSearch(Function<String, CompletableFuture<Response<SearchResult>>> search,
+                        ScheduledExecutorService scheduler) {
+        this.search = search;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param datasetIds 知识库ID，重复的只搜索一次
+     * @param maxResults 合并后最多保留的条数，小于等于 0 时不限制
+     * @param deadline 等待的最长时间，到达时以已返回的结果结束
+     * @return 不会异常结束；取消它会取消所有未完成的搜索
+     */
+    public CompletableFuture<MultiSearchResult> search(Collection<String> datasetIds, int maxResults, Duration deadline) {
+        Map<String, CompletableFuture<Response<SearchResult>>> calls = new LinkedHashMap<>();
+        for (String datasetId : new LinkedHashSet<>(datasetIds)) {
+            CompletableFuture<Response<SearchResult>> call;
+            try {
+                call = search.apply(datasetId);
+            } catch (Exception e) {
+                call = new CompletableFuture<>();
+                call.completeExceptionally(e);
+            }
+            calls.put(datasetId, call);
+        }
+
+        CompletableFuture<MultiSearchResult> result = new CompletableFuture<>();
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable finish = () -> {
+            if (finished.compareAndSet(false, true)) {
+                result.complete(merge(calls, maxResults, deadline));
+            }
+        };
+        ScheduledFuture<?> timer = null;
+        try {
+            timer = scheduler.schedule(finish, deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.info("searchTest deadline not scheduled, waiting for all datasets: {}", e.getLocalizedMessage());
+        }
+        ScheduledFuture<?> t = timer;
+        CompletableFuture.allOf(calls.values().toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> {
+            if (Objects.nonNull(t)) {
+                t.cancel(false);
+            }
+            finish.run();
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                calls.values().forEach(c -> c.cancel(true));
+            }
+        });
+        return result;
+    }
+
+    private static MultiSearchResult merge(Map<String, CompletableFuture<Response<SearchResult>>> calls,
+                                           int maxResults, Duration deadline) {
+        Map<String, SearchResult.Item> byId = new LinkedHashMap<>();
+        List<SearchResult.Item> withoutId = new ArrayList<>();
+        List<MultiSearchResult.DatasetFailure> failures = new ArrayList<>();
+        int searched = 0;
+        for (Map.Entry<String, CompletableFuture<Response<SearchResult>>> call : calls.entrySet()) {
+            String datasetId = call.getKey();
+            CompletableFuture<Response<SearchResult>> future = call.getValue();
+            if (!future.isDone()) {
+                future.cancel(true);
+                failures.add(new MultiSearchResult.DatasetFailure(datasetId,
+                        new TimeoutException("searchTest datasetId=" + datasetId + " exceeded " + deadline.toMillis() + "ms")));
+                continue;
+            }
+            Response<SearchResult> r;
+            try {
+                r = future.join();
+            } catch (CompletionException | CancellationException e) {
+                failures.add(new MultiSearchResult.DatasetFailure(datasetId, unwrap(e)));
+                continue;
+            }
+            if (Objects.isNull(r) || r.getCode() != 200 || Objects.isNull(r.getData())) {
+                failures.add(new MultiSearchResult.DatasetFailure(datasetId, new IllegalStateException("searchTest datasetId="
+                        + datasetId + " code=" + (Objects.isNull(r) ? null : r.getCode())
+                        + ", message=" + (Objects.isNull(r) ? null : r.getMessage()))));
+                continue;
+            }
+            searched++;
+            if (Objects.isNull(r.getData().getList())) {
+                continue;
+            }
+            for (SearchResult.Item item : r.getData().getList()) {
+                if (Objects.isNull(item.getId())) {
+                    withoutId.add(item);
+                } else {
+                    byId.merge(item.getId(), item, (a, b) -> score(b) > score(a) ? b : a);
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            log.info("searchTest {} of {} datasets failed or timed out", failures.size(), calls.size());
+        }
+
+        List<SearchResult.Item> list = new ArrayList<>(byId.values());
+        list.addAll(withoutId);
+        list.sort(Comparator.comparingDouble(FanOutSearch::score).reversed());
+        if (maxResults > 0 && list.size() > maxResults) {
+            list = new ArrayList<>(list.subList(0, maxResults));
+        }
+        return new MultiSearchResult(Collections.unmodifiableList(list), searched, Collections.unmodifiableList(failures));
+    }
+
+    /**
+     * 用于跨知识库排序的得分：按 {@link #SCORE_TYPES} 的顺序取第一个存在的类型，都没有时取第一个得分
+     */
+    static double score(SearchResult.Item item) {
+        List<SearchResult.Score> scores = item.getScore();
+        if (Objects.isNull(scores) || scores.isEmpty()) {
+            return 0;
+        }
+        for (String type : SCORE_TYPES) {
+            for (SearchResult.Score s : scores) {
+                if (type.equals(s.getType())) {
+                    return s.getValue();
+                }
+            }
+        }
+        return scores.get(0).getValue();
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && Objects.nonNull(t.getCause())) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -0,0 +1,36 @@
+package org.xdove.thridpart.fastgpt.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+
+import java.util.List;
+
+/**
+ * 多知识库搜索结果
+ */
+@Data
+@AllArgsConstructor
+public class MultiSearchResult {
+
+    /** 合并后按得分从高到低排列、按数据ID去重的结果 */
+    private List<SearchResult.Item> list;
+    /** 在截止时间内返回结果的知识库数 */
+    private int searched;
+    /** 超时或失败的知识库，超时的 cause 为 {@link java.util.concurrent.TimeoutException} */
+    private List<DatasetFailure> failures;
+
+    /**
+     * @return 所有知识库都返回了结果
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class DatasetFailure {
+        private String datasetId;
+        private Throwable cause;
+    }
+}
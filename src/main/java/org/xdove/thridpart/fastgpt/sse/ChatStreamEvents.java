@@ -0,0 +1,46 @@
+package org.xdove.thridpart.fastgpt.sse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+
+/**
+ * 将 SSE 的 event/data 转换为 {@link ChatStreamEvent}。
+ */
+public class ChatStreamEvents {
+
+    public static final String DONE = "[DONE]";
+
+    private final ObjectReader reader;
+
+    public ChatStreamEvents(ObjectReader reader) {
+        this.reader = reader.forType(JsonNode.class);
+    }
+
+    public ChatStreamEvent parse(String event, String data) {
+        if (DONE.equals(data)) {
+            return new ChatStreamEvent(ChatStreamEvent.Type.DONE, event, null, null);
+        }
+        ChatStreamEvent.Type type = ChatStreamEvent.Type.of(event);
+        JsonNode node;
+        try {
+            node = reader.readTree(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("invalid sse data, event=" + event, e);
+        }
+        String content = null;
+        if (type == ChatStreamEvent.Type.ANSWER || type == ChatStreamEvent.Type.FAST_ANSWER) {
+            JsonNode c = node.path("choices").path(0).path("delta").path("content");
+            content = c.isTextual() ? c.asText() : null;
+        }
+        return new ChatStreamEvent(type, event, content, node);
+    }
+
+    /**
+     * 生成解码 handler，遇到 [DONE] 后仍会回调 DONE 事件。
+     */
+    public SSEDecoder.Handler handler(ChatStreamListener listener) {
+        return (event, data) -> listener.onEvent(parse(event, data));
+    }
+}
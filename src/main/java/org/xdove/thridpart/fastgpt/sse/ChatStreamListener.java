@@ -0,0 +1,19 @@
+package org.xdove.thridpart.fastgpt.sse;
+
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+
+/**
+ * 流式对话监听器，事件在读取线程上按顺序回调。
+ */
+public interface ChatStreamListener {
+
+    void onEvent(ChatStreamEvent event);
+
+    /** 流正常结束 */
+    default void onComplete() {
+    }
+
+    /** 读取或解析失败，之后不会再有回调 */
+    default void onError(Throwable t) {
+    }
+}
@@ -0,0 +1,53 @@
+package org.xdove.thridpart.fastgpt.sse;
+
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+
+import java.util.Objects;
+
+/**
+ * 观察一次流式对话的进度，用于指标和追踪。事件在单个线程上按顺序回调。
+ */
+public interface ChatStreamObserver {
+
+    /** 收到第一个字节，用于不解析内容的流 */
+    void onFirstByte();
+
+    void onEvent(ChatStreamEvent event);
+
+    /**
+     * 流结束，重复调用无效
+     * @param error 失败或取消的原因，正常结束时为 null
+     */
+    void end(Throwable error);
+
+    /**
+     * @return 两者都为 null 时返回 null
+     */
+    static ChatStreamObserver both(ChatStreamObserver a, ChatStreamObserver b) {
+        if (Objects.isNull(a)) {
+            return b;
+        }
+        if (Objects.isNull(b)) {
+            return a;
+        }
+        return new ChatStreamObserver() {
+            @Override
+            public void onFirstByte() {
+                a.onFirstByte();
+                b.onFirstByte();
+            }
+
+            @Override
+            public void onEvent(ChatStreamEvent event) {
+                a.onEvent(event);
+                b.onEvent(event);
+            }
+
+            @Override
+            public void end(Throwable error) {
+                a.end(error);
+                b.end(error);
+            }
+        };
+    }
+}
@@ -0,0 +1,361 @@
+package org.xdove.thridpart.fastgpt.sse;
+
+import org.apache.hc.client5.http.HttpResponseException;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.retry.Retrier;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 基于异步客户端的流式对话 Publisher，只允许一个订阅者，订阅时才发送请求。
+ * 已解码但未被请求的事件超过 {@code maxQueued} 时不再向连接申请读取容量，
+ * 慢订阅者会让 socket 读取暂停，而不是让缓冲区增长。
+ * 取消订阅会在下一次收到数据时中断连接。
+ * 配置了 {@link Retrier} 时，在收到 2xx 响应头之前的失败会按退避重新发起请求，之后的失败直接通知订阅者。
+ */
+public class ChatStreamPublisher implements Publisher<ChatStreamEvent> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    public static final int DEFAULT_MAX_QUEUED = 32;
+
+    private final Function<AsyncResponseConsumer<Void>, Future<Void>> exchange;
+    private final ChatStreamEvents events;
+    private final int chunkSize;
+    private final int maxQueued;
+    private final Retrier retrier;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * @param exchange 使用给定的响应消费者发起请求
+     * @param events 事件解析
+     */
+    public ChatStreamPublisher(Function<AsyncResponseConsumer<Void>, Future<Void>> exchange, ChatStreamEvents events) {
+        this(exchange, events, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_QUEUED);
+    }
+
+    public ChatStreamPublisher(Function<AsyncResponseConsumer<Void>, Future<Void>> exchange, ChatStreamEvents events,
+                               int chunkSize, int maxQueued) {
+        this(exchange, events, chunkSize, maxQueued, null, null);
+    }
+
+    /**
+     * @param retrier 为 null 时不重试
+     * @param scheduler 用于延迟重试
+     */
+    public ChatStreamPublisher(Function<AsyncResponseConsumer<Void>, Future<Void>> exchange, ChatStreamEvents events,
+                               int chunkSize, int maxQueued, Retrier retrier, ScheduledExecutorService scheduler) {
+        this.exchange = exchange;
+        this.events = events;
+        this.chunkSize = chunkSize;
+        this.maxQueued = maxQueued;
+        this.retrier = retrier;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super ChatStreamEvent> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("ChatStreamPublisher allows only a single subscriber"));
+            return;
+        }
+        StreamSubscription subscription = new StreamSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (!subscription.cancelled) {
+            subscription.start();
+        }
+    }
+
+    private class StreamSubscription implements Subscription, AsyncResponseConsumer<Void> {
+
+        private final Subscriber<? super ChatStreamEvent> subscriber;
+        private final Queue<ChatStreamEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicReference<CapacityChannel> capacityChannel = new AtomicReference<>();
+        private final SSEDecoder decoder;
+
+        private volatile Future<Void> future;
+        private volatile FutureCallback<Void> resultCallback;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile Throwable error;
+        private boolean terminated;
+        /** 已收到 2xx 响应头，之后不再重试 */
+        private volatile boolean responded;
+        /** 非 2xx 响应对应的重试等待时间 */
+        private volatile long statusRetryDelay = -1;
+        private int attempt = 1;
+
+        StreamSubscription(Subscriber<? super ChatStreamEvent> subscriber) {
+            this.subscriber = subscriber;
+            this.decoder = new SSEDecoder((event, data) -> {
+                queue.offer(events.parse(event, data));
+                queued.incrementAndGet();
+            });
+        }
+
+        void start() {
+            try {
+                future = exchange.apply(this);
+            } catch (Exception e) {
+                failed(e);
+                return;
+            }
+            if (cancelled) {
+                future.cancel(true);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failed(new IllegalArgumentException("request must be positive, was " + n));
+                return;
+            }
+            long r;
+            long u;
+            do {
+                r = requested.get();
+                u = r + n < 0 ? Long.MAX_VALUE : r + n;
+            } while (!requested.compareAndSet(r, u));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            Future<Void> f = future;
+            if (Objects.nonNull(f)) {
+                f.cancel(true);
+            }
+            // 交换开始后取消 future 不会中断连接，恢复读取让 consume 抛出异常以丢弃连接
+            CapacityChannel channel = capacityChannel.getAndSet(null);
+            if (Objects.nonNull(channel)) {
+                try {
+                    channel.update(1);
+                } catch (IOException ignore) {
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                    FutureCallback<Void> resultCallback) throws IOException {
+            this.resultCallback = resultCallback;
+            if (response.getCode() >= 300) {
+                if (Objects.nonNull(retrier)) {
+                    statusRetryDelay = retrier.delay(attempt, Retrier.Idempotency.BEFORE_RESPONSE_BODY, response, null);
+                }
+                throw new HttpResponseException(response.getCode(), response.getReasonPhrase());
+            }
+            responded = true;
+            if (Objects.isNull(entityDetails)) {
+                complete();
+            }
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) {
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            this.capacityChannel.set(capacityChannel);
+            grant();
+        }
+
+        @Override
+        public void consume(ByteBuffer src) throws IOException {
+            if (cancelled) {
+                throw new InterruptedIOException("chat stream cancelled");
+            }
+            try {
+                decoder.feed(src);
+            } catch (RuntimeException e) {
+                failed(e);
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) {
+            try {
+                decoder.finish();
+            } catch (RuntimeException e) {
+                failed(e);
+                return;
+            }
+            complete();
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            if (done) {
+                return;
+            }
+            if (retry(cause)) {
+                return;
+            }
+            error = cause;
+            done = true;
+            Future<Void> f = future;
+            if (Objects.nonNull(f)) {
+                f.cancel(true);
+            }
+            drain();
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+
+        /**
+         * 收到响应体之前的失败按退避重新发起请求
+         */
+        private boolean retry(Exception cause) {
+            if (responded || cancelled || Objects.isNull(retrier) || Objects.isNull(scheduler)) {
+                return false;
+            }
+            long delay = cause instanceof HttpResponseException ? statusRetryDelay
+                    : retrier.delay(attempt, Retrier.Idempotency.BEFORE_RESPONSE_BODY, null, cause);
+            statusRetryDelay = -1;
+            if (delay < 0) {
+                return false;
+            }
+            attempt++;
+            try {
+                scheduler.schedule(() -> {
+                    if (!cancelled) {
+                        start();
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+            return true;
+        }
+
+        private void complete() {
+            done = true;
+            FutureCallback<Void> callback = resultCallback;
+            if (Objects.nonNull(callback)) {
+                callback.completed(null);
+            }
+            drain();
+        }
+
+        /**
+         * 积压事件低于上限时才向连接申请下一块读取容量。
+         */
+        private void grant() {
+            if (cancelled || done || queued.get() >= maxQueued) {
+                return;
+            }
+            CapacityChannel channel = capacityChannel.getAndSet(null);
+            if (Objects.nonNull(channel)) {
+                try {
+                    channel.update(chunkSize);
+                } catch (IOException e) {
+                    failed(e);
+                }
+            }
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (cancelled) {
+                    queue.clear();
+                    return;
+                }
+                long r = requested.get();
+                long emitted = 0;
+                if (Objects.nonNull(error)) {
+                    queue.clear();
+                    terminate();
+                    return;
+                }
+                while (emitted != r) {
+                    ChatStreamEvent event = queue.poll();
+                    if (Objects.isNull(event)) {
+                        break;
+                    }
+                    queued.decrementAndGet();
+                    subscriber.onNext(event);
+                    emitted++;
+                    if (cancelled) {
+                        queue.clear();
+                        return;
+                    }
+                }
+                if (done && queue.isEmpty()) {
+                    terminate();
+                    return;
+                }
+                if (emitted != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                grant();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate() {
+            if (terminated) {
+                return;
+            }
+            terminated = true;
+            Throwable t = error;
+            if (Objects.nonNull(t)) {
+                subscriber.onError(t);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+    }
+}
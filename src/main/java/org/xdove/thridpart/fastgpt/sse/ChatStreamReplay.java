@@ -0,0 +1,100 @@
+package org.xdove.thridpart.fastgpt.sse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.hc.core5.concurrent.BasicFuture;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * 将非流式对话结果重放为流式对话的 SSE 字节，使缓存的答案可以走与网络响应相同的解码路径。
+ */
+public final class ChatStreamReplay {
+
+    private ChatStreamReplay() {
+    }
+
+    /**
+     * 一次性输出完整答案：detail 为 true 时带 event 名并附带 flowResponses，最后是 [DONE]
+     * @param completion 非流式对话响应
+     */
+    public static byte[] sse(JsonNode completion, boolean detail, ObjectWriter writer) throws JsonProcessingException {
+        JsonNodeFactory f = JsonNodeFactory.instance;
+        ObjectNode delta = f.objectNode();
+        delta.put("role", "assistant");
+        delta.set("content", completion.path("choices").path(0).path("message").path("content"));
+        ObjectNode choice = f.objectNode();
+        choice.set("delta", delta);
+        choice.put("index", 0);
+        choice.putNull("finish_reason");
+        ObjectNode chunk = f.objectNode();
+        chunk.set("choices", f.arrayNode().add(choice));
+
+        StringBuilder sb = new StringBuilder();
+        event(sb, detail ? "answer" : null, writer.writeValueAsString(chunk));
+        JsonNode responseData = completion.get("responseData");
+        if (detail && Objects.nonNull(responseData) && !responseData.isNull()) {
+            event(sb, "flowResponses", writer.writeValueAsString(responseData));
+        }
+        event(sb, detail ? "answer" : null, ChatStreamEvents.DONE);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 以给定的 SSE 字节模拟一次异步交换，供 {@link ChatStreamPublisher} 使用
+     */
+    public static Function<AsyncResponseConsumer<Void>, Future<Void>> exchange(byte[] sse) {
+        return consumer -> {
+            BasicFuture<Void> future = new BasicFuture<>(null);
+            try {
+                consumer.consumeResponse(new BasicHttpResponse(HttpStatus.SC_OK),
+                        new BasicEntityDetails(sse.length, ContentType.create("text/event-stream", StandardCharsets.UTF_8)),
+                        HttpCoreContext.create(), new FutureCallback<Void>() {
+                            @Override
+                            public void completed(Void result) {
+                                future.completed(result);
+                            }
+
+                            @Override
+                            public void failed(Exception ex) {
+                                future.failed(ex);
+                            }
+
+                            @Override
+                            public void cancelled() {
+                                future.cancel();
+                            }
+                        });
+                consumer.consume(ByteBuffer.wrap(sse));
+                consumer.streamEnd(null);
+            } catch (Exception e) {
+                consumer.failed(e);
+                future.failed(e);
+            } finally {
+                consumer.releaseResources();
+            }
+            return future;
+        };
+    }
+
+    private static void event(StringBuilder sb, String event, String data) {
+        if (Objects.nonNull(event)) {
+            sb.append("event: ").append(event).append('\n');
+        }
+        sb.append("data: ").append(data).append("\n\n");
+    }
+}
@@ -0,0 +1,182 @@
+package org.xdove.thridpart.fastgpt.sse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 增量 Server-Sent-Events 解码器。
+ * 按块读取字节，只缓存当前行和当前事件的 data，不保留完整的响应内容。
+ */
+public class SSEDecoder {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    public static final int DEFAULT_MAX_LINE_LENGTH = 8 * 1024 * 1024;
+
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    /** 事件回调 */
+    public interface Handler {
+        /**
+         * @param event event 字段，未指定时为 null
+         * @param data 多行 data 以 \n 拼接后的内容
+         */
+        void onEvent(String event, String data);
+    }
+
+    private final Handler handler;
+    private final Charset charset;
+    private final int maxLineLength;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean skipLF;
+
+    private String event;
+    private final StringBuilder data = new StringBuilder();
+    private boolean hasData;
+
+    public SSEDecoder(Handler handler) {
+        this(handler, StandardCharsets.UTF_8, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    public SSEDecoder(Handler handler, Charset charset, int maxLineLength) {
+        this.handler = Objects.requireNonNull(handler, "handler");
+        this.charset = charset;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * 读取整个流直到结束，每次读取 {@link #DEFAULT_BUFFER_SIZE} 字节。
+     */
+    public void decode(InputStream in) throws IOException {
+        decode(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public void decode(InputStream in, int bufferSize) throws IOException {
+        byte[] buf = new byte[bufferSize];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            feed(buf, 0, n);
+        }
+        finish();
+    }
+
+    public void feed(ByteBuffer src) {
+        if (src.hasArray()) {
+            feed(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            src.position(src.limit());
+        } else {
+            byte[] buf = new byte[Math.min(src.remaining(), DEFAULT_BUFFER_SIZE)];
+            while (src.hasRemaining()) {
+                int n = Math.min(buf.length, src.remaining());
+                src.get(buf, 0, n);
+                feed(buf, 0, n);
+            }
+        }
+    }
+
+    public void feed(byte[] b, int off, int len) {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            byte c = b[i];
+            if (skipLF) {
+                skipLF = false;
+                if (c == LF) {
+                    continue;
+                }
+            }
+            if (c == CR) {
+                skipLF = true;
+                processLine();
+            } else if (c == LF) {
+                processLine();
+            } else {
+                appendByte(c);
+            }
+        }
+    }
+
+    /**
+     * 流结束，分发尚未以空行结尾的事件。
+     */
+    public void finish() {
+        if (lineLength > 0) {
+            processLine();
+        }
+        dispatch();
+    }
+
+    private void appendByte(byte c) {
+        if (lineLength == line.length) {
+            if (lineLength >= maxLineLength) {
+                throw new IllegalStateException("sse line exceeds " + maxLineLength + " bytes");
+            }
+            line = Arrays.copyOf(line, Math.min(maxLineLength, line.length << 1));
+        }
+        line[lineLength++] = c;
+    }
+
+    private void processLine() {
+        int len = lineLength;
+        lineLength = 0;
+        if (len == 0) {
+            dispatch();
+            return;
+        }
+        if (line[0] == ':') {
+            return;
+        }
+        int colon = -1;
+        for (int i = 0; i < len; i++) {
+            if (line[i] == ':') {
+                colon = i;
+                break;
+            }
+        }
+        int nameEnd = colon < 0 ? len : colon;
+        int valueStart = colon < 0 ? len : colon + 1;
+        if (valueStart < len && line[valueStart] == ' ') {
+            valueStart++;
+        }
+        if (fieldIs("data", nameEnd)) {
+            if (hasData) {
+                data.append('\n');
+            }
+            data.append(new String(line, valueStart, len - valueStart, charset));
+            hasData = true;
+        } else if (fieldIs("event", nameEnd)) {
+            event = new String(line, valueStart, len - valueStart, charset);
+        }
+    }
+
+    private boolean fieldIs(String name, int nameEnd) {
+        if (name.length() != nameEnd) {
+            return false;
+        }
+        for (int i = 0; i < nameEnd; i++) {
+            if (line[i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        if (hasData) {
+            String e = event;
+            String d = data.toString();
+            event = null;
+            data.setLength(0);
+            hasData = false;
+            handler.onEvent(e, d);
+        } else {
+            event = null;
+        }
+    }
+}
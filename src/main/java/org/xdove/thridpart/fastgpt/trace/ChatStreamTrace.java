@@ -0,0 +1,57 @@
+package org.xdove.thridpart.fastgpt.trace;
+
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamObserver;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在 span 上记录流式对话的首 token、结束事件和事件数
+ */
+public class ChatStreamTrace implements ChatStreamObserver {
+
+    private final TraceSpan span;
+    private final AtomicBoolean ended = new AtomicBoolean();
+    private volatile boolean first;
+    private volatile long events;
+    private final boolean countEvents;
+
+    /**
+     * @param countEvents 为 false 时不解析事件，不记录事件数
+     */
+    public ChatStreamTrace(TraceSpan span, boolean countEvents) {
+        this.span = span;
+        this.countEvents = countEvents;
+    }
+
+    @Override
+    public void onFirstByte() {
+        if (!first) {
+            first = true;
+            span.addEvent(TraceSpan.EVENT_FIRST_TOKEN);
+        }
+    }
+
+    @Override
+    public void onEvent(ChatStreamEvent event) {
+        events++;
+        if ((event.getType() == ChatStreamEvent.Type.ANSWER || event.getType() == ChatStreamEvent.Type.FAST_ANSWER)
+                && Objects.nonNull(event.getContent()) && !event.getContent().isEmpty()) {
+            onFirstByte();
+        }
+    }
+
+    @Override
+    public void end(Throwable error) {
+        if (ended.compareAndSet(false, true)) {
+            if (countEvents) {
+                span.setAttribute(TraceSpan.ATTR_STREAM_EVENTS, events);
+            }
+            if (Objects.isNull(error)) {
+                span.addEvent(TraceSpan.EVENT_COMPLETED);
+            }
+            span.end(error);
+        }
+    }
+}
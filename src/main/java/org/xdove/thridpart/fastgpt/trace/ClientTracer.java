@@ -0,0 +1,15 @@
+package org.xdove.thridpart.fastgpt.trace;
+
+/**
+ * 调用链追踪 SPI。未配置时 {@link org.xdove.thridpart.fastgpt.ServiceRequests} 不会创建任何 span 相关对象。
+ */
+public interface ClientTracer {
+
+    /**
+     * 开始一次调用，重试共用同一个 span
+     * @param path 接口路径常量，如 {@code ServiceRequests.PATH_CHAT_COMPLETIONS}
+     * @param method HTTP 方法
+     * @return 不追踪该调用时返回 null
+     */
+    TraceSpan start(String path, String method);
+}
@@ -0,0 +1,42 @@
+package org.xdove.thridpart.fastgpt.trace;
+
+import java.util.function.BiConsumer;
+
+/**
+ * 一次调用的 span，实现必须线程安全：异步请求和流式对话的回调在 I/O 线程上执行
+ */
+public interface TraceSpan {
+
+    String ATTR_CHAT_ID = "fastgpt.chat_id";
+    String ATTR_DATASET_ID = "fastgpt.dataset_id";
+    String ATTR_COLLECTION_ID = "fastgpt.collection_id";
+    /** 详情、修改、删除接口的 id 参数 */
+    String ATTR_ID = "fastgpt.id";
+    /** 流式对话收到的事件数 */
+    String ATTR_STREAM_EVENTS = "fastgpt.stream.events";
+    /** 流式对话收到第一个答案片段（InputStream 版本为第一个字节） */
+    String EVENT_FIRST_TOKEN = "fastgpt.first_token";
+    /** 流式对话正常结束 */
+    String EVENT_COMPLETED = "fastgpt.completed";
+
+    void setAttribute(String key, String value);
+
+    void setAttribute(String key, long value);
+
+    /**
+     * 把传播头（如 W3C traceparent）写入请求
+     * @param header 接收头名称和值
+     */
+    void inject(BiConsumer<String, String> header);
+
+    void addEvent(String name);
+
+    /** 最终响应码，重试时以最后一次为准 */
+    void setStatus(int status);
+
+    /**
+     * 结束 span，重复调用无效
+     * @param error 失败原因，成功时为 null
+     */
+    void end(Throwable error);
+}
@@ -0,0 +1,66 @@
+package org.xdove.thridpart.fastgpt.trace;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 收到响应头时把响应码记录到 span，span 由调用方结束
+ * @param <T> 响应结果类型
+ */
+public class TracingResponseConsumer<T> implements AsyncResponseConsumer<T> {
+
+    private final AsyncResponseConsumer<T> delegate;
+    private final TraceSpan span;
+
+    public TracingResponseConsumer(AsyncResponseConsumer<T> delegate, TraceSpan span) {
+        this.delegate = delegate;
+        this.span = span;
+    }
+
+    @Override
+    public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                FutureCallback<T> resultCallback) throws HttpException, IOException {
+        span.setStatus(response.getCode());
+        delegate.consumeResponse(response, entityDetails, context, resultCallback);
+    }
+
+    @Override
+    public void informationResponse(HttpResponse response, HttpContext context) throws HttpException, IOException {
+        delegate.informationResponse(response, context);
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        delegate.failed(cause);
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+        delegate.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+        delegate.consume(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+        delegate.streamEnd(trailers);
+    }
+
+    @Override
+    public void releaseResources() {
+        delegate.releaseResources();
+    }
+}
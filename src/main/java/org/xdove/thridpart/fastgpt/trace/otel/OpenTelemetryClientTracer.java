@@ -0,0 +1,119 @@
+package org.xdove.thridpart.fastgpt.trace.otel;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import org.xdove.thridpart.fastgpt.trace.ClientTracer;
+import org.xdove.thridpart.fastgpt.trace.TraceSpan;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link ClientTracer} 的 OpenTelemetry 实现，需要自行引入 opentelemetry-api。
+ * span 的父级取调用线程的 {@link Context#current()}，名称为 "{method} {path}"。
+ */
+public class OpenTelemetryClientTracer implements ClientTracer {
+
+    public static final String INSTRUMENTATION_NAME = "org.xdove.thridpart.fastgpt";
+
+    private static final TextMapSetter<BiConsumer<String, String>> SETTER = (carrier, key, value) -> {
+        if (Objects.nonNull(carrier)) {
+            carrier.accept(key, value);
+        }
+    };
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    /**
+     * 使用 openTelemetry 配置的传播格式
+     */
+    public OpenTelemetryClientTracer(OpenTelemetry openTelemetry) {
+        this(openTelemetry.getTracer(INSTRUMENTATION_NAME), openTelemetry.getPropagators().getTextMapPropagator());
+    }
+
+    /**
+     * 使用 W3C traceparent 传播
+     */
+    public OpenTelemetryClientTracer(Tracer tracer) {
+        this(tracer, W3CTraceContextPropagator.getInstance());
+    }
+
+    public OpenTelemetryClientTracer(Tracer tracer, TextMapPropagator propagator) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+    }
+
+    @Override
+    public TraceSpan start(String path, String method) {
+        Span span = tracer.spanBuilder(method + " " + path)
+                .setSpanKind(SpanKind.CLIENT)
+                .setParent(Context.current())
+                .setAttribute("http.request.method", method)
+                .setAttribute("url.path", path)
+                .startSpan();
+        return new OpenTelemetrySpan(span);
+    }
+
+    private class OpenTelemetrySpan implements TraceSpan {
+
+        private final Span span;
+        private final Context context;
+        private final AtomicBoolean ended = new AtomicBoolean();
+        private volatile int status;
+
+        OpenTelemetrySpan(Span span) {
+            this.span = span;
+            this.context = Context.current().with(span);
+        }
+
+        @Override
+        public void setAttribute(String key, String value) {
+            span.setAttribute(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, long value) {
+            span.setAttribute(key, value);
+        }
+
+        @Override
+        public void inject(BiConsumer<String, String> header) {
+            propagator.inject(context, header, SETTER);
+        }
+
+        @Override
+        public void addEvent(String name) {
+            span.addEvent(name);
+        }
+
+        @Override
+        public void setStatus(int status) {
+            // 重试时以最后一次为准，结束时再设置 span 状态
+            this.status = status;
+            span.setAttribute("http.response.status_code", status);
+        }
+
+        @Override
+        public void end(Throwable error) {
+            if (!ended.compareAndSet(false, true)) {
+                return;
+            }
+            if (Objects.nonNull(error)) {
+                span.recordException(error);
+                span.setStatus(StatusCode.ERROR, error.getClass().getSimpleName());
+            } else if (status >= 400) {
+                span.setStatus(StatusCode.ERROR);
+            }
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.xdove.thridpart.fastgpt.transport;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.io.CloseMode;
+
+import java.io.IOException;
+
+/**
+ * 基于 HttpClient5 同步客户端的 {@link Transport}，请求配置取自请求本身或客户端默认值
+ */
+public class ClassicTransport implements Transport {
+
+    private final CloseableHttpClient client;
+
+    public ClassicTransport(CloseableHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request) throws IOException {
+        return client.execute(request);
+    }
+
+    @Override
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+    }
+}
@@ -0,0 +1,327 @@
+package org.xdove.thridpart.fastgpt.transport;
+
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.config.Configurable;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.classic.RequestFailedException;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.CancellableDependency;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.apache.hc.core5.http.nio.support.classic.ContentInputStream;
+import org.apache.hc.core5.http.nio.support.classic.ContentOutputStream;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+import org.apache.hc.core5.http.nio.support.classic.SharedOutputBuffer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于 HttpClient5 异步客户端的 {@link Transport}，配合
+ * {@link org.xdove.thridpart.fastgpt.HttpPoolConfig#createHttp2Client(boolean)} 使用时，
+ * 同一主机的并发请求（包括流式对话）作为 HTTP/2 流共享一个连接。
+ * 收到响应头即返回，响应体边接收边读取，缓冲区满时通过流量控制让服务端暂停发送。
+ * 请求体由后台线程经 {@link HttpEntity#writeTo} 写入有界缓冲区再由 I/O reactor 发出，不在内存中整体复制，
+ * 流量控制窗口满时写入线程等待。
+ * 请求实现 {@link CancellableDependency} 时，取消请求会重置对应的流，等待中的读取抛出 {@link RequestFailedException}。
+ */
+public class Http2Transport implements Transport {
+
+    /** HTTP/2 不允许或由协议层自行生成的请求头 */
+    private static final Set<String> RESTRICTED = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "host", "keep-alive", "proxy-connection", "te", "transfer-encoding", "upgrade"));
+    /** 每个响应体的接收缓冲区大小 */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CloseableHttpAsyncClient client;
+    /** 执行请求体的 writeTo，只在等待发送窗口时阻塞 */
+    private final ExecutorService writers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "fastgpt-h2-body");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public Http2Transport(CloseableHttpAsyncClient client) {
+        this.client = client;
+        if (client.getStatus() == IOReactorStatus.INACTIVE) {
+            client.start();
+        }
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request) throws IOException {
+        AsyncRequestBuilder builder;
+        try {
+            // 查询参数未编码时可能含非 ASCII 字符，HTTP/2 的 :path 必须先转义
+            builder = AsyncRequestBuilder.create(request.getMethod()).setUri(URI.create(request.getUri().toASCIIString()));
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        for (Header header : request.getHeaders()) {
+            if (!RESTRICTED.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                builder.addHeader(header);
+            }
+        }
+        HttpEntity entity = request.getEntity();
+        BodyProducer body = Objects.isNull(entity) ? null : new BodyProducer(entity);
+        builder.setEntity(body);
+        HttpClientContext context = HttpClientContext.create();
+        if (request instanceof Configurable && Objects.nonNull(((Configurable) request).getConfig())) {
+            context.setRequestConfig(((Configurable) request).getConfig());
+        }
+
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer();
+        Future<ClassicHttpResponse> future = client.execute(builder.build(), consumer, context, null);
+        consumer.exchange = future;
+        if (Objects.nonNull(body)) {
+            body.exchange = future;
+            if (Objects.nonNull(body.failure)) {
+                future.cancel(true);
+            }
+        }
+        if (request instanceof CancellableDependency) {
+            // 请求被取消时重置这个流，并唤醒正在等待响应头或读取响应体的线程
+            ((CancellableDependency) request).setDependency(() -> {
+                consumer.failed(new RequestFailedException("Request aborted"));
+                return future.cancel(true);
+            });
+        }
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            if (Objects.nonNull(body) && Objects.nonNull(body.failure)) {
+                throw body.failure;
+            }
+            throw new RequestFailedException("Request aborted", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("request interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof HttpException) {
+                throw new ClientProtocolException(cause.getMessage(), cause);
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+        writers.shutdownNow();
+    }
+
+    /**
+     * 第一次需要发送数据时在 writers 上执行 writeTo，写入失败时取消交换，调用方得到写入时的异常
+     */
+    private final class BodyProducer implements AsyncEntityProducer {
+
+        private final HttpEntity entity;
+        private final SharedOutputBuffer buffer = new SharedOutputBuffer(BUFFER_SIZE);
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile Future<?> exchange;
+        private volatile IOException failure;
+
+        BodyProducer(HttpEntity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public void produce(DataStreamChannel channel) throws IOException {
+            if (started.compareAndSet(false, true)) {
+                writers.execute(() -> {
+                    // 只在写完时关闭，关闭即结束请求体，失败时不能让截断的请求体被当作完整发出
+                    OutputStream out = new ContentOutputStream(buffer);
+                    try {
+                        entity.writeTo(out);
+                        out.close();
+                    } catch (IOException | RuntimeException e) {
+                        failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                        buffer.abort();
+                        Future<?> f = exchange;
+                        if (Objects.nonNull(f)) {
+                            f.cancel(true);
+                        }
+                    }
+                });
+            }
+            buffer.flush(channel);
+        }
+
+        @Override
+        public int available() {
+            return buffer.length();
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            buffer.abort();
+        }
+
+        /** 交换结束时唤醒仍在等待发送窗口的写入线程 */
+        @Override
+        public void releaseResources() {
+            buffer.abort();
+        }
+
+        @Override
+        public long getContentLength() {
+            return entity.getContentLength();
+        }
+
+        @Override
+        public String getContentType() {
+            return entity.getContentType();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return entity.getContentEncoding();
+        }
+
+        @Override
+        public boolean isChunked() {
+            return entity.isChunked();
+        }
+
+        @Override
+        public Set<String> getTrailerNames() {
+            return null;
+        }
+    }
+
+    /**
+     * 响应头到达时交给调用方，响应体写入 {@link SharedInputBuffer} 由调用方线程读取。
+     * 响应体未读完就关闭时取消这次交换（HTTP/2 下只重置这一个流）
+     */
+    private static final class StreamingResponseConsumer implements AsyncResponseConsumer<ClassicHttpResponse> {
+
+        private final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+        private volatile Future<ClassicHttpResponse> exchange;
+        private volatile Exception failure;
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                    FutureCallback<ClassicHttpResponse> resultCallback) {
+            BasicClassicHttpResponse classic = new BasicClassicHttpResponse(response.getCode(), response.getReasonPhrase());
+            classic.setVersion(response.getVersion());
+            classic.setHeaders(response.getHeaders());
+            if (Objects.nonNull(entityDetails)) {
+                classic.setEntity(new InputStreamEntity(new Body(new ContentInputStream(buffer)),
+                        entityDetails.getContentLength(),
+                        Objects.isNull(entityDetails.getContentType()) ? null : ContentType.parseLenient(entityDetails.getContentType()),
+                        entityDetails.getContentEncoding()));
+            }
+            resultCallback.completed(classic);
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) {
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            buffer.updateCapacity(capacityChannel);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) {
+            buffer.fill(src);
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) {
+            buffer.markEndStream();
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            failure = cause;
+            buffer.abort();
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+
+        private final class Body extends FilterInputStream {
+
+            Body(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                return checked(super.read());
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return checked(super.read(b, off, len));
+            }
+
+            /** 交换失败时缓冲区被中止，读到的结束标记不能当作正常结束 */
+            private int checked(int n) throws IOException {
+                if (n < 0 && Objects.nonNull(failure)) {
+                    throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+                }
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!buffer.isEndStream() && Objects.nonNull(exchange)) {
+                    exchange.cancel(true);
+                }
+                buffer.abort();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.xdove.thridpart.fastgpt.transport;
+
+import org.xdove.thridpart.fastgpt.HttpPoolConfig;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * 基于 JDK java.net.http.HttpClient 的 {@link Transport}。
+ * 实现只存在于多版本 JAR 的 META-INF/versions/11 中，Java 8 下 {@link #isSupported()} 为 false。
+ * 等待响应和读取响应体时不持有监视器锁，在虚拟线程中调用不会固定载体线程；
+ * 同时进行的请求数不超过 {@link HttpPoolConfig#getMaxTotal()}，超过时按先后顺序等待，
+ * 最长等待 {@link HttpPoolConfig#getConnectionRequestTimeout()}。
+ */
+public final class JdkTransports {
+
+    private static final String IMPL = "org.xdove.thridpart.fastgpt.transport.JdkHttpClientTransport";
+
+    private JdkTransports() {
+    }
+
+    public static boolean isSupported() {
+        try {
+            Class.forName(IMPL);
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param pool 使用其中的 maxTotal、connectTimeout、responseTimeout、connectionRequestTimeout
+     * @throws IllegalStateException 运行在 Java 8 上，或未以多版本 JAR 的方式加载
+     */
+    public static Transport create(HttpPoolConfig pool) {
+        try {
+            return (Transport) Class.forName(IMPL).getDeclaredConstructor(HttpPoolConfig.class).newInstance(pool);
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IllegalStateException("JDK HttpClient transport requires Java 11+ and the multi-release jar", e);
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
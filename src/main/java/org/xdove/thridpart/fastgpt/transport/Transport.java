@@ -0,0 +1,18 @@
+package org.xdove.thridpart.fastgpt.transport;
+
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 阻塞请求的发送方式。
+ * 返回的响应体读完或关闭后才归还连接，调用方必须关闭响应或响应体。
+ * 请求实现 {@link org.apache.hc.core5.concurrent.CancellableDependency} 时，实现应在请求被取消后尽快中止发送和读取，
+ * 不再复用所用的连接；请求实现 {@link org.apache.hc.client5.http.config.Configurable} 时应尽量遵循其中的超时设置。
+ */
+public interface Transport extends Closeable {
+
+    ClassicHttpResponse execute(ClassicHttpRequest request) throws IOException;
+}
@@ -0,0 +1,17 @@
+package org.xdove.thridpart.fastgpt.transport;
+
+/**
+ * {@link org.xdove.thridpart.fastgpt.ServiceRequests} 内置的阻塞请求发送方式
+ */
+public enum TransportType {
+
+    /** HttpClient5 同步客户端，HTTP/1.1 连接池，每个进行中的请求占用一个连接 */
+    CLASSIC,
+    /**
+     * HttpClient5 异步客户端，HTTP/2 多路复用：同一主机的请求共享一个连接。
+     * 服务端必须支持 HTTP/2（https 通过 ALPN 协商，http 使用 h2c 直连）
+     */
+    HTTP2,
+    /** JDK java.net.http.HttpClient，不固定虚拟线程的载体线程，需要 Java 11+ */
+    JDK
+}
@@ -0,0 +1,370 @@
+package org.xdove.thridpart.fastgpt.transport;
+
+import org.apache.hc.client5.http.config.Configurable;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.RequestFailedException;
+import org.apache.hc.core5.concurrent.CancellableDependency;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.xdove.thridpart.fastgpt.HttpPoolConfig;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 由 {@link JdkTransports} 反射创建，只编译到 META-INF/versions/11。
+ * 名额在响应体关闭时归还，与连接池的租用语义一致。
+ * JDK 的请求超时只限制等待响应头，读取响应体时由看门狗按同一超时检查两次数据之间的间隔，超时后中断读取并关闭响应体。
+ */
+final class JdkHttpClientTransport implements Transport {
+
+    /** JDK HttpClient 自行管理、不允许设置的请求头 */
+    private static final Set<String> RESTRICTED = Set.of("connection", "content-length", "expect", "host", "upgrade");
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private final HttpClient client;
+    private final Semaphore permits;
+    private final HttpPoolConfig pool;
+    /** 执行请求体的 writeTo，只在管道满时阻塞 */
+    private final ExecutorService writers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "fastgpt-jdk-body");
+        t.setDaemon(true);
+        return t;
+    });
+    /** 检查响应体读取是否停滞 */
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fastgpt-jdk-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    JdkHttpClientTransport(HttpPoolConfig pool) {
+        this.pool = pool;
+        this.permits = new Semaphore(pool.getMaxTotal(), true);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(pool.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request) throws IOException {
+        Duration timeout = responseTimeout(request);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(request)).timeout(timeout);
+        for (Header header : request.getHeaders()) {
+            if (!RESTRICTED.contains(header.getName().toLowerCase(Locale.ROOT))) {
+                builder.setHeader(header.getName(), header.getValue());
+            }
+        }
+        HttpEntity entity = request.getEntity();
+        AtomicReference<InputStream> sending = new AtomicReference<>();
+        if (Objects.isNull(entity)) {
+            builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            if (!request.containsHeader(HttpHeaders.CONTENT_TYPE) && Objects.nonNull(entity.getContentType())) {
+                builder.setHeader(HttpHeaders.CONTENT_TYPE, entity.getContentType());
+            }
+            builder.method(request.getMethod(), publisher(entity, sending));
+        }
+
+        acquire();
+        CompletableFuture<HttpResponse<InputStream>> exchange = client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        exchange.whenComplete((r, t) -> closeQuietly(sending.get()));
+        AtomicReference<InputStream> body = new AtomicReference<>();
+        if (request instanceof CancellableDependency) {
+            // 取消时中止等待中的交换，已收到响应头时关闭响应体，JDK 客户端随之关闭连接
+            ((CancellableDependency) request).setDependency(() -> {
+                boolean cancelled = exchange.cancel(true);
+                InputStream in = body.get();
+                if (Objects.nonNull(in)) {
+                    try {
+                        in.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+                return cancelled || Objects.nonNull(in);
+            });
+        }
+        HttpResponse<InputStream> response;
+        try {
+            response = exchange.get();
+        } catch (CancellationException e) {
+            permits.release();
+            throw new RequestFailedException("Request aborted", e);
+        } catch (InterruptedException e) {
+            exchange.cancel(true);
+            permits.release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("request interrupted");
+        } catch (ExecutionException e) {
+            permits.release();
+            Throwable cause = e.getCause();
+            // 读取请求体失败时客户端抛出 UncheckedIOException
+            if (cause instanceof UncheckedIOException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        body.set(response.body());
+        if (request instanceof CancellableDependency && ((CancellableDependency) request).isCancelled()) {
+            response.body().close();
+        }
+        return toClassic(response, timeout);
+    }
+
+    /**
+     * 请求自带的响应超时优先，连接超时只能在创建客户端时设置
+     */
+    private Duration responseTimeout(ClassicHttpRequest request) {
+        if (request instanceof Configurable) {
+            RequestConfig config = ((Configurable) request).getConfig();
+            if (Objects.nonNull(config) && Objects.nonNull(config.getResponseTimeout()) && config.getResponseTimeout().isEnabled()) {
+                return Duration.ofMillis(config.getResponseTimeout().toMilliseconds());
+            }
+        }
+        return pool.getResponseTimeout();
+    }
+
+    /**
+     * 客户端读取请求体时才在 writers 上执行 writeTo，经管道按需传给客户端，不在内存中整体复制。
+     * writeTo 失败时读取端抛出同一异常，避免截断的请求体被当作完整发出
+     * @param sending 当前管道的读取端，交换结束时由调用方关闭以唤醒仍在等待的写入线程
+     */
+    private HttpRequest.BodyPublisher publisher(HttpEntity entity, AtomicReference<InputStream> sending) {
+        HttpRequest.BodyPublisher publisher = HttpRequest.BodyPublishers.ofInputStream(() -> {
+            PipedInputStream pipe = new PipedInputStream(PIPE_SIZE);
+            PipedOutputStream out;
+            try {
+                out = new PipedOutputStream(pipe);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            AtomicReference<IOException> failure = new AtomicReference<>();
+            writers.execute(() -> {
+                try {
+                    entity.writeTo(out);
+                } catch (IOException | RuntimeException e) {
+                    failure.set(e instanceof IOException ? (IOException) e : new IOException(e));
+                } finally {
+                    try {
+                        out.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            });
+            InputStream in = new FilterInputStream(pipe) {
+                @Override
+                public int read() throws IOException {
+                    return checked(super.read());
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return checked(super.read(b, off, len));
+                }
+
+                private int checked(int n) throws IOException {
+                    if (n < 0 && Objects.nonNull(failure.get())) {
+                        throw failure.get();
+                    }
+                    return n;
+                }
+            };
+            closeQuietly(sending.getAndSet(in));
+            return in;
+        });
+        long length = entity.getContentLength();
+        return length < 0 ? publisher : HttpRequest.BodyPublishers.fromPublisher(publisher, length);
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (Objects.nonNull(in)) {
+            try {
+                in.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private void acquire() throws IOException {
+        try {
+            if (!permits.tryAcquire(pool.getConnectionRequestTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new ConnectionRequestTimeoutException("Timeout deadline: "
+                        + pool.getConnectionRequestTimeout().toMillis() + " MILLISECONDS, actual: in-flight requests at max "
+                        + pool.getMaxTotal());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a connection");
+        }
+    }
+
+    private static URI uri(ClassicHttpRequest request) throws IOException {
+        try {
+            return request.getUri();
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private ClassicHttpResponse toClassic(HttpResponse<InputStream> response, Duration timeout) {
+        BasicClassicHttpResponse classic = new BasicClassicHttpResponse(response.statusCode());
+        response.headers().map().forEach((name, values) -> {
+            if (!name.startsWith(":")) {
+                values.forEach(v -> classic.addHeader(name, v));
+            }
+        });
+        long length = response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1);
+        ContentType contentType = response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+                .map(ContentType::parseLenient).orElse(null);
+        AtomicBoolean released = new AtomicBoolean();
+        IdleTimeoutStream body = new IdleTimeoutStream(response.body(), timeout.toNanos()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            }
+        };
+        long period = Math.max(10, Math.min(1000, timeout.toMillis() / 4));
+        body.check = watchdog.scheduleAtFixedRate(body::check, period, period, TimeUnit.MILLISECONDS);
+        classic.setEntity(new InputStreamEntity(body, length, contentType,
+                response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null)));
+        return classic;
+    }
+
+    @Override
+    public void close() {
+        // HttpClient 在 Java 21 之前没有 close，空闲连接随客户端被回收
+        writers.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * 一次读取阻塞超过 timeout 时中断读取线程（JDK 的响应体读取只响应中断），之后的读取抛出 {@link SocketTimeoutException}
+     */
+    private static class IdleTimeoutStream extends FilterInputStream {
+
+        private final long timeoutNanos;
+        private volatile ScheduledFuture<?> check;
+        /** 正在读取的线程和开始时间，由 this 保护 */
+        private Thread reader;
+        private long readingSince;
+        private boolean timedOut;
+
+        IdleTimeoutStream(InputStream in, long timeoutNanos) {
+            super(in);
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            begin();
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw timeout(e);
+            } finally {
+                end();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            begin();
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                throw timeout(e);
+            } finally {
+                end();
+            }
+        }
+
+        private synchronized void begin() throws IOException {
+            if (timedOut) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            reader = Thread.currentThread();
+            readingSince = System.nanoTime();
+        }
+
+        private synchronized void end() {
+            reader = null;
+            if (timedOut) {
+                // 清除看门狗设置的中断标记
+                Thread.interrupted();
+            }
+        }
+
+        private synchronized IOException timeout(IOException e) {
+            if (!timedOut) {
+                return e;
+            }
+            SocketTimeoutException ex = new SocketTimeoutException("Read timed out");
+            ex.initCause(e);
+            return ex;
+        }
+
+        private synchronized void check() {
+            if (Objects.nonNull(reader) && System.nanoTime() - readingSince > timeoutNanos) {
+                timedOut = true;
+                reader.interrupt();
+                check.cancel(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ScheduledFuture<?> c = check;
+            if (Objects.nonNull(c)) {
+                c.cancel(false);
+            }
+            super.close();
+        }
+    }
+}
@@ -2,9 +2,16 @@ package org.xdove.thridpart.fastgpt;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.junit.Test;
 import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.entity.Dataset;
 import org.xdove.thridpart.fastgpt.entity.PushData;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamListener;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -14,6 +21,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class ServiceRequestsTest {
 
@@ -37,6 +46,14 @@ public class ServiceRequestsTest {
         System.out.println(ret);
     }
 
+    @Test
+    public void chatCompletionsAsync() throws Exception {
+        String chatId = System.getenv("CHAT_ID");
+        List<ChatMessage> msg = Arrays.asList(new ChatMessage("hi!"));
+        Map<String, Object> ret = this.serviceRequests.chatCompletionsAsync(chatId, true, null, msg).get();
+        System.out.println(ret);
+    }
+
     @Test
     public void chatCompletionsStream() throws IOException {
         String chatId = System.getenv("CHAT_ID");
@@ -46,6 +63,57 @@ public class ServiceRequestsTest {
         is.close();
     }
 
+    @Test
+    public void chatCompletionsStreamListener() {
+        String chatId = System.getenv("CHAT_ID");
+        List<ChatMessage> msg = Arrays.asList(new ChatMessage("hi!"));
+        this.serviceRequests.chatCompletionsStream(chatId, true, null, msg, new ChatStreamListener() {
+            @Override
+            public void onEvent(ChatStreamEvent event) {
+                System.out.println(event.getType() + " " + event.getContent());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new RuntimeException(t);
+            }
+        });
+    }
+
+    @Test
+    public void chatCompletionsPublisher() throws InterruptedException {
+        String chatId = System.getenv("CHAT_ID");
+        List<ChatMessage> msg = Arrays.asList(new ChatMessage("hi!"));
+        CountDownLatch latch = new CountDownLatch(1);
+        this.serviceRequests.chatCompletionsPublisher(chatId, true, null, msg).subscribe(new Subscriber<ChatStreamEvent>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                this.subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(ChatStreamEvent event) {
+                System.out.println(event.getType() + " " + event.getContent());
+                this.subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                t.printStackTrace();
+                latch.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                latch.countDown();
+            }
+        });
+        latch.await(60, TimeUnit.SECONDS);
+    }
+
     @Test
     public void createDataset() {
         String name = "api_test";
@@ -73,6 +141,15 @@ public class ServiceRequestsTest {
         System.out.println(ret);
     }
 
+    @Test
+    public void pushDataAsync() throws Exception {
+        String collectionId = System.getenv("COLLECTION_ID");
+        String trainingType = "chunk";
+        List<PushData> data = Collections.singletonList(new PushData("hi!", "hello world!", null));
+        Map<String, Object> ret = this.serviceRequests.pushDataAsync(collectionId, trainingType, null, data).get();
+        System.out.println(ret);
+    }
+
     @Test
     public void getDataset() {
         String datasetId = System.getenv("DATASET_ID");
@@ -80,6 +157,13 @@ public class ServiceRequestsTest {
         System.out.println(ret);
     }
 
+    @Test
+    public void getDatasetTyped() {
+        String datasetId = System.getenv("DATASET_ID");
+        Response<Dataset> ret = this.serviceRequests.getDatasetTyped(datasetId);
+        System.out.println(ret);
+    }
+
     @Test
     public void getCollection() {
         String collectionId = System.getenv("COLLECTION_ID");
@@ -190,5 +274,17 @@ public class ServiceRequestsTest {
         System.out.println(ret);
     }
 
+    @Test
+    public void searchTestDatasetTyped() {
+        String datasetId = System.getenv("DATASET_ID");
+        String searchText = "hi";
+        int limit = 100;
+        int similarity = 0;
+        String searchMode = "embedding";
+        boolean usingReRank = false;
+        Response<SearchResult> ret = this.serviceRequests.searchTestDatasetTyped(datasetId, searchText, limit, similarity, searchMode, usingReRank);
+        System.out.println(ret);
+    }
+
 
 }
\ No newline at end of file
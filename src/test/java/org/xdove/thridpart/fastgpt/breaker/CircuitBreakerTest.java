@@ -0,0 +1,104 @@
+package org.xdove.thridpart.fastgpt.breaker;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.CircuitBreakerConfig;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerTest {
+
+    private static CircuitBreakerConfig.CircuitBreakerConfigBuilder config() {
+        return CircuitBreakerConfig.builder()
+                .windowSize(10)
+                .minimumCalls(4)
+                .failureRateThreshold(0.5)
+                .openDuration(Duration.ofMillis(50))
+                .halfOpenCalls(2);
+    }
+
+    @Test
+    public void opensOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config().build());
+        breaker.acquire().onResponse(200, 0);
+        breaker.acquire().onResponse(500, 0);
+        breaker.acquire().onResponse(404, 0);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquire().onError(0);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.isCallPermitted());
+        try {
+            breaker.acquire();
+            Assert.fail();
+        } catch (CircuitOpenException ignore) {
+        }
+    }
+
+    @Test
+    public void halfOpenProbes() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", config().minimumCalls(1).build());
+        CircuitBreaker.Call stale = breaker.acquire();
+        breaker.acquire().onError(0);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        TimeUnit.MILLISECONDS.sleep(60);
+        Assert.assertTrue(breaker.isCallPermitted());
+        CircuitBreaker.Call first = breaker.acquire();
+        CircuitBreaker.Call second = breaker.acquire();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        try {
+            breaker.acquire();
+            Assert.fail();
+        } catch (CircuitOpenException ignore) {
+        }
+        // 熔断前发出的请求不影响半开状态
+        stale.onError(0);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // 取消的探测归还名额
+        second.ignore();
+        CircuitBreaker.Call third = breaker.acquire();
+        first.onResponse(200, 0);
+        third.onResponse(200, 0);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void reopensOnProbeFailure() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", config().minimumCalls(1).build());
+        breaker.acquire().onResponse(503, 0);
+        TimeUnit.MILLISECONDS.sleep(60);
+        breaker.acquire().onResponse(502, 0);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.isCallPermitted());
+    }
+
+    @Test
+    public void slowCalls() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config()
+                .slowCallRateThreshold(0.5)
+                .slowCallDuration(Duration.ofMillis(100))
+                .build());
+        long slow = TimeUnit.MILLISECONDS.toNanos(200);
+        breaker.acquire().onResponse(200, 0);
+        breaker.acquire().onResponse(200, 0);
+        breaker.acquire().onResponse(200, slow);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquire().onResponse(200, slow);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void slidingWindow() {
+        CircuitBreaker breaker = new CircuitBreaker("test", config().windowSize(4).build());
+        breaker.acquire().onError(0);
+        for (int i = 0; i < 6; i++) {
+            breaker.acquire().onResponse(200, 0);
+        }
+        Assert.assertEquals(0, breaker.getFailureRate(), 0.001);
+        breaker.acquire().onError(0);
+        Assert.assertEquals(0.25, breaker.getFailureRate(), 0.001);
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
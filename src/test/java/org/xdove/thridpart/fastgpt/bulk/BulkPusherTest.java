@@ -0,0 +1,123 @@
+package org.xdove.thridpart.fastgpt.bulk;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.entity.PushData;
+import org.xdove.thridpart.fastgpt.entity.PushDataResult;
+import org.xdove.thridpart.fastgpt.entity.Response;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class BulkPusherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void batchesAndRetries() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ConcurrentHashMap<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        BulkPusher pusher = new BulkPusher(batch -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            int n = attempts.computeIfAbsent(batch.get(0).getQ(), k -> new AtomicInteger()).incrementAndGet();
+            CompletableFuture<Response<PushDataResult>> f = new CompletableFuture<>();
+            scheduler.execute(() -> {
+                inFlight.decrementAndGet();
+                if ("q0".equals(batch.get(0).getQ()) && n == 1) {
+                    f.completeExceptionally(new IllegalStateException("503"));
+                } else if ("q20".equals(batch.get(0).getQ())) {
+                    f.complete(response(500, null));
+                } else {
+                    f.complete(response(200, result(batch.size())));
+                }
+            });
+            return f;
+        }, scheduler, BulkPushOptions.builder()
+                .maxBatchSize(10)
+                .concurrency(2)
+                .maxRetries(2)
+                .retryBackoff(Duration.ofMillis(1))
+                .build());
+
+        List<PushData> data = IntStream.range(0, 35)
+                .mapToObj(i -> new PushData("q" + i, "a" + i, null))
+                .collect(Collectors.toList());
+        BulkPushResult result = pusher.push(data.iterator());
+
+        Assert.assertEquals(35, result.getTotal());
+        Assert.assertEquals(4, result.getBatches());
+        Assert.assertEquals(25, result.getInsertLen());
+        Assert.assertEquals(2, attempts.get("q0").get());
+        Assert.assertTrue(maxInFlight.get() <= 2);
+        Assert.assertFalse(result.isSuccess());
+        Assert.assertEquals(1, result.getFailures().size());
+        Assert.assertEquals(2, result.getFailures().get(0).getBatch());
+        Assert.assertEquals(3, result.getFailures().get(0).getAttempts());
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        AtomicInteger attempts = new AtomicInteger();
+        BulkPusher pusher = new BulkPusher(batch -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(response(500, null));
+        }, scheduler, BulkPushOptions.builder()
+                .maxRetries(70)
+                .retryBackoff(Duration.ofMillis(1))
+                .maxRetryBackoff(Duration.ofMillis(2))
+                .build());
+
+        long start = System.nanoTime();
+        BulkPushResult result = pusher.push(Collections.singletonList(new PushData("q", "a", null)).iterator());
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        Assert.assertEquals(71, attempts.get());
+        Assert.assertEquals(71, result.getFailures().get(0).getAttempts());
+    }
+
+    @Test
+    public void splitByBytes() {
+        AtomicInteger batches = new AtomicInteger();
+        BulkPusher pusher = new BulkPusher(batch -> {
+            batches.incrementAndGet();
+            return CompletableFuture.completedFuture(response(200, result(batch.size())));
+        }, scheduler, BulkPushOptions.builder().maxBatchBytes(900).build());
+
+        String q = String.join("", Collections.nCopies(100, "数"));
+        BulkPushResult result = pusher.push(IntStream.range(0, 6)
+                .mapToObj(i -> new PushData(q, null, null)).iterator());
+
+        Assert.assertEquals(300, BulkPusher.utf8Length(q));
+        Assert.assertEquals(6, result.getInsertLen());
+        Assert.assertEquals(3, batches.get());
+        Assert.assertTrue(result.isSuccess());
+    }
+
+    private static Response<PushDataResult> response(int code, PushDataResult data) {
+        Response<PushDataResult> r = new Response<>();
+        r.setCode(code);
+        r.setData(data);
+        return r;
+    }
+
+    private static PushDataResult result(int inserted) {
+        PushDataResult r = new PushDataResult();
+        r.setInsertLen(inserted);
+        return r;
+    }
+}
@@ -0,0 +1,121 @@
+package org.xdove.thridpart.fastgpt.bulk;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class TextChunkerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> chunks(String text, int chunkSize, String splitter) {
+        List<String> ret = new ArrayList<>();
+        new TextChunker(new StringReader(text), chunkSize, splitter).forEachRemaining(ret::add);
+        return ret;
+    }
+
+    @Test
+    public void splitterThenBoundaries() {
+        Assert.assertEquals(Arrays.asList("第一段", "第二段很长。", "第二段继续。", "第三段"),
+                chunks("第一段##第二段很长。第二段继续。##第三段", 10, "##"));
+        Assert.assertEquals(Arrays.asList("一二三四五\n六七", "八九十"),
+                chunks("一二三四五\n六七\n\n八九十", 10, null));
+        // 找不到切分位置时按长度截断，不拆开代理对
+        Assert.assertEquals(Arrays.asList("abc", "😀ab", "c"), chunks("abc😀abc", 4, null));
+        Assert.assertTrue(chunks("  \n\n  ", 10, null).isEmpty());
+    }
+
+    @Test
+    public void streamsLargeInput() {
+        long size = 32L * 1024 * 1024;
+        Reader generated = new Reader() {
+            private long remaining = size;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (remaining == 0) {
+                    return -1;
+                }
+                int n = (int) Math.min(len, remaining);
+                for (int i = 0; i < n; i++) {
+                    long pos = size - remaining + i;
+                    cbuf[off + i] = pos % 97 == 96 ? '。' : '字';
+                }
+                remaining -= n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        TextChunker chunker = new TextChunker(generated, 1000, null);
+        long chars = 0;
+        int count = 0;
+        while (chunker.hasNext()) {
+            String chunk = chunker.next();
+            Assert.assertTrue(chunk.length() <= 1000);
+            chars += chunk.length();
+            count++;
+        }
+        Assert.assertEquals(size, chars);
+        Assert.assertTrue(count > size / 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void pushTextBulkFromFile() throws Exception {
+        Path file = folder.newFile("manual.txt").toPath();
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 500; i++) {
+                w.write("第" + i + "节。本节介绍知识库的第" + i + "项功能。\n\n");
+            }
+        }
+        try (FastGptStub stub = FastGptStub.start()) {
+            ServiceRequests requests = new ServiceRequests(stub.config());
+            try {
+                String datasetId = (String) requests.createDataset(null, null, "手册", null, null, null, null).get("data");
+                String collectionId = (String) requests.createCollection(datasetId, null, "manual.txt", "virtual", null).get("data");
+                // 测试日志级别为 DEBUG，文本内容不能出现在日志中
+                ByteArrayOutputStream logs = new ByteArrayOutputStream();
+                PrintStream err = System.err;
+                System.setErr(new PrintStream(logs, true, "UTF-8"));
+                BulkPushResult result;
+                try {
+                    result = requests.pushTextBulk(collectionId, "chunk", null, file, StandardCharsets.UTF_8,
+                            200, null, BulkPushOptions.builder().maxBatchSize(20).concurrency(2).build());
+                } finally {
+                    System.setErr(err);
+                }
+                String logged = new String(logs.toByteArray(), StandardCharsets.UTF_8);
+                Assert.assertTrue(logged.contains("pushData batch=0"));
+                Assert.assertFalse(logged.contains("本节介绍知识库"));
+
+                Assert.assertTrue(result.isSuccess());
+                Assert.assertEquals(result.getTotal(), result.getInsertLen());
+                Assert.assertEquals(result.getBatches(), stub.requests(ServiceRequests.PATH_PUSH_DATA).size());
+                Map<String, Object> page = (Map<String, Object>) requests.listData(collectionId, 1, 1, null).get("data");
+                Assert.assertEquals((int) result.getTotal(), ((Number) page.get("total")).intValue());
+            } finally {
+                requests.destroy();
+            }
+        }
+    }
+}
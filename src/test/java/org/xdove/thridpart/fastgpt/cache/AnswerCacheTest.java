@@ -0,0 +1,75 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamEvents;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamReplay;
+import org.xdove.thridpart.fastgpt.sse.SSEDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AnswerCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void normalizedKey() {
+        AnswerCache cache = new AnswerCache(10, 1024, 60_000, null, "app", mapper.writer());
+        Map<String, String> v1 = new HashMap<>();
+        v1.put("b", "2");
+        v1.put("a", "1");
+        Map<String, String> v2 = new HashMap<>();
+        v2.put("a", "1");
+        v2.put("b", "2");
+
+        String k = cache.key(false, v1, Collections.singletonList(new ChatMessage(" 你好\n  世界 ")));
+        Assert.assertEquals(k, cache.key(false, v2, Collections.singletonList(new ChatMessage("你好 世界"))));
+        Assert.assertNotEquals(k, cache.key(true, v2, Collections.singletonList(new ChatMessage("你好 世界"))));
+        Assert.assertNotEquals(k, cache.key(false, v2, Collections.singletonList(new ChatMessage("你好 世界", "system"))));
+    }
+
+    @Test
+    public void persistedAcrossInstances() throws Exception {
+        byte[] body = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"答案\"}}]}".getBytes(StandardCharsets.UTF_8);
+        AnswerCache first = new AnswerCache(10, 1024, 60_000, folder.getRoot().toPath(), "app", mapper.writer());
+        String key = first.key(false, null, Arrays.asList(new ChatMessage("q")));
+        first.put(key, body);
+
+        AnswerCache second = new AnswerCache(10, 1024, 60_000, folder.getRoot().toPath(), "app", mapper.writer());
+        Assert.assertArrayEquals(body, second.get(key));
+        // 共享目录的其他应用不命中
+        AnswerCache other = new AnswerCache(10, 1024, 60_000, folder.getRoot().toPath(), "other", mapper.writer());
+        Assert.assertNotEquals(key, other.key(false, null, Arrays.asList(new ChatMessage("q"))));
+        Assert.assertNull(other.get(other.key(false, null, Arrays.asList(new ChatMessage("q")))));
+        second.clear();
+        Assert.assertNull(new AnswerCache(10, 1024, 60_000, folder.getRoot().toPath(), "app", mapper.writer()).get(key));
+    }
+
+    @Test
+    public void replayAsStream() throws Exception {
+        String completion = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"答案\"}}],\"responseData\":[{\"moduleName\":\"AI\"}]}";
+        byte[] sse = ChatStreamReplay.sse(mapper.readTree(completion), true, mapper.writer());
+        List<ChatStreamEvent> events = new ArrayList<>();
+        new SSEDecoder(new ChatStreamEvents(mapper.reader()).handler(events::add)).decode(new ByteArrayInputStream(sse));
+
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals("答案", events.get(0).getContent());
+        Assert.assertEquals(ChatStreamEvent.Type.FLOW_RESPONSES, events.get(1).getType());
+        Assert.assertEquals(ChatStreamEvent.Type.DONE, events.get(2).getType());
+    }
+}
@@ -0,0 +1,61 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void lruBySizeAndBytes() {
+        ResponseCache cache = new ResponseCache(2, 10);
+        cache.put("a", "/p", new byte[4], StandardCharsets.UTF_8, 60_000, null);
+        cache.put("b", "/p", new byte[4], StandardCharsets.UTF_8, 60_000, null);
+        Assert.assertNotNull(cache.get("a"));
+        cache.put("c", "/p", new byte[4], StandardCharsets.UTF_8, 60_000, null);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNotNull(cache.get("c"));
+
+        cache.put("d", "/p", new byte[8], StandardCharsets.UTF_8, 60_000, null);
+        CacheStats stats = cache.stats();
+        Assert.assertEquals(1, stats.getSize());
+        Assert.assertEquals(8, stats.getBytes());
+        Assert.assertEquals(3, stats.getEvictions());
+        Assert.assertEquals(3, stats.getHits());
+        Assert.assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void expiryAndInvalidation() throws InterruptedException {
+        ResponseCache cache = new ResponseCache(10, 1024);
+        cache.put("a", "/get", new byte[1], StandardCharsets.UTF_8, 1, null);
+        cache.put("b", "/get", new byte[1], StandardCharsets.UTF_8, 60_000, Collections.singletonList("/get:1"));
+        cache.put("c", "/list", new byte[1], StandardCharsets.UTF_8, 60_000, null);
+        Thread.sleep(5);
+        Assert.assertNull(cache.get("a"));
+
+        cache.invalidateTag("/get:1");
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+        cache.invalidatePath("/list");
+        Assert.assertNull(cache.get("c"));
+        Assert.assertEquals(2, cache.stats().getInvalidations());
+        Assert.assertEquals(0, cache.stats().getBytes());
+    }
+
+    @Test
+    public void staleReadAfterInvalidation() {
+        ResponseCache cache = new ResponseCache(10, 1024);
+        // 读请求发出后，同一客户端的写操作使缓存失效，读请求随后完成
+        long generation = cache.generation();
+        cache.invalidateTag("/get:1");
+        cache.put("a", "/get", new byte[1], StandardCharsets.UTF_8, 60_000, Collections.singletonList("/get:1"), generation);
+        Assert.assertNull(cache.get("a"));
+
+        cache.put("a", "/get", new byte[1], StandardCharsets.UTF_8, 60_000, null, cache.generation());
+        Assert.assertNotNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,88 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.SearchCacheConfig;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.PushData;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class SearchCacheTest {
+
+    @Test
+    public void normalizesQueryText() {
+        Assert.assertEquals("退货 政策a", SearchCache.normalize("　退货 \n 政策Ａ "));
+        Assert.assertEquals("", SearchCache.normalize(null));
+    }
+
+    @Test
+    public void skipsSearchThatRacedWithWrite() {
+        SearchCache cache = new SearchCache(10, 1024, 60_000, new ObjectMapper().reader());
+        byte[] body = "{\"code\":200,\"data\":{\"list\":[]}}".getBytes(StandardCharsets.UTF_8);
+        long generation = cache.generation();
+        cache.invalidateDataset("d1");
+        cache.put("k", "d1", body, StandardCharsets.UTF_8, generation);
+        Assert.assertNull(cache.get("k"));
+        cache.put("k", "d1", body, StandardCharsets.UTF_8, cache.generation());
+        Assert.assertNotNull(cache.get("k"));
+    }
+
+    @Test
+    public void cachesAndInvalidatesPerDataset() throws Exception {
+        try (FastGptStub stub = FastGptStub.start()) {
+            Config config = stub.config();
+            config.setSearchCache(SearchCacheConfig.builder().build());
+            ServiceRequests requests = new ServiceRequests(config);
+            try {
+                String a = (String) requests.createDataset(null, null, "售后", null, null, null, null).get("data");
+                String b = (String) requests.createDataset(null, null, "物流", null, null, null, null).get("data");
+                String ca = (String) requests.createCollection(a, null, "售后", "virtual", null).get("data");
+                String cb = (String) requests.createCollection(b, null, "物流", "virtual", null).get("data");
+                requests.pushDataTyped(ca, "chunk", null, Collections.singletonList(new PushData("退货政策", "七天无理由退货", null)));
+                requests.pushDataTyped(cb, "chunk", null, Collections.singletonList(new PushData("退货运费", "由买家承担", null)));
+
+                SearchResult first = requests.searchTestDatasetTyped(a, "退货政策", 5000, 0, "embedding", false).getData();
+                Assert.assertEquals(1, first.getList().size());
+                // 规范化后相同的查询、不同的调用方式都命中
+                Assert.assertEquals(first.getList().get(0).getId(),
+                        requests.searchTestDatasetTyped(a, "  退货政策 ", 5000, 0, "embedding", false).getData().getList().get(0).getId());
+                Assert.assertEquals(first.getList().get(0).getId(), requests.searchTestDatasetTypedAsync(a, "退货政策", 5000, 0, "embedding", false)
+                        .get(5, TimeUnit.SECONDS).getData().getList().get(0).getId());
+                Assert.assertNotNull(requests.searchTestDataset(a, "退货政策", 5000, 0, "embedding", false).get("data"));
+                Assert.assertEquals(1, stub.requests(ServiceRequests.PATH_DATASET_SEARCH_TEST).size());
+                // 参数不同不命中
+                requests.searchTestDatasetTyped(a, "退货政策", 100, 0, "embedding", false);
+                requests.searchTestDatasetTyped(b, "退货政策", 5000, 0, "embedding", false);
+                Assert.assertEquals(3, stub.requests(ServiceRequests.PATH_DATASET_SEARCH_TEST).size());
+                Assert.assertEquals(3, requests.getSearchCacheStats().getHits());
+
+                // 向 a 导入数据只使 a 的缓存失效
+                requests.pushDataTyped(ca, "chunk", null, Collections.singletonList(new PushData("退货政策补充", "生鲜不支持退货", null)));
+                Assert.assertEquals(2, requests.searchTestDatasetTyped(a, "退货政策", 5000, 0, "embedding", false).getData().getList().size());
+                requests.searchTestDatasetTyped(b, "退货政策", 5000, 0, "embedding", false);
+                Assert.assertEquals(4, stub.requests(ServiceRequests.PATH_DATASET_SEARCH_TEST).size());
+
+                // 删除搜索结果中出现过的数据，按其所属知识库失效
+                String dataId = requests.searchTestDatasetTyped(b, "退货政策", 5000, 0, "embedding", false).getData().getList().get(0).getId();
+                requests.deleteData(dataId);
+                Assert.assertTrue(requests.searchTestDatasetTyped(b, "退货政策", 5000, 0, "embedding", false).getData().getList().isEmpty());
+                requests.searchTestDatasetTyped(a, "退货政策", 5000, 0, "embedding", false);
+                Assert.assertEquals(5, stub.requests(ServiceRequests.PATH_DATASET_SEARCH_TEST).size());
+
+                // 所属知识库未知时清空全部
+                requests.updateData("unknown", "q", null, null);
+                requests.searchTestDatasetTyped(a, "退货政策", 5000, 0, "embedding", false);
+                Assert.assertEquals(6, stub.requests(ServiceRequests.PATH_DATASET_SEARCH_TEST).size());
+            } finally {
+                requests.destroy();
+            }
+        }
+    }
+}
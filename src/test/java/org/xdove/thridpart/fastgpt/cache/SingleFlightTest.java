@@ -0,0 +1,117 @@
+package org.xdove.thridpart.fastgpt.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.Dataset;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    @Test
+    public void sharesInFlightCall() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(callers.submit(() -> flights.call("a", () -> {
+                    calls.incrementAndGet();
+                    release.await();
+                    return new Object();
+                })));
+            }
+            while (flights.shared() < 7) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            Object first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Object> f : futures) {
+                Assert.assertSame(first, f.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, calls.get());
+            Assert.assertEquals(0, flights.inFlight());
+
+            // 完成后不再共享
+            Assert.assertNotSame(first, flights.call("a", Object::new));
+            try {
+                flights.call("b", () -> {
+                    throw new IllegalStateException("boom");
+                });
+                Assert.fail();
+            } catch (IllegalStateException ignore) {
+            }
+            Assert.assertEquals(0, flights.inFlight());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void asyncCallersAreIndependent() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> a = flights.callAsync("k", () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> b = flights.callAsync("k", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        a.cancel(true);
+        upstream.complete("v");
+        Assert.assertEquals("v", b.get(5, TimeUnit.SECONDS));
+        Assert.assertFalse(upstream.isCancelled());
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(0, flights.inFlight());
+    }
+
+    @Test
+    public void coalescesConcurrentReads() throws Exception {
+        try (FastGptStub stub = FastGptStub.start()) {
+            Config config = stub.config();
+            config.setCoalesceReads(true);
+            ServiceRequests requests = new ServiceRequests(config);
+            ExecutorService callers = Executors.newFixedThreadPool(10);
+            try {
+                String datasetId = (String) requests.createDataset(null, null, "测试知识库", null, null, null, null).get("data");
+                stub.latency(ServiceRequests.PATH_DATESET_GET, Duration.ofMillis(200), Duration.ZERO);
+                List<Future<Response<Dataset>>> futures = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    futures.add(callers.submit(() -> requests.getDatasetTyped(datasetId)));
+                }
+                CompletableFuture<Response<Dataset>> async = requests.getDatasetTypedAsync(datasetId);
+                for (Future<Response<Dataset>> f : futures) {
+                    Assert.assertEquals("测试知识库", f.get(5, TimeUnit.SECONDS).getData().getName());
+                }
+                Assert.assertEquals("测试知识库", async.get(5, TimeUnit.SECONDS).getData().getName());
+                Assert.assertEquals(1, stub.requests(ServiceRequests.PATH_DATESET_GET).size());
+
+                // 不同参数、不同解码方式不合并
+                requests.getDatasetTyped("missing");
+                requests.getDataset(datasetId);
+                Assert.assertEquals(3, stub.requests(ServiceRequests.PATH_DATESET_GET).size());
+            } finally {
+                callers.shutdownNow();
+                requests.destroy();
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.xdove.thridpart.fastgpt.call;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.RateLimitConfig;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+import org.xdove.thridpart.fastgpt.entity.Dataset;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class CallOptionsTest {
+
+    private static boolean causedBy(Throwable t, Class<? extends Throwable> type) {
+        for (; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void deadlineAbortsSlowCall() throws Exception {
+        try (FastGptStub stub = FastGptStub.start()) {
+            ServiceRequests requests = new ServiceRequests(stub.config());
+            try {
+                String datasetId = (String) requests.createDataset(null, null, "测试知识库", null, null, null, null).get("data");
+                stub.latency(ServiceRequests.PATH_DATESET_GET, Duration.ofSeconds(3), Duration.ZERO);
+
+                long start = System.nanoTime();
+                try {
+                    requests.withOptions(CallOptions.timeout(Duration.ofMillis(200))).getDataset(datasetId);
+                    Assert.fail();
+                } catch (RuntimeException e) {
+                    Assert.assertTrue(causedBy(e, TimeoutException.class));
+                }
+                Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+                start = System.nanoTime();
+                CompletableFuture<Response<Dataset>> async = requests.withOptions(CallOptions.timeout(Duration.ofMillis(200)))
+                        .getDatasetTypedAsync(datasetId);
+                try {
+                    async.get(5, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof TimeoutException);
+                }
+                Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+                // 已过期的调用不发出请求，默认实例不受影响
+                int sent = stub.requests(ServiceRequests.PATH_DATESET_GET).size();
+                try {
+                    requests.withOptions(CallOptions.builder().deadline(Instant.now()).build()).getDataset(datasetId);
+                    Assert.fail();
+                } catch (RuntimeException e) {
+                    Assert.assertTrue(causedBy(e, TimeoutException.class));
+                }
+                Assert.assertEquals(sent, stub.requests(ServiceRequests.PATH_DATESET_GET).size());
+                stub.latency(ServiceRequests.PATH_DATESET_GET, Duration.ZERO, Duration.ZERO);
+                Assert.assertEquals("测试知识库", requests.getDatasetTyped(datasetId).getData().getName());
+            } finally {
+                requests.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void cancelAbortsStreamingRead() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try (FastGptStub stub = FastGptStub.start()) {
+            stub.tokensPerSecond(5);
+            ServiceRequests requests = new ServiceRequests(stub.config());
+            try {
+                Cancellation cancellation = new Cancellation();
+                ServiceRequests call = requests.withOptions(CallOptions.builder().cancellation(cancellation).build());
+                InputStream in = call.chatCompletionsStream(null, false, null,
+                        Collections.singletonList(new ChatMessage("一段需要很久才能流式输出完的回答")));
+                Assert.assertTrue(in.read() >= 0);
+                timer.schedule(cancellation::cancel, 200, TimeUnit.MILLISECONDS);
+
+                long start = System.nanoTime();
+                try {
+                    byte[] buf = new byte[256];
+                    while (in.read(buf) >= 0) {
+                        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+                    }
+                } catch (IOException ignore) {
+                } finally {
+                    in.close();
+                }
+                Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+                // 已取消的句柄让后续调用立即失败
+                try {
+                    call.getDataset("any");
+                    Assert.fail();
+                } catch (RuntimeException e) {
+                    Assert.assertTrue(causedBy(e, CancellationException.class));
+                }
+                CompletableFuture<Response<Dataset>> async = call.getDatasetTypedAsync("any");
+                Assert.assertTrue(async.isCompletedExceptionally());
+
+                stub.tokensPerSecond(0);
+                Assert.assertNotNull(requests.getDataset("any"));
+            } finally {
+                requests.destroy();
+            }
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deadlineBoundsRateLimitWait() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try (FastGptStub stub = FastGptStub.start()) {
+            Config config = stub.config();
+            config.setDatasetRateLimit(RateLimitConfig.builder().permitsPerSecond(0.2).burst(1).build());
+            ServiceRequests requests = new ServiceRequests(config);
+            try {
+                Assert.assertNotNull(requests.getDataset("any"));
+                // 下一个名额要等 5 秒
+                long start = System.nanoTime();
+                try {
+                    requests.withOptions(CallOptions.timeout(Duration.ofMillis(200))).getDataset("any");
+                    Assert.fail();
+                } catch (RuntimeException e) {
+                    Assert.assertTrue(causedBy(e, TimeoutException.class));
+                }
+                Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+                Cancellation cancellation = new Cancellation();
+                timer.schedule(cancellation::cancel, 200, TimeUnit.MILLISECONDS);
+                start = System.nanoTime();
+                try {
+                    requests.withOptions(CallOptions.builder().cancellation(cancellation).build()).getDataset("any");
+                    Assert.fail();
+                } catch (RuntimeException e) {
+                    Assert.assertTrue(causedBy(e, CancellationException.class));
+                }
+                Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+                Assert.assertEquals(1, stub.requests(ServiceRequests.PATH_DATESET_GET).size());
+            } finally {
+                requests.destroy();
+            }
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelAbortsAsyncCall() throws Exception {
+        try (FastGptStub stub = FastGptStub.start()) {
+            ServiceRequests requests = new ServiceRequests(stub.config());
+            try {
+                stub.latency(ServiceRequests.PATH_DATESET_GET, Duration.ofSeconds(3), Duration.ZERO);
+                Cancellation cancellation = new Cancellation();
+                CompletableFuture<Response<Dataset>> a = requests.withOptions(CallOptions.builder().cancellation(cancellation).build())
+                        .getDatasetTypedAsync("a");
+                CompletableFuture<Response<Dataset>> b = requests.withOptions(CallOptions.builder().cancellation(cancellation).build())
+                        .getDatasetTypedAsync("b");
+                Thread.sleep(100);
+                cancellation.cancel();
+                Assert.assertTrue(a.isCancelled());
+                Assert.assertTrue(b.isCancelled());
+            } finally {
+                requests.destroy();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.xdove.thridpart.fastgpt.entity;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class ResponseDecodeTest {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    public void collectionDetail() throws IOException {
+        String json = "{\"code\":200,\"statusText\":\"\",\"data\":{\"_id\":\"c1\",\"parentId\":null," +
+                "\"datasetId\":{\"_id\":\"d1\",\"name\":\"kb\"},\"type\":\"virtual\",\"name\":\"测试\"," +
+                "\"trainingType\":\"qa\",\"chunkSize\":8000,\"rawTextLength\":40466,\"canWrite\":true}}";
+        Response<DatasetCollection> r = mapper.readValue(json, new TypeReference<Response<DatasetCollection>>() {});
+        Assert.assertEquals(200, r.getCode());
+        Assert.assertEquals("c1", r.getData().getId());
+        Assert.assertEquals("d1", r.getData().getDatasetId());
+        Assert.assertEquals(Integer.valueOf(8000), r.getData().getChunkSize());
+    }
+
+    @Test
+    public void dataPage() throws IOException {
+        String json = "{\"code\":200,\"data\":{\"pageNum\":1,\"pageSize\":10,\"total\":2,\"data\":[" +
+                "{\"_id\":\"x1\",\"q\":\"q1\",\"a\":\"a1\",\"chunkIndex\":0}," +
+                "{\"_id\":\"x2\",\"q\":\"q2\",\"a\":\"\",\"chunkIndex\":1}]}}";
+        Response<Page<DataItem>> r = mapper.readValue(json, new TypeReference<Response<Page<DataItem>>>() {});
+        Assert.assertEquals(2, r.getData().getTotal());
+        Assert.assertEquals("x2", r.getData().getData().get(1).getId());
+    }
+
+    @Test
+    public void searchScores() throws IOException {
+        String json = "{\"code\":200,\"data\":{\"list\":[" +
+                "{\"id\":\"x1\",\"q\":\"q1\",\"score\":[{\"type\":\"embedding\",\"value\":0.87,\"index\":0}]}," +
+                "{\"id\":\"x2\",\"q\":\"q2\",\"score\":0.5}],\"searchMode\":\"embedding\"}}";
+        Response<SearchResult> r = mapper.readValue(json, new TypeReference<Response<SearchResult>>() {});
+        SearchResult.Item first = r.getData().getList().get(0);
+        Assert.assertEquals("embedding", first.getScore().get(0).getType());
+        Assert.assertEquals(0.87, first.getScore().get(0).getValue(), 1e-9);
+        Assert.assertEquals(0.5, r.getData().getList().get(1).getScore().get(0).getValue(), 1e-9);
+    }
+
+    @Test
+    public void chatCompletion() throws IOException {
+        String json = "{\"id\":\"\",\"model\":\"\",\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":2,\"total_tokens\":3}," +
+                "\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"你好\"},\"finish_reason\":\"stop\",\"index\":0}]," +
+                "\"responseData\":[{\"moduleName\":\"AI 对话\",\"runningTime\":1.2}]}";
+        ChatCompletion c = mapper.readValue(json, ChatCompletion.class);
+        Assert.assertEquals("你好", c.getContent());
+        Assert.assertEquals(3, c.getUsage().getTotalTokens());
+        Assert.assertEquals("AI 对话", c.getResponseData().get(0).get("moduleName").asText());
+    }
+}
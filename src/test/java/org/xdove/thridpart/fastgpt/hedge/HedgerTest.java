@@ -0,0 +1,115 @@
+package org.xdove.thridpart.fastgpt.hedge;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.HedgeConfig;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+import org.xdove.thridpart.fastgpt.stub.Fault;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class HedgerTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void hedgeWinsAndLoserIsCancelled() throws Exception {
+        Hedger hedger = new Hedger(HedgeConfig.builder().initialDelay(Duration.ofMillis(50)).build(), scheduler);
+        List<CompletableFuture<String>> attempts = new ArrayList<>();
+        CompletableFuture<String> result = hedger.execute("/p", () -> {
+            CompletableFuture<String> f = new CompletableFuture<>();
+            attempts.add(f);
+            if (attempts.size() == 2) {
+                f.complete("hedge");
+            }
+            return f;
+        });
+        Assert.assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, attempts.size());
+        Assert.assertTrue(attempts.get(0).isCancelled());
+        Assert.assertEquals(1, hedger.getHedged());
+        Assert.assertEquals(1, hedger.getWins());
+
+        // 所有请求都失败时才失败
+        CompletableFuture<String> failed = hedger.execute("/p", () -> {
+            CompletableFuture<String> f = new CompletableFuture<>();
+            f.completeExceptionally(new IllegalStateException("boom"));
+            return f;
+        });
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertEquals(1, hedger.getHedged());
+    }
+
+    @Test
+    public void delayFollowsPercentileAndBudgetCapsHedges() throws Exception {
+        Hedger hedger = new Hedger(HedgeConfig.builder().initialDelay(Duration.ofMillis(1000)).minDelay(Duration.ofMillis(20))
+                .minSamples(10).budgetBurst(1).budgetRatio(0).build(), scheduler);
+        Assert.assertEquals(1000, hedger.delay("/p"));
+        for (int i = 0; i < 10; i++) {
+            hedger.execute("/p", () -> CompletableFuture.completedFuture("fast")).get();
+        }
+        Assert.assertEquals(20, hedger.delay("/p"));
+        Assert.assertEquals(0, hedger.getHedged());
+
+        List<CompletableFuture<String>> attempts = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            hedger.execute("/p", () -> {
+                CompletableFuture<String> f = new CompletableFuture<>();
+                attempts.add(f);
+                return f;
+            });
+        }
+        Thread.sleep(200);
+        // 预算只够一次对冲
+        Assert.assertEquals(3, attempts.size());
+        Assert.assertEquals(1, hedger.getHedged());
+        Assert.assertEquals(1, hedger.getBudgetExhausted());
+    }
+
+    @Test
+    public void hedgesSlowReads() throws Exception {
+        try (FastGptStub stub = FastGptStub.start()) {
+            Config config = stub.config();
+            config.setHedge(HedgeConfig.builder().initialDelay(Duration.ofMillis(100)).build());
+            ServiceRequests requests = new ServiceRequests(config);
+            try {
+                String datasetId = (String) requests.createDataset(null, null, "测试知识库", null, null, null, null).get("data");
+                String collectionId = (String) requests.createCollection(datasetId, null, "测试集合", "virtual", null).get("data");
+                stub.fault(Fault.slow(Duration.ofSeconds(3)).path(ServiceRequests.PATH_COLLECTION_GET).times(1));
+
+                long start = System.nanoTime();
+                Assert.assertEquals("测试集合", requests.getCollectionTyped(collectionId).getData().getName());
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Assert.assertTrue("elapsed " + elapsed, elapsed < 2000);
+                Assert.assertEquals(2, stub.requests(ServiceRequests.PATH_COLLECTION_GET).size());
+
+                // 快速返回的请求不对冲，未启用对冲的接口不受影响
+                requests.getCollection(collectionId);
+                requests.getDataset(datasetId);
+                Assert.assertEquals(3, stub.requests(ServiceRequests.PATH_COLLECTION_GET).size());
+            } finally {
+                requests.destroy();
+            }
+        }
+    }
+}
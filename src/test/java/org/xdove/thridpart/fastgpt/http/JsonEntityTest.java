@@ -0,0 +1,131 @@
+package org.xdove.thridpart.fastgpt.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.entity.PushData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JsonEntityTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void writeToIsRepeatable() throws IOException {
+        Map<String, Object> p = new HashMap<>();
+        p.put("collectionId", "c1");
+        p.put("data", Collections.singletonList(new PushData("问题", "答案", null)));
+        JsonEntity entity = new JsonEntity(p, mapper.writer(), StandardCharsets.UTF_8);
+
+        String expected = mapper.writeValueAsString(p);
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(expected, IOUtils.toString(entity.getContent(), StandardCharsets.UTF_8));
+        Assert.assertTrue(entity.isChunked());
+        Assert.assertEquals(-1, entity.getContentLength());
+    }
+
+    @Test
+    public void writeToWithCharset() throws IOException {
+        Charset gbk = Charset.forName("GBK");
+        Map<String, Object> p = Collections.singletonMap("text", "知识库");
+        JsonEntity entity = new JsonEntity(p, mapper.writer(), gbk);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        Assert.assertEquals("{\"text\":\"知识库\"}", new String(out.toByteArray(), gbk));
+        Assert.assertEquals("application/json; charset=GBK", entity.getContentType());
+    }
+
+    @Test
+    public void producerWritesIncrementally() throws IOException {
+        List<PushData> data = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            data.add(new PushData("问题" + i, "答案" + i, null));
+        }
+        Map<String, Object> p = new HashMap<>();
+        p.put("collectionId", "c1");
+        p.put("data", data);
+        JsonEntityProducer producer = new JsonEntityProducer(p, mapper.writer(), StandardCharsets.UTF_8);
+
+        String expected = mapper.writeValueAsString(p);
+        for (int i = 0; i < 2; i++) {
+            Channel channel = new Channel(100);
+            while (!channel.ended) {
+                producer.produce(channel);
+            }
+            Assert.assertEquals(expected, new String(channel.out.toByteArray(), StandardCharsets.UTF_8));
+            // 每次只序列化一条数据
+            Assert.assertTrue(channel.maxOffered < 200);
+            producer.releaseResources();
+        }
+        Assert.assertTrue(producer.isChunked());
+        Assert.assertEquals(-1, producer.getContentLength());
+        Assert.assertEquals("application/json; charset=UTF-8", producer.getContentType());
+    }
+
+    @Test
+    public void producerWithCharset() throws IOException {
+        Charset gbk = Charset.forName("GBK");
+        JsonEntityProducer producer = new JsonEntityProducer(Collections.singletonMap("text", "知识库"), mapper.writer(), gbk);
+        Channel channel = new Channel(Integer.MAX_VALUE);
+        producer.produce(channel);
+        Assert.assertTrue(channel.ended);
+        Assert.assertEquals("{\"text\":\"知识库\"}", new String(channel.out.toByteArray(), gbk));
+    }
+
+    /**
+     * 每次最多接收 limit 字节，模拟连接缓冲区写满
+     */
+    private static final class Channel implements DataStreamChannel {
+
+        private final int limit;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int maxOffered;
+        private boolean ended;
+
+        Channel(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void requestOutput() {
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            maxOffered = Math.max(maxOffered, src.remaining());
+            int n = Math.min(limit, src.remaining());
+            byte[] b = new byte[n];
+            src.get(b);
+            out.write(b, 0, n);
+            return n;
+        }
+
+        @Override
+        public void endStream() {
+            ended = true;
+        }
+
+        @Override
+        public void endStream(List<? extends Header> trailers) {
+            ended = true;
+        }
+    }
+}
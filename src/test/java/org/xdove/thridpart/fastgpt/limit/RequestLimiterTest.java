@@ -0,0 +1,158 @@
+package org.xdove.thridpart.fastgpt.limit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.RateLimitConfig;
+import org.xdove.thridpart.fastgpt.RetryConfig;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.stub.Fault;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class RequestLimiterTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void failFast() {
+        RequestLimiter limiter = new RequestLimiter("test", RateLimitConfig.builder()
+                .permitsPerSecond(1).burst(2).mode(RateLimitConfig.Mode.FAIL_FAST).build(), scheduler);
+        limiter.acquire();
+        limiter.acquire();
+        try {
+            limiter.acquire();
+            Assert.fail();
+        } catch (RateLimitedException ignore) {
+        }
+    }
+
+    @Test
+    public void maxInFlight() throws Exception {
+        RequestLimiter limiter = new RequestLimiter("test", RateLimitConfig.builder()
+                .permitsPerSecond(1000).burst(10).maxInFlight(1).build(), scheduler);
+        RequestLimiter.Permit first = limiter.acquire();
+        CompletableFuture<RequestLimiter.Permit> second = limiter.acquireAsync();
+        Assert.assertFalse(second.isDone());
+        Assert.assertEquals(1, limiter.getQueued());
+
+        first.release();
+        first.release();
+        second.get(1, TimeUnit.SECONDS).release();
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void timeoutAndCancel() throws Exception {
+        RequestLimiter limiter = new RequestLimiter("test", RateLimitConfig.builder()
+                .permitsPerSecond(1000).maxInFlight(1).mode(RateLimitConfig.Mode.TIMEOUT)
+                .timeout(Duration.ofMillis(50)).build(), scheduler);
+        limiter.acquire();
+        try {
+            limiter.acquireAsync().get(1, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RateLimitedException);
+        }
+        CompletableFuture<RequestLimiter.Permit> waiting = limiter.acquireAsync();
+        waiting.cancel(false);
+        Assert.assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    public void tokenRate() throws Exception {
+        RequestLimiter limiter = new RequestLimiter("test", RateLimitConfig.builder()
+                .permitsPerSecond(20).burst(1).build(), scheduler);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire().release();
+        }
+        // 首个令牌已在桶中，其余 4 个各约 50ms
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+    }
+
+    @Test
+    public void adaptive() {
+        RequestLimiter limiter = new RequestLimiter("test", RateLimitConfig.builder()
+                .permitsPerSecond(10).burst(10).adaptive(true).minPermitsPerSecond(2).build(), scheduler);
+        RequestLimiter.Permit a = limiter.acquire();
+        RequestLimiter.Permit b = limiter.acquire();
+        a.onResponse(429, 0);
+        Assert.assertEquals(5, limiter.getPermitsPerSecond(), 0.001);
+        // b 在衰减之前发出，不再重复衰减
+        b.onResponse(429, 0);
+        Assert.assertEquals(5, limiter.getPermitsPerSecond(), 0.001);
+
+        RequestLimiter.Permit c = limiter.acquire();
+        c.onResponse(200, 0);
+        Assert.assertEquals(5.2, limiter.getPermitsPerSecond(), 0.001);
+        c.onResponse(429, 0);
+        Assert.assertEquals(2.6, limiter.getPermitsPerSecond(), 0.001);
+    }
+
+    @Test
+    public void publisherRetryWaitsForPermit() throws Exception {
+        try (FastGptStub stub = FastGptStub.start()) {
+            Config config = stub.config();
+            config.setRetry(RetryConfig.builder().initialBackoff(Duration.ofMillis(10)).build());
+            config.setChatRateLimit(RateLimitConfig.builder().permitsPerSecond(1).burst(1).build());
+            ServiceRequests requests = new ServiceRequests(config);
+            try {
+                // 先用掉令牌，首次订阅也需要等待名额
+                requests.chatCompletionsTyped(null, false, null, Collections.singletonList(new ChatMessage("你好")));
+                stub.fault(Fault.status(503).path(ServiceRequests.PATH_CHAT_COMPLETIONS).times(1));
+                StringBuilder content = new StringBuilder();
+                CompletableFuture<Throwable> finished = new CompletableFuture<>();
+                long start = System.nanoTime();
+                requests.chatCompletionsPublisher(null, false, null, Collections.singletonList(new ChatMessage("你好")))
+                        .subscribe(new Subscriber<ChatStreamEvent>() {
+                            @Override
+                            public void onSubscribe(Subscription s) {
+                                s.request(Long.MAX_VALUE);
+                            }
+
+                            @Override
+                            public void onNext(ChatStreamEvent event) {
+                                if (event.getContent() != null) {
+                                    content.append(event.getContent());
+                                }
+                            }
+
+                            @Override
+                            public void onError(Throwable t) {
+                                finished.complete(t);
+                            }
+
+                            @Override
+                            public void onComplete() {
+                                finished.complete(null);
+                            }
+                        });
+                // 订阅不阻塞调用方
+                Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+                Assert.assertNull(finished.get(10, TimeUnit.SECONDS));
+                Assert.assertEquals("收到：你好", content.toString());
+                Assert.assertEquals(3, stub.requests(ServiceRequests.PATH_CHAT_COMPLETIONS).size());
+            } finally {
+                requests.destroy();
+            }
+        }
+    }
+}
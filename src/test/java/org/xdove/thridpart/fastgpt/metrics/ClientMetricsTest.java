@@ -0,0 +1,120 @@
+package org.xdove.thridpart.fastgpt.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.pool.PoolStats;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.metrics.micrometer.MicrometerClientMetrics;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ClientMetricsTest {
+
+    @Test
+    public void countingEntity() throws Exception {
+        AtomicLong read = new AtomicLong(-1);
+        CountingEntity entity = new CountingEntity(new ByteArrayEntity(new byte[100], ContentType.APPLICATION_JSON), read::set);
+        entity.writeTo(new ByteArrayOutputStream());
+        Assert.assertEquals(100, entity.getCount());
+
+        try (InputStream in = entity.getContent()) {
+            Assert.assertEquals(100, IOUtils.toByteArray(in).length);
+        }
+        Assert.assertEquals(100, read.get());
+    }
+
+    @Test
+    public void asyncRequestMetrics() throws Exception {
+        Map<String, Long> sizes = new ConcurrentHashMap<>();
+        Map<String, Long> responses = new ConcurrentHashMap<>();
+        List<Integer> statuses = new CopyOnWriteArrayList<>();
+        try (FastGptStub stub = FastGptStub.start()) {
+            Config config = stub.config();
+            config.setMetrics(new ClientMetrics() {
+                @Override
+                public void requestSize(String path, long bytes) {
+                    sizes.put(path, bytes);
+                }
+
+                @Override
+                public void request(String path, int status, Throwable error, long latencyNanos) {
+                    statuses.add(status);
+                }
+
+                @Override
+                public void responseSize(String path, long bytes) {
+                    responses.put(path, bytes);
+                }
+            });
+            ServiceRequests requests = new ServiceRequests(config);
+            try {
+                requests.createDatasetAsync(null, null, "测试知识库", null, null, null, null).get(5, TimeUnit.SECONDS);
+                long sent = stub.requests(ServiceRequests.PATH_DATESET_CREATE).get(0).getBody().toString().getBytes(StandardCharsets.UTF_8).length;
+                Assert.assertEquals(sent, (long) sizes.get(ServiceRequests.PATH_DATESET_CREATE));
+                // 每次调用只记录一次，响应头和响应体分开记录
+                Assert.assertEquals(Collections.singletonList(200), statuses);
+                Assert.assertTrue(responses.get(ServiceRequests.PATH_DATESET_CREATE) > 0);
+            } finally {
+                requests.destroy();
+            }
+        }
+    }
+
+    @Test
+    public void chatStreamMeter() {
+        long[] reported = new long[3];
+        ChatStreamMeter meter = new ChatStreamMeter(new ClientMetrics() {
+            @Override
+            public void chatStream(long firstTokenNanos, long durationNanos, long tokens, Throwable error) {
+                reported[0] = firstTokenNanos;
+                reported[1] = durationNanos;
+                reported[2] += tokens;
+            }
+        }, true);
+        meter.onEvent(new ChatStreamEvent(ChatStreamEvent.Type.FLOW_NODE_STATUS, "flowNodeStatus", null, null));
+        meter.onEvent(new ChatStreamEvent(ChatStreamEvent.Type.ANSWER, "answer", "你", null));
+        meter.onEvent(new ChatStreamEvent(ChatStreamEvent.Type.ANSWER, "answer", "好", null));
+        meter.onEvent(new ChatStreamEvent(ChatStreamEvent.Type.DONE, null, null, null));
+        meter.end(null);
+        meter.end(new IllegalStateException());
+
+        Assert.assertTrue(reported[0] >= 0);
+        Assert.assertTrue(reported[1] >= reported[0]);
+        Assert.assertEquals(2, reported[2]);
+    }
+
+    @Test
+    public void micrometer() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerClientMetrics metrics = new MicrometerClientMetrics(registry);
+        metrics.request("/api/v1/chat/completions", 200, null, 5_000_000);
+        metrics.request("/api/v1/chat/completions", 200, null, 7_000_000);
+        metrics.request("/api/v1/chat/completions", 0, new java.net.SocketTimeoutException(), 1_000_000);
+        metrics.responseSize("/api/v1/chat/completions", 128);
+        metrics.chatStream(1_000_000, 1_001_000_000, 50, null);
+        metrics.bindPool("sync", () -> new PoolStats(2, 1, 3, 10));
+
+        Assert.assertEquals(2, registry.get("fastgpt.requests").tag("outcome", "SUCCESS").timer().count());
+        Assert.assertEquals(1, registry.get("fastgpt.requests").tag("outcome", "SocketTimeoutException").timer().count());
+        Assert.assertEquals(128, registry.get("fastgpt.response.size").summary().totalAmount(), 0.001);
+        Assert.assertEquals(50, registry.get("fastgpt.chat.tokens.rate").summary().mean(), 0.001);
+        Assert.assertEquals(2, registry.get("fastgpt.pool.leased").tag("client", "sync").gauge().value(), 0.001);
+        Assert.assertEquals(1, registry.get("fastgpt.pool.pending").gauge().value(), 0.001);
+    }
+}
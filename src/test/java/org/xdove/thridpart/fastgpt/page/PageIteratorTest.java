@@ -0,0 +1,82 @@
+package org.xdove.thridpart.fastgpt.page;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.entity.Page;
+import org.xdove.thridpart.fastgpt.entity.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class PageIteratorTest {
+
+    @Test
+    public void stopsAtTotalAndPrefetches() {
+        List<Integer> requested = new ArrayList<>();
+        PageIterator<Integer> it = new PageIterator<>(pageNum -> {
+            requested.add(pageNum);
+            return CompletableFuture.completedFuture(page(pageNum, 10, 95));
+        }, 10, 3);
+
+        Assert.assertTrue(requested.isEmpty());
+        Assert.assertEquals(Integer.valueOf(0), it.next());
+        Assert.assertEquals(4, requested.size());
+
+        List<Integer> all = new ArrayList<>();
+        all.add(0);
+        it.forEachRemaining(all::add);
+        Assert.assertEquals(IntStream.range(0, 95).boxed().collect(Collectors.toList()), all);
+        Assert.assertEquals(IntStream.rangeClosed(1, 10).boxed().collect(Collectors.toList()), requested);
+    }
+
+    @Test
+    public void closeCancelsPrefetch() {
+        List<CompletableFuture<Response<Page<Integer>>>> futures = new ArrayList<>();
+        PageIterator<Integer> it = new PageIterator<>(pageNum -> {
+            CompletableFuture<Response<Page<Integer>>> f = pageNum == 1
+                    ? CompletableFuture.completedFuture(page(1, 10, 100)) : new CompletableFuture<>();
+            futures.add(f);
+            return f;
+        }, 10, 2);
+
+        try (Stream<Integer> s = it.stream()) {
+            Assert.assertEquals(5, s.limit(5).count());
+        }
+        Assert.assertEquals(3, futures.size());
+        Assert.assertTrue(futures.get(1).isCancelled());
+        Assert.assertTrue(futures.get(2).isCancelled());
+        Assert.assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void followsServerPageSize() {
+        List<Integer> requested = new ArrayList<>();
+        // 请求每页 50 条，服务端只返回 30 条
+        PageIterator<Integer> it = new PageIterator<>(pageNum -> {
+            requested.add(pageNum);
+            return CompletableFuture.completedFuture(page(pageNum, PageIterator.MAX_PAGE_SIZE, 95));
+        }, 50, PageIterator.DEFAULT_PREFETCH);
+
+        List<Integer> all = new ArrayList<>();
+        it.forEachRemaining(all::add);
+        Assert.assertEquals(IntStream.range(0, 95).boxed().collect(Collectors.toList()), all);
+        Assert.assertEquals(IntStream.rangeClosed(1, 4).boxed().collect(Collectors.toList()), requested);
+    }
+
+    private static Response<Page<Integer>> page(int pageNum, int pageSize, int total) {
+        Page<Integer> page = new Page<>();
+        page.setPageNum(pageNum);
+        page.setPageSize(pageSize);
+        page.setTotal(total);
+        int from = (pageNum - 1) * pageSize;
+        page.setData(IntStream.range(from, Math.min(from + pageSize, total)).boxed().collect(Collectors.toList()));
+        Response<Page<Integer>> r = new Response<>();
+        r.setCode(200);
+        r.setData(page);
+        return r;
+    }
+}
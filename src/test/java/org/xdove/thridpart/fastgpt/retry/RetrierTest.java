@@ -0,0 +1,63 @@
+package org.xdove.thridpart.fastgpt.retry;
+
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.RetryConfig;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+
+public class RetrierTest {
+
+    @Test
+    public void idempotency() {
+        Retrier retrier = new Retrier(RetryConfig.builder().build());
+        BasicHttpResponse badGateway = new BasicHttpResponse(502);
+        BasicHttpResponse unavailable = new BasicHttpResponse(503);
+
+        Assert.assertTrue(retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, badGateway, null) >= 0);
+        Assert.assertTrue(retrier.delay(1, Retrier.Idempotency.BEFORE_RESPONSE_BODY, badGateway, null) >= 0);
+        Assert.assertEquals(-1, retrier.delay(1, Retrier.Idempotency.NON_IDEMPOTENT, badGateway, null));
+        Assert.assertTrue(retrier.delay(1, Retrier.Idempotency.NON_IDEMPOTENT, unavailable, null) >= 0);
+        Assert.assertEquals(-1, retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, new BasicHttpResponse(500), null));
+
+        Assert.assertTrue(retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, null, new SocketTimeoutException()) >= 0);
+        Assert.assertEquals(-1, retrier.delay(1, Retrier.Idempotency.BEFORE_RESPONSE_BODY, null, new SocketTimeoutException()));
+        Assert.assertTrue(retrier.delay(1, Retrier.Idempotency.NON_IDEMPOTENT, null, new ConnectException()) >= 0);
+        Assert.assertEquals(-1, retrier.delay(3, Retrier.Idempotency.IDEMPOTENT, badGateway, null));
+    }
+
+    @Test
+    public void backoffAndRetryAfter() {
+        Retrier retrier = new Retrier(RetryConfig.builder()
+                .initialBackoff(Duration.ofMillis(100))
+                .jitter(0)
+                .maxAttempts(10)
+                .maxRetryAfter(Duration.ofSeconds(5))
+                .build());
+        BasicHttpResponse response = new BasicHttpResponse(503);
+        Assert.assertEquals(100, retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, response, null));
+        Assert.assertEquals(400, retrier.delay(3, Retrier.Idempotency.IDEMPOTENT, response, null));
+
+        response.setHeader("Retry-After", "2");
+        Assert.assertEquals(2000, retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, response, null));
+        response.setHeader("Retry-After", "60");
+        Assert.assertEquals(-1, retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, response, null));
+    }
+
+    @Test
+    public void budget() {
+        Retrier retrier = new Retrier(RetryConfig.builder().budgetBurst(2).budgetRatio(0.5).build());
+        BasicHttpResponse response = new BasicHttpResponse(503);
+        Assert.assertTrue(retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, response, null) >= 0);
+        Assert.assertTrue(retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, response, null) >= 0);
+        Assert.assertEquals(-1, retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, response, null));
+        retrier.onRequest();
+        retrier.onRequest();
+        Assert.assertTrue(retrier.delay(1, Retrier.Idempotency.IDEMPOTENT, response, null) >= 0);
+        Assert.assertEquals(3, retrier.getRetries());
+        Assert.assertEquals(1, retrier.getBudgetExhausted());
+    }
+}
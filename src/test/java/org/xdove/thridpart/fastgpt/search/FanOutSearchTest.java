@@ -0,0 +1,132 @@
+package org.xdove.thridpart.fastgpt.search;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.PushData;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+public class FanOutSearchTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static SearchResult.Item item(String id, String datasetId, String type, double value) {
+        SearchResult.Item item = new SearchResult.Item();
+        item.setId(id);
+        item.setDatasetId(datasetId);
+        SearchResult.Score score = new SearchResult.Score(value);
+        score.setType(type);
+        item.setScore(Collections.singletonList(score));
+        return item;
+    }
+
+    private static CompletableFuture<Response<SearchResult>> done(SearchResult.Item... items) {
+        SearchResult data = new SearchResult();
+        data.setList(Arrays.asList(items));
+        Response<SearchResult> r = new Response<>();
+        r.setCode(200);
+        r.setData(data);
+        return CompletableFuture.completedFuture(r);
+    }
+
+    @Test
+    public void mergesAndReturnsPartialResultsAtDeadline() throws Exception {
+        CompletableFuture<Response<SearchResult>> slow = new CompletableFuture<>();
+        Map<String, CompletableFuture<Response<SearchResult>>> calls = new HashMap<>();
+        calls.put("a", done(item("1", "a", "embedding", 0.9), item("2", "a", "embedding", 0.5)));
+        calls.put("b", done(item("2", "b", "embedding", 0.7), item("3", "b", "embedding", 0.6)));
+        calls.put("c", slow);
+        CompletableFuture<Response<SearchResult>> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("boom"));
+        calls.put("d", failed);
+
+        long start = System.nanoTime();
+        MultiSearchResult result = new FanOutSearch(calls::get, scheduler)
+                .search(Arrays.asList("a", "b", "c", "d", "a"), 3, Duration.ofMillis(200)).get(5, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        Assert.assertTrue(elapsed >= 190 && elapsed < 2000);
+        Assert.assertEquals(Arrays.asList("1", "2", "3"),
+                result.getList().stream().map(SearchResult.Item::getId).collect(Collectors.toList()));
+        // 重复的数据保留得分高的一份
+        Assert.assertEquals("b", result.getList().get(1).getDatasetId());
+        Assert.assertEquals(2, result.getSearched());
+        Assert.assertFalse(result.isComplete());
+        Assert.assertEquals(2, result.getFailures().size());
+        Assert.assertEquals("c", result.getFailures().get(0).getDatasetId());
+        Assert.assertTrue(result.getFailures().get(0).getCause() instanceof TimeoutException);
+        Assert.assertTrue(slow.isCancelled());
+        Assert.assertEquals("d", result.getFailures().get(1).getDatasetId());
+        Assert.assertTrue(result.getFailures().get(1).getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void prefersRerankScore() {
+        SearchResult.Item item = item("1", "a", "embedding", 0.2);
+        SearchResult.Score rerank = new SearchResult.Score(0.8);
+        rerank.setType("reRank");
+        item.setScore(Arrays.asList(item.getScore().get(0), rerank));
+        Assert.assertEquals(0.8, FanOutSearch.score(item), 0);
+        Assert.assertEquals(0, FanOutSearch.score(new SearchResult.Item()), 0);
+    }
+
+    @Test
+    public void searchesDatasetsConcurrently() throws Exception {
+        try (FastGptStub stub = FastGptStub.start()) {
+            ServiceRequests requests = new ServiceRequests(stub.config());
+            try {
+                List<String> datasetIds = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    String datasetId = (String) requests.createDataset(null, null, "知识库" + i, null, null, null, null).get("data");
+                    String collectionId = (String) requests.createCollection(datasetId, null, "c" + i, "virtual", null).get("data");
+                    requests.pushDataTyped(collectionId, "chunk", null, Arrays.asList(
+                            new PushData("知识库" + i + "的退货政策", "七天无理由退货", null),
+                            new PushData("知识库" + i + "的发货时间", "四十八小时内发货", null)));
+                    datasetIds.add(datasetId);
+                }
+                stub.latency(ServiceRequests.PATH_DATASET_SEARCH_TEST, Duration.ofMillis(300), Duration.ZERO);
+
+                long start = System.nanoTime();
+                MultiSearchResult result = requests.searchTestDatasets(datasetIds, "退货政策", 5000, 0, "embedding", false, 3, Duration.ofSeconds(5));
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                Assert.assertTrue(result.isComplete());
+                Assert.assertEquals(4, result.getSearched());
+                Assert.assertEquals(3, result.getList().size());
+                for (int i = 1; i < result.getList().size(); i++) {
+                    Assert.assertTrue(FanOutSearch.score(result.getList().get(i - 1)) >= FanOutSearch.score(result.getList().get(i)));
+                }
+                for (SearchResult.Item item : result.getList()) {
+                    Assert.assertTrue(item.getQ().contains("退货政策"));
+                }
+                Assert.assertEquals(4, stub.requests(ServiceRequests.PATH_DATASET_SEARCH_TEST).size());
+                // 串行需要 1200ms 以上
+                Assert.assertTrue("elapsed " + elapsed, elapsed < 1000);
+            } finally {
+                requests.destroy();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.xdove.thridpart.fastgpt.sse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ChatStreamPublisherTest {
+
+    private static ByteBuffer events(String... contents) {
+        StringBuilder sb = new StringBuilder();
+        for (String c : contents) {
+            sb.append("data: {\"choices\":[{\"delta\":{\"content\":\"").append(c).append("\"}}]}\n\n");
+        }
+        return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void withholdsCapacityWithoutDemand() throws Exception {
+        AtomicReference<AsyncResponseConsumer<Void>> consumer = new AtomicReference<>();
+        ChatStreamPublisher publisher = new ChatStreamPublisher(c -> {
+            consumer.set(c);
+            return new CompletableFuture<>();
+        }, new ChatStreamEvents(new ObjectMapper().reader()), 1024, 2);
+
+        List<String> received = new ArrayList<>();
+        AtomicReference<Subscription> subscription = new AtomicReference<>();
+        boolean[] completed = new boolean[1];
+        publisher.subscribe(new Subscriber<ChatStreamEvent>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription.set(s);
+            }
+
+            @Override
+            public void onNext(ChatStreamEvent event) {
+                received.add(event.getContent());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                Assert.fail(String.valueOf(t));
+            }
+
+            @Override
+            public void onComplete() {
+                completed[0] = true;
+            }
+        });
+
+        // 手动驱动连接：每次 update 记录一次授予的读取容量
+        List<Integer> grants = new ArrayList<>();
+        AsyncResponseConsumer<Void> c = consumer.get();
+        c.consumeResponse(new BasicHttpResponse(200), new BasicEntityDetails(-1, ContentType.TEXT_EVENT_STREAM), null,
+                new FutureCallback<Void>() {
+                    @Override
+                    public void completed(Void result) {
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                    }
+
+                    @Override
+                    public void cancelled() {
+                    }
+                });
+        c.updateCapacity(grants::add);
+        Assert.assertEquals(Collections.singletonList(1024), grants);
+
+        // 没有需求，积压达到 maxQueued 后不再申请读取
+        c.consume(events("a", "b", "c"));
+        c.updateCapacity(grants::add);
+        Assert.assertEquals(1, grants.size());
+        Assert.assertTrue(received.isEmpty());
+
+        // 订阅者请求后积压降到上限以下，恢复读取
+        subscription.get().request(2);
+        Assert.assertEquals(Arrays.asList("a", "b"), received);
+        Assert.assertEquals(2, grants.size());
+
+        c.streamEnd(null);
+        Assert.assertFalse(completed[0]);
+        subscription.get().request(Long.MAX_VALUE);
+        Assert.assertEquals(3, received.size());
+        Assert.assertTrue(completed[0]);
+    }
+}
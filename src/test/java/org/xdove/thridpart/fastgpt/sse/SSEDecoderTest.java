@@ -0,0 +1,61 @@
+package org.xdove.thridpart.fastgpt.sse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SSEDecoderTest {
+
+    private static final String STREAM = "event: flowNodeStatus\r\n" +
+            "data: {\"status\":\"running\",\"name\":\"AI 对话\"}\r\n" +
+            "\r\n" +
+            ": comment\n" +
+            "event: answer\n" +
+            "data: {\"choices\":[{\"delta\":{\"content\":\"你好\"}}]}\n" +
+            "\n" +
+            "data: {\"choices\":[{\"delta\":{\"content\":\"!\"}}]}\n" +
+            "\n" +
+            "event: flowResponses\n" +
+            "data: [{\"moduleName\":\"AI 对话\",\n" +
+            "data: \"runningTime\":1.2}]\n" +
+            "\n" +
+            "event: answer\n" +
+            "data: [DONE]\n" +
+            "\n";
+
+    @Test
+    public void decodeChunkBoundaries() throws IOException {
+        byte[] bytes = STREAM.getBytes(StandardCharsets.UTF_8);
+        for (int size = 1; size <= bytes.length; size += 7) {
+            List<String> events = new ArrayList<>();
+            new SSEDecoder((e, d) -> events.add(e + "|" + d))
+                    .decode(new ByteArrayInputStream(bytes), size);
+            Assert.assertEquals(5, events.size());
+            Assert.assertEquals("flowNodeStatus|{\"status\":\"running\",\"name\":\"AI 对话\"}", events.get(0));
+            Assert.assertEquals("null|{\"choices\":[{\"delta\":{\"content\":\"!\"}}]}", events.get(2));
+            Assert.assertEquals("flowResponses|[{\"moduleName\":\"AI 对话\",\n\"runningTime\":1.2}]", events.get(3));
+        }
+    }
+
+    @Test
+    public void typedEvents() throws IOException {
+        ChatStreamEvents parser = new ChatStreamEvents(new ObjectMapper().reader());
+        List<ChatStreamEvent> events = new ArrayList<>();
+        new SSEDecoder(parser.handler(events::add))
+                .decode(new ByteArrayInputStream(STREAM.getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(ChatStreamEvent.Type.FLOW_NODE_STATUS, events.get(0).getType());
+        Assert.assertEquals("running", events.get(0).getData().get("status").asText());
+        Assert.assertEquals("你好", events.get(1).getContent());
+        Assert.assertEquals(ChatStreamEvent.Type.ANSWER, events.get(2).getType());
+        Assert.assertEquals(ChatStreamEvent.Type.FLOW_RESPONSES, events.get(3).getType());
+        Assert.assertEquals(ChatStreamEvent.Type.DONE, events.get(4).getType());
+    }
+}
@@ -0,0 +1,823 @@
+package org.xdove.thridpart.fastgpt.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.io.IOUtils;
+import org.xdove.thridpart.fastgpt.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.xdove.thridpart.fastgpt.ServiceRequests.*;
+
+/**
+ * 进程内的 FastGPT OpenAPI 桩服务，仅用于测试。
+ * 知识库、集合、数据保存在内存中，覆盖 ServiceRequests 的全部 PATH_* 接口，资源不存在时与 FastGPT 一致返回 500；
+ * 支持流式对话的输出速率、延迟注入和故障注入（错误码、429、断开连接、流中断、个别慢请求），并记录收到的请求。
+ * <pre>
+ * try (FastGptStub stub = FastGptStub.start()) {
+ *     stub.tokensPerSecond(50).fault(Fault.rateLimited(Duration.ofSeconds(1)).times(1));
+ *     ServiceRequests requests = new ServiceRequests(stub.config());
+ * }
+ * </pre>
+ */
+public class FastGptStub implements AutoCloseable {
+
+    public static final String KEY = "stub-key";
+    public static final String CHAT_KEY = "stub-chat-key";
+
+    static {
+        // 默认开启 Nagle，响应头和响应体分两次写出时会等待延迟确认，使每次请求多出约 40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<Fault> faults = new CopyOnWriteArrayList<>();
+    private final Map<String, Duration[]> latencies = new ConcurrentHashMap<>();
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicLong ids = new AtomicLong();
+    private Random random = new Random(0);
+
+    private volatile Function<String, String> answer = q -> "收到：" + q;
+    private volatile double tokensPerSecond;
+    private volatile int tokenLength = 2;
+
+    /** 知识库、集合、数据，按插入顺序列出 */
+    private final Object store = new Object();
+    private final Map<String, ObjectNode> datasets = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> collections = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> data = new LinkedHashMap<>();
+
+    private FastGptStub(int port) throws IOException {
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fastgpt-stub");
+            t.setDaemon(true);
+            return t;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /** 在随机端口启动 */
+    public static FastGptStub start() throws IOException {
+        return new FastGptStub(0);
+    }
+
+    public static FastGptStub start(int port) throws IOException {
+        return new FastGptStub(port);
+    }
+
+    public String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /** 指向本桩服务的配置，可继续设置重试、限流等 */
+    public Config config() {
+        return new Config(url(), KEY, CHAT_KEY, "UTF-8", "v1");
+    }
+
+    /** 对话的回答，参数为最后一条消息的内容，默认回显 */
+    public FastGptStub answer(Function<String, String> answer) {
+        this.answer = answer;
+        return this;
+    }
+
+    public FastGptStub answer(String answer) {
+        return answer(q -> answer);
+    }
+
+    /** 流式对话每秒输出的片段数，0 表示不限速 */
+    public FastGptStub tokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+        return this;
+    }
+
+    /** 流式对话每个片段的字符数 */
+    public FastGptStub tokenLength(int tokenLength) {
+        this.tokenLength = Math.max(1, tokenLength);
+        return this;
+    }
+
+    /**
+     * 在处理请求前等待 fixed + [0, jitter) 的时间
+     * @param path PATH_* 常量，null 表示所有路径，具体路径的设置优先
+     */
+    public FastGptStub latency(String path, Duration fixed, Duration jitter) {
+        latencies.put(Objects.isNull(path) ? "" : path, new Duration[]{fixed, jitter});
+        return this;
+    }
+
+    /** 按添加顺序匹配，每个请求最多触发一个故障 */
+    public FastGptStub fault(Fault fault) {
+        faults.add(fault);
+        return this;
+    }
+
+    /** 故障概率和延迟抖动使用的随机数种子 */
+    public FastGptStub seed(long seed) {
+        synchronized (this) {
+            this.random = new Random(seed);
+        }
+        return this;
+    }
+
+    /** 清除故障、延迟和请求记录，不清除数据 */
+    public void reset() {
+        faults.clear();
+        latencies.clear();
+        requests.clear();
+    }
+
+    /** 收到的全部请求，包括被故障拦截的请求 */
+    public List<Request> requests() {
+        return new ArrayList<>(requests);
+    }
+
+    public List<Request> requests(String path) {
+        return requests.stream().filter(r -> r.getPath().equals(path)).collect(Collectors.toList());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /** 收到的请求 */
+    @Getter
+    @AllArgsConstructor
+    public static class Request {
+        private final String method;
+        private final String path;
+        private final Map<String, String> query;
+        /** 请求体，没有请求体时为 null */
+        private final JsonNode body;
+        private final Map<String, String> headers;
+
+        /** @param name 小写的请求头名称 */
+        public String header(String name) {
+            return headers.get(name.toLowerCase());
+        }
+    }
+
+    private static class StubException extends RuntimeException {
+        private final int status;
+
+        StubException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private synchronized double nextRandom() {
+        return random.nextDouble();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        byte[] raw = IOUtils.toByteArray(exchange.getRequestBody());
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        JsonNode body = raw.length == 0 ? null : mapper.readTree(raw);
+        Map<String, String> headers = new HashMap<>();
+        exchange.getRequestHeaders().forEach((k, v) -> headers.put(k.toLowerCase(), v.get(0)));
+        requests.add(new Request(exchange.getRequestMethod(), path, query, body, headers));
+
+        try {
+            delay(path);
+            String expected = "Bearer " + (PATH_CHAT_COMPLETIONS.equals(path) ? CHAT_KEY : KEY);
+            if (!expected.equals(headers.get("authorization"))) {
+                throw new StubException(401, "unAuthorization");
+            }
+            ObjectNode params = mapper.createObjectNode();
+            query.forEach(params::put);
+            if (Objects.nonNull(body) && body.isObject()) {
+                params.setAll((ObjectNode) body);
+            }
+            boolean stream = PATH_CHAT_COMPLETIONS.equals(path) && params.path("stream").asBoolean();
+            Fault fault = fault(path, stream);
+            if (Objects.nonNull(fault) && fault.kind == Fault.Kind.DISCONNECT) {
+                // 尚未发送响应头时关闭交换会直接关闭连接
+                exchange.close();
+                return;
+            }
+            if (Objects.nonNull(fault) && fault.kind == Fault.Kind.DELAY) {
+                sleep(fault.delay.toNanos());
+                fault = null;
+            }
+            if (Objects.nonNull(fault) && fault.kind == Fault.Kind.STATUS) {
+                if (Objects.nonNull(fault.retryAfter)) {
+                    exchange.getResponseHeaders().set("Retry-After", String.valueOf(fault.retryAfter.getSeconds()));
+                }
+                throw new StubException(fault.status, fault.status == 429 ? "Too Many Requests" : "injected fault");
+            }
+            if (stream) {
+                chatStream(exchange, params, Objects.isNull(fault) ? -1 : fault.afterEvents);
+                return;
+            }
+            if (PATH_CHAT_COMPLETIONS.equals(path)) {
+                // 对话接口直接返回 OpenAI 结构，不包装 code/data
+                write(exchange, 200, chat(params));
+                return;
+            }
+            ok(exchange, route(path, params));
+        } catch (StubException e) {
+            ObjectNode resp = mapper.createObjectNode()
+                    .put("code", e.status)
+                    .put("statusText", e.getMessage())
+                    .put("message", e.getMessage());
+            resp.putNull("data");
+            write(exchange, e.status, resp);
+        }
+    }
+
+    private void delay(String path) {
+        Duration[] latency = latencies.getOrDefault(path, latencies.get(""));
+        if (Objects.isNull(latency)) {
+            return;
+        }
+        sleep(latency[0].toNanos() + (long) (nextRandom() * latency[1].toNanos()));
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Fault fault(String path, boolean stream) {
+        for (Fault fault : faults) {
+            if (fault.kind == Fault.Kind.ABORT_STREAM && !stream) {
+                continue;
+            }
+            if (fault.matches(path, nextRandom())) {
+                return fault;
+            }
+        }
+        return null;
+    }
+
+    private JsonNode route(String path, ObjectNode p) {
+        switch (path) {
+            case PATH_DATESET_CREATE:
+                return createDataset(p);
+            case PATH_DATESET_LIST:
+                return listDataset(p);
+            case PATH_DATESET_GET:
+                return get(datasets, p, "Dataset");
+            case PATH_DATESET_DELETE:
+                return deleteDataset(p);
+            case PATH_COLLECTION_CREATE:
+                return TextNode.valueOf(createCollection(p, p.path("type").asText("virtual"), null).path("_id").asText());
+            case PATH_TEXT_COLLECTION_CREATE:
+                return createTextCollection(p);
+            case PATH_LINK_COLLECTION_CREATE:
+                return mapper.createObjectNode().put("collectionId",
+                        createCollection(p, "link", p.path("link").asText()).path("_id").asText());
+            case PATH_COLLECTION_GET:
+                return getCollection(p);
+            case PATH_COLLECTION_LIST:
+                return listCollection(p);
+            case PATH_COLLECTION_PUT:
+                return updateCollection(p);
+            case PATH_COLLECTION_DELETE:
+                return deleteCollection(p);
+            case PATH_PUSH_DATA:
+                return pushData(p);
+            case PATH_DATA_LIST:
+                return listData(p);
+            case PATH_DATA_GET:
+                return get(data, p, "Data");
+            case PATH_DATA_UPDATE:
+                return updateData(p);
+            case PATH_DATA_DELETE:
+                return deleteData(p);
+            case PATH_DATASET_SEARCH_TEST:
+                return searchTest(p);
+            default:
+                throw new StubException(404, "No route " + path);
+        }
+    }
+
+    private String nextId() {
+        return String.format("%024x", ids.incrementAndGet());
+    }
+
+    private String require(ObjectNode p, String field) {
+        String value = p.path(field).asText(null);
+        if (Objects.isNull(value) || value.isEmpty()) {
+            throw new StubException(400, field + " is required");
+        }
+        return value;
+    }
+
+    private ObjectNode find(Map<String, ObjectNode> items, String id, String name) {
+        ObjectNode item = items.get(id);
+        if (Objects.isNull(item)) {
+            throw new StubException(500, name + " not found");
+        }
+        return item;
+    }
+
+    private JsonNode get(Map<String, ObjectNode> items, ObjectNode p, String name) {
+        synchronized (store) {
+            return find(items, require(p, "id"), name).deepCopy();
+        }
+    }
+
+    private JsonNode createDataset(ObjectNode p) {
+        ObjectNode dataset = mapper.createObjectNode();
+        String id = nextId();
+        dataset.put("_id", id);
+        dataset.set("parentId", p.path("parentId").isMissingNode() ? null : p.get("parentId"));
+        dataset.put("teamId", "stub-team").put("tmbId", "stub-tmb")
+                .put("type", p.path("type").asText("dataset"))
+                .put("status", "active")
+                .put("avatar", p.path("avatar").asText("/icon/logo.svg"))
+                .put("name", require(p, "name"))
+                .put("intro", p.path("intro").asText(""));
+        dataset.putObject("vectorModel").put("model", p.path("vectorModel").asText("text-embedding-ada-002"));
+        dataset.putObject("agentModel").put("model", p.path("agentModel").asText("gpt-3.5-turbo-16k"));
+        dataset.put("updateTime", Instant.now().toString());
+        synchronized (store) {
+            datasets.put(id, dataset);
+        }
+        return TextNode.valueOf(id);
+    }
+
+    private JsonNode listDataset(ObjectNode p) {
+        String parentId = p.path("parentId").asText(null);
+        ArrayNode list = mapper.createArrayNode();
+        synchronized (store) {
+            datasets.values().stream()
+                    .filter(d -> Objects.equals(parentId, d.path("parentId").asText(null)))
+                    .forEach(d -> list.add(d.deepCopy()));
+        }
+        return list;
+    }
+
+    private JsonNode deleteDataset(ObjectNode p) {
+        synchronized (store) {
+            String id = find(datasets, require(p, "id"), "Dataset").path("_id").asText();
+            datasets.remove(id);
+            removeIf(collections, c -> id.equals(c.path("datasetId").asText()));
+            removeIf(data, d -> id.equals(d.path("datasetId").asText()));
+        }
+        return null;
+    }
+
+    private ObjectNode createCollection(ObjectNode p, String type, String sourceName) {
+        synchronized (store) {
+            ObjectNode dataset = find(datasets, require(p, "datasetId"), "Dataset");
+            ObjectNode collection = mapper.createObjectNode();
+            String id = nextId();
+            String now = Instant.now().toString();
+            collection.put("_id", id);
+            collection.set("parentId", p.path("parentId").isMissingNode() ? null : p.get("parentId"));
+            collection.put("teamId", "stub-team").put("tmbId", "stub-tmb")
+                    .put("datasetId", dataset.path("_id").asText())
+                    .put("type", type)
+                    .put("name", p.path("name").asText(Objects.isNull(sourceName) ? "collection-" + id : sourceName))
+                    .put("trainingType", p.path("trainingType").asText("chunk"))
+                    .put("chunkSize", p.path("chunkSize").asInt(512))
+                    .put("chunkSplitter", p.path("chunkSplitter").asText(""))
+                    .put("qaPrompt", p.path("qaPrompt").asText(""))
+                    .put("rawTextLength", p.path("text").asText("").length())
+                    .put("sourceName", sourceName)
+                    .put("canWrite", true)
+                    .put("createTime", now)
+                    .put("updateTime", now);
+            collections.put(id, collection);
+            return collection;
+        }
+    }
+
+    private JsonNode createTextCollection(ObjectNode p) {
+        String text = require(p, "text");
+        synchronized (store) {
+            ObjectNode collection = createCollection(p, "virtual", null);
+            int chunkSize = p.path("chunkSize").asInt(0) > 0 ? p.path("chunkSize").asInt() : 512;
+            String splitter = p.path("chunkSplitter").asText("");
+            List<String> chunks = new ArrayList<>();
+            if (splitter.isEmpty()) {
+                for (int i = 0; i < text.length(); i += chunkSize) {
+                    chunks.add(text.substring(i, Math.min(text.length(), i + chunkSize)));
+                }
+            } else {
+                for (String chunk : text.split(Pattern.quote(splitter))) {
+                    if (!chunk.trim().isEmpty()) {
+                        chunks.add(chunk);
+                    }
+                }
+            }
+            ArrayNode items = mapper.createArrayNode();
+            chunks.forEach(c -> items.addObject().put("q", c).put("a", ""));
+            ObjectNode resp = mapper.createObjectNode().put("collectionId", collection.path("_id").asText());
+            resp.set("results", insert(collection, items));
+            return resp;
+        }
+    }
+
+    private JsonNode getCollection(ObjectNode p) {
+        synchronized (store) {
+            ObjectNode collection = find(collections, require(p, "id"), "Collection").deepCopy();
+            // 详情接口中 datasetId 是展开后的知识库对象
+            collection.set("datasetId", datasets.get(collection.path("datasetId").asText()).deepCopy());
+            return collection;
+        }
+    }
+
+    private JsonNode listCollection(ObjectNode p) {
+        String datasetId = require(p, "datasetId");
+        String parentId = p.path("parentId").asText(null);
+        String searchText = p.path("searchText").asText("");
+        synchronized (store) {
+            List<ObjectNode> matched = collections.values().stream()
+                    .filter(c -> datasetId.equals(c.path("datasetId").asText()))
+                    .filter(c -> Objects.equals(parentId, c.path("parentId").asText(null)))
+                    .filter(c -> c.path("name").asText().contains(searchText))
+                    .map(c -> {
+                        String id = c.path("_id").asText();
+                        ObjectNode copy = c.deepCopy();
+                        copy.put("dataAmount", data.values().stream().filter(d -> id.equals(d.path("collectionId").asText())).count());
+                        copy.put("trainingAmount", 0);
+                        return copy;
+                    })
+                    .collect(Collectors.toList());
+            return page(p, matched);
+        }
+    }
+
+    private JsonNode updateCollection(ObjectNode p) {
+        synchronized (store) {
+            ObjectNode collection = find(collections, require(p, "id"), "Collection");
+            if (p.hasNonNull("parentId")) {
+                collection.set("parentId", p.get("parentId"));
+            }
+            if (p.hasNonNull("name")) {
+                collection.set("name", p.get("name"));
+            }
+            collection.put("updateTime", Instant.now().toString());
+        }
+        return null;
+    }
+
+    private JsonNode deleteCollection(ObjectNode p) {
+        synchronized (store) {
+            String id = find(collections, require(p, "id"), "Collection").path("_id").asText();
+            collections.remove(id);
+            removeIf(data, d -> id.equals(d.path("collectionId").asText()));
+        }
+        return null;
+    }
+
+    private JsonNode pushData(ObjectNode p) {
+        synchronized (store) {
+            ObjectNode collection = find(collections, require(p, "collectionId"), "Collection");
+            return insert(collection, p.path("data"));
+        }
+    }
+
+    /** 与 pushData 的结果结构一致，q 为空计入 error，集合内 q 重复计入 repeat */
+    private ObjectNode insert(ObjectNode collection, JsonNode items) {
+        String collectionId = collection.path("_id").asText();
+        Set<String> existing = data.values().stream()
+                .filter(d -> collectionId.equals(d.path("collectionId").asText()))
+                .map(d -> d.path("q").asText())
+                .collect(Collectors.toCollection(HashSet::new));
+        int chunkIndex = existing.size();
+        ObjectNode result = mapper.createObjectNode();
+        ArrayNode repeat = mapper.createArrayNode();
+        ArrayNode error = mapper.createArrayNode();
+        int inserted = 0;
+        for (JsonNode item : items) {
+            String q = item.path("q").asText("");
+            if (q.trim().isEmpty()) {
+                error.add(item);
+                continue;
+            }
+            if (!existing.add(q)) {
+                repeat.add(item);
+                continue;
+            }
+            ObjectNode d = mapper.createObjectNode();
+            String id = nextId();
+            d.put("_id", id).put("teamId", "stub-team")
+                    .put("datasetId", collection.path("datasetId").asText())
+                    .put("collectionId", collectionId)
+                    .put("q", q)
+                    .put("a", item.path("a").asText(""))
+                    .put("chunkIndex", chunkIndex++);
+            ArrayNode indexes = d.putArray("indexes");
+            indexes.addObject().put("defaultIndex", true).put("type", "chunk").put("dataId", nextId()).put("text", q);
+            item.path("indexes").forEach(indexes::add);
+            d.put("sourceName", collection.path("sourceName").asText(collection.path("name").asText()))
+                    .put("sourceId", collectionId)
+                    .put("canWrite", true);
+            data.put(id, d);
+            inserted++;
+        }
+        result.put("insertLen", inserted);
+        result.putArray("overToken");
+        result.set("repeat", repeat);
+        result.set("error", error);
+        return result;
+    }
+
+    private JsonNode listData(ObjectNode p) {
+        String collectionId = require(p, "collectionId");
+        String searchText = p.path("searchText").asText("");
+        synchronized (store) {
+            List<ObjectNode> matched = data.values().stream()
+                    .filter(d -> collectionId.equals(d.path("collectionId").asText()))
+                    .filter(d -> d.path("q").asText().contains(searchText) || d.path("a").asText().contains(searchText))
+                    .map(ObjectNode::deepCopy)
+                    .collect(Collectors.toList());
+            return page(p, matched);
+        }
+    }
+
+    private JsonNode updateData(ObjectNode p) {
+        synchronized (store) {
+            ObjectNode d = find(data, require(p, "id"), "Data");
+            if (p.hasNonNull("q")) {
+                d.set("q", p.get("q"));
+            }
+            if (p.hasNonNull("a")) {
+                d.set("a", p.get("a"));
+            }
+            JsonNode indexes = p.get("indexes");
+            if (Objects.nonNull(indexes) && indexes.isTextual()) {
+                try {
+                    indexes = mapper.readTree(indexes.asText());
+                } catch (IOException e) {
+                    throw new StubException(400, "indexes is not json");
+                }
+            }
+            if (Objects.nonNull(indexes) && indexes.isArray()) {
+                d.set("indexes", indexes);
+            }
+        }
+        return null;
+    }
+
+    private JsonNode deleteData(ObjectNode p) {
+        synchronized (store) {
+            data.remove(find(data, require(p, "id"), "Data").path("_id").asText());
+        }
+        return null;
+    }
+
+    /**
+     * 按查询文本的二元字符组命中比例打分，limit 与 FastGPT 一致按 q + a 的长度累计截断
+     */
+    private JsonNode searchTest(ObjectNode p) {
+        String datasetId = require(p, "datasetId");
+        String text = require(p, "text");
+        int limit = p.path("limit").asInt(5000);
+        Set<String> grams = bigrams(text);
+        List<ObjectNode> hits = new ArrayList<>();
+        synchronized (store) {
+            find(datasets, datasetId, "Dataset");
+            for (ObjectNode d : data.values()) {
+                if (!datasetId.equals(d.path("datasetId").asText())) {
+                    continue;
+                }
+                Set<String> target = bigrams(d.path("q").asText() + d.path("a").asText());
+                long hit = grams.stream().filter(target::contains).count();
+                if (hit == 0) {
+                    continue;
+                }
+                ObjectNode item = mapper.createObjectNode();
+                item.put("id", d.path("_id").asText())
+                        .put("datasetId", datasetId)
+                        .put("collectionId", d.path("collectionId").asText())
+                        .put("q", d.path("q").asText())
+                        .put("a", d.path("a").asText())
+                        .put("chunkIndex", d.path("chunkIndex").asInt())
+                        .put("sourceName", d.path("sourceName").asText())
+                        .put("sourceId", d.path("sourceId").asText());
+                item.putArray("score").addObject()
+                        .put("type", "embedding")
+                        .put("value", (double) hit / grams.size())
+                        .put("index", 0);
+                hits.add(item);
+            }
+        }
+        hits.sort(Comparator.comparingDouble((ObjectNode n) -> n.path("score").path(0).path("value").asDouble()).reversed());
+        ArrayNode list = mapper.createArrayNode();
+        int used = 0;
+        for (int i = 0; i < hits.size(); i++) {
+            ObjectNode item = hits.get(i);
+            item.get("score").forEach(s -> ((ObjectNode) s).put("index", list.size()));
+            used += item.path("q").asText().length() + item.path("a").asText().length();
+            if (limit > 0 && used > limit && list.size() > 0) {
+                break;
+            }
+            list.add(item);
+        }
+        ObjectNode resp = mapper.createObjectNode();
+        resp.set("list", list);
+        resp.put("searchMode", p.path("searchMode").asText("embedding"))
+                .put("limit", limit)
+                .put("similarity", p.path("similarity").asDouble(0))
+                .put("usingReRank", p.path("usingReRank").asBoolean(false))
+                .put("usingSimilarityFilter", false)
+                .put("duration", "0.001s");
+        return resp;
+    }
+
+    private static Set<String> bigrams(String s) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 1 < s.length(); i++) {
+            grams.add(s.substring(i, i + 2));
+        }
+        if (grams.isEmpty() && !s.isEmpty()) {
+            grams.add(s);
+        }
+        return grams;
+    }
+
+    private JsonNode page(ObjectNode p, List<ObjectNode> items) {
+        int pageNum = Math.max(1, p.path("pageNum").asInt(1));
+        int pageSize = Math.max(1, p.path("pageSize").asInt(10));
+        ObjectNode page = mapper.createObjectNode()
+                .put("pageNum", pageNum)
+                .put("pageSize", pageSize)
+                .put("total", items.size());
+        ArrayNode list = page.putArray("data");
+        items.stream().skip((long) (pageNum - 1) * pageSize).limit(pageSize).forEach(list::add);
+        return page;
+    }
+
+    private static void removeIf(Map<String, ObjectNode> items, Predicate<ObjectNode> predicate) {
+        Iterator<ObjectNode> it = items.values().iterator();
+        while (it.hasNext()) {
+            if (predicate.test(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    private String answer(ObjectNode p) {
+        JsonNode messages = p.path("messages");
+        String question = messages.size() == 0 ? "" : messages.get(messages.size() - 1).path("content").asText("");
+        return answer.apply(question);
+    }
+
+    private JsonNode chat(ObjectNode p) {
+        String content = answer(p);
+        ObjectNode resp = mapper.createObjectNode().put("id", p.path("chatId").asText("")).put("model", "");
+        resp.putObject("usage").put("prompt_tokens", 1).put("completion_tokens", 1).put("total_tokens", 1);
+        ObjectNode choice = resp.putArray("choices").addObject();
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        choice.put("finish_reason", "stop").put("index", 0);
+        if (p.path("detail").asBoolean()) {
+            resp.putArray("responseData").addObject()
+                    .put("moduleName", "AI 对话").put("moduleType", "chatNode").put("runningTime", 0.01);
+        }
+        return resp;
+    }
+
+    /**
+     * 按 {@link #tokensPerSecond(double)} 输出 answer 事件，detail 时前后带 flowNodeStatus 和 flowResponses
+     * @param abortAfter 发出该数量的事件后断开连接，-1 表示不中断
+     */
+    private void chatStream(HttpExchange exchange, ObjectNode p, int abortAfter) throws IOException {
+        boolean detail = p.path("detail").asBoolean();
+        String content = answer(p);
+        List<String> events = new ArrayList<>();
+        if (detail) {
+            events.add(event("flowNodeStatus", mapper.createObjectNode().put("status", "running").put("name", "AI 对话")));
+        }
+        for (int i = 0; i < content.length(); i += tokenLength) {
+            ObjectNode chunk = chunk();
+            chunk.putArray("choices").addObject()
+                    .put("index", 0)
+                    .putNull("finish_reason")
+                    .putObject("delta").put("role", "assistant").put("content",
+                            content.substring(i, Math.min(content.length(), i + tokenLength)));
+            events.add(event(detail ? "answer" : null, chunk));
+        }
+        ObjectNode stop = chunk();
+        ObjectNode choice = stop.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop");
+        choice.putObject("delta");
+        events.add(event(detail ? "answer" : null, stop));
+        if (detail) {
+            ArrayNode responses = mapper.createArrayNode();
+            responses.addObject().put("moduleName", "AI 对话").put("moduleType", "chatNode").put("runningTime", 0.01);
+            events.add(event("flowResponses", responses));
+        }
+        events.add((detail ? "event: answer\n" : "") + "data: [DONE]\n\n");
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream;charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        long interval = tokensPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond) : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < events.size(); i++) {
+            if (i == abortAfter) {
+                // 处理器抛出异常时连接被直接关闭，分块编码没有结束标记，客户端读到的是不完整的响应
+                throw new IOException("stream aborted by fault after " + abortAfter + " events");
+            }
+            long wait = start + interval * i - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            out.write(events.get(i).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        out.close();
+    }
+
+    private ObjectNode chunk() {
+        return mapper.createObjectNode().put("id", "").put("object", "").put("created", 0).put("model", "");
+    }
+
+    private String event(String event, JsonNode data) throws IOException {
+        return (Objects.isNull(event) ? "" : "event: " + event + "\n") + "data: " + mapper.writeValueAsString(data) + "\n\n";
+    }
+
+    private void ok(HttpExchange exchange, JsonNode data) throws IOException {
+        ObjectNode resp = mapper.createObjectNode().put("code", 200).put("statusText", "").put("message", "");
+        resp.set("data", data);
+        write(exchange, 200, resp);
+    }
+
+    private void write(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /** combParams 不做编码，解码失败时保留原值 */
+    private static Map<String, String> parseQuery(String query) {
+        if (Objects.isNull(query) || query.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                v = URLDecoder.decode(v, "UTF-8");
+            } catch (UnsupportedEncodingException | IllegalArgumentException ignore) {
+            }
+            params.put(k, v);
+        }
+        return params;
+    }
+}
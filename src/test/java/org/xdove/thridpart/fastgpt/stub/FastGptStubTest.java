@@ -0,0 +1,167 @@
+package org.xdove.thridpart.fastgpt.stub;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.RetryConfig;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.entity.DataItem;
+import org.xdove.thridpart.fastgpt.entity.Page;
+import org.xdove.thridpart.fastgpt.entity.PushData;
+import org.xdove.thridpart.fastgpt.entity.PushDataResult;
+import org.xdove.thridpart.fastgpt.entity.Response;
+import org.xdove.thridpart.fastgpt.entity.SearchResult;
+import org.xdove.thridpart.fastgpt.sse.ChatStreamListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class FastGptStubTest {
+
+    private static final List<ChatMessage> MESSAGES = Collections.singletonList(new ChatMessage("你好"));
+
+    private FastGptStub stub;
+    private ServiceRequests requests;
+
+    @Before
+    public void setUp() throws Exception {
+        stub = FastGptStub.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (requests != null) {
+            requests.destroy();
+        }
+        stub.close();
+    }
+
+    private ServiceRequests requests(Config config) {
+        requests = new ServiceRequests(config);
+        return requests;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void datasetLifecycle() {
+        ServiceRequests requests = requests(stub.config());
+        String datasetId = (String) requests.createDataset(null, "dataset", "测试知识库", null, null, null, null).get("data");
+        Assert.assertEquals("测试知识库", requests.getDatasetTyped(datasetId).getData().getName());
+
+        Map<String, Object> text = requests.createTextCollection("第一段。第二段。", datasetId, null, "文本", null,
+                "chunk", 0, "。", null);
+        String collectionId = (String) ((Map<String, Object>) text.get("data")).get("collectionId");
+
+        Response<PushDataResult> pushed = requests.pushDataTyped(collectionId, "chunk", null, Arrays.asList(
+                new PushData("知识库问答", "FastGPT", null),
+                new PushData("第一段", "", null)));
+        Assert.assertEquals(1, pushed.getData().getInsertLen());
+        Assert.assertEquals(1, pushed.getData().getRepeat().size());
+
+        Page<DataItem> page = requests.listDataTyped(collectionId, 1, 2, null).getData();
+        Assert.assertEquals(3, page.getTotal());
+        Assert.assertEquals(2, page.getData().size());
+
+        SearchResult result = requests.searchTestDatasetTyped(datasetId, "知识库", 5000, 0, "embedding", false).getData();
+        Assert.assertEquals("知识库问答", result.getList().get(0).getQ());
+
+        String dataId = result.getList().get(0).getId();
+        requests.updateData(dataId, "知识库问答系统", null, null);
+        Assert.assertEquals("知识库问答系统", requests.getDataTyped(dataId).getData().getQ());
+
+        requests.deleteCollection(collectionId);
+        Assert.assertEquals(500, requests.getDataTyped(dataId).getCode());
+        Assert.assertEquals("Bearer " + FastGptStub.KEY,
+                stub.requests(ServiceRequests.PATH_DATA_GET).get(0).header("Authorization"));
+    }
+
+    @Test
+    public void chatStreamTokenRate() {
+        stub.answer("0123456789").tokenLength(1).tokensPerSecond(100);
+        StringBuilder content = new StringBuilder();
+        long start = System.nanoTime();
+        requests(stub.config()).chatCompletionsStream(null, false, null, MESSAGES, new ChatStreamListener() {
+            @Override
+            public void onEvent(ChatStreamEvent event) {
+                if (event.getContent() != null) {
+                    content.append(event.getContent());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                Assert.fail(t.toString());
+            }
+        });
+        Assert.assertEquals("0123456789", content.toString());
+        // 10 个片段 + 结束片段 + [DONE]，间隔 10ms
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        Assert.assertEquals("0123456789", requests.chatCompletionsTyped(null, false, null, MESSAGES).getContent());
+    }
+
+    @Test
+    public void retriesInjectedFaults() {
+        stub.fault(Fault.status(503).path(ServiceRequests.PATH_DATESET_LIST).times(2))
+                .fault(Fault.rateLimited(Duration.ZERO).path(ServiceRequests.PATH_DATESET_GET).times(1));
+        Config config = stub.config();
+        config.setRetry(RetryConfig.builder().initialBackoff(Duration.ofMillis(10)).build());
+        ServiceRequests requests = requests(config);
+
+        Assert.assertEquals(200, requests.listDatasetTyped(null).getCode());
+        Assert.assertEquals(3, stub.requests(ServiceRequests.PATH_DATESET_LIST).size());
+        Assert.assertEquals(500, requests.getDatasetTyped("missing").getCode());
+        Assert.assertEquals(2, stub.requests(ServiceRequests.PATH_DATESET_GET).size());
+    }
+
+    @Test
+    public void disconnectAndAbortedStream() throws Exception {
+        stub.fault(Fault.disconnect().path(ServiceRequests.PATH_DATESET_GET).times(1))
+                .fault(Fault.disconnect().path(ServiceRequests.PATH_DATESET_CREATE).times(1))
+                .fault(Fault.abortStream(2));
+        ServiceRequests requests = requests(stub.config());
+        // HttpClient 自带的重试只重发幂等请求
+        Assert.assertEquals(500, requests.getDatasetTyped("missing").getCode());
+        Assert.assertEquals(2, stub.requests(ServiceRequests.PATH_DATESET_GET).size());
+        try {
+            requests.createDataset(null, null, "测试知识库", null, null, null, null);
+            Assert.fail();
+        } catch (RuntimeException ignore) {
+        }
+        Assert.assertEquals(1, stub.requests(ServiceRequests.PATH_DATESET_CREATE).size());
+
+        CompletableFuture<Throwable> error = new CompletableFuture<>();
+        requests.chatCompletionsStream(null, false, null, MESSAGES, new ChatStreamListener() {
+            @Override
+            public void onEvent(ChatStreamEvent event) {
+            }
+
+            @Override
+            public void onComplete() {
+                error.complete(null);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error.complete(t);
+            }
+        });
+        Assert.assertNotNull(error.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void unauthorized() {
+        Config config = new Config(stub.url(), "wrong", FastGptStub.CHAT_KEY, "UTF-8", "v1");
+        ServiceRequests requests = requests(config);
+        Assert.assertEquals(401, requests.listDatasetTyped(null).getCode());
+        Assert.assertEquals("收到：你好", requests.chatCompletionsTyped(null, false, null, MESSAGES).getContent());
+    }
+}
@@ -0,0 +1,106 @@
+package org.xdove.thridpart.fastgpt.stub;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * {@link FastGptStub} 的故障注入规则。
+ * 默认对所有路径的每次请求生效，可以用 {@link #path(String)}、{@link #times(int)}、{@link #probability(double)} 缩小范围。
+ */
+public class Fault {
+
+    enum Kind {
+        /** 返回指定响应码 */
+        STATUS,
+        /** 不返回响应，直接断开连接 */
+        DISCONNECT,
+        /** 流式对话在发出若干事件后断开 */
+        ABORT_STREAM,
+        /** 等待一段时间后正常处理 */
+        DELAY
+    }
+
+    final Kind kind;
+    final int status;
+    final int afterEvents;
+    Duration retryAfter;
+    Duration delay;
+    String path;
+    double probability = 1;
+    private int skip;
+    private int remaining = Integer.MAX_VALUE;
+
+    private Fault(Kind kind, int status, int afterEvents) {
+        this.kind = kind;
+        this.status = status;
+        this.afterEvents = afterEvents;
+    }
+
+    /** 返回指定响应码，响应体与 FastGPT 的错误结构一致 */
+    public static Fault status(int status) {
+        return new Fault(Kind.STATUS, status, 0);
+    }
+
+    /** 429，带 Retry-After */
+    public static Fault rateLimited(Duration retryAfter) {
+        Fault fault = new Fault(Kind.STATUS, 429, 0);
+        fault.retryAfter = retryAfter;
+        return fault;
+    }
+
+    /** 读取请求后直接断开连接，客户端表现为 NoHttpResponseException 或连接重置 */
+    public static Fault disconnect() {
+        return new Fault(Kind.DISCONNECT, 0, 0);
+    }
+
+    /** 流式对话发出 afterEvents 个事件后断开，不发送 [DONE] */
+    public static Fault abortStream(int afterEvents) {
+        return new Fault(Kind.ABORT_STREAM, 200, afterEvents);
+    }
+
+    /** 在 {@link FastGptStub#latency} 之外再等待 delay 后正常处理，用于模拟个别慢请求 */
+    public static Fault slow(Duration delay) {
+        Fault fault = new Fault(Kind.DELAY, 200, 0);
+        fault.delay = delay;
+        return fault;
+    }
+
+    /** 只对该路径生效，取值为 ServiceRequests 的 PATH_* 常量 */
+    public Fault path(String path) {
+        this.path = path;
+        return this;
+    }
+
+    /** 只生效 n 次，之后请求正常处理 */
+    public synchronized Fault times(int n) {
+        this.remaining = n;
+        return this;
+    }
+
+    /** 跳过前 n 个匹配的请求后再生效 */
+    public synchronized Fault after(int n) {
+        this.skip = n;
+        return this;
+    }
+
+    /** 按概率生效，随机数使用 {@link FastGptStub#seed(long)} 的种子，结果可复现 */
+    public Fault probability(double probability) {
+        this.probability = probability;
+        return this;
+    }
+
+    synchronized boolean matches(String path, double random) {
+        if (Objects.nonNull(this.path) && !this.path.equals(path)) {
+            return false;
+        }
+        if (skip > 0) {
+            skip--;
+            return false;
+        }
+        if (random >= probability || remaining <= 0) {
+            return false;
+        }
+        remaining--;
+        return true;
+    }
+}
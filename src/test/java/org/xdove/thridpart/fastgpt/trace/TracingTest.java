@@ -0,0 +1,88 @@
+package org.xdove.thridpart.fastgpt.trace;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.TracerProvider;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.entity.ChatStreamEvent;
+import org.xdove.thridpart.fastgpt.trace.otel.OpenTelemetryClientTracer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+public class TracingTest {
+
+    private static class RecordingSpan implements TraceSpan {
+        final Map<String, Object> attributes = new HashMap<>();
+        final List<String> events = new ArrayList<>();
+        int ends;
+
+        @Override
+        public void setAttribute(String key, String value) {
+            attributes.put(key, value);
+        }
+
+        @Override
+        public void setAttribute(String key, long value) {
+            attributes.put(key, value);
+        }
+
+        @Override
+        public void inject(BiConsumer<String, String> header) {
+        }
+
+        @Override
+        public void addEvent(String name) {
+            events.add(name);
+        }
+
+        @Override
+        public void setStatus(int status) {
+        }
+
+        @Override
+        public void end(Throwable error) {
+            ends++;
+        }
+    }
+
+    @Test
+    public void chatStreamTrace() {
+        RecordingSpan span = new RecordingSpan();
+        ChatStreamTrace trace = new ChatStreamTrace(span, true);
+        trace.onEvent(new ChatStreamEvent(ChatStreamEvent.Type.FLOW_NODE_STATUS, "flowNodeStatus", null, null));
+        trace.onEvent(new ChatStreamEvent(ChatStreamEvent.Type.ANSWER, "answer", "a", null));
+        trace.onEvent(new ChatStreamEvent(ChatStreamEvent.Type.ANSWER, "answer", "b", null));
+        trace.onEvent(new ChatStreamEvent(ChatStreamEvent.Type.DONE, null, null, null));
+        trace.end(null);
+        trace.end(null);
+
+        Assert.assertEquals(4L, span.attributes.get(TraceSpan.ATTR_STREAM_EVENTS));
+        Assert.assertEquals(2, span.events.size());
+        Assert.assertEquals(TraceSpan.EVENT_FIRST_TOKEN, span.events.get(0));
+        Assert.assertEquals(TraceSpan.EVENT_COMPLETED, span.events.get(1));
+        Assert.assertEquals(1, span.ends);
+    }
+
+    @Test
+    public void injectTraceparent() {
+        SpanContext parent = SpanContext.create("0af7651916cd43dd8448eb211c80319c", "b7ad6b7169203331",
+                TraceFlags.getSampled(), TraceState.getDefault());
+        OpenTelemetryClientTracer tracer = new OpenTelemetryClientTracer(TracerProvider.noop().get("test"));
+        Map<String, String> headers = new HashMap<>();
+        try (Scope ignore = Context.root().with(Span.wrap(parent)).makeCurrent()) {
+            TraceSpan span = tracer.start("/api/v1/chat/completions", "POST");
+            span.inject(headers::put);
+            span.end(null);
+        }
+        Assert.assertTrue(headers.get("traceparent").startsWith("00-0af7651916cd43dd8448eb211c80319c-"));
+    }
+}
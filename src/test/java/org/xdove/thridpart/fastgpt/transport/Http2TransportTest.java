@@ -0,0 +1,298 @@
+package org.xdove.thridpart.fastgpt.transport;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.AbstractBinAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.URIBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.HttpPoolConfig;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Http2TransportTest {
+
+    private static final int BIG = 1024 * 1024;
+
+    private HttpAsyncServer server;
+    private ScheduledExecutorService delays;
+    private String url;
+    /** 服务端看到的客户端地址，每个地址对应一个连接 */
+    private final Set<SocketAddress> connections = ConcurrentHashMap.newKeySet();
+    /** 服务端收到的请求体字节数 */
+    private final AtomicLong received = new AtomicLong();
+    private ServiceRequests requests;
+
+    @Before
+    public void setUp() throws Exception {
+        delays = Executors.newSingleThreadScheduledExecutor();
+        server = H2ServerBootstrap.bootstrap()
+                .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+                .register("*", new Handler())
+                .create();
+        server.start();
+        InetSocketAddress address = (InetSocketAddress) server.listen(new InetSocketAddress("127.0.0.1", 0), URIScheme.HTTP)
+                .get().getAddress();
+        url = "http://127.0.0.1:" + address.getPort();
+    }
+
+    @After
+    public void tearDown() {
+        if (requests != null) {
+            requests.destroy();
+        }
+        server.close(CloseMode.IMMEDIATE);
+        delays.shutdownNow();
+    }
+
+    private ServiceRequests requests() {
+        Config config = new Config(url, "key", "chat-key", "UTF-8", "v1");
+        config.setTransport(TransportType.HTTP2);
+        requests = new ServiceRequests(config);
+        return requests;
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        ServiceRequests requests = requests();
+        Assert.assertEquals("测试知识库", requests.getDatasetTyped("测试知识库").getData().getName());
+        try (InputStream in = requests.chatCompletionsStream(null, false, null,
+                Collections.singletonList(new ChatMessage("你好")))) {
+            Assert.assertEquals("data: [DONE]\n\n", IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(1, connections.size());
+    }
+
+    @Test
+    public void multiplexesConcurrentRequests() throws Exception {
+        ServiceRequests requests = requests();
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        try {
+            long start = System.nanoTime();
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                String name = "dataset-" + i;
+                futures.add(callers.submit(() -> requests.getDatasetTyped(name).getData().getName()));
+            }
+            for (int i = 0; i < 16; i++) {
+                Assert.assertEquals("dataset-" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+            // 每个请求服务端延迟 200ms，串行需要 3.2s
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1600);
+            Assert.assertEquals(1, connections.size());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void closingUnreadBodyResetsStream() throws Exception {
+        HttpPoolConfig pool = HttpPoolConfig.builder().build();
+        try (Http2Transport transport = new Http2Transport(pool.createHttp2Client(true))) {
+            try (ClassicHttpResponse response = transport.execute(new HttpGet(url + "/big"))) {
+                InputStream in = response.getEntity().getContent();
+                Assert.assertTrue(in.read() >= 0);
+                in.close();
+            }
+            // 未读完的流如果仍占着连接级流量窗口，后面的大响应会卡住
+            try (ClassicHttpResponse response = transport.execute(new HttpGet(url + "/big"))) {
+                Assert.assertEquals(BIG, IOUtils.toByteArray(response.getEntity().getContent()).length);
+            }
+        }
+        Assert.assertEquals(1, connections.size());
+    }
+
+    @Test
+    public void streamsRequestBody() throws Exception {
+        long size = 2L * BIG;
+        HttpPoolConfig pool = HttpPoolConfig.builder().build();
+        try (Http2Transport transport = new Http2Transport(pool.createHttp2Client(true))) {
+            HttpPost upload = new HttpPost(url + "/upload");
+            upload.setEntity(new GeneratedEntity(size, -1));
+            try (ClassicHttpResponse response = transport.execute(upload)) {
+                Assert.assertEquals(200, response.getCode());
+            }
+            Assert.assertEquals(size, received.get());
+
+            // writeTo 失败时调用方得到原异常
+            HttpPost broken = new HttpPost(url + "/upload");
+            broken.setEntity(new GeneratedEntity(size, BIG));
+            try {
+                transport.execute(broken).close();
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertEquals("broken", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按需生成的请求体，写出 failAt 字节后抛出异常，failAt 为负数时不失败
+     */
+    private static final class GeneratedEntity extends AbstractHttpEntity {
+
+        private final long size;
+        private final long failAt;
+
+        GeneratedEntity(long size, long failAt) {
+            super(ContentType.APPLICATION_OCTET_STREAM, null, true);
+            this.size = size;
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            byte[] chunk = new byte[8192];
+            Arrays.fill(chunk, (byte) 'a');
+            for (long written = 0; written < size; written += chunk.length) {
+                if (failAt >= 0 && written >= failAt) {
+                    throw new IOException("broken");
+                }
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private class Handler implements AsyncServerRequestHandler<Message<HttpRequest, Void>> {
+
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(HttpRequest request, EntityDetails entityDetails,
+                                                                      HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails == null ? null : new AbstractBinAsyncEntityConsumer<Void>() {
+                @Override
+                protected void streamStart(ContentType contentType) {
+                }
+
+                @Override
+                protected int capacityIncrement() {
+                    return Integer.MAX_VALUE;
+                }
+
+                @Override
+                protected void data(ByteBuffer src, boolean endOfStream) {
+                    received.addAndGet(src.remaining());
+                    src.position(src.limit());
+                }
+
+                @Override
+                protected Void generateContent() {
+                    return null;
+                }
+
+                @Override
+                public void releaseResources() {
+                }
+            });
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, Void> message, ResponseTrigger trigger, HttpContext context)
+                throws HttpException, IOException {
+            connections.add(HttpCoreContext.adapt(context).getEndpointDetails().getRemoteAddress());
+            HttpRequest request = message.getHead();
+            String path;
+            String id;
+            try {
+                URIBuilder uri = new URIBuilder(request.getUri());
+                path = uri.getPath();
+                id = uri.getQueryParams().stream().filter(param -> "id".equals(param.getName()))
+                        .map(NameValuePair::getValue).findFirst().orElse(null);
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+            if (ServiceRequests.PATH_CHAT_COMPLETIONS.equals(path)) {
+                trigger.submitResponse(AsyncResponseBuilder.create(200)
+                        .setEntity(AsyncEntityProducers.create("data: [DONE]\n\n", ContentType.create("text/event-stream")))
+                        .build(), context);
+            } else if ("/upload".equals(path)) {
+                trigger.submitResponse(AsyncResponseBuilder.create(200).build(), context);
+            } else if ("/big".equals(path)) {
+                byte[] body = new byte[BIG];
+                Arrays.fill(body, (byte) 'a');
+                trigger.submitResponse(AsyncResponseBuilder.create(200)
+                        .setEntity(AsyncEntityProducers.create(body, ContentType.APPLICATION_OCTET_STREAM))
+                        .build(), context);
+            } else {
+                String json = "{\"code\":200,\"data\":{\"_id\":\"" + id + "\",\"name\":\"" + id + "\"}}";
+                delays.schedule(() -> {
+                    try {
+                        trigger.submitResponse(AsyncResponseBuilder.create(200)
+                                .setEntity(AsyncEntityProducers.create(json, ContentType.APPLICATION_JSON))
+                                .build(), context);
+                    } catch (HttpException | IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, 200, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.xdove.thridpart.fastgpt.transport;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.xdove.thridpart.fastgpt.Config;
+import org.xdove.thridpart.fastgpt.HttpPoolConfig;
+import org.xdove.thridpart.fastgpt.ServiceRequests;
+import org.xdove.thridpart.fastgpt.entity.ChatMessage;
+import org.xdove.thridpart.fastgpt.entity.PushData;
+import org.xdove.thridpart.fastgpt.stub.FastGptStub;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class JdkTransportsTest {
+
+    private FastGptStub stub;
+    private ServiceRequests requests;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(JdkTransports.isSupported());
+        stub = FastGptStub.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (requests != null) {
+            requests.destroy();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    private ServiceRequests requests(HttpPoolConfig pool) {
+        Config config = stub.config();
+        config.setPool(pool);
+        config.setVirtualThreads(true);
+        requests = new ServiceRequests(config);
+        return requests;
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        ServiceRequests requests = requests(HttpPoolConfig.builder().build());
+        String datasetId = (String) requests.createDataset(null, null, "测试知识库", null, null, null, null).get("data");
+        Assert.assertEquals("测试知识库", requests.getDatasetTyped(datasetId).getData().getName());
+        Assert.assertEquals(500, requests.getDatasetTyped("missing").getCode());
+
+        try (InputStream in = requests.chatCompletionsStream(null, false, null,
+                Collections.singletonList(new ChatMessage("你好")))) {
+            Assert.assertTrue(IOUtils.toString(in, StandardCharsets.UTF_8).endsWith("data: [DONE]\n\n"));
+        }
+        Assert.assertEquals("Bearer " + FastGptStub.CHAT_KEY,
+                stub.requests(ServiceRequests.PATH_CHAT_COMPLETIONS).get(0).header("Authorization"));
+    }
+
+    @Test
+    public void boundsConcurrentRequests() throws Exception {
+        stub.latency(ServiceRequests.PATH_DATESET_GET, Duration.ofMillis(100), Duration.ZERO);
+        ServiceRequests requests = requests(HttpPoolConfig.builder().maxTotal(2).build());
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            long start = System.nanoTime();
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(callers.submit(() -> requests.getDatasetTyped("missing").getCode()));
+            }
+            for (Future<Integer> f : futures) {
+                Assert.assertEquals(500, (int) f.get(5, TimeUnit.SECONDS));
+            }
+            // 8 个请求每次最多 2 个，每个 100ms
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 400);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void connectionRequestTimeout() throws Exception {
+        ServiceRequests requests = requests(HttpPoolConfig.builder().maxTotal(1)
+                .connectionRequestTimeout(Duration.ofMillis(50)).build());
+        try (InputStream held = requests.chatCompletionsStream(null, false, null,
+                Collections.singletonList(new ChatMessage("你好")))) {
+            try {
+                requests.getDatasetTyped("missing");
+                Assert.fail();
+            } catch (RuntimeException ignore) {
+            }
+        }
+        Assert.assertEquals(500, requests.getDatasetTyped("missing").getCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void streamsRequestBody() throws Exception {
+        ServiceRequests requests = requests(HttpPoolConfig.builder().build());
+        String datasetId = (String) requests.createDataset(null, null, "测试知识库", null, null, null, null).get("data");
+        String collectionId = (String) requests.createCollection(datasetId, null, "批量", "virtual", null).get("data");
+        List<PushData> data = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            data.add(new PushData("问题" + i, "答案" + i, null));
+        }
+        Assert.assertEquals(3000, requests.pushDataTyped(collectionId, "chunk", null, data).getData().getInsertLen());
+
+        // writeTo 失败时请求失败，而不是发出截断的请求体
+        try (Transport transport = JdkTransports.create(HttpPoolConfig.builder().build())) {
+            HttpPost post = new HttpPost(stub.url() + ServiceRequests.PATH_PUSH_DATA);
+            post.setEntity(new AbstractHttpEntity(ContentType.APPLICATION_JSON, null, true) {
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    out.write("{\"collectionId\":".getBytes(StandardCharsets.UTF_8));
+                    throw new IOException("broken");
+                }
+
+                @Override
+                public InputStream getContent() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long getContentLength() {
+                    return -1;
+                }
+
+                @Override
+                public boolean isRepeatable() {
+                    return false;
+                }
+
+                @Override
+                public boolean isStreaming() {
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+            int before = stub.requests(ServiceRequests.PATH_PUSH_DATA).size();
+            try {
+                transport.execute(post).close();
+                Assert.fail();
+            } catch (IOException e) {
+                Assert.assertTrue(String.valueOf(e), e.getMessage().contains("broken"));
+            }
+            Assert.assertEquals(before, stub.requests(ServiceRequests.PATH_PUSH_DATA).size());
+        }
+    }
+
+    @Test
+    public void responseTimeoutBoundsBodyReads() throws Exception {
+        stub.tokensPerSecond(1);
+        ServiceRequests requests = requests(HttpPoolConfig.builder().responseTimeout(Duration.ofMillis(300)).build());
+        InputStream in = requests.chatCompletionsStream(null, false, null,
+                Collections.singletonList(new ChatMessage("一段需要很久才能流式输出完的回答")));
+        long start = System.nanoTime();
+        try {
+            byte[] buf = new byte[256];
+            while (in.read(buf) >= 0) {
+                Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+            }
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(String.valueOf(e), e instanceof SocketTimeoutException);
+        } finally {
+            in.close();
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+
+        // 读取超时后连接名额已归还
+        stub.tokensPerSecond(0);
+        Assert.assertEquals(500, requests.getDatasetTyped("missing").getCode());
+    }
+}